@@ -78,6 +78,13 @@ public class Grid1D extends NumericGrid {
 	}
 
 	
+	/**
+	 * @return the position of the first element in the shared buffer
+	 */
+	int getOffset() {
+		return offset;
+	}
+
 	public double indexToPhysical(double i) {
 		return i * this.spacing[0] + this.origin[0];
 	}
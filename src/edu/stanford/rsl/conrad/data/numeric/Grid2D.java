@@ -64,6 +64,13 @@ public class Grid2D extends NumericGrid implements Transformable {
 	}
 	
 	
+	/**
+	 * Constructor for subclasses that provide their own storage instead of a float array.
+	 * The subclass is responsible for setting size, spacing, origin and the row sub grids.
+	 */
+	protected Grid2D() {
+	}
+	
 	public Grid2D(Grid2D input){
 		assert input.getWidth()*input.getHeight() == this.buffer.length;
 		this.size = input.size.clone();
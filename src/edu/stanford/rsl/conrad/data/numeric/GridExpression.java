@@ -0,0 +1,587 @@
+package edu.stanford.rsl.conrad.data.numeric;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Lazy point-wise expression of grids and scalars. An expression such as
+ * <pre>
+ * x.plus(p.times(alpha)).assignTo(x);
+ * </pre>
+ * is not computed until it is assigned to a grid or summed up. Then, all grids are read in a single pass and no temporary grid is allocated.
+ * The expression is evaluated in blocks of {@link #BLOCK_SIZE} elements that stay in the cache. The blocks are distributed over the threads of
+ * {@link ParallelNumericGridOperator}. Each operation is computed in float precision such that the result equals the result of the corresponding
+ * sequence of {@link NumericPointwiseOperators}.<br>
+ * The single pass is used if all grids are {@link Grid1D}, {@link Grid2D}, or {@link Grid3D} objects of the same size. Otherwise, e.g. for OpenCL
+ * grids, the expression is evaluated operation by operation with the grid operators of the grids.
+ *
+ * @author akmaier
+ *
+ */
+public abstract class GridExpression {
+
+	/** Number of elements that are evaluated at once. */
+	public static final int BLOCK_SIZE = 1024;
+
+	private static final int PLUS = 0;
+	private static final int MINUS = 1;
+	private static final int TIMES = 2;
+	private static final int DIVIDED_BY = 3;
+	private static final int ABS = 4;
+	private static final int SQRT = 5;
+	private static final int EXP = 6;
+	private static final int LOG = 7;
+	private static final int MAX = 8;
+	private static final int MIN = 9;
+
+	/**
+	 * Creates an expression that reads the grid.
+	 * @param grid the grid
+	 * @return the expression
+	 */
+	public static GridExpression of(NumericGrid grid) {
+		return new GridNode(grid);
+	}
+
+	/** @return this + other */
+	public GridExpression plus(GridExpression other) {
+		return new BinaryNode(PLUS, this, other);
+	}
+
+	/** @return this + grid */
+	public GridExpression plus(NumericGrid grid) {
+		return plus(of(grid));
+	}
+
+	/** @return this + value */
+	public GridExpression plus(float value) {
+		return new ScalarNode(PLUS, this, value);
+	}
+
+	/** @return this - other */
+	public GridExpression minus(GridExpression other) {
+		return new BinaryNode(MINUS, this, other);
+	}
+
+	/** @return this - grid */
+	public GridExpression minus(NumericGrid grid) {
+		return minus(of(grid));
+	}
+
+	/** @return this - value */
+	public GridExpression minus(float value) {
+		return new ScalarNode(MINUS, this, value);
+	}
+
+	/** @return this * other */
+	public GridExpression times(GridExpression other) {
+		return new BinaryNode(TIMES, this, other);
+	}
+
+	/** @return this * grid */
+	public GridExpression times(NumericGrid grid) {
+		return times(of(grid));
+	}
+
+	/** @return this * value */
+	public GridExpression times(float value) {
+		return new ScalarNode(TIMES, this, value);
+	}
+
+	/** @return this / other */
+	public GridExpression dividedBy(GridExpression other) {
+		return new BinaryNode(DIVIDED_BY, this, other);
+	}
+
+	/** @return this / grid */
+	public GridExpression dividedBy(NumericGrid grid) {
+		return dividedBy(of(grid));
+	}
+
+	/** @return this / value */
+	public GridExpression dividedBy(float value) {
+		return new ScalarNode(DIVIDED_BY, this, value);
+	}
+
+	/** @return |this| */
+	public GridExpression abs() {
+		return new ScalarNode(ABS, this, 0);
+	}
+
+	/** @return sqrt(this) */
+	public GridExpression sqrt() {
+		return new ScalarNode(SQRT, this, 0);
+	}
+
+	/** @return exp(this) */
+	public GridExpression exp() {
+		return new ScalarNode(EXP, this, 0);
+	}
+
+	/** @return log(this) */
+	public GridExpression log() {
+		return new ScalarNode(LOG, this, 0);
+	}
+
+	/** @return max(this, value), i.e. values smaller than value are set to value */
+	public GridExpression max(float value) {
+		return new ScalarNode(MAX, this, value);
+	}
+
+	/** @return min(this, value), i.e. values larger than value are set to value */
+	public GridExpression min(float value) {
+		return new ScalarNode(MIN, this, value);
+	}
+
+	/**
+	 * Evaluates the expression and writes the result into the target. The target may occur in the expression.
+	 * @param target the grid that receives the result. It must have the size of the grids in the expression.
+	 */
+	public void assignTo(NumericGrid target) {
+		ArrayList<NumericGrid> grids = new ArrayList<NumericGrid>();
+		collectGrids(grids);
+		GridSegments [] segments = getSegments(grids, target);
+		if (segments == null) {
+			NumericGrid result = materialize();
+			NumericPointwiseOperators.copy(target, result);
+			return;
+		}
+		AssignTask task = new AssignTask(this, segments, 0, segments[0].getNumberOfElements());
+		invoke(task, segments[0]);
+		target.notifyAfterWrite();
+	}
+
+	/**
+	 * Evaluates the expression into a new grid. The new grid is a clone of the first grid of the expression.
+	 * @return the result
+	 */
+	public NumericGrid evaluate() {
+		ArrayList<NumericGrid> grids = new ArrayList<NumericGrid>();
+		collectGrids(grids);
+		if (grids.isEmpty()) throw new IllegalStateException("The expression does not contain a grid.");
+		NumericGrid result = grids.get(0).clone();
+		assignTo(result);
+		return result;
+	}
+
+	/**
+	 * Evaluates the expression and sums up the result without storing it. The sum is accumulated in double precision.
+	 * @return the sum of all elements of the expression
+	 */
+	public float sum() {
+		ArrayList<NumericGrid> grids = new ArrayList<NumericGrid>();
+		collectGrids(grids);
+		GridSegments [] segments = getSegments(grids, null);
+		if (segments == null) {
+			return NumericPointwiseOperators.sum(materialize());
+		}
+		return (float) invoke(new SumTask(this, segments, 0, segments[0].getNumberOfElements()), segments[0]).doubleValue();
+	}
+
+	/**
+	 * Adds all grids of the expression to the list in the order of the leaves.
+	 */
+	abstract void collectGrids(ArrayList<NumericGrid> grids);
+
+	/**
+	 * Evaluates n elements starting at element begin of the given segment into out[0] ... out[n - 1].
+	 * @param segments the segments of the grids in the order of {@link #collectGrids(ArrayList)}
+	 * @param leaf the index of the first grid of this expression
+	 * @param blocks temporary blocks. This expression may use blocks[level] and above.
+	 * @return the index of the first grid after this expression
+	 */
+	abstract int evaluate(GridSegments [] segments, int leaf, int segment, int begin, int n, float [] out, float [][] blocks, int level);
+
+	/**
+	 * @return the number of temporary blocks the evaluation needs
+	 */
+	abstract int getDepth();
+
+	/**
+	 * Evaluates the expression operation by operation into a new grid.
+	 */
+	abstract NumericGrid materialize();
+
+	/**
+	 * Returns the segments of all grids and the segments of the target as the last element,
+	 * or null if the single pass cannot be used.
+	 */
+	private static GridSegments [] getSegments(ArrayList<NumericGrid> grids, NumericGrid target) {
+		if (grids.isEmpty()) return null;
+		GridSegments [] segments = new GridSegments[grids.size() + 1];
+		for (int i = 0; i < grids.size(); i++) {
+			segments[i] = GridSegments.of(grids.get(i));
+			if (segments[i] == null || (i > 0 && !segments[0].matches(segments[i]))) return null;
+		}
+		if (target != null) {
+			segments[grids.size()] = GridSegments.of(target);
+			if (!segments[0].matches(segments[grids.size()])) return null;
+		}
+		return segments;
+	}
+
+	private static <T> T invoke(RecursiveTask<T> task, GridSegments segments) {
+		if (segments.getNumberOfElements() <= ParallelNumericGridOperator.MIN_CHUNK_SIZE) {
+			return task.invoke();
+		}
+		return ParallelNumericGridOperator.getInstance().getPool().invoke(task);
+	}
+
+	private static void invoke(RecursiveAction task, GridSegments segments) {
+		if (segments.getNumberOfElements() <= ParallelNumericGridOperator.MIN_CHUNK_SIZE) {
+			task.invoke();
+		} else {
+			ParallelNumericGridOperator.getInstance().getPool().invoke(task);
+		}
+	}
+
+	private static long getGrain(GridSegments segments) {
+		ForkJoinPool pool = ParallelNumericGridOperator.getInstance().getPool();
+		return Math.max(ParallelNumericGridOperator.MIN_CHUNK_SIZE, segments.getNumberOfElements() / (8L * pool.getParallelism()));
+	}
+
+	private static void apply(int operation, float [] out, int n, float value) {
+		switch (operation) {
+		case PLUS:
+			for (int i = 0; i < n; i++) out[i] += value;
+			break;
+		case MINUS:
+			for (int i = 0; i < n; i++) out[i] -= value;
+			break;
+		case TIMES:
+			for (int i = 0; i < n; i++) out[i] *= value;
+			break;
+		case DIVIDED_BY:
+			for (int i = 0; i < n; i++) out[i] /= value;
+			break;
+		case ABS:
+			for (int i = 0; i < n; i++) out[i] = Math.abs(out[i]);
+			break;
+		case SQRT:
+			for (int i = 0; i < n; i++) out[i] = (float) Math.sqrt(out[i]);
+			break;
+		case EXP:
+			for (int i = 0; i < n; i++) out[i] = (float) Math.exp(out[i]);
+			break;
+		case LOG:
+			for (int i = 0; i < n; i++) out[i] = (float) Math.log(out[i]);
+			break;
+		case MAX:
+			for (int i = 0; i < n; i++) out[i] = Math.max(value, out[i]);
+			break;
+		case MIN:
+			for (int i = 0; i < n; i++) out[i] = Math.min(value, out[i]);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown operation " + operation);
+		}
+	}
+
+	private static void apply(int operation, float [] out, float [] data, int start, int n) {
+		switch (operation) {
+		case PLUS:
+			for (int i = 0; i < n; i++) out[i] += data[start + i];
+			break;
+		case MINUS:
+			for (int i = 0; i < n; i++) out[i] -= data[start + i];
+			break;
+		case TIMES:
+			for (int i = 0; i < n; i++) out[i] *= data[start + i];
+			break;
+		case DIVIDED_BY:
+			for (int i = 0; i < n; i++) out[i] /= data[start + i];
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown operation " + operation);
+		}
+	}
+
+	/**
+	 * Reads a grid.
+	 */
+	private static class GridNode extends GridExpression {
+		private final NumericGrid grid;
+
+		GridNode(NumericGrid grid) {
+			if (grid == null) throw new IllegalArgumentException("The grid must not be null.");
+			this.grid = grid;
+		}
+
+		@Override
+		void collectGrids(ArrayList<NumericGrid> grids) {
+			grids.add(grid);
+		}
+
+		@Override
+		int evaluate(GridSegments [] segments, int leaf, int segment, int begin, int n, float [] out, float [][] blocks, int level) {
+			System.arraycopy(segments[leaf].arrays[segment], segments[leaf].offset + begin, out, 0, n);
+			return leaf + 1;
+		}
+
+		@Override
+		int getDepth() {
+			return 0;
+		}
+
+		@Override
+		NumericGrid materialize() {
+			return grid.clone();
+		}
+	}
+
+	/**
+	 * Combines an expression with a scalar or applies a function.
+	 */
+	private static class ScalarNode extends GridExpression {
+		private final int operation;
+		private final GridExpression operand;
+		private final float value;
+
+		ScalarNode(int operation, GridExpression operand, float value) {
+			this.operation = operation;
+			this.operand = operand;
+			this.value = value;
+		}
+
+		@Override
+		void collectGrids(ArrayList<NumericGrid> grids) {
+			operand.collectGrids(grids);
+		}
+
+		@Override
+		int evaluate(GridSegments [] segments, int leaf, int segment, int begin, int n, float [] out, float [][] blocks, int level) {
+			int next = operand.evaluate(segments, leaf, segment, begin, n, out, blocks, level);
+			apply(operation, out, n, value);
+			return next;
+		}
+
+		@Override
+		int getDepth() {
+			return operand.getDepth();
+		}
+
+		@Override
+		NumericGrid materialize() {
+			NumericGrid result = operand.materialize();
+			switch (operation) {
+			case PLUS:
+				NumericPointwiseOperators.addBy(result, value);
+				break;
+			case MINUS:
+				NumericPointwiseOperators.subtractBy(result, value);
+				break;
+			case TIMES:
+				NumericPointwiseOperators.multiplyBy(result, value);
+				break;
+			case DIVIDED_BY:
+				NumericPointwiseOperators.divideBy(result, value);
+				break;
+			case ABS:
+				NumericPointwiseOperators.abs(result);
+				break;
+			case SQRT:
+				NumericPointwiseOperators.sqrt(result);
+				break;
+			case EXP:
+				NumericPointwiseOperators.exp(result);
+				break;
+			case LOG:
+				NumericPointwiseOperators.log(result);
+				break;
+			case MAX:
+				NumericPointwiseOperators.setMin(result, value);
+				break;
+			case MIN:
+				NumericPointwiseOperators.setMax(result, value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown operation " + operation);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Combines two expressions.
+	 */
+	private static class BinaryNode extends GridExpression {
+		private final int operation;
+		private final GridExpression left, right;
+
+		BinaryNode(int operation, GridExpression left, GridExpression right) {
+			this.operation = operation;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		void collectGrids(ArrayList<NumericGrid> grids) {
+			left.collectGrids(grids);
+			right.collectGrids(grids);
+		}
+
+		@Override
+		int evaluate(GridSegments [] segments, int leaf, int segment, int begin, int n, float [] out, float [][] blocks, int level) {
+			int next = left.evaluate(segments, leaf, segment, begin, n, out, blocks, level);
+			if (right instanceof GridNode) {
+				// read the grid directly
+				apply(operation, out, segments[next].arrays[segment], segments[next].offset + begin, n);
+				return next + 1;
+			}
+			float [] block = blocks[level];
+			next = right.evaluate(segments, next, segment, begin, n, block, blocks, level + 1);
+			apply(operation, out, block, 0, n);
+			return next;
+		}
+
+		@Override
+		int getDepth() {
+			return Math.max(left.getDepth(), (right instanceof GridNode) ? 0 : right.getDepth() + 1);
+		}
+
+		@Override
+		NumericGrid materialize() {
+			NumericGrid result = left.materialize();
+			NumericGrid other = (right instanceof GridNode) ? ((GridNode) right).grid : right.materialize();
+			switch (operation) {
+			case PLUS:
+				NumericPointwiseOperators.addBy(result, other);
+				break;
+			case MINUS:
+				NumericPointwiseOperators.subtractBy(result, other);
+				break;
+			case TIMES:
+				NumericPointwiseOperators.multiplyBy(result, other);
+				break;
+			case DIVIDED_BY:
+				NumericPointwiseOperators.divideBy(result, other);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown operation " + operation);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Evaluates a range of elements in blocks.
+	 */
+	private static abstract class BlockwiseEvaluation {
+		final GridExpression expression;
+		final GridSegments [] segments;
+		final long from, to;
+
+		BlockwiseEvaluation(GridExpression expression, GridSegments [] segments, long from, long to) {
+			this.expression = expression;
+			this.segments = segments;
+			this.from = from;
+			this.to = to;
+		}
+
+		void evaluateRange() {
+			float [] out = new float[BLOCK_SIZE];
+			float [][] blocks = new float[expression.getDepth()][BLOCK_SIZE];
+			int length = segments[0].length;
+			for (long start = from; start < to; ) {
+				int segment = (int) (start / length);
+				int begin = (int) (start - ((long) segment * length));
+				int n = (int) Math.min(Math.min(BLOCK_SIZE, length - begin), to - start);
+				expression.evaluate(segments, 0, segment, begin, n, out, blocks, 0);
+				consume(segment, begin, n, out);
+				start += n;
+			}
+		}
+
+		abstract void consume(int segment, int begin, int n, float [] values);
+	}
+
+	private static class AssignTask extends RecursiveAction {
+		private static final long serialVersionUID = -1546364370735012437L;
+		private final GridExpression expression;
+		private final GridSegments [] segments;
+		private final long from, to, grain;
+
+		AssignTask(GridExpression expression, GridSegments [] segments, long from, long to) {
+			this(expression, segments, from, to, getGrain(segments[0]));
+		}
+
+		private AssignTask(GridExpression expression, GridSegments [] segments, long from, long to, long grain) {
+			this.expression = expression;
+			this.segments = segments;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > grain) {
+				long middle = (from + to) >>> 1;
+				invokeAll(new AssignTask(expression, segments, from, middle, grain), new AssignTask(expression, segments, middle, to, grain));
+				return;
+			}
+			final GridSegments target = segments[segments.length - 1];
+			new BlockwiseEvaluation(expression, segments, from, to) {
+				@Override
+				void consume(int segment, int begin, int n, float [] values) {
+					System.arraycopy(values, 0, target.arrays[segment], target.offset + begin, n);
+				}
+			}.evaluateRange();
+		}
+	}
+
+	private static class SumTask extends RecursiveTask<Double> {
+		private static final long serialVersionUID = 6105377893632436342L;
+		private final GridExpression expression;
+		private final GridSegments [] segments;
+		private final long from, to, grain;
+
+		SumTask(GridExpression expression, GridSegments [] segments, long from, long to) {
+			this(expression, segments, from, to, getGrain(segments[0]));
+		}
+
+		private SumTask(GridExpression expression, GridSegments [] segments, long from, long to, long grain) {
+			this.expression = expression;
+			this.segments = segments;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected Double compute() {
+			if (to - from > grain) {
+				long middle = (from + to) >>> 1;
+				SumTask right = new SumTask(expression, segments, middle, to, grain);
+				right.fork();
+				double sum = new SumTask(expression, segments, from, middle, grain).compute();
+				return sum + right.join();
+			}
+			final double [] sum = new double[2];
+			new BlockwiseEvaluation(expression, segments, from, to) {
+				@Override
+				void consume(int segment, int begin, int n, float [] values) {
+					// Kahan summation
+					double total = sum[0];
+					double compensation = sum[1];
+					for (int i = 0; i < n; i++) {
+						double y = values[i] - compensation;
+						double t = total + y;
+						compensation = (t - total) - y;
+						total = t;
+					}
+					sum[0] = total;
+					sum[1] = compensation;
+				}
+			}.evaluateRange();
+			return sum[0] - sum[1];
+		}
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
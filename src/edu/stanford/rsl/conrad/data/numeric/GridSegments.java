@@ -0,0 +1,60 @@
+package edu.stanford.rsl.conrad.data.numeric;
+
+/**
+ * The elements of a grid as equally long ranges of float arrays. Element e of the grid is stored at
+ * arrays[e / length][offset + (e % length)]. Only grids that expose their memory as float arrays, i.e.
+ * {@link Grid1D}, {@link Grid2D}, and {@link Grid3D}, but no subclasses, can be accessed this way.
+ *
+ * @author akmaier
+ *
+ */
+class GridSegments {
+	final float [][] arrays;
+	final int offset;
+	final int length;
+
+	GridSegments(float [][] arrays, int offset, int length) {
+		this.arrays = arrays;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/**
+	 * Returns the float arrays of the grid, or null if the grid does not expose its memory as float arrays.
+	 */
+	static GridSegments of(NumericGrid grid) {
+		if (grid == null) return null;
+		if (grid.getClass() == Grid1D.class) {
+			Grid1D grid1D = (Grid1D) grid;
+			return new GridSegments(new float[][] {grid1D.buffer}, grid1D.getOffset(), grid1D.getSize()[0]);
+		}
+		if (grid.getClass() == Grid2D.class) {
+			Grid2D grid2D = (Grid2D) grid;
+			return new GridSegments(new float[][] {grid2D.getBuffer()}, 0, grid2D.getWidth() * grid2D.getHeight());
+		}
+		if (grid.getClass() == Grid3D.class) {
+			Grid3D grid3D = (Grid3D) grid;
+			int [] size = grid3D.getSize();
+			float [][] slices = new float[size[2]][];
+			for (int k = 0; k < size[2]; k++) {
+				Grid2D slice = grid3D.getSubGrid(k);
+				if (slice == null || slice.getClass() != Grid2D.class) return null;
+				slices[k] = slice.getBuffer();
+			}
+			return new GridSegments(slices, 0, size[0] * size[1]);
+		}
+		return null;
+	}
+
+	long getNumberOfElements() {
+		return (long) arrays.length * length;
+	}
+
+	boolean matches(GridSegments other) {
+		return other != null && other.arrays.length == arrays.length && other.length == length;
+	}
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
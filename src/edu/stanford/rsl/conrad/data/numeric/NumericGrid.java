@@ -31,6 +31,90 @@ public abstract class NumericGrid extends Grid {
 	public abstract NumericGrid clone();
 
 	public abstract NumericGrid getSubGrid(int index);
+
+	/**
+	 * @return the lazy expression this + grid, see {@link GridExpression}
+	 */
+	public GridExpression plus(NumericGrid grid) {
+		return GridExpression.of(this).plus(grid);
+	}
+
+	/**
+	 * @return the lazy expression this + value, see {@link GridExpression}
+	 */
+	public GridExpression plus(float value) {
+		return GridExpression.of(this).plus(value);
+	}
+
+	/**
+	 * @return the lazy expression this + expression, see {@link GridExpression}
+	 */
+	public GridExpression plus(GridExpression expression) {
+		return GridExpression.of(this).plus(expression);
+	}
+
+	/**
+	 * @return the lazy expression this - grid, see {@link GridExpression}
+	 */
+	public GridExpression minus(NumericGrid grid) {
+		return GridExpression.of(this).minus(grid);
+	}
+
+	/**
+	 * @return the lazy expression this - value, see {@link GridExpression}
+	 */
+	public GridExpression minus(float value) {
+		return GridExpression.of(this).minus(value);
+	}
+
+	/**
+	 * @return the lazy expression this - expression, see {@link GridExpression}
+	 */
+	public GridExpression minus(GridExpression expression) {
+		return GridExpression.of(this).minus(expression);
+	}
+
+	/**
+	 * @return the lazy expression this * grid, see {@link GridExpression}
+	 */
+	public GridExpression times(NumericGrid grid) {
+		return GridExpression.of(this).times(grid);
+	}
+
+	/**
+	 * @return the lazy expression this * value, see {@link GridExpression}
+	 */
+	public GridExpression times(float value) {
+		return GridExpression.of(this).times(value);
+	}
+
+	/**
+	 * @return the lazy expression this * expression, see {@link GridExpression}
+	 */
+	public GridExpression times(GridExpression expression) {
+		return GridExpression.of(this).times(expression);
+	}
+
+	/**
+	 * @return the lazy expression this / grid, see {@link GridExpression}
+	 */
+	public GridExpression dividedBy(NumericGrid grid) {
+		return GridExpression.of(this).dividedBy(grid);
+	}
+
+	/**
+	 * @return the lazy expression this / value, see {@link GridExpression}
+	 */
+	public GridExpression dividedBy(float value) {
+		return GridExpression.of(this).dividedBy(value);
+	}
+
+	/**
+	 * @return the lazy expression this / expression, see {@link GridExpression}
+	 */
+	public GridExpression dividedBy(GridExpression expression) {
+		return GridExpression.of(this).dividedBy(expression);
+	}
 	
 	
 	// *********************************************************
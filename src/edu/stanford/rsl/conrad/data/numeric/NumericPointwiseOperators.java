@@ -11,16 +11,16 @@ import edu.stanford.rsl.conrad.data.numeric.opencl.OpenCLGridOperators;
 /** The collection of all operators working point-wise on NumericGrid data. */
 public abstract class NumericPointwiseOperators {
 	/*
-	 * Auxiliary method to select a combined grid operator
+	 * Auxiliary method to select a combined grid operator.
+	 * If any grid is not an OpenCL grid, the operator of the first such grid is used.
 	 */
 	public static NumericGridOperator selectGridOperator(NumericGrid ... grids) {
-		boolean nonCLFound = false;
 		for (NumericGrid grid : grids){
 			if (!(grid instanceof OpenCLGridInterface)){
-				nonCLFound = true;
+				return grid.getGridOperator();
 			}
 		}
-		return (nonCLFound ? NumericGridOperator.getInstance() : OpenCLGridOperators.getInstance());
+		return OpenCLGridOperators.getInstance();
 	}
 	
 	/** Fill a NumericGrid with the given value */
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2010-2014 - Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
+package edu.stanford.rsl.conrad.data.numeric;
+
+import java.nio.FloatBuffer;
+
+import edu.stanford.rsl.conrad.geometry.transforms.Transform;
+
+/**
+ * A two-dimensional grid that is a view on a region of off-heap memory. It is used as slice view of an {@link OffHeapGrid3D}.
+ * Hence, writes via {@link #setAtIndex(int, int, float)} and related methods are visible in the volume.<br>
+ * Note that {@link #getBuffer()} cannot expose the off-heap memory as float array. It returns a copy of the slice instead and writes to this
+ * copy are not reflected in the grid. Use {@link #getFloatBuffer()} for zero-copy access or write the modified copy back with
+ * {@link #setBuffer(float[])}.
+ *
+ * @see OffHeapGrid3D
+ *
+ * @author Andreas Maier
+ */
+public class OffHeapGrid2D extends Grid2D {
+
+	/** The view on the off-heap memory. Position 0 of this buffer is pixel (0,0). */
+	protected FloatBuffer data;
+
+	/**
+	 * Wraps the given buffer as 2D grid. The buffer must contain at least width * height elements starting at position 0.
+	 * @param data the off-heap buffer
+	 * @param width the width
+	 * @param height the height
+	 */
+	public OffHeapGrid2D(FloatBuffer data, int width, int height) {
+		assert data.capacity() >= width*height;
+		this.data = data;
+		this.size = new int[] {width, height};
+		this.spacing = new double[2];
+		this.origin = new double[2];
+		this.columnOffsets = new int[height];
+		for (int i = 0; i < columnOffsets.length; ++i) {
+			columnOffsets[i] = i*width;
+		}
+		this.subGrids = new Grid1D[0];
+	}
+
+	/**
+	 * Returns the off-heap memory of this grid in a row-first manner.
+	 * @return the buffer
+	 */
+	public FloatBuffer getFloatBuffer() {
+		return data;
+	}
+
+	/**
+	 * Returns a copy of the grid's data as float array. Writes to the returned array are not reflected in the grid.
+	 * @return a copy of the data
+	 */
+	@Override
+	public float[] getBuffer() {
+		float [] copy = new float[size[0]*size[1]];
+		FloatBuffer view = data.duplicate();
+		view.rewind();
+		view.get(copy);
+		return copy;
+	}
+
+	/**
+	 * Copies a row-major array into the grid, e.g. a copy that was obtained from {@link #getBuffer()} and modified.
+	 * @param buffer the data with at least width * height elements
+	 */
+	public void setBuffer(float [] buffer) {
+		FloatBuffer view = data.duplicate();
+		view.rewind();
+		view.put(buffer, 0, size[0]*size[1]);
+	}
+
+	/**
+	 * Returns a copy of the j-th row.
+	 * @param j The row-index (y-index, height-index)
+	 * @return the row as new grid
+	 */
+	@Override
+	public Grid1D getSubGrid(int j) {
+		float [] row = new float[size[0]];
+		for (int i = 0; i < size[0]; i++) {
+			row[i] = data.get(columnOffsets[j] + i);
+		}
+		Grid1D revan = new Grid1D(row);
+		revan.setSpacing(spacing[0]);
+		revan.setOrigin(origin[0]);
+		return revan;
+	}
+
+	@Deprecated
+	@Override
+	public void setSubGrid(int j, Grid1D subGrid) {
+		for (int i=0; i<subGrid.getSize()[0]; ++i) {
+			data.put(columnOffsets[j] + i, subGrid.getAtIndex(i));
+		}
+	}
+
+	@Override
+	public void addAtIndex(int i, int j, float val){
+		int idx = j*size[0]+i;
+		data.put(idx, data.get(idx) + val);
+	}
+
+	@Override
+	public void multiplyAtIndex(int i, int j, float val){
+		int idx = j*size[0]+i;
+		data.put(idx, data.get(idx) * val);
+	}
+
+	@Override
+	public void putPixelValue(int x, int y, float value) {
+		if (y>=size[1] || x >= size[0]) return;
+		data.put(y*size[0]+x, value);
+	}
+
+	@Override
+	public float getPixelValue(int x, int y) {
+		return data.get(y*size[0]+x);
+	}
+
+	@Override
+	public String toStringMatlab() {
+		String result = new String();
+		result += "[";
+		for (int i = 0; i < size[0]*size[1]; ++i) {
+			if (i != 0) result += ", ";
+			result += data.get(i);
+		}
+		result += "]";
+		return result;
+	}
+
+	/**
+	 * Creates a copy of this grid on the Java heap.
+	 */
+	@Override
+	public NumericGrid clone() {
+		Grid2D revan = new Grid2D(getBuffer(), size[0], size[1]);
+		revan.setSpacing(spacing.clone());
+		revan.setOrigin(origin.clone());
+		return revan;
+	}
+
+	@Override
+	public void applyTransform(Transform t) {
+		Grid2D tmp = (Grid2D) clone();
+		tmp.applyTransform(t);
+		FloatBuffer view = data.duplicate();
+		view.rewind();
+		view.put(tmp.getBuffer());
+	}
+
+}
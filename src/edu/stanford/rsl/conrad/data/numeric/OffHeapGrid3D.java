@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2010-2014 - Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
+package edu.stanford.rsl.conrad.data.numeric;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * A three-dimensional grid whose voxels are stored outside of the Java heap. The slices are laid out contiguously in direct buffers,
+ * which keeps large volumes out of the garbage collector's way and avoids the fragmentation of one float array per slice.<br>
+ * As a single direct buffer is limited to 2^31 bytes, the volume is split into as few chunks as possible, each containing
+ * a consecutive range of complete slices.<br>
+ * {@link #getSubGrid(int)} returns {@link OffHeapGrid2D} views on the slices without copying. Hence, all accessors of
+ * the grid and its slices operate on the same memory, except for {@link OffHeapGrid2D#getBuffer()}, which returns a copy of the slice.
+ * Algorithms that modify the float array of a slice have to write it back with {@link OffHeapGrid2D#setBuffer(float[])}.
+ * The memory is released once the grid is garbage collected.
+ *
+ * @see Grid3D
+ * @see OffHeapGrid2D
+ *
+ * @author Andreas Maier
+ */
+public class OffHeapGrid3D extends Grid3D {
+
+	/** The direct buffers holding the data. Each chunk contains slicesPerChunk slices. */
+	protected FloatBuffer [] chunks;
+
+	/** The number of slices in each chunk. */
+	protected int slicesPerChunk;
+
+	/**
+	 * Creates a new volume of the given size. The memory is allocated immediately and initialized with 0.
+	 * @param width
+	 * @param height
+	 * @param depth
+	 */
+	public OffHeapGrid3D(int width, int height, int depth) {
+		super(width, height, depth, false);
+		allocateOffHeap();
+	}
+
+	/**
+	 * Creates an off-heap copy of the given volume.
+	 * @param input the volume to copy
+	 */
+	public OffHeapGrid3D(Grid3D input) {
+		this(input.getSize()[0], input.getSize()[1], input.getSize()[2]);
+		setSpacing(input.getSpacing().clone());
+		setOrigin(input.getOrigin().clone());
+		for (int k = 0; k < size[2]; k++) {
+			setSubGrid(k, input.getSubGrid(k));
+		}
+	}
+
+	private void allocateOffHeap() {
+		long sliceSize = (long) size[0] * size[1];
+		long maxFloatsPerChunk = Integer.MAX_VALUE / 4;
+		if (sliceSize > maxFloatsPerChunk) {
+			throw new IllegalArgumentException("A single slice of " + size[0] + "x" + size[1] + " exceeds the size of a direct buffer.");
+		}
+		slicesPerChunk = (int) Math.min(size[2], maxFloatsPerChunk / sliceSize);
+		int numChunks = (size[2] + slicesPerChunk - 1) / slicesPerChunk;
+		chunks = new FloatBuffer[numChunks];
+		for (int c = 0; c < numChunks; c++) {
+			int slices = Math.min(slicesPerChunk, size[2] - (c * slicesPerChunk));
+			chunks[c] = ByteBuffer.allocateDirect((int) (slices * sliceSize * 4)).order(ByteOrder.nativeOrder()).asFloatBuffer();
+		}
+		for (int k = 0; k < size[2]; k++) {
+			FloatBuffer view = chunks[k / slicesPerChunk].duplicate();
+			int start = (int) ((k % slicesPerChunk) * sliceSize);
+			view.limit(start + (int) sliceSize);
+			view.position(start);
+			Grid2D slice = new OffHeapGrid2D(view.slice(), size[0], size[1]);
+			slice.setSpacing(spacing[0], spacing[1]);
+			slice.setOrigin(origin[0], origin[1]);
+			buffer.set(k, slice);
+		}
+	}
+
+	/**
+	 * Memory is allocated in the constructor. Calling this method has no effect.
+	 */
+	@Override
+	public void allocate() {
+	}
+
+	/**
+	 * Copies the content of the given grid into slice i. In contrast to {@link Grid3D#setSubGrid(int, Grid2D)}, the reference to grid is not kept
+	 * and the size of the volume cannot change.
+	 */
+	@Override
+	public void setSubGrid(int i, Grid2D grid) {
+		if(grid.getWidth() != size[0] || grid.getHeight() != size[1]) {
+			throw new IllegalArgumentException("Slice size " + grid.getWidth() + "x" + grid.getHeight() + " does not match volume size " + size[0] + "x" + size[1] + ".");
+		}
+		FloatBuffer target = ((OffHeapGrid2D) buffer.get(i)).getFloatBuffer().duplicate();
+		target.rewind();
+		if (grid instanceof OffHeapGrid2D) {
+			FloatBuffer source = ((OffHeapGrid2D) grid).getFloatBuffer().duplicate();
+			source.rewind();
+			source.limit(size[0]*size[1]);
+			target.put(source);
+		} else {
+			target.put(grid.getBuffer(), 0, size[0]*size[1]);
+		}
+	}
+
+	/**
+	 * Returns the direct buffers holding the volume. Each buffer contains {@link #getSlicesPerChunk()} consecutive slices, except for the last one.
+	 * @return the chunks
+	 */
+	public FloatBuffer[] getChunks() {
+		return chunks;
+	}
+
+	/**
+	 * @return the number of consecutive slices stored in one chunk
+	 */
+	public int getSlicesPerChunk() {
+		return slicesPerChunk;
+	}
+
+	@Override
+	public NumericGrid clone() {
+		return new OffHeapGrid3D(this);
+	}
+
+}
@@ -0,0 +1,647 @@
+package edu.stanford.rsl.conrad.data.numeric;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import edu.stanford.rsl.conrad.utils.CONRAD;
+
+/**
+ * Grid operator that works directly on the float arrays of {@link Grid1D}, {@link Grid2D}, and {@link Grid3D}. The elements
+ * are split into chunks that are processed by a fork-join pool. Sums, dot products, norms, and deviations are accumulated in
+ * double precision with Kahan summation within a chunk. The partial sums of the chunks are added pairwise. Hence, the result does not
+ * depend on the number of threads and is much more accurate than the float accumulation of {@link NumericGridOperator}.
+ * Point-wise operations yield the same values as {@link NumericGridOperator}.<br>
+ * Other grids, e.g. off-heap, complex, multi-channel, or OpenCL grids, are passed to {@link NumericGridOperator}.<br>
+ * Select the operator for a grid with {@link NumericGrid#setNumericGridOperator(NumericGridOperator)}. {@link NumericPointwiseOperators}
+ * then also uses it for operations with several grids.
+ *
+ * @author akmaier
+ *
+ */
+public class ParallelNumericGridOperator extends NumericGridOperator {
+
+	/** Chunks with fewer elements are not split any further. */
+	public static final int MIN_CHUNK_SIZE = 1 << 14;
+
+	static ParallelNumericGridOperator op = new ParallelNumericGridOperator();
+
+	public static ParallelNumericGridOperator getInstance() {
+		return op;
+	}
+
+	// point-wise operations with a scalar
+	private static final int FILL = 0;
+	private static final int FILL_INVALID = 1;
+	private static final int ADD = 2;
+	private static final int ADD_SAVE = 3;
+	private static final int SUBTRACT = 4;
+	private static final int SUBTRACT_SAVE = 5;
+	private static final int MULTIPLY = 6;
+	private static final int MULTIPLY_SAVE = 7;
+	private static final int DIVIDE = 8;
+	private static final int DIVIDE_SAVE = 9;
+	private static final int REMOVE_NEGATIVE = 10;
+	private static final int ABS = 11;
+	private static final int POW = 12;
+	private static final int SQRT = 13;
+	private static final int LOG = 14;
+	private static final int EXP = 15;
+	private static final int SET_MAX = 16;
+	private static final int SET_MIN = 17;
+	// point-wise operations with a second grid
+	private static final int COPY = 20;
+	private static final int ADD_GRID = 21;
+	private static final int ADD_GRID_SAVE = 22;
+	private static final int SUBTRACT_GRID = 23;
+	private static final int SUBTRACT_GRID_SAVE = 24;
+	private static final int MULTIPLY_GRID = 25;
+	private static final int MULTIPLY_GRID_SAVE = 26;
+	private static final int DIVIDE_GRID = 27;
+	private static final int DIVIDE_GRID_SAVE = 28;
+	// reductions
+	private static final int SUM = 40;
+	private static final int SUM_SAVE = 41;
+	private static final int NORM_L1 = 42;
+	private static final int COUNT_NEGATIVE = 43;
+	private static final int COUNT_INVALID = 44;
+	private static final int MIN = 45;
+	private static final int MAX = 46;
+	private static final int SQUARED_DEVIATION = 47;
+	private static final int DOT = 48;
+	private static final int WEIGHTED_DOT = 49;
+	private static final int WEIGHTED_SSD = 50;
+	private static final int SSD_SAVE = 51;
+
+	private final ForkJoinPool pool;
+
+	protected ParallelNumericGridOperator() {
+		this(CONRAD.getNumberOfThreads());
+	}
+
+	/**
+	 * Creates an operator with its own pool.
+	 * @param numThreads the number of worker threads
+	 */
+	public ParallelNumericGridOperator(int numThreads) {
+		pool = new ForkJoinPool(Math.max(1, numThreads));
+	}
+
+	/**
+	 * @return the number of worker threads
+	 */
+	public int getNumberOfThreads() {
+		return pool.getParallelism();
+	}
+
+	ForkJoinPool getPool() {
+		return pool;
+	}
+
+	@Override
+	public void fill(NumericGrid grid, float val) {
+		if (!pointwise(FILL, grid, null, val)) super.fill(grid, val);
+	}
+
+	@Override
+	public void fillInvalidValues(NumericGrid grid, float val) {
+		if (!pointwise(FILL_INVALID, grid, null, val)) super.fillInvalidValues(grid, val);
+	}
+
+	@Override
+	public float sum(final NumericGrid grid) {
+		double [] result = reduce(SUM, grid, null, 0, 0);
+		return (result == null) ? super.sum(grid) : (float) result[0];
+	}
+
+	@Override
+	public float sumSave(final NumericGrid grid) {
+		double [] result = reduce(SUM_SAVE, grid, null, 0, 0);
+		return (result == null) ? super.sumSave(grid) : (float) result[0];
+	}
+
+	@Override
+	public float normL1(final NumericGrid grid) {
+		double [] result = reduce(NORM_L1, grid, null, 0, 0);
+		return (result == null) ? super.normL1(grid) : (float) result[0];
+	}
+
+	@Override
+	public int countNegativeElements(final NumericGrid grid) {
+		double [] result = reduce(COUNT_NEGATIVE, grid, null, 0, 0);
+		return (result == null) ? super.countNegativeElements(grid) : (int) result[2];
+	}
+
+	@Override
+	public int countInvalidElements(final NumericGrid grid) {
+		double [] result = reduce(COUNT_INVALID, grid, null, 0, 0);
+		return (result == null) ? super.countInvalidElements(grid) : (int) result[2];
+	}
+
+	@Override
+	public float min(final NumericGrid grid) {
+		double [] result = reduce(MIN, grid, null, 0, 0);
+		return (result == null) ? super.min(grid) : (float) result[0];
+	}
+
+	@Override
+	public float max(final NumericGrid grid) {
+		double [] result = reduce(MAX, grid, null, 0, 0);
+		return (result == null) ? super.max(grid) : (float) result[0];
+	}
+
+	@Override
+	public void copy(NumericGrid grid1, NumericGrid grid2) {
+		if (!pointwise(COPY, grid1, grid2, 0)) super.copy(grid1, grid2);
+	}
+
+	@Override
+	public float dotProduct(final NumericGrid grid1, NumericGrid grid2) {
+		double [] result = reduce(DOT, grid1, grid2, 0, 0);
+		return (result == null) ? super.dotProduct(grid1, grid2) : (float) result[0];
+	}
+
+	@Override
+	public float weightedDotProduct(final NumericGrid grid1, final NumericGrid grid2, float weightGrid2, float addGrid2) {
+		double [] result = reduce(WEIGHTED_DOT, grid1, grid2, weightGrid2, addGrid2);
+		return (result == null) ? super.weightedDotProduct(grid1, grid2, weightGrid2, addGrid2) : (float) result[0];
+	}
+
+	@Override
+	public float weightedSSD(final NumericGrid grid1, final NumericGrid grid2, double weightGrid2, double addGrid2) {
+		double [] result = reduce(WEIGHTED_SSD, grid1, grid2, weightGrid2, addGrid2);
+		return (result == null) ? super.weightedSSD(grid1, grid2, weightGrid2, addGrid2) : (float) result[0];
+	}
+
+	@Override
+	public float rmse(final NumericGrid grid1, final NumericGrid grid2) {
+		double [] result = reduce(SSD_SAVE, grid1, grid2, 0, 0);
+		if (result == null) return super.rmse(grid1, grid2);
+		if (0 != result[2])
+			System.err.println("Errors in RMSE computation: "
+					+ ((float) result[2] * 100)
+					/ (grid1.getNumberOfElements()) + "%");
+		return (float) Math.sqrt(result[0] / grid1.getNumberOfElements());
+	}
+
+	@Override
+	public void addBySave(NumericGrid input, NumericGrid sum) {
+		if (!pointwise(ADD_GRID_SAVE, input, sum, 0)) super.addBySave(input, sum);
+	}
+
+	@Override
+	public void addBy(NumericGrid input, NumericGrid sub) {
+		if (!pointwise(ADD_GRID, input, sub, 0)) super.addBy(input, sub);
+	}
+
+	@Override
+	public void addBy(NumericGrid grid, float a) {
+		if (!pointwise(ADD, grid, null, a)) super.addBy(grid, a);
+	}
+
+	@Override
+	public void addBySave(NumericGrid grid, float a) {
+		if (!pointwise(ADD_SAVE, grid, null, a)) super.addBySave(grid, a);
+	}
+
+	@Override
+	public void subtractBySave(NumericGrid input, NumericGrid sub) {
+		if (!pointwise(SUBTRACT_GRID_SAVE, input, sub, 0)) super.subtractBySave(input, sub);
+	}
+
+	@Override
+	public void subtractBySave(NumericGrid grid, float a) {
+		if (!pointwise(SUBTRACT_SAVE, grid, null, a)) super.subtractBySave(grid, a);
+	}
+
+	@Override
+	public void subtractBy(NumericGrid input, NumericGrid sub) {
+		if (!pointwise(SUBTRACT_GRID, input, sub, 0)) super.subtractBy(input, sub);
+	}
+
+	@Override
+	public void subtractBy(NumericGrid grid, float a) {
+		if (!pointwise(SUBTRACT, grid, null, a)) super.subtractBy(grid, a);
+	}
+
+	@Override
+	public void divideBySave(NumericGrid input, NumericGrid divisor) {
+		if (!pointwise(DIVIDE_GRID_SAVE, input, divisor, 0)) super.divideBySave(input, divisor);
+	}
+
+	@Override
+	public void divideBy(NumericGrid input, NumericGrid divisor) {
+		if (!pointwise(DIVIDE_GRID, input, divisor, 0)) super.divideBy(input, divisor);
+	}
+
+	@Override
+	public void divideBy(NumericGrid grid, float a) {
+		if (!pointwise(DIVIDE, grid, null, a)) super.divideBy(grid, a);
+	}
+
+	@Override
+	public void divideBySave(NumericGrid grid, float a) {
+		if (!pointwise(DIVIDE_SAVE, grid, null, a)) super.divideBySave(grid, a);
+	}
+
+	@Override
+	public void multiplyBy(NumericGrid input, NumericGrid multiplicator) {
+		if (!pointwise(MULTIPLY_GRID, input, multiplicator, 0)) super.multiplyBy(input, multiplicator);
+	}
+
+	@Override
+	public void multiplyBySave(NumericGrid input, NumericGrid multiplicator) {
+		if (!pointwise(MULTIPLY_GRID_SAVE, input, multiplicator, 0)) super.multiplyBySave(input, multiplicator);
+	}
+
+	@Override
+	public void multiplyBy(NumericGrid grid, float a) {
+		if (!pointwise(MULTIPLY, grid, null, a)) super.multiplyBy(grid, a);
+	}
+
+	@Override
+	public void multiplyBySave(NumericGrid grid, float b) {
+		if (GridSegments.of(grid) == null) {
+			super.multiplyBySave(grid, b);
+			return;
+		}
+		if(Double.isInfinite(b) || Double.isNaN(b))
+			System.err.println("[multiplyBySave] called with invalid scalar value");
+		pointwise(MULTIPLY_SAVE, grid, null, b);
+	}
+
+	@Override
+	public void removeNegative(NumericGrid grid) {
+		if (!pointwise(REMOVE_NEGATIVE, grid, null, 0)) super.removeNegative(grid);
+	}
+
+	@Override
+	public float stddev(final NumericGrid data, double mean) {
+		double [] result = reduce(SQUARED_DEVIATION, data, null, mean, 0);
+		return (result == null) ? super.stddev(data, mean) : (float) Math.sqrt(result[0] / data.getNumberOfElements());
+	}
+
+	@Override
+	public void abs(NumericGrid data) {
+		if (!pointwise(ABS, data, null, 0)) super.abs(data);
+	}
+
+	@Override
+	public void pow(NumericGrid grid, double exponent) {
+		if (!pointwise(POW, grid, null, (float) exponent)) super.pow(grid, exponent);
+	}
+
+	@Override
+	public void sqrt(NumericGrid grid) {
+		if (!pointwise(SQRT, grid, null, 0)) super.sqrt(grid);
+	}
+
+	@Override
+	public void log(NumericGrid data) {
+		if (!pointwise(LOG, data, null, 0)) super.log(data);
+	}
+
+	@Override
+	public void exp(NumericGrid data) {
+		if (!pointwise(EXP, data, null, 0)) super.exp(data);
+	}
+
+	@Override
+	public void setMax(NumericGrid data, float max) {
+		if (!pointwise(SET_MAX, data, null, max)) super.setMax(data, max);
+	}
+
+	@Override
+	public void setMin(NumericGrid data, float min) {
+		if (!pointwise(SET_MIN, data, null, min)) super.setMin(data, min);
+	}
+
+	/**
+	 * Applies a point-wise operation in parallel.
+	 * @return false if the grids are not supported. Nothing is computed in this case.
+	 */
+	private boolean pointwise(int operation, NumericGrid grid1, NumericGrid grid2, float value) {
+		GridSegments a = GridSegments.of(grid1);
+		GridSegments b = (grid2 == null) ? null : GridSegments.of(grid2);
+		if (a == null || (grid2 != null && !a.matches(b))) return false;
+		PointwiseTask task = new PointwiseTask(operation, a, b, value, 0, a.getNumberOfElements(), getGrain(a));
+		if (a.getNumberOfElements() <= MIN_CHUNK_SIZE) {
+			task.compute();
+		} else {
+			pool.invoke(task);
+		}
+		grid1.notifyAfterWrite();
+		return true;
+	}
+
+	/**
+	 * Computes a reduction in parallel.
+	 * @return the sum, or minimum / maximum, at index 0 and the number of counted elements at index 2, or null if the grids are not supported
+	 */
+	private double [] reduce(int operation, NumericGrid grid1, NumericGrid grid2, double param1, double param2) {
+		GridSegments a = GridSegments.of(grid1);
+		GridSegments b = (grid2 == null) ? null : GridSegments.of(grid2);
+		if (a == null || (grid2 != null && !a.matches(b))) return null;
+		ReductionTask task = new ReductionTask(operation, a, b, param1, param2, 0, a.getNumberOfElements(), getGrain(a));
+		if (a.getNumberOfElements() <= MIN_CHUNK_SIZE) {
+			return task.compute();
+		}
+		return pool.invoke(task);
+	}
+
+	private long getGrain(GridSegments segments) {
+		return Math.max(MIN_CHUNK_SIZE, segments.getNumberOfElements() / (8L * pool.getParallelism()));
+	}
+
+	private static class PointwiseTask extends RecursiveAction {
+		private static final long serialVersionUID = 3473846239165624384L;
+		private final int operation;
+		private final GridSegments a, b;
+		private final float value;
+		private final long from, to, grain;
+
+		PointwiseTask(int operation, GridSegments a, GridSegments b, float value, long from, long to, long grain) {
+			this.operation = operation;
+			this.a = a;
+			this.b = b;
+			this.value = value;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > grain) {
+				long middle = (from + to) >>> 1;
+				invokeAll(new PointwiseTask(operation, a, b, value, from, middle, grain),
+						new PointwiseTask(operation, a, b, value, middle, to, grain));
+				return;
+			}
+			for (long start = from; start < to; ) {
+				int segment = (int) (start / a.length);
+				int begin = (int) (start - ((long) segment * a.length));
+				int end = (int) Math.min(a.length, to - ((long) segment * a.length));
+				if (b == null) {
+					apply(operation, a.arrays[segment], a.offset + begin, a.offset + end, value);
+				} else {
+					apply(operation, a.arrays[segment], a.offset + begin, b.arrays[segment], b.offset + begin, end - begin);
+				}
+				start += end - begin;
+			}
+		}
+	}
+
+	private static class ReductionTask extends RecursiveTask<double[]> {
+		private static final long serialVersionUID = -5080186616938318394L;
+		private final int operation;
+		private final GridSegments a, b;
+		private final double param1, param2;
+		private final long from, to, grain;
+
+		ReductionTask(int operation, GridSegments a, GridSegments b, double param1, double param2, long from, long to, long grain) {
+			this.operation = operation;
+			this.a = a;
+			this.b = b;
+			this.param1 = param1;
+			this.param2 = param2;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected double[] compute() {
+			if (to - from > grain) {
+				long middle = (from + to) >>> 1;
+				ReductionTask right = new ReductionTask(operation, a, b, param1, param2, middle, to, grain);
+				right.fork();
+				double [] result = new ReductionTask(operation, a, b, param1, param2, from, middle, grain).compute();
+				double [] other = right.join();
+				if (operation == MIN) {
+					result[0] = Math.min(result[0], other[0]);
+				} else if (operation == MAX) {
+					result[0] = Math.max(result[0], other[0]);
+				} else {
+					result[0] += other[0];
+				}
+				result[2] += other[2];
+				return result;
+			}
+			// sum, compensation, count
+			double [] result = new double[3];
+			if (operation == MIN) result[0] = Float.MAX_VALUE;
+			if (operation == MAX) result[0] = -Float.MAX_VALUE;
+			for (long start = from; start < to; ) {
+				int segment = (int) (start / a.length);
+				int begin = (int) (start - ((long) segment * a.length));
+				int end = (int) Math.min(a.length, to - ((long) segment * a.length));
+				accumulate(operation, a.arrays[segment], a.offset + begin, (b == null) ? null : b.arrays[segment],
+						(b == null) ? 0 : b.offset + begin, end - begin, param1, param2, result);
+				start += end - begin;
+			}
+			result[0] -= result[1];
+			result[1] = 0;
+			return result;
+		}
+	}
+
+	private static boolean isInvalid(float value) {
+		return Float.isNaN(value) || Float.isInfinite(value);
+	}
+
+	/**
+	 * Applies a point-wise operation with a scalar to data[start] ... data[end - 1].
+	 */
+	private static void apply(int operation, float [] data, int start, int end, float value) {
+		switch (operation) {
+		case FILL:
+			Arrays.fill(data, start, end, value);
+			break;
+		case FILL_INVALID:
+			for (int i = start; i < end; i++) if (isInvalid(data[i])) data[i] = value;
+			break;
+		case ADD:
+			for (int i = start; i < end; i++) data[i] += value;
+			break;
+		case ADD_SAVE:
+			for (int i = start; i < end; i++) data[i] = (isInvalid(data[i]) ? 0 : data[i]) + value;
+			break;
+		case SUBTRACT:
+			for (int i = start; i < end; i++) data[i] -= value;
+			break;
+		case SUBTRACT_SAVE:
+			for (int i = start; i < end; i++) data[i] = (isInvalid(data[i]) ? 0 : data[i]) - value;
+			break;
+		case MULTIPLY:
+			for (int i = start; i < end; i++) data[i] *= value;
+			break;
+		case MULTIPLY_SAVE:
+			for (int i = start; i < end; i++) data[i] = isInvalid(data[i]) ? 0 : data[i] * value;
+			break;
+		case DIVIDE:
+			for (int i = start; i < end; i++) data[i] /= value;
+			break;
+		case DIVIDE_SAVE:
+			for (int i = start; i < end; i++) data[i] = (isInvalid(data[i]) ? 0 : data[i]) / value;
+			break;
+		case REMOVE_NEGATIVE:
+			for (int i = start; i < end; i++) if (data[i] < 0) data[i] = 0;
+			break;
+		case ABS:
+			for (int i = start; i < end; i++) data[i] = Math.abs(data[i]);
+			break;
+		case POW:
+			for (int i = start; i < end; i++) data[i] = (float) Math.pow(data[i], value);
+			break;
+		case SQRT:
+			for (int i = start; i < end; i++) data[i] = (float) Math.sqrt(data[i]);
+			break;
+		case LOG:
+			for (int i = start; i < end; i++) data[i] = (float) Math.log(data[i]);
+			break;
+		case EXP:
+			for (int i = start; i < end; i++) data[i] = (float) Math.exp(data[i]);
+			break;
+		case SET_MAX:
+			for (int i = start; i < end; i++) data[i] = Math.min(value, data[i]);
+			break;
+		case SET_MIN:
+			for (int i = start; i < end; i++) data[i] = Math.max(value, data[i]);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown operation " + operation);
+		}
+	}
+
+	/**
+	 * Applies a point-wise operation to a[aStart] ... a[aStart + n - 1] and b[bStart] ... b[bStart + n - 1]. The result is written to a.
+	 */
+	private static void apply(int operation, float [] a, int aStart, float [] b, int bStart, int n) {
+		int shift = bStart - aStart;
+		int end = aStart + n;
+		switch (operation) {
+		case COPY:
+			System.arraycopy(b, bStart, a, aStart, n);
+			break;
+		case ADD_GRID:
+			for (int i = aStart; i < end; i++) a[i] += b[i + shift];
+			break;
+		case ADD_GRID_SAVE:
+			for (int i = aStart; i < end; i++) {
+				float value = b[i + shift];
+				a[i] = (isInvalid(value) ? 0 : value) + (isInvalid(a[i]) ? 0 : a[i]);
+			}
+			break;
+		case SUBTRACT_GRID:
+			for (int i = aStart; i < end; i++) a[i] -= b[i + shift];
+			break;
+		case SUBTRACT_GRID_SAVE:
+			// same order of the operands as in NumericGridOperator
+			for (int i = aStart; i < end; i++) {
+				float value = b[i + shift];
+				a[i] = (isInvalid(value) ? 0 : value) - (isInvalid(a[i]) ? 0 : a[i]);
+			}
+			break;
+		case MULTIPLY_GRID:
+			for (int i = aStart; i < end; i++) a[i] *= b[i + shift];
+			break;
+		case MULTIPLY_GRID_SAVE:
+			for (int i = aStart; i < end; i++) {
+				float value = b[i + shift];
+				a[i] = (isInvalid(value) || isInvalid(a[i])) ? 0 : a[i] * value;
+			}
+			break;
+		case DIVIDE_GRID:
+			for (int i = aStart; i < end; i++) a[i] /= b[i + shift];
+			break;
+		case DIVIDE_GRID_SAVE:
+			for (int i = aStart; i < end; i++) {
+				float value = b[i + shift];
+				a[i] = (0 == a[i] || 0 == value || isInvalid(value) || isInvalid(a[i])) ? 0 : a[i] / value;
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown operation " + operation);
+		}
+	}
+
+	/**
+	 * Adds the terms of a reduction over n elements to result, which holds the sum, the Kahan compensation, and the number of counted elements.
+	 * For MIN and MAX, result[0] holds the extremum.
+	 */
+	private static void accumulate(int operation, float [] a, int aStart, float [] b, int bStart, int n, double param1, double param2, double [] result) {
+		double sum = result[0];
+		double compensation = result[1];
+		long count = 0;
+		int shift = bStart - aStart;
+		int end = aStart + n;
+		switch (operation) {
+		case MIN:
+			for (int i = aStart; i < end; i++) if (a[i] < sum) sum = a[i];
+			break;
+		case MAX:
+			for (int i = aStart; i < end; i++) if (a[i] > sum) sum = a[i];
+			break;
+		case COUNT_NEGATIVE:
+			for (int i = aStart; i < end; i++) if (a[i] < 0 && a[i] != Float.NEGATIVE_INFINITY) count++;
+			break;
+		case COUNT_INVALID:
+			for (int i = aStart; i < end; i++) if (isInvalid(a[i])) count++;
+			break;
+		default:
+			for (int i = aStart; i < end; i++) {
+				double term;
+				switch (operation) {
+				case SUM:
+					term = a[i];
+					break;
+				case SUM_SAVE:
+					term = isInvalid(a[i]) ? 0 : a[i];
+					break;
+				case NORM_L1:
+					term = isInvalid(a[i]) ? 0 : Math.abs(a[i]);
+					break;
+				case SQUARED_DEVIATION:
+					term = a[i] - param1;
+					term *= term;
+					break;
+				case DOT:
+					term = (double) a[i] * b[i + shift];
+					break;
+				case WEIGHTED_DOT:
+					term = a[i] * ((b[i + shift] * param1) + param2);
+					break;
+				case WEIGHTED_SSD:
+					term = a[i] - ((b[i + shift] * param1) + param2);
+					term *= term;
+					break;
+				case SSD_SAVE:
+					float difference = a[i] - b[i + shift];
+					if (isInvalid(difference)) {
+						count++;
+						continue;
+					}
+					term = (double) difference * difference;
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown operation " + operation);
+				}
+				// Kahan summation
+				double y = term - compensation;
+				double t = sum + y;
+				compensation = (t - sum) - y;
+				sum = t;
+			}
+		}
+		result[0] = sum;
+		result[1] = compensation;
+		result[2] += count;
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
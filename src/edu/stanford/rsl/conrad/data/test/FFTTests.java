@@ -1,13 +1,23 @@
 package edu.stanford.rsl.conrad.data.test;
 
+import java.util.Random;
+
 import org.junit.Assert;
 import org.junit.Test;
 
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
 import edu.stanford.rsl.conrad.data.numeric.Grid1D;
 import edu.stanford.rsl.conrad.data.numeric.Grid1DComplex;
+import edu.stanford.rsl.conrad.data.numeric.Grid2D;
 import edu.stanford.rsl.conrad.data.numeric.NumericGrid;
 import edu.stanford.rsl.conrad.data.numeric.NumericPointwiseOperators;
+import edu.stanford.rsl.conrad.filtering.rampfilters.ArbitraryRampFilter;
+import edu.stanford.rsl.conrad.filtering.rampfilters.RamLakRampFilter;
+import edu.stanford.rsl.conrad.filtering.rampfilters.RampFilter;
+import edu.stanford.rsl.conrad.filtering.rampfilters.RampFilterEngine;
+import edu.stanford.rsl.conrad.filtering.rampfilters.SheppLoganRampFilter;
 import edu.stanford.rsl.conrad.utils.CONRAD;
+import edu.stanford.rsl.conrad.utils.FFTUtil;
 
 public class FFTTests {
 
@@ -23,6 +33,77 @@ public class FFTTests {
 		float sum = (float)NumericPointwiseOperators.sum(result);
 		Assert.assertTrue( Math.abs(sum)<CONRAD.FLOAT_EPSILON);
 	}
+
+	/**
+	 * Filters a row with a complex double transform as FFTUtil did before the RampFilterEngine.
+	 */
+	private static double [] filterRowComplex(float [] row, RampFilter ramp){
+		int n = FFTUtil.getNextPowerOfTwo(row.length);
+		double [] fftData = new double[2 * n];
+		for (int i = 0; i < row.length; i++){
+			fftData[2 * i] = row[i];
+		}
+		DoubleFFT_1D fft = new DoubleFFT_1D(n);
+		fft.complexForward(fftData);
+		fftData = FFTUtil.multiplyAbsolute(fftData, ramp.getRampFilter1D(n));
+		fft.complexInverse(fftData, true);
+		double [] revan = new double[row.length];
+		for (int i = 0; i < row.length; i++){
+			revan[i] = fftData[2 * i];
+		}
+		return revan;
+	}
+
+	private static void assertFiltered(Grid2D filtered, int j, double [] reference, double tolerance){
+		double max = 0;
+		for (int i = 0; i < reference.length; i++){
+			max = Math.max(max, Math.abs(reference[i]));
+		}
+		for (int i = 0; i < reference.length; i++){
+			Assert.assertEquals(reference[i], filtered.getAtIndex(i, j), tolerance * max);
+		}
+	}
+
+	@Test
+	public void testRampFilterEngine(){
+		Random random = new Random(5);
+		int width = 620;
+		Grid2D projection = new Grid2D(width, 2);
+		for (int j = 0; j < 2; j++){
+			for (int i = 0; i < width; i++){
+				projection.setAtIndex(i, j, (float) ((100 * random.nextDouble()) + (50 * Math.sin(i * 0.05))));
+			}
+		}
+		RampFilter [] ramps = {new RamLakRampFilter(), new SheppLoganRampFilter()};
+		for (RampFilter ramp : ramps){
+			ramp.setPhysicalPixelWidthInMilimeters(0.3);
+			Grid2D filtered = RampFilterEngine.applyRampFilter(projection, ramp);
+			for (int j = 0; j < 2; j++){
+				float [] row = new float[width];
+				for (int i = 0; i < width; i++){
+					row[i] = projection.getAtIndex(i, j);
+				}
+				assertFiltered(filtered, j, filterRowComplex(row, ramp.clone()), 1e-5);
+			}
+		}
+		// a filter of fixed length is resampled to the padded width
+		int n = FFTUtil.getNextPowerOfTwo(width);
+		RampFilter ramLak = new RamLakRampFilter();
+		ramLak.setPhysicalPixelWidthInMilimeters(0.3);
+		double [] fine = ramLak.getRampFilter1D(2 * n);
+		double [] weights = new double[2 * n];
+		for (int k = 0; k < weights.length; k++){
+			weights[k] = FFTUtil.abs(k, fine);
+		}
+		ArbitraryRampFilter arbitrary = new ArbitraryRampFilter();
+		arbitrary.setFilter(weights);
+		float [] spectrum = RampFilterEngine.getSpectrum(arbitrary, n);
+		float [] reference = RampFilterEngine.getSpectrum(ramLak, n);
+		Assert.assertEquals(reference.length, spectrum.length);
+		for (int k = 0; k < spectrum.length; k++){
+			Assert.assertEquals(reference[k], spectrum[k], 1e-3 * reference[reference.length - 1]);
+		}
+	}
 	
 }
 /*
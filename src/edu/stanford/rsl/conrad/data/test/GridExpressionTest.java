@@ -0,0 +1,88 @@
+package edu.stanford.rsl.conrad.data.test;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.stanford.rsl.conrad.data.numeric.Grid2D;
+import edu.stanford.rsl.conrad.data.numeric.Grid3D;
+import edu.stanford.rsl.conrad.data.numeric.NumericGrid;
+import edu.stanford.rsl.conrad.data.numeric.NumericPointwiseOperators;
+import edu.stanford.rsl.conrad.data.numeric.OffHeapGrid3D;
+
+public class GridExpressionTest {
+
+	private static Grid3D createVolume(long seed){
+		Random random = new Random(seed);
+		Grid3D volume = new Grid3D(70, 60, 30);
+		for (int k = 0; k < 30; k++)
+			for (int j = 0; j < 60; j++)
+				for (int i = 0; i < 70; i++)
+					volume.setAtIndex(i, j, k, (float) random.nextGaussian());
+		return volume;
+	}
+
+	private static void assertGridEquals(Grid3D expected, Grid3D actual){
+		for (int k = 0; k < expected.getSize()[2]; k++)
+			Assert.assertArrayEquals(expected.getSubGrid(k).getBuffer(), actual.getSubGrid(k).getBuffer(), 0.f);
+	}
+
+	@Test
+	public void testFusedUpdateMatchesOperators(){
+		Grid3D a = createVolume(1);
+		Grid3D b = createVolume(2);
+		Grid3D c = createVolume(3);
+		Grid3D expected = (Grid3D) a.clone();
+		NumericPointwiseOperators.multiplyBy(expected, 0.7f);
+		NumericPointwiseOperators.addBy(expected, b);
+		NumericPointwiseOperators.subtractBy(expected, c);
+		NumericGrid product = NumericPointwiseOperators.multipliedBy(b, c);
+		NumericPointwiseOperators.divideBy(expected, product);
+		a.times(0.7f).plus(b).minus(c).dividedBy(b.times(c)).assignTo(a);
+		assertGridEquals(expected, a);
+	}
+
+	@Test
+	public void testTargetInExpression(){
+		Grid3D x = createVolume(1);
+		Grid3D p = createVolume(2);
+		Grid3D expected = (Grid3D) p.clone();
+		NumericPointwiseOperators.subtractBy(expected, x);
+		p.minus(x).assignTo(x);
+		assertGridEquals(expected, x);
+	}
+
+	@Test
+	public void testSumAndEvaluate(){
+		Grid3D a = createVolume(1);
+		double sum = 0;
+		for (int k = 0; k < 30; k++)
+			for (int j = 0; j < 60; j++)
+				for (int i = 0; i < 70; i++)
+					sum += a.getAtIndex(i, j, k) * a.getAtIndex(i, j, k);
+		Assert.assertEquals(sum, a.times(a).sum(), sum * 1e-6);
+		Grid3D squared = (Grid3D) a.times(a).max(1.f).evaluate();
+		Assert.assertEquals(Math.max(1.f, a.getAtIndex(3, 4, 5) * a.getAtIndex(3, 4, 5)), squared.getAtIndex(3, 4, 5), 0.f);
+		Assert.assertEquals(a.getAtIndex(3, 4, 5), createVolume(1).getAtIndex(3, 4, 5), 0.f);
+	}
+
+	@Test
+	public void testFallbackForOtherGrids(){
+		Grid3D a = createVolume(1);
+		OffHeapGrid3D offHeap = new OffHeapGrid3D(createVolume(2));
+		Grid3D expected = (Grid3D) a.clone();
+		NumericPointwiseOperators.addBy(expected, createVolume(2));
+		NumericPointwiseOperators.multiplyBy(expected, 2.f);
+		a.plus(offHeap).times(2.f).assignTo(a);
+		assertGridEquals(expected, a);
+		Grid2D image = new Grid2D(4, 3);
+		NumericPointwiseOperators.fill(image, 2.f);
+		Assert.assertEquals(12.f, image.getSubGrid(1).plus(1.f).sum(), 0.f);
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 - Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
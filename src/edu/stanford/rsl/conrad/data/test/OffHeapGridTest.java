@@ -0,0 +1,53 @@
+package edu.stanford.rsl.conrad.data.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.stanford.rsl.conrad.data.numeric.Grid2D;
+import edu.stanford.rsl.conrad.data.numeric.Grid3D;
+import edu.stanford.rsl.conrad.data.numeric.NumericPointwiseOperators;
+import edu.stanford.rsl.conrad.data.numeric.OffHeapGrid2D;
+import edu.stanford.rsl.conrad.data.numeric.OffHeapGrid3D;
+import edu.stanford.rsl.conrad.utils.CONRAD;
+
+public class OffHeapGridTest {
+
+	@Test
+	public void testSliceViewsShareMemory(){
+		OffHeapGrid3D grid = new OffHeapGrid3D(5, 4, 3);
+		grid.setAtIndex(2, 1, 2, 7.f);
+		Grid2D slice = grid.getSubGrid(2);
+		Assert.assertEquals(7.f, slice.getAtIndex(2, 1), CONRAD.FLOAT_EPSILON);
+		slice.addAtIndex(2, 1, 1.f);
+		Assert.assertEquals(8.f, grid.getAtIndex(2, 1, 2), CONRAD.FLOAT_EPSILON);
+		Assert.assertEquals(0.f, grid.getAtIndex(2, 1, 1), CONRAD.FLOAT_EPSILON);
+		// getBuffer() is a copy that has to be written back
+		float [] buffer = slice.getBuffer();
+		buffer[(1 * 5) + 3] = 3.f;
+		Assert.assertEquals(0.f, grid.getAtIndex(3, 1, 2), CONRAD.FLOAT_EPSILON);
+		((OffHeapGrid2D) slice).setBuffer(buffer);
+		Assert.assertEquals(3.f, grid.getAtIndex(3, 1, 2), CONRAD.FLOAT_EPSILON);
+		Assert.assertEquals(8.f, grid.getAtIndex(2, 1, 2), CONRAD.FLOAT_EPSILON);
+	}
+
+	@Test
+	public void testCopyAndOperators(){
+		Grid3D heap = new Grid3D(6, 5, 4);
+		for (int k = 0; k < 4; k++)
+			for (int j = 0; j < 5; j++)
+				for (int i = 0; i < 6; i++)
+					heap.setAtIndex(i, j, k, i + 10 * j + 100 * k);
+		OffHeapGrid3D offHeap = new OffHeapGrid3D(heap);
+		Assert.assertEquals(NumericPointwiseOperators.sum(heap), NumericPointwiseOperators.sum(offHeap), CONRAD.FLOAT_EPSILON);
+		Grid3D copy = (Grid3D) offHeap.clone();
+		NumericPointwiseOperators.addBy(copy, 1.f);
+		Assert.assertEquals(heap.getAtIndex(3, 2, 1), offHeap.getAtIndex(3, 2, 1), CONRAD.FLOAT_EPSILON);
+		Assert.assertEquals(heap.getAtIndex(3, 2, 1) + 1.f, copy.getAtIndex(3, 2, 1), CONRAD.FLOAT_EPSILON);
+		Assert.assertArrayEquals(heap.getSubGrid(3).getBuffer(), offHeap.getSubGrid(3).getBuffer(), (float) CONRAD.FLOAT_EPSILON);
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 - Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
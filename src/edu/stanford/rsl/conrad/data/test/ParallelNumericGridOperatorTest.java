@@ -0,0 +1,126 @@
+package edu.stanford.rsl.conrad.data.test;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.stanford.rsl.conrad.data.numeric.Grid1D;
+import edu.stanford.rsl.conrad.data.numeric.Grid2D;
+import edu.stanford.rsl.conrad.data.numeric.Grid3D;
+import edu.stanford.rsl.conrad.data.numeric.NumericGrid;
+import edu.stanford.rsl.conrad.data.numeric.NumericGridOperator;
+import edu.stanford.rsl.conrad.data.numeric.NumericPointwiseOperators;
+import edu.stanford.rsl.conrad.data.numeric.ParallelNumericGridOperator;
+
+public class ParallelNumericGridOperatorTest {
+
+	private static Grid3D createVolume(long seed){
+		Random random = new Random(seed);
+		Grid3D volume = new Grid3D(100, 90, 20);
+		for (int k = 0; k < 20; k++)
+			for (int j = 0; j < 90; j++)
+				for (int i = 0; i < 100; i++)
+					volume.setAtIndex(i, j, k, (float) (random.nextGaussian() + 0.5));
+		volume.setAtIndex(3, 4, 5, Float.NaN);
+		volume.setAtIndex(7, 8, 9, Float.NEGATIVE_INFINITY);
+		return volume;
+	}
+
+	private static void assertGridEquals(NumericGrid expected, NumericGrid actual){
+		Grid3D a = (Grid3D) expected;
+		Grid3D b = (Grid3D) actual;
+		for (int k = 0; k < a.getSize()[2]; k++)
+			Assert.assertArrayEquals(a.getSubGrid(k).getBuffer(), b.getSubGrid(k).getBuffer(), 0.f);
+	}
+
+	@Test
+	public void testPointwiseOperationsMatchDefaultOperator(){
+		NumericGridOperator reference = NumericGridOperator.getInstance();
+		ParallelNumericGridOperator parallel = new ParallelNumericGridOperator(3);
+		Grid3D other = createVolume(2);
+		Grid3D expected = createVolume(1);
+		Grid3D actual = createVolume(1);
+		reference.addBySave(expected, other);
+		parallel.addBySave(actual, other);
+		assertGridEquals(expected, actual);
+		reference.subtractBySave(expected, other);
+		parallel.subtractBySave(actual, other);
+		assertGridEquals(expected, actual);
+		reference.multiplyBy(expected, other);
+		parallel.multiplyBy(actual, other);
+		assertGridEquals(expected, actual);
+		reference.divideBySave(expected, other);
+		parallel.divideBySave(actual, other);
+		assertGridEquals(expected, actual);
+		reference.multiplyBy(expected, 2.5f);
+		parallel.multiplyBy(actual, 2.5f);
+		assertGridEquals(expected, actual);
+		reference.abs(expected);
+		parallel.abs(actual);
+		reference.sqrt(expected);
+		parallel.sqrt(actual);
+		reference.setMax(expected, 1.2f);
+		parallel.setMax(actual, 1.2f);
+		assertGridEquals(expected, actual);
+		reference.copy(expected, other);
+		parallel.copy(actual, other);
+		assertGridEquals(expected, actual);
+	}
+
+	@Test
+	public void testReductions(){
+		ParallelNumericGridOperator parallel = new ParallelNumericGridOperator(3);
+		Grid3D volume = createVolume(1);
+		Grid3D other = createVolume(2);
+		double sum = 0, l1 = 0, dot = 0;
+		int negative = 0;
+		float min = Float.NEGATIVE_INFINITY;
+		for (int k = 0; k < 20; k++)
+			for (int j = 0; j < 90; j++)
+				for (int i = 0; i < 100; i++){
+					float value = volume.getAtIndex(i, j, k);
+					if (Float.isNaN(value) || Float.isInfinite(value)) continue;
+					sum += value;
+					l1 += Math.abs(value);
+					dot += value * other.getAtIndex(i, j, k);
+					if (value < 0) negative++;
+				}
+		Assert.assertEquals(sum, parallel.sumSave(volume), Math.abs(sum) * 1e-6);
+		Assert.assertEquals(l1, parallel.normL1(volume), l1 * 1e-6);
+		Assert.assertEquals(negative, parallel.countNegativeElements(volume));
+		Assert.assertEquals(2, parallel.countInvalidElements(volume));
+		Assert.assertEquals(min, parallel.min(volume), 0.f);
+		Assert.assertEquals(NumericGridOperator.getInstance().max(volume), parallel.max(volume), 0.f);
+		Assert.assertTrue(Float.isNaN(parallel.sum(volume)));
+		parallel.fillInvalidValues(volume, 0);
+		parallel.fillInvalidValues(other, 0);
+		Assert.assertEquals(dot, parallel.dotProduct(volume, other), Math.abs(dot) * 1e-6);
+	}
+
+	@Test
+	public void testCompensatedSum(){
+		Grid2D image = new Grid2D(1000, 1000);
+		NumericPointwiseOperators.fill(image, 0.1f);
+		Assert.assertEquals(1000000 * 0.1f, ParallelNumericGridOperator.getInstance().sum(image), 1e-6 * 100000);
+	}
+
+	@Test
+	public void testGrid1DViewAndSelection(){
+		Grid2D image = new Grid2D(5, 4);
+		NumericPointwiseOperators.fill(image, 1);
+		Grid1D row = image.getSubGrid(2);
+		row.setNumericGridOperator(ParallelNumericGridOperator.getInstance());
+		Assert.assertSame(ParallelNumericGridOperator.getInstance(), NumericPointwiseOperators.selectGridOperator(row, image.getSubGrid(1)));
+		NumericPointwiseOperators.addBy(row, 2.f);
+		Assert.assertEquals(15.f, NumericPointwiseOperators.sum(row), 0.f);
+		Assert.assertEquals(1.f, image.getAtIndex(4, 1), 0.f);
+		Assert.assertEquals(3.f, image.getAtIndex(4, 2), 0.f);
+		Assert.assertEquals(1.f, image.getAtIndex(0, 3), 0.f);
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 - Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
@@ -1,8 +1,19 @@
 package edu.stanford.rsl.conrad.filtering;
 
 import edu.stanford.rsl.conrad.data.numeric.Grid2D;
+import edu.stanford.rsl.conrad.parallel.ParallelThreadExecutor;
+import edu.stanford.rsl.conrad.parallel.ParallelizableRunnable;
+import edu.stanford.rsl.conrad.parallel.SimpleParallelThread;
+import edu.stanford.rsl.conrad.utils.CONRAD;
 import edu.stanford.rsl.conrad.utils.UserUtil;
 
+/**
+ * Bilateral filter after Tomasi and Manduchi. In fast mode, which is the default, the spatial weights are computed once per image
+ * and the photometric weights are interpolated linearly from a table over the squared normalized intensity distance. Neighbors with
+ * a photometric weight below exp(-25) are ignored. The image rows are distributed among {@link CONRAD#getNumberOfThreads()} threads.
+ * The interpolated weights deviate from the exact weights by less than 1e-6.
+ *
+ */
 public class BilateralFilteringTool extends IndividualImageFilteringTool {
 
 	/**
@@ -12,6 +23,17 @@ public class BilateralFilteringTool extends IndividualImageFilteringTool {
 	private double sigma_d = 2.0;
 	private double sigma_r = 0.001;
 	private int width = 5;
+	private boolean fastMode = true;
+	protected int numThreads = CONRAD.getNumberOfThreads();
+
+	/**
+	 * Number of entries of the photometric weight table per unit of the squared normalized intensity distance.
+	 */
+	private static final int RANGE_TABLE_RESOLUTION = 256;
+	/**
+	 * Squared normalized intensity distance beyond which the photometric weight is 0.
+	 */
+	private static final int RANGE_TABLE_CUTOFF = 50;
 
 	@Override
 	public IndividualImageFilteringTool clone() {
@@ -19,6 +41,7 @@ public class BilateralFilteringTool extends IndividualImageFilteringTool {
 		clone.sigma_d = sigma_d;
 		clone.sigma_r = sigma_r;
 		clone.width = width;
+		clone.fastMode = fastMode;
 		clone.configured = configured;
 		return clone;
 	}
@@ -26,6 +49,7 @@ public class BilateralFilteringTool extends IndividualImageFilteringTool {
 	@Override
 	public Grid2D applyToolToImage(Grid2D imageProcessor)
 	throws Exception {
+		if (fastMode) return applyFastFilter(imageProcessor);
 		Grid2D filtered = new Grid2D(imageProcessor);
 		for (int i = 0; i< filtered.getWidth(); i++){
 			for (int j = 0; j < filtered.getHeight(); j++){
@@ -36,6 +60,93 @@ public class BilateralFilteringTool extends IndividualImageFilteringTool {
 		return filtered;
 	}
 
+	/**
+	 * Fast evaluation of the filter with precomputed spatial weights and a table of the photometric weights.
+	 * @param input the image
+	 * @return the filtered image
+	 * @throws InterruptedException if the threads are interrupted
+	 */
+	private Grid2D applyFastFilter(Grid2D input) throws InterruptedException{
+		final Grid2D filtered = new Grid2D(input);
+		final float [] in = input.getBuffer();
+		final float [] out = filtered.getBuffer();
+		final int imageWidth = input.getWidth();
+		final int half = width / 2;
+		final int kernelSize = (2 * half) + 1;
+		// rows and columns on the boundary are not filtered
+		final int firstRow = half;
+		final int lastRow = input.getHeight() - half - 1;
+		final int firstColumn = half;
+		final int lastColumn = imageWidth - half - 1;
+		if (lastRow <= firstRow || lastColumn <= firstColumn) return filtered;
+		final double [] spatial = new double[kernelSize * kernelSize];
+		final int [] offsets = new int[kernelSize * kernelSize];
+		for (int dj = -half; dj <= half; dj++){
+			for (int di = -half; di <= half; di++){
+				int k = ((dj + half) * kernelSize) + di + half;
+				spatial[k] = computeGeometricCloseness(0, 0, di, dj);
+				offsets[k] = (dj * imageWidth) + di;
+			}
+		}
+		final double [] range = new double[(RANGE_TABLE_CUTOFF * RANGE_TABLE_RESOLUTION) + 2];
+		for (int t = 0; t < range.length; t++){
+			range[t] = Math.exp(-0.5 * t / RANGE_TABLE_RESOLUTION);
+		}
+		final double rangeScale = RANGE_TABLE_RESOLUTION / (sigma_r * sigma_r);
+		final double maxIndex = RANGE_TABLE_CUTOFF * RANGE_TABLE_RESOLUTION;
+		final int numBands = Math.max(1, Math.min(numThreads, lastRow - firstRow));
+		final int bandSize = (int) Math.ceil(((double) (lastRow - firstRow)) / numBands);
+		ParallelizableRunnable [] runnables = new ParallelizableRunnable[numBands];
+		for (int t = 0; t < numBands; t++){
+			runnables[t] = new SimpleParallelThread(t) {
+				@Override
+				public void execute() {
+					int startRow = firstRow + (threadNum * bandSize);
+					int endRow = Math.min(startRow + bandSize, lastRow);
+					for (int y = startRow; y < endRow; y++){
+						for (int x = firstColumn; x < lastColumn; x++){
+							int center = (y * imageWidth) + x;
+							double centerValue = in[center];
+							double sumWeight = 0;
+							double sumFilter = 0;
+							for (int k = 0; k < offsets.length; k++){
+								double value = in[center + offsets[k]];
+								double difference = value - centerValue;
+								double index = difference * difference * rangeScale;
+								if (index >= maxIndex) continue;
+								int lower = (int) index;
+								double fraction = index - lower;
+								double weight = spatial[k] * (range[lower] + (fraction * (range[lower + 1] - range[lower])));
+								sumWeight += weight;
+								sumFilter += weight * value;
+							}
+							out[center] = (float) (sumFilter / sumWeight);
+						}
+					}
+				}
+			};
+		}
+		ParallelThreadExecutor exec = new ParallelThreadExecutor(runnables);
+		exec.setShowStatus(false);
+		exec.execute();
+		return filtered;
+	}
+
+	/**
+	 * @return true if the fast approximation is used
+	 */
+	public boolean isFastMode() {
+		return fastMode;
+	}
+
+	/**
+	 * Selects the fast approximation or the exact evaluation of the filter.
+	 * @param fastMode true for the fast approximation
+	 */
+	public void setFastMode(boolean fastMode) {
+		this.fastMode = fastMode;
+	}
+
 	@Override
 	public String getToolName() {
 		return "Bilateral Filtering Tool";
@@ -1,7 +1,7 @@
 package edu.stanford.rsl.conrad.filtering;
 
 import edu.stanford.rsl.conrad.data.numeric.Grid2D;
-import edu.stanford.rsl.conrad.utils.StatisticsUtil;
+import edu.stanford.rsl.conrad.utils.NoiseGenerator;
 import edu.stanford.rsl.jpop.utils.UserUtil;
 
 /**
@@ -68,6 +68,7 @@ public class LogPoissonNoiseFilteringTool extends PoissonNoiseFilteringTool {
 		LogPoissonNoiseFilteringTool filter = new LogPoissonNoiseFilteringTool();
 		filter.configured = configured;
 		filter.photonCountMax = photonCountMax;
+		filter.setSeed(getSeed());
 		return filter;
 	}
 
@@ -80,11 +81,12 @@ public class LogPoissonNoiseFilteringTool extends PoissonNoiseFilteringTool {
 	@Override
 	public Grid2D applyToolToImage(Grid2D imageProcessor) throws Exception {
 		Grid2D imp = imageProcessor;
-		for (int k = 0; k < imageProcessor.getWidth(); k++){
-			for (int j = 0; j < imageProcessor.getHeight(); j++){
+		for (int j = 0; j < imageProcessor.getHeight(); j++){
+			NoiseGenerator noise = getNoiseGenerator(j);
+			for (int k = 0; k < imageProcessor.getWidth(); k++){
 				double scaled = imageProcessor.getPixelValue(k, j) * -1.0 ;
 				double expdomain = Math.exp(scaled) * photonCountMax;
-				double noiseAdded = StatisticsUtil.poissonRandomNumber(expdomain);
+				double noiseAdded = noise.nextPoisson(expdomain);
 				double log = noiseAdded / photonCountMax;
 				double value =  -1.0 * Math.log(log);
 				if (log ==0) value = maxValue;
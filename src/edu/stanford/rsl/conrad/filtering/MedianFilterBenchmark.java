@@ -0,0 +1,65 @@
+package edu.stanford.rsl.conrad.filtering;
+
+import java.util.Random;
+
+import edu.stanford.rsl.conrad.data.numeric.Grid2D;
+
+/**
+ * MedianFilterBenchmark compares the run time of the sorting and the histogram median of the {@link MedianFilteringTool}
+ * for kernel sizes from 3x3 to 15x15 on a synthetic detector frame. Frames with 16 bit integer values and with float values are
+ * tested. The number of pixels that differ between both methods is reported as well.<br>
+ * Usage: MedianFilterBenchmark [width] [height]
+ *
+ * @author akmaier
+ */
+public class MedianFilterBenchmark {
+
+	public static void main(String[] args) {
+		int width = (args.length > 0) ? Integer.parseInt(args[0]) : 1240;
+		int height = (args.length > 1) ? Integer.parseInt(args[1]) : 960;
+		Random random = new Random(42);
+		Grid2D integerFrame = new Grid2D(width, height);
+		Grid2D floatFrame = new Grid2D(width, height);
+		float [] integerBuffer = integerFrame.getBuffer();
+		float [] floatBuffer = floatFrame.getBuffer();
+		for (int j = 0; j < height; j++) {
+			for (int i = 0; i < width; i++) {
+				double signal = 20000 + (10000 * Math.sin(i * 0.01) * Math.cos(j * 0.013));
+				integerBuffer[(j * width) + i] = (float) Math.round(signal + (500 * random.nextGaussian()));
+				floatBuffer[(j * width) + i] = (float) (Math.log(65535 / signal) + (0.01 * random.nextGaussian()));
+			}
+		}
+		Grid2D [] frames = {integerFrame, floatFrame};
+		String [] frameNames = {"integer", "float"};
+
+		String leftAlignFormat = "| %-8s | %-6s | %12d | %14d | %10d |%n";
+		System.out.format("+----------+--------+--------------+----------------+------------+%n");
+		System.out.printf("| data     | kernel | sorting [ms] | histogram [ms] | different  |%n");
+		System.out.format("+----------+--------+--------------+----------------+------------+%n");
+		for (int f = 0; f < frames.length; f++) {
+			for (int size = 3; size <= 15; size += 2) {
+				MedianFilteringTool tool = new MedianFilteringTool();
+				tool.configure(size, size);
+				tool.setUseHistogram(false);
+				long start = System.currentTimeMillis();
+				Grid2D sorted = tool.getMedianFilteredImage(frames[f]);
+				long sortingTime = System.currentTimeMillis() - start;
+				tool.setUseHistogram(true);
+				start = System.currentTimeMillis();
+				Grid2D histogram = tool.getMedianFilteredImage(frames[f]);
+				long histogramTime = System.currentTimeMillis() - start;
+				int different = 0;
+				for (int p = 0; p < sorted.getBuffer().length; p++) {
+					if (Float.compare(sorted.getBuffer()[p], histogram.getBuffer()[p]) != 0) different++;
+				}
+				System.out.format(leftAlignFormat, frameNames[f], size + "x" + size, sortingTime, histogramTime, different);
+			}
+		}
+		System.out.format("+----------+--------+--------------+----------------+------------+%n");
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
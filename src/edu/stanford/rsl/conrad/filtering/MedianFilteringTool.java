@@ -5,12 +5,21 @@ import java.util.Arrays;
 import javax.swing.JOptionPane;
 
 import edu.stanford.rsl.conrad.data.numeric.Grid2D;
+import edu.stanford.rsl.conrad.parallel.ParallelThreadExecutor;
+import edu.stanford.rsl.conrad.parallel.ParallelizableRunnable;
+import edu.stanford.rsl.conrad.parallel.SimpleParallelThread;
+import edu.stanford.rsl.conrad.utils.CONRAD;
 
 
 /**
- * Implements a simple median filter based on sorting of all values in the kernel.
- * The kernel is specified by its width and its height. The values on the border of the image
- * that cannot be computed by the kernel are set to 0 in the resulting image.
+ * Implements a median filter. The kernel is specified by its width and its height. The values on the border of the image
+ * that cannot be computed by the kernel are set to 0 in the resulting image.<br>
+ * By default, the median is computed from a histogram of the kernel that slides along the image rows (Huang et al. 1979).
+ * Moving the kernel by one pixel updates the histogram by one column of the kernel. The median is found by a two-level search
+ * that starts at the median of the previous pixel. Images with integer values within a range of 2^16 are binned by
+ * their value. Other images are binned by the rank of their value in the image. Hence, the result is exact in both cases.
+ * Alternatively, the median can be computed by sorting all values in the kernel.
+ * The image rows are distributed among {@link CONRAD#getNumberOfThreads()} threads.
  * 
  * 
  * @author Happy Coding Seminar
@@ -24,20 +33,75 @@ public class MedianFilteringTool extends IndividualImageFilteringTool {
 	private static final long serialVersionUID = -2206224407501839982L;
 	private int kernelWidth = 1;
 	private int kernelHeight = 1;
+	private boolean useHistogram = true;
+	protected int numThreads = CONRAD.getNumberOfThreads();
+
+	/**
+	 * Values of integer images are used as histogram bins directly if their range is smaller than this.
+	 */
+	private static final int MAX_INTEGER_RANGE = 1 << 16;
 	
 	/**
 	 * Method to create the median filtered image. Image is filtered according to the internal parameters
-	 * kernelWidth and kernelHeight by sorting and selecting the center entry of the kernel.
+	 * kernelWidth and kernelHeight.
 	 * @param input
 	 * @return the median filtered image.
 	 */
-	public Grid2D getMedianFilteredImage(Grid2D input){
+	public Grid2D getMedianFilteredImage(final Grid2D input){
 		//ImageProcessor output = input.convertToFloat();
-		Grid2D output = new Grid2D(input);
+		final Grid2D output = new Grid2D(input);
+		final int borderY = (kernelHeight-1) / 2;
+		final int height = output.getHeight();
+		final int firstRow = borderY;
+		final int lastRow = height - borderY;
+		if (lastRow <= firstRow) return output;
+		final int [] bins;
+		final float [] values;
+		if (useHistogram) {
+			float [] buffer = input.getBuffer();
+			bins = new int[buffer.length];
+			values = computeBins(buffer, bins);
+		} else {
+			bins = null;
+			values = null;
+		}
+		final int numBands = Math.max(1, Math.min(numThreads, lastRow - firstRow));
+		final int bandSize = (int) Math.ceil(((double) (lastRow - firstRow)) / numBands);
+		ParallelizableRunnable [] runnables = new ParallelizableRunnable[numBands];
+		for (int t = 0; t < numBands; t++){
+			runnables[t] = new SimpleParallelThread(t) {
+				@Override
+				public void execute() {
+					int startRow = firstRow + (threadNum * bandSize);
+					int endRow = Math.min(startRow + bandSize, lastRow);
+					if (useHistogram){
+						filterRowsWithHistogram(bins, values, output, startRow, endRow);
+					} else {
+						filterRowsBySorting(input, output, startRow, endRow);
+					}
+				}
+			};
+		}
+		ParallelThreadExecutor exec = new ParallelThreadExecutor(runnables);
+		exec.setShowStatus(false);
+		try {
+			exec.execute();
+		} catch (InterruptedException e) {
+			// the output is only partly filtered.
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Median filtering was interrupted.", e);
+		}
+		return output;
+	}
+
+	/**
+	 * Filters the rows startRow to endRow - 1 by sorting and selecting the center entry of the kernel.
+	 */
+	private void filterRowsBySorting(Grid2D input, Grid2D output, int startRow, int endRow){
 		int borderX = (kernelWidth-1) / 2;
 		int borderY = (kernelHeight-1) / 2;
 		float [] kernel = new float [kernelWidth*kernelHeight];
-		for (int j=borderY; j < output.getHeight() - borderY; j++){
+		for (int j=startRow; j < endRow; j++){
 			for (int i=borderX; i < output.getWidth() - borderX; i++){
 				int index = 0;
 				for (int v = j - borderY; v <= j + borderY; v++){
@@ -49,9 +113,158 @@ public class MedianFilteringTool extends IndividualImageFilteringTool {
 				Arrays.sort(kernel);
 				output.putPixelValue(i, j, kernel[(kernelWidth*kernelHeight-1) / 2]);
 			}
-		}		
-		
-		return output;
+		}
+	}
+
+	/**
+	 * Maps each pixel to a histogram bin such that the order of the bins is the order of the values.
+	 * @param buffer the image
+	 * @param bins the bin of each pixel
+	 * @return the value of each bin
+	 */
+	private static float [] computeBins(float [] buffer, int [] bins){
+		float min = Float.MAX_VALUE;
+		float max = -Float.MAX_VALUE;
+		boolean integer = true;
+		for (int p = 0; p < buffer.length; p++){
+			float value = buffer[p];
+			if (value != Math.rint(value)) {
+				// also true for NaN
+				integer = false;
+				break;
+			}
+			if (value < min) min = value;
+			if (value > max) max = value;
+		}
+		if (integer && ((double) max - min) < MAX_INTEGER_RANGE) {
+			float [] values = new float[(int) ((double) max - min) + 1];
+			for (int b = 0; b < values.length; b++){
+				values[b] = (float) ((double) min + b);
+			}
+			for (int p = 0; p < buffer.length; p++){
+				bins[p] = (int) ((double) buffer[p] - min);
+			}
+			return values;
+		}
+		// rank of the value among the distinct values of the image
+		float [] sorted = buffer.clone();
+		Arrays.sort(sorted);
+		int distinct = 0;
+		for (int p = 0; p < sorted.length; p++){
+			if (distinct == 0 || Float.compare(sorted[p], sorted[distinct - 1]) != 0){
+				sorted[distinct++] = sorted[p];
+			}
+		}
+		for (int p = 0; p < buffer.length; p++){
+			bins[p] = Arrays.binarySearch(sorted, 0, distinct, buffer[p]);
+		}
+		return Arrays.copyOf(sorted, distinct);
+	}
+
+	/**
+	 * Filters the rows startRow to endRow - 1 with a sliding histogram.
+	 */
+	private void filterRowsWithHistogram(int [] bins, float [] values, Grid2D output, int startRow, int endRow){
+		int width = output.getWidth();
+		float [] result = output.getBuffer();
+		int borderX = (kernelWidth-1) / 2;
+		int borderY = (kernelHeight-1) / 2;
+		if (width <= 2 * borderX) return;
+		SlidingHistogram histogram = new SlidingHistogram(values.length, (((2 * borderX) + 1) * ((2 * borderY) + 1) - 1) / 2);
+		for (int j = startRow; j < endRow; j++){
+			for (int v = j - borderY; v <= j + borderY; v++){
+				for (int u = 0; u < 2 * borderX; u++){
+					histogram.add(bins[(v * width) + u]);
+				}
+			}
+			for (int i = borderX; i < width - borderX; i++){
+				// add the right column and remove the column left of the kernel
+				for (int v = j - borderY; v <= j + borderY; v++){
+					histogram.add(bins[(v * width) + i + borderX]);
+					if (i > borderX) histogram.remove(bins[(v * width) + i - borderX - 1]);
+				}
+				result[(j * width) + i] = values[histogram.getMedian()];
+			}
+			for (int v = j - borderY; v <= j + borderY; v++){
+				for (int u = width - (2 * borderX) - 1; u < width; u++){
+					histogram.remove(bins[(v * width) + u]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Histogram with three levels of 1, 16, and 256 bins. The median bin and the number of entries in the bins below it are tracked
+	 * while entries are added and removed. Empty groups of bins are skipped when the median moves.
+	 */
+	private static class SlidingHistogram {
+		private final int [] fine;
+		private final int [] mid;
+		private final int [] coarse;
+		/** index of the requested entry in the sorted kernel */
+		private final int rank;
+		private int median = 0;
+		/** number of entries in the bins below median */
+		private int below = 0;
+
+		SlidingHistogram(int numBins, int rank){
+			fine = new int[numBins];
+			mid = new int[(numBins >> 4) + 1];
+			coarse = new int[(numBins >> 8) + 1];
+			this.rank = rank;
+		}
+
+		void add(int bin){
+			fine[bin]++;
+			mid[bin >> 4]++;
+			coarse[bin >> 8]++;
+			if (bin < median) below++;
+		}
+
+		void remove(int bin){
+			fine[bin]--;
+			mid[bin >> 4]--;
+			coarse[bin >> 8]--;
+			if (bin < median) below--;
+		}
+
+		/**
+		 * @return the bin that contains the entry of the requested rank
+		 */
+		int getMedian(){
+			// move down
+			while (below > rank){
+				if ((median & 0xF) == 0) {
+					if ((median & 0xFF) == 0 && coarse[(median >> 8) - 1] == 0) {
+						median -= 256;
+						continue;
+					}
+					if (mid[(median >> 4) - 1] == 0) {
+						median -= 16;
+						continue;
+					}
+				}
+				median--;
+				below -= fine[median];
+			}
+			// move up
+			while (true){
+				if ((median & 0xF) == 0) {
+					if ((median & 0xFF) == 0 && coarse[median >> 8] == 0) {
+						median += 256;
+						continue;
+					}
+					if (mid[median >> 4] == 0) {
+						median += 16;
+						continue;
+					}
+				}
+				if (below + fine[median] > rank) break;
+				below += fine[median];
+				median++;
+			}
+			return median;
+		}
 	}
 	
 	
@@ -67,6 +280,7 @@ public class MedianFilteringTool extends IndividualImageFilteringTool {
 		MedianFilteringTool clone = new MedianFilteringTool();
 		clone.setKernelHeight(kernelHeight);
 		clone.setKernelWidth(kernelWidth);
+		clone.setUseHistogram(useHistogram);
 		clone.setConfigured(configured);
 		return clone;
 	}
@@ -87,6 +301,17 @@ public class MedianFilteringTool extends IndividualImageFilteringTool {
 		this.kernelHeight = kernelHeight;
 	}
 
+	/**
+	 * @return true if the median is computed with a sliding histogram, false if it is computed by sorting
+	 */
+	public boolean isUseHistogram() {
+		return useHistogram;
+	}
+
+	public void setUseHistogram(boolean useHistogram) {
+		this.useHistogram = useHistogram;
+	}
+
 	@Override
 	public String getToolName() {
 		if (isConfigured()){
@@ -1,11 +1,13 @@
 package edu.stanford.rsl.conrad.filtering;
 
 import edu.stanford.rsl.conrad.data.numeric.Grid2D;
-import edu.stanford.rsl.conrad.utils.StatisticsUtil;
+import edu.stanford.rsl.conrad.utils.NoiseGenerator;
 
 
 /**
  * Applies Poisson noise to the input image. The pixel-wise lambda is assumed to be the value of each input pixel.
+ * The noise of each detector row is drawn from a {@link NoiseGenerator} stream that is identified by the seed, the projection number, and the row.
+ * Hence, the result is reproducible for a given seed, independent of the number of threads.
  * 
  * @author Andreas Maier
  * @see edu.stanford.rsl.conrad.filtering.LogPoissonNoiseFilteringTool
@@ -20,10 +22,39 @@ public class PoissonNoiseFilteringTool extends IndividualImageFilteringTool {
 	 */
 	private static final long serialVersionUID = 647343713286585178L;
 
+	/**
+	 * the seed of the noise.
+	 */
+	private long seed = NoiseGenerator.newSeed();
+
+	/**
+	 * @return the seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @param seed the seed to set
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Returns the generator of one detector row of the current projection.
+	 * @param row the row
+	 * @return the generator
+	 */
+	protected NoiseGenerator getNoiseGenerator(int row){
+		return new NoiseGenerator(seed, imageIndex, row);
+	}
+
 	@Override
 	public IndividualImageFilteringTool clone() {
 		PoissonNoiseFilteringTool filter = new PoissonNoiseFilteringTool();
 		filter.configured = configured;
+		filter.seed = seed;
 		return filter;
 	}
 
@@ -36,9 +67,10 @@ public class PoissonNoiseFilteringTool extends IndividualImageFilteringTool {
 	@Override
 	public Grid2D applyToolToImage(Grid2D imageProcessor) throws Exception {
 		Grid2D imp = imageProcessor;
-		for (int k = 0; k < imageProcessor.getWidth(); k++){
-			for (int j = 0; j < imageProcessor.getHeight(); j++){
-				double value = StatisticsUtil.poissonRandomNumber(imageProcessor.getPixelValue(k, j));
+		for (int j = 0; j < imageProcessor.getHeight(); j++){
+			NoiseGenerator noise = getNoiseGenerator(j);
+			for (int k = 0; k < imageProcessor.getWidth(); k++){
+				double value = noise.nextPoisson(imageProcessor.getPixelValue(k, j));
 				imp.putPixelValue(k, j, value);
 			}
 		}
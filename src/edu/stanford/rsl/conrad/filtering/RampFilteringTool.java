@@ -55,7 +55,8 @@ public class RampFilteringTool extends IndividualImageFilteringTool {
 
 	@Override
 	public Grid2D applyToolToImage(Grid2D imageProcessor) {
-		return FFTUtil.applyRampFilter(imageProcessor, ramp.clone());
+		// the spectrum is cached by the RampFilterEngine. Hence, the ramp is neither cloned nor modified.
+		return FFTUtil.applyRampFilter(imageProcessor, ramp);
 	}
 
 	
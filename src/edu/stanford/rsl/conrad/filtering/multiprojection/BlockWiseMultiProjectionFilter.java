@@ -185,10 +185,7 @@ public abstract class BlockWiseMultiProjectionFilter extends MultiProjectionFilt
 				}
 				// wait for everything to be finished.
 				if (debug > 0) System.out.println("Waiting for threads ...");
-				while (latch.getCount() > 0){
-					Thread.sleep(CONRAD.INVERSE_SPEEDUP);
-					//System.out.println(latch.getCount());
-				}
+				latch.await();
 				e.shutdownNow();
 				CONRAD.setUseGarbageCollection(true);
 				e = null;
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 
 import edu.stanford.rsl.conrad.data.numeric.Grid2D;
 import edu.stanford.rsl.conrad.filtering.ImageFilteringTool;
+import edu.stanford.rsl.conrad.pipeline.PipelineStageStatistics;
 import edu.stanford.rsl.conrad.pipeline.ProjectionSink;
 import edu.stanford.rsl.conrad.pipeline.ProjectionSource;
 import edu.stanford.rsl.conrad.utils.CONRAD;
@@ -50,6 +51,9 @@ implements ProjectionSink, Runnable {
 	private boolean closed = false;
 	private int finalIndex = -1;
 	boolean init = false;
+	/** Counts calls to process() and close(). The processing thread waits for a change of this counter if it cannot make progress. */
+	private long streamEvents = 0;
+	private transient PipelineStageStatistics statistics;
 
 	public void setShowStatus(boolean showStatus){
 		this.showStatus = showStatus;
@@ -100,24 +104,62 @@ implements ProjectionSink, Runnable {
 		}
 		inputQueue.add(projection, projectionNumber);
 		processed.add(new Boolean(false));
+		getStatistics().projectionProcessed();
+		signalStreamEvent();
+	}
+
+	/**
+	 * @return the throughput statistics of the input of this filter
+	 */
+	public synchronized PipelineStageStatistics getStatistics(){
+		if (statistics == null) statistics = new PipelineStageStatistics(getName());
+		return statistics;
+	}
+
+	private synchronized void signalStreamEvent(){
+		streamEvents++;
+		notifyAll();
+	}
+
+	/**
+	 * Parks the calling thread until process() or close() was called after the stream event with the given number.
+	 * @param seenEvents the number of stream events observed by the caller
+	 * @return false if the thread was interrupted while waiting. The interrupt flag is set again in this case.
+	 */
+	private synchronized boolean waitForStreamEvent(long seenEvents){
+		long start = System.nanoTime();
+		try {
+			while (streamEvents == seenEvents){
+				wait();
+			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			getStatistics().addIdleTime(System.nanoTime() - start);
+		}
+	}
+
+	private synchronized long getStreamEvents(){
+		return streamEvents;
 	}
 
 	public void run(){
 		int processedIndex = 0;
+		long seenEvents = getStreamEvents();
 		boolean init = this.init;
 		while (!init){
-			try {
-				Thread.sleep(CONRAD.INVERSE_SPEEDUP);
-				init = this.init;
-				if (debug > 2)System.out.println(init);
-			} catch (InterruptedException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
+			if (!waitForStreamEvent(seenEvents)) return;
+			seenEvents = getStreamEvents();
+			init = this.init;
+			if (debug > 2)System.out.println(init);
 		}
 		if (debug > 1)System.out.println("MultiProjectionFilter: Processing");
 		boolean allProjectionsProcessed = false;
 		while (!allProjectionsProcessed){
+			seenEvents = getStreamEvents();
+			boolean progress = false;
 			if (debug > 2) System.out.println("MultiProjectionFilter: Processing Data. Queue Size: " + (processed.size() - processedIndex) );
 			if (debug > 2) System.out.println("MultiProjectionFilter: Processing Data at Projection " + processedIndex );
 			// Iterate over all Images in buffer.
@@ -132,11 +174,13 @@ implements ProjectionSink, Runnable {
 								processProjectionData(processedIndex);
 								processed.set(processedIndex, new Boolean(true));
 								processedIndex++;
+								progress = true;
 							} catch (Exception e) {
 								// Index must be increased otherwise we end in a deadlock.
 								e.printStackTrace();
 								processed.set(processedIndex, new Boolean(true));
 								processedIndex++;
+								progress = true;
 							}
 						}
 					}
@@ -150,11 +194,12 @@ implements ProjectionSink, Runnable {
 					break;
 				}
 			}
-			try {
-				Thread.sleep(CONRAD.INVERSE_SPEEDUP);
-			} catch (InterruptedException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+			if (!progress) {
+				// Nothing to do until more data arrives or the stream is closed.
+				if (!waitForStreamEvent(seenEvents)) {
+					if (debug > 1)System.out.println("MultiProjectionFilter: Interrupted.");
+					break;
+				}
 			}
 		}
 		if (debug > 1)System.out.println("MultiProjectionFilter: Finished Cleaning up ...");
@@ -294,6 +339,7 @@ implements ProjectionSink, Runnable {
 			if (debug > 1) System.out.println("MultiProjectionFilter done: finalIndex = " + finalIndex);
 			//System.exit(0);
 		}
+		signalStreamEvent();
 	}
 
 	/**
@@ -0,0 +1,213 @@
+package edu.stanford.rsl.conrad.filtering.rampfilters;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
+import edu.stanford.rsl.conrad.data.numeric.Grid2D;
+import edu.stanford.rsl.conrad.utils.FFTUtil;
+
+/**
+ * Applies a {@link RampFilter} to the rows of projections. Detector rows are real. Hence, the engine uses real-to-complex float
+ * transforms of half the size of the complex transform in {@link FFTUtil}. FFT plans are shared per padded width and the
+ * filter spectrum is computed once per padded width and filter parameters. Each thread reuses its own row buffer. Hence, no memory is
+ * allocated per row.<br>
+ * Rows are zero-padded to the next power of two of the row length. The result equals the complex transform up to float precision.
+ *
+ * @author akmaier
+ *
+ */
+public class RampFilterEngine {
+
+	private static final ConcurrentHashMap<Integer, FloatFFT_1D> plans = new ConcurrentHashMap<Integer, FloatFFT_1D>();
+	private static final ConcurrentHashMap<SpectrumKey, float[]> spectra = new ConcurrentHashMap<SpectrumKey, float[]>();
+	private static final ThreadLocal<float[]> rowBuffer = new ThreadLocal<float[]>();
+
+	/**
+	 * Returns the padded length of the transform for the given row length.
+	 * @param width the row length
+	 * @return the padded length
+	 */
+	public static int getPaddedWidth(int width){
+		return FFTUtil.getNextPowerOfTwo(width);
+	}
+
+	/**
+	 * Returns the shared FFT plan for the given length.
+	 * @param paddedWidth the length of the transform
+	 * @return the plan
+	 */
+	public static FloatFFT_1D getPlan(int paddedWidth){
+		FloatFFT_1D plan = plans.get(paddedWidth);
+		if (plan == null){
+			plan = new FloatFFT_1D(paddedWidth);
+			FloatFFT_1D existing = plans.putIfAbsent(paddedWidth, plan);
+			if (existing != null) plan = existing;
+		}
+		return plan;
+	}
+
+	/**
+	 * Returns the real filter weights of the frequencies 0 to paddedWidth / 2, i.e. the absolute values of
+	 * {@link RampFilter#getRampFilter1D(int)}. Weights of a positive and the corresponding negative frequency are averaged such
+	 * that the filtered row stays real. The spectrum is computed once per filter parameters and padded width. Filters that are
+	 * read from a file, i.e. {@link ArbitraryRampFilter}, are not cached. Their length is fixed. If it differs from the padded width,
+	 * the weights are interpolated linearly at the frequencies of the padded row.
+	 * @param ramp the filter
+	 * @param paddedWidth the length of the transform
+	 * @return the weights. Do not modify the returned array.
+	 */
+	public static float [] getSpectrum(RampFilter ramp, int paddedWidth){
+		if (ramp instanceof ArbitraryRampFilter) {
+			return computeSpectrum(ramp, paddedWidth);
+		}
+		SpectrumKey key = new SpectrumKey(ramp, paddedWidth);
+		float [] spectrum = spectra.get(key);
+		if (spectrum == null){
+			// getRampFilter1D() caches in the filter. We work on a copy such that the filter can be shared between threads.
+			spectrum = computeSpectrum(ramp.clone(), paddedWidth);
+			spectra.putIfAbsent(key, spectrum);
+		}
+		return spectrum;
+	}
+
+	private static float [] computeSpectrum(RampFilter ramp, int paddedWidth){
+		double [] filter = ramp.getRampFilter1D(paddedWidth);
+		int frequencies = filter.length / 2;
+		if (frequencies == 0){
+			throw new IllegalArgumentException("Filter " + ramp.getRampName() + " is empty.");
+		}
+		// position of frequency k of the padded row in the filter. Equals k if the filter has paddedWidth frequencies.
+		double scale = ((double) frequencies) / paddedWidth;
+		float [] spectrum = new float[(paddedWidth / 2) + 1];
+		for (int k = 0; k < spectrum.length; k++){
+			spectrum[k] = (float) ((getAbsolute(filter, frequencies, k * scale) + getAbsolute(filter, frequencies, ((paddedWidth - k) % paddedWidth) * scale)) / 2);
+		}
+		return spectrum;
+	}
+
+	/**
+	 * Interpolates the absolute value of the filter linearly. Positions beyond the last frequency wrap around to frequency 0.
+	 */
+	private static double getAbsolute(double [] filter, int frequencies, double position){
+		int lower = (int) position;
+		double weight = position - lower;
+		double value = FFTUtil.abs(lower % frequencies, filter);
+		if (weight > 0){
+			value = ((1 - weight) * value) + (weight * FFTUtil.abs((lower + 1) % frequencies, filter));
+		}
+		return value;
+	}
+
+	/**
+	 * Removes all cached plans and spectra.
+	 */
+	public static void clearCache(){
+		plans.clear();
+		spectra.clear();
+	}
+
+	/**
+	 * Filters all rows of the image.
+	 * @param imp the image
+	 * @param ramp the filter
+	 * @return the filtered image with the origin and spacing of imp
+	 */
+	public static Grid2D applyRampFilter(Grid2D imp, RampFilter ramp){
+		int width = imp.getWidth();
+		int height = imp.getHeight();
+		Grid2D revan = new Grid2D(width, height);
+		revan.setOrigin(imp.getOrigin());
+		revan.setSpacing(imp.getSpacing());
+		filterRows(imp.getBuffer(), revan.getBuffer(), width, 0, height, ramp);
+		return revan;
+	}
+
+	/**
+	 * Filters the rows startRow to endRow - 1 of a row-major image. Input and output may be the same array.
+	 * @param input the input image
+	 * @param output the output image
+	 * @param width the row length
+	 * @param startRow the first row (inclusive)
+	 * @param endRow the last row (exclusive)
+	 * @param ramp the filter
+	 */
+	public static void filterRows(float [] input, float [] output, int width, int startRow, int endRow, RampFilter ramp){
+		int paddedWidth = getPaddedWidth(width);
+		FloatFFT_1D fft = getPlan(paddedWidth);
+		float [] spectrum = getSpectrum(ramp, paddedWidth);
+		float [] row = rowBuffer.get();
+		if (row == null || row.length < paddedWidth){
+			row = new float[paddedWidth];
+			rowBuffer.set(row);
+		}
+		int half = paddedWidth / 2;
+		for (int j = startRow; j < endRow; j++){
+			System.arraycopy(input, j * width, row, 0, width);
+			Arrays.fill(row, width, paddedWidth, 0);
+			fft.realForward(row);
+			if (paddedWidth == 1) {
+				row[0] *= spectrum[0];
+			} else {
+				// JTransforms format: real parts of frequency 0 and paddedWidth / 2 followed by real and imaginary parts of 1 ... paddedWidth / 2 - 1
+				row[0] *= spectrum[0];
+				row[1] *= spectrum[half];
+				for (int k = 1; k < half; k++){
+					row[2 * k] *= spectrum[k];
+					row[(2 * k) + 1] *= spectrum[k];
+				}
+			}
+			fft.realInverse(row, true);
+			System.arraycopy(row, 0, output, j * width, width);
+		}
+	}
+
+	/**
+	 * Identifies a filter spectrum by the class and the parameters of the filter.
+	 */
+	private static class SpectrumKey {
+		private final Class<?> type;
+		private final String name;
+		private final double cutOffFrequency;
+		private final double pixelWidth;
+		private final double sourceToAxisDistance;
+		private final double sourceToDetectorDistance;
+		private final int paddedWidth;
+
+		SpectrumKey(RampFilter ramp, int paddedWidth){
+			type = ramp.getClass();
+			name = ramp.getRampName();
+			cutOffFrequency = ramp.getCutOffFrequency();
+			pixelWidth = ramp.getPhysicalPixelWidthInMilimeters();
+			sourceToAxisDistance = ramp.getSourceToAxisDistance();
+			sourceToDetectorDistance = ramp.getSourceToDetectorDistance();
+			this.paddedWidth = paddedWidth;
+		}
+
+		@Override
+		public boolean equals(Object obj){
+			if (!(obj instanceof SpectrumKey)) return false;
+			SpectrumKey other = (SpectrumKey) obj;
+			return type == other.type && name.equals(other.name) && paddedWidth == other.paddedWidth
+					&& Double.compare(cutOffFrequency, other.cutOffFrequency) == 0
+					&& Double.compare(pixelWidth, other.pixelWidth) == 0
+					&& Double.compare(sourceToAxisDistance, other.sourceToAxisDistance) == 0
+					&& Double.compare(sourceToDetectorDistance, other.sourceToDetectorDistance) == 0;
+		}
+
+		@Override
+		public int hashCode(){
+			int hash = type.hashCode();
+			hash = (31 * hash) + name.hashCode();
+			hash = (31 * hash) + paddedWidth;
+			long bits = Double.doubleToLongBits(cutOffFrequency) ^ (31 * Double.doubleToLongBits(pixelWidth))
+					^ (961 * Double.doubleToLongBits(sourceToAxisDistance)) ^ (29791 * Double.doubleToLongBits(sourceToDetectorDistance));
+			return (31 * hash) + (int) (bits ^ (bits >>> 32));
+		}
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
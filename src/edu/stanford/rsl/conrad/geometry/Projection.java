@@ -1,6 +1,9 @@
 package edu.stanford.rsl.conrad.geometry;
 
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 import edu.stanford.rsl.conrad.geometry.shapes.simple.PointND;
@@ -249,22 +252,22 @@ import edu.stanford.rsl.conrad.utils.Configuration;
  */
 public class Projection implements Serializable {
 
-	private static final long serialVersionUID = -6890230919386599781L;
+	private static final long serialVersionUID = -6890230919386599782L;
 
 	/** Scaling factor for the decomposed projection. */
 	private double s;
 
-	/** Intrinsic parameters for the decomposed projection. */
-	private SimpleMatrix K;
+	/** Intrinsic parameters for the decomposed projection. Serialized by {@link #writeObject(ObjectOutputStream)}. */
+	private transient SimpleMatrix K;
 
-	/** Rotation matrix for the decomposed projection. */
-	private SimpleMatrix R;
+	/** Rotation matrix for the decomposed projection. Serialized by {@link #writeObject(ObjectOutputStream)}. */
+	private transient SimpleMatrix R;
 
-	/** Translation vector for the decomposed projection. */
-	private SimpleVector t;
+	/** Translation vector for the decomposed projection. Serialized by {@link #writeObject(ObjectOutputStream)}. */
+	private transient SimpleVector t;
 
 	/** Store precomputed matrix {@latex.inline $\\mathbf{R}^T \\cdot \\mathbf{K}^{-1}$} to speed up computeRayDirection() */
-	private SimpleMatrix RTKinv;
+	private transient SimpleMatrix RTKinv;
 
 
 	/**
@@ -1834,6 +1837,41 @@ public class Projection implements Serializable {
 		return SimpleOperators.subtract(this.getPrincipalPoint(), sizeUV.multipliedBy(0.5)); // offset = principal point - image center
 	}
 
+	/**
+	 * Writes K, R, t, and the precomputed matrix as plain doubles instead of matrix objects. Hence, the serialized form of a trajectory
+	 * with many projections is compact and fast to read.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		writeMatrix(out, this.K);
+		writeMatrix(out, this.R);
+		for (int i = 0; i < 3; ++i)
+			out.writeDouble(this.t.getElement(i));
+		writeMatrix(out, this.RTKinv);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.K = readMatrix(in);
+		this.R = readMatrix(in);
+		this.t = new SimpleVector(in.readDouble(), in.readDouble(), in.readDouble());
+		this.RTKinv = readMatrix(in);
+	}
+
+	private static void writeMatrix(ObjectOutputStream out, SimpleMatrix M) throws IOException {
+		for (int r = 0; r < 3; ++r)
+			for (int c = 0; c < 3; ++c)
+				out.writeDouble(M.getElement(r, c));
+	}
+
+	private static SimpleMatrix readMatrix(ObjectInputStream in) throws IOException {
+		SimpleMatrix M = new SimpleMatrix(3, 3);
+		for (int r = 0; r < 3; ++r)
+			for (int c = 0; c < 3; ++c)
+				M.setElementValue(r, c, in.readDouble());
+		return M;
+	}
+
 	/**
 	 * update precomputed matrices
 	 */
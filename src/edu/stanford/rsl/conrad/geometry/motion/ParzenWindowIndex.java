@@ -0,0 +1,231 @@
+package edu.stanford.rsl.conrad.geometry.motion;
+
+import java.util.IdentityHashMap;
+
+import edu.stanford.rsl.conrad.geometry.shapes.simple.PointND;
+
+/**
+ * Uniform grid over the raster points of a {@link ParzenWindowMotionField} at one time point. A query first searches the nearest
+ * raster point and then sums up all points whose weight is at least 2^-24 / n times the weight of the nearest point, where n is the
+ * number of raster points. The ignored points cannot change the float sum of the weights. Hence, the result equals the evaluation over all points
+ * up to rounding, but only the neighborhood of the query point is visited. In addition, no point beyond the cutoff radius is considered.<br>
+ * Coordinates and motion vectors are stored in flat arrays in the order of the cells such that the points of a row of cells are contiguous in memory.
+ *
+ * @author akmaier
+ *
+ */
+public class ParzenWindowIndex {
+
+	/**
+	 * The number of cells is limited to this number times the number of points.
+	 */
+	private static final int MAX_CELLS_PER_POINT = 2;
+
+	private final PointND [] from;
+	private final double sigma;
+	private final double radius;
+	/** squared width of the window beyond the nearest point */
+	private final double window2;
+	private final double cellSize;
+	private final double minX, minY, minZ;
+	private final int nx, ny, nz;
+	/** the points of cell c are at positions cellStart[c] ... cellStart[c+1]-1 */
+	private final int [] cellStart;
+	/** the index into from for each position */
+	private final int [] pointIndices;
+	/** x, y, z of each position */
+	private final double [] coordinates;
+	/** motion vectors in the order of the positions per target point array */
+	private final IdentityHashMap<PointND[], double[]> displacements = new IdentityHashMap<PointND[], double[]>();
+
+	/**
+	 * Creates the index.
+	 * @param from the raster points at the initial time
+	 * @param sigma the standard deviation of the window [mm]
+	 * @param radius the cutoff radius [mm]. Points farther away from a query point are ignored.
+	 */
+	public ParzenWindowIndex(PointND [] from, double sigma, double radius){
+		this.from = from;
+		this.sigma = sigma;
+		this.radius = radius;
+		// exp(-0.5 * window2 / sigma^2) = 2^-24 / n
+		window2 = 2 * sigma * sigma * ((24 * Math.log(2)) + Math.log(Math.max(from.length, 1)));
+		double [] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+		double [] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+		for (PointND p : from){
+			for (int d = 0; d < 3; d++){
+				min[d] = Math.min(min[d], p.get(d));
+				max[d] = Math.max(max[d], p.get(d));
+			}
+		}
+		if (from.length == 0){
+			min = new double[3];
+			max = new double[3];
+		}
+		minX = min[0];
+		minY = min[1];
+		minZ = min[2];
+		double size = Math.min(2 * sigma, radius);
+		long maxCells = Math.max(64, (long) MAX_CELLS_PER_POINT * from.length);
+		while (numberOfCells(max[0] - min[0], size) * numberOfCells(max[1] - min[1], size) * numberOfCells(max[2] - min[2], size) > maxCells){
+			size *= 1.5;
+		}
+		cellSize = size;
+		nx = (int) numberOfCells(max[0] - min[0], size);
+		ny = (int) numberOfCells(max[1] - min[1], size);
+		nz = (int) numberOfCells(max[2] - min[2], size);
+		// counting sort of the points into the cells
+		int [] cells = new int[from.length];
+		cellStart = new int[(nx * ny * nz) + 1];
+		for (int i = 0; i < from.length; i++){
+			cells[i] = getCell(from[i].get(0), from[i].get(1), from[i].get(2));
+			cellStart[cells[i] + 1]++;
+		}
+		for (int c = 0; c < nx * ny * nz; c++){
+			cellStart[c + 1] += cellStart[c];
+		}
+		int [] next = new int[nx * ny * nz];
+		System.arraycopy(cellStart, 0, next, 0, next.length);
+		pointIndices = new int[from.length];
+		coordinates = new double[3 * from.length];
+		for (int i = 0; i < from.length; i++){
+			int position = next[cells[i]]++;
+			pointIndices[position] = i;
+			coordinates[3 * position] = from[i].get(0);
+			coordinates[(3 * position) + 1] = from[i].get(1);
+			coordinates[(3 * position) + 2] = from[i].get(2);
+		}
+	}
+
+	private static long numberOfCells(double extent, double size){
+		return ((long) Math.floor(extent / size)) + 1;
+	}
+
+	private int getCell(double x, double y, double z){
+		int i = Math.min((int) ((x - minX) / cellSize), nx - 1);
+		int j = Math.min((int) ((y - minY) / cellSize), ny - 1);
+		int k = Math.min((int) ((z - minZ) / cellSize), nz - 1);
+		return (((k * ny) + j) * nx) + i;
+	}
+
+	/**
+	 * @return the raster points the index was built for
+	 */
+	public PointND [] getRasterPoints(){
+		return from;
+	}
+
+	/**
+	 * @return the edge length of the cells [mm]. The cells start at the minimum coordinates of the raster points.
+	 */
+	public double getCellSize(){
+		return cellSize;
+	}
+
+	/**
+	 * @return the cutoff radius [mm]
+	 */
+	public double getRadius(){
+		return radius;
+	}
+
+	/**
+	 * Returns the motion vectors to[i] - from[i] in the internal order of the points. The vectors are computed once per array of target points.
+	 * @param to the raster points at the target time
+	 * @return the motion vectors as x, y, z triples
+	 */
+	public double [] getDisplacements(PointND [] to){
+		synchronized (displacements) {
+			double [] values = displacements.get(to);
+			if (values == null){
+				values = new double[3 * from.length];
+				for (int position = 0; position < pointIndices.length; position++){
+					int i = pointIndices[position];
+					for (int d = 0; d < 3; d++){
+						values[(3 * position) + d] = to[i].get(d) - from[i].get(d);
+					}
+				}
+				displacements.put(to, values);
+			}
+			return values;
+		}
+	}
+
+	/**
+	 * Computes the Parzen window estimate of the motion vector at (x, y, z). The weights are computed as in
+	 * {@link ParzenWindowMotionField#getPosition(PointND, double, double)}.
+	 * @param displacements the motion vectors as returned by {@link #getDisplacements(PointND[])}
+	 * @param x the x coordinate of the query point
+	 * @param y the y coordinate of the query point
+	 * @param z the z coordinate of the query point
+	 * @param result the motion vector at (x, y, z) is written into the first three entries
+	 */
+	public void interpolate(double [] displacements, double x, double y, double z, double [] result){
+		result[0] = 0;
+		result[1] = 0;
+		result[2] = 0;
+		double radius2 = radius * radius;
+		// search the nearest point in growing boxes. A point within the box is the nearest point if its distance is smaller than the half width of the box.
+		double nearest2 = Double.MAX_VALUE;
+		for (double halfWidth = Math.min(cellSize, radius); ; halfWidth = Math.min(2 * halfWidth, radius)){
+			nearest2 = Math.min(nearest2, visit(null, x, y, z, halfWidth, radius2, null));
+			if (nearest2 <= halfWidth * halfWidth || halfWidth >= radius) break;
+		}
+		if (nearest2 > radius2) return;
+		double window = Math.min(nearest2 + window2, radius2);
+		visit(displacements, x, y, z, Math.sqrt(window), window, result);
+	}
+
+	/**
+	 * Visits all points within the distance sqrt(limit2) of (x, y, z) that are contained in the cells overlapping the box of the given half width.
+	 * If result is not null, the weighted mean of the displacements is written into result.
+	 * @return the squared distance of the nearest visited point
+	 */
+	private double visit(double [] displacements, double x, double y, double z, double halfWidth, double limit2, double [] result){
+		double nearest2 = Double.MAX_VALUE;
+		double lowX = (x - halfWidth - minX) / cellSize;
+		double lowY = (y - halfWidth - minY) / cellSize;
+		double lowZ = (z - halfWidth - minZ) / cellSize;
+		double highX = (x + halfWidth - minX) / cellSize;
+		double highY = (y + halfWidth - minY) / cellSize;
+		double highZ = (z + halfWidth - minZ) / cellSize;
+		if (highX < 0 || highY < 0 || highZ < 0 || lowX >= nx || lowY >= ny || lowZ >= nz) return nearest2;
+		int i0 = (int) Math.max(lowX, 0), i1 = (int) Math.min(highX, nx - 1);
+		int j0 = (int) Math.max(lowY, 0), j1 = (int) Math.min(highY, ny - 1);
+		int k0 = (int) Math.max(lowZ, 0), k1 = (int) Math.min(highZ, nz - 1);
+		double scale = -0.5 / (sigma * sigma);
+		float weightsum = 0;
+		double sumX = 0, sumY = 0, sumZ = 0;
+		for (int k = k0; k <= k1; k++){
+			for (int j = j0; j <= j1; j++){
+				int row = ((k * ny) + j) * nx;
+				int end = cellStart[row + i1 + 1];
+				for (int position = cellStart[row + i0]; position < end; position++){
+					double dx = coordinates[3 * position] - x;
+					double dy = coordinates[(3 * position) + 1] - y;
+					double dz = coordinates[(3 * position) + 2] - z;
+					double distance2 = (dx * dx) + (dy * dy) + (dz * dz);
+					if (distance2 > limit2) continue;
+					if (distance2 < nearest2) nearest2 = distance2;
+					if (result == null) continue;
+					float weight = (float) Math.exp((distance2 * scale) + ParzenWindowMotionField.WEIGHT_OFFSET);
+					weightsum += weight;
+					sumX += displacements[3 * position] * weight;
+					sumY += displacements[(3 * position) + 1] * weight;
+					sumZ += displacements[(3 * position) + 2] * weight;
+				}
+			}
+		}
+		if (result != null && Math.abs(weightsum) >= 0.00000001) {
+			result[0] = sumX / weightsum;
+			result[1] = sumY / weightsum;
+			result[2] = sumZ / weightsum;
+		}
+		return nearest2;
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
@@ -7,6 +7,7 @@ package edu.stanford.rsl.conrad.geometry.motion;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 
 import edu.stanford.rsl.conrad.geometry.motion.timewarp.IdentityTimeWarper;
 import edu.stanford.rsl.conrad.geometry.motion.timewarp.TimeWarper;
@@ -18,7 +19,8 @@ import edu.stanford.rsl.conrad.numerics.SimpleVector;
  * This is an abstract class to describe a motion field that uses a Parzen window for interpolation. 
  * The class tessellates the surface at the two time points and uses these points to interpolate the motion vectors. 
  * Due to the high computational effort of tessellation on the CPU we store intermediate tessellation results for later use. 
- * Interpolation is done via a Parzen window.
+ * Interpolation is done via a Parzen window. By default, the raster points are stored in a {@link ParzenWindowIndex} and only the
+ * neighborhood of the query point is evaluated.
  * @author akmaier
  *
  */
@@ -36,6 +38,20 @@ Serializable {
 	 */
 	double sigma;
 	TimeWarper warp = new IdentityTimeWarper();
+	/**
+	 * Offset of the exponent of the weights. Highest number before summations yield NaN.
+	 */
+	static final double WEIGHT_OFFSET = 70;
+	/**
+	 * Distance in multiples of sigma beyond which the float weights round to 0.
+	 */
+	public static final double DEFAULT_CUTOFF = Math.sqrt(2 * (WEIGHT_OFFSET - Math.log(Float.MIN_VALUE / 2.0)));
+	/**
+	 * Cutoff radius of the Parzen window in multiples of sigma.
+	 */
+	double cutoff = DEFAULT_CUTOFF;
+	boolean useSpatialIndex = true;
+	private transient IdentityHashMap<PointND[], ParzenWindowIndex> indexMap;
 
 	abstract PointND [] getRasterPoints (double time);
 
@@ -51,14 +67,48 @@ Serializable {
 
 
 
+	/**
+	 * Returns the index over the given raster points. Indices are built once per array of raster points.
+	 * @param from the raster points
+	 * @return the index
+	 */
+	protected synchronized ParzenWindowIndex getIndex(PointND [] from){
+		if (indexMap == null) {
+			indexMap = new IdentityHashMap<PointND[], ParzenWindowIndex>();
+		}
+		ParzenWindowIndex index = indexMap.get(from);
+		if (index == null){
+			index = new ParzenWindowIndex(from, sigma, cutoff * sigma);
+			indexMap.put(from, index);
+		}
+		return index;
+	}
+
+	private boolean isIndexed(){
+		return useSpatialIndex && cutoff > 0 && !Double.isInfinite(cutoff);
+	}
+
 	@Override
 	public PointND getPosition(PointND initialPosition, double initialTime,
 			double time) {
-		SimpleVector summation = new SimpleVector(0,0,0);
-		float weightsum = 0;
 		PointND[] from = getRasterPoints(initialTime);
 		PointND[] to = getRasterPoints(time);
-		double acc = 70; // Highest number before summations yield NaN
+		if (isIndexed()){
+			ParzenWindowIndex index = getIndex(from);
+			double [] motion = new double[3];
+			index.interpolate(index.getDisplacements(to), initialPosition.get(0), initialPosition.get(1), initialPosition.get(2), motion);
+			return new PointND(initialPosition.get(0) + motion[0], initialPosition.get(1) + motion[1], initialPosition.get(2) + motion[2]);
+		}
+		return getPosition(initialPosition, from, to);
+	}
+
+	/**
+	 * Evaluates the Parzen window over all raster points.
+	 */
+	private PointND getPosition(PointND initialPosition, PointND[] from, PointND[] to){
+		SimpleVector summation = new SimpleVector(0,0,0);
+		float weightsum = 0;
+		double acc = WEIGHT_OFFSET;
 		for (int i=0; i< from.length; i++){
 			float weight = (float) Math.exp((-0.5*Math.pow(from[i].euclideanDistance(initialPosition),2)/Math.pow(sigma,2))+acc);
 
@@ -76,6 +126,60 @@ Serializable {
 		return new PointND(summation);
 	}
 
+	/**
+	 * Moves many points at once. The raster points and the motion vectors are only looked up once per call.
+	 * @param initialTime the time of the given positions
+	 * @param time the target time
+	 * @param positions the positions as x, y, z triples. The moved positions are written to the same array.
+	 */
+	public void transformPositions(double initialTime, double time, double [] positions){
+		PointND[] from = getRasterPoints(initialTime);
+		PointND[] to = getRasterPoints(time);
+		if (isIndexed()){
+			ParzenWindowIndex index = getIndex(from);
+			double [] displacements = index.getDisplacements(to);
+			double [] motion = new double[3];
+			for (int j = 0; j < positions.length; j += 3){
+				index.interpolate(displacements, positions[j], positions[j+1], positions[j+2], motion);
+				positions[j] += motion[0];
+				positions[j+1] += motion[1];
+				positions[j+2] += motion[2];
+			}
+		} else {
+			for (int j = 0; j < positions.length; j += 3){
+				PointND moved = getPosition(new PointND(positions[j], positions[j+1], positions[j+2]), from, to);
+				positions[j] = moved.get(0);
+				positions[j+1] = moved.get(1);
+				positions[j+2] = moved.get(2);
+			}
+		}
+	}
+
+	public boolean isUseSpatialIndex() {
+		return useSpatialIndex;
+	}
+
+	public void setUseSpatialIndex(boolean useSpatialIndex) {
+		this.useSpatialIndex = useSpatialIndex;
+	}
+
+	/**
+	 * @return the cutoff radius in multiples of sigma
+	 */
+	public double getCutoff() {
+		return cutoff;
+	}
+
+	/**
+	 * Sets the cutoff radius of the Parzen window. Raster points farther away from the query point are ignored. The weights of these points
+	 * round to 0 for the {@link #DEFAULT_CUTOFF}. Smaller values, e.g. 3, set the motion of points far away from all raster points to 0.
+	 * @param cutoff the cutoff radius in multiples of sigma
+	 */
+	public synchronized void setCutoff(double cutoff) {
+		this.cutoff = cutoff;
+		indexMap = null;
+	}
+
 	@Override
 	public void setTimeWarper(TimeWarper warp) {
 		this.warp= warp;
@@ -99,28 +203,16 @@ Serializable {
 	@Override
 	public ArrayList<PointND> getPositions(double initialTime,
 			double time, PointND ... initialPositions) {
-		ArrayList<PointND> list = new ArrayList<PointND>();
+		double [] positions = new double[3 * initialPositions.length];
 		for (int j=0; j< initialPositions.length; j++){
-			SimpleVector summation = new SimpleVector(0,0,0);
-			float weightsum = 0;
-			PointND[] from = getRasterPoints(initialTime);
-			PointND[] to = getRasterPoints(time);
-			double acc = 70; // Highest number before summations yield NaN
-			for (int i=0; i< from.length; i++){
-				float weight = (float) Math.exp((-0.5*Math.pow(from[i].euclideanDistance(initialPositions[j]),2)/Math.pow(sigma,2))+acc);
-				weightsum += weight;
-				SimpleVector direction = new SimpleVector(to[i].getAbstractVector());
-				direction.subtract(from[i].getAbstractVector());
-				summation.add(direction.multipliedBy(weight));
-			}
-			if(Math.abs(weightsum) < 0.00000001) {
-				summation.multiplyBy(0);
-			} else {
-				summation.divideBy(weightsum);
+			for (int d = 0; d < 3; d++){
+				positions[(3*j)+d] = initialPositions[j].get(d);
 			}
-			summation.add(initialPositions[j].getAbstractVector());
-			PointND newPoint = new PointND(summation);
-			list.add(newPoint);
+		}
+		transformPositions(initialTime, time, positions);
+		ArrayList<PointND> list = new ArrayList<PointND>();
+		for (int j=0; j< initialPositions.length; j++){
+			list.add(new PointND(positions[3*j], positions[(3*j)+1], positions[(3*j)+2]));
 		}
 		return list;
 	}
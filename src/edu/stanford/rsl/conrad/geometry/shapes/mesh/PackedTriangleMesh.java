@@ -0,0 +1,533 @@
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
+package edu.stanford.rsl.conrad.geometry.shapes.mesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import edu.stanford.rsl.conrad.geometry.AbstractCurve;
+import edu.stanford.rsl.conrad.geometry.AbstractShape;
+import edu.stanford.rsl.conrad.geometry.shapes.compound.CompoundShape;
+import edu.stanford.rsl.conrad.geometry.shapes.simple.PointND;
+import edu.stanford.rsl.conrad.geometry.shapes.simple.StraightLine;
+import edu.stanford.rsl.conrad.geometry.shapes.simple.Triangle;
+import edu.stanford.rsl.conrad.geometry.transforms.Transform;
+import edu.stanford.rsl.conrad.numerics.SimpleMatrix;
+import edu.stanford.rsl.conrad.utils.CONRAD;
+
+/**
+ * Triangle mesh that is stored in flat arrays instead of {@link Triangle} objects. The vertices are stored as x, y, z in one float array.
+ * Each triangle is given by three indices into this array. In addition, the unit normals of the triangles and the bounding boxes
+ * of blocks of {@link #BLOCK_SIZE} consecutive triangles are precomputed.<br>
+ * Rays are intersected with the watertight algorithm by Woop, Benthin, and Wald that is also used in the
+ * {@link edu.stanford.rsl.conrad.rendering.WatertightRayTracer}. The intersection does not allocate objects. The hits are written into a
+ * reusable {@link Hits} buffer. A packet of rays can be intersected at once. Then, the vertices of each triangle are only loaded once for all rays.<br>
+ * The normal of a triangle is the normalized cross product (B - A) x (C - A). Hence, the winding order of the indices defines the orientation.
+ *
+ * @author akmaier
+ *
+ */
+public class PackedTriangleMesh extends AbstractShape {
+
+	private static final long serialVersionUID = -2786517437010424431L;
+
+	/**
+	 * Number of triangles that share one bounding box.
+	 */
+	public static final int BLOCK_SIZE = 64;
+
+	private float [] vertices;
+	private int [] indices;
+	private float [] normals;
+	private float [] blockBounds;
+
+	/**
+	 * Creates a mesh from packed arrays. The arrays are not copied.
+	 * @param vertices the vertices as x0, y0, z0, x1, y1, z1, ...
+	 * @param indices three vertex indices per triangle
+	 */
+	public PackedTriangleMesh(float [] vertices, int [] indices) {
+		if (vertices.length % 3 != 0) throw new IllegalArgumentException("The number of vertex coordinates must be a multiple of 3!");
+		if (indices.length % 3 != 0) throw new IllegalArgumentException("The number of indices must be a multiple of 3!");
+		int numVertices = vertices.length / 3;
+		for (int i = 0; i < indices.length; i++) {
+			if (indices[i] < 0 || indices[i] >= numVertices) throw new IllegalArgumentException("Index " + indices[i] + " is not a vertex!");
+		}
+		this.vertices = vertices;
+		this.indices = indices;
+		update();
+	}
+
+	/**
+	 * Packs all triangles of the compound shape, including triangles of nested compound shapes. The orientation of the triangles is preserved.
+	 * @param shape the compound shape, e.g. a {@link edu.stanford.rsl.conrad.geometry.shapes.compound.TriangleMesh}
+	 */
+	public PackedTriangleMesh(CompoundShape shape) {
+		ArrayList<Triangle> triangles = new ArrayList<Triangle>();
+		collectTriangles(shape, triangles);
+		vertices = new float[triangles.size() * 9];
+		indices = new int[triangles.size() * 3];
+		for (int t = 0; t < triangles.size(); t++) {
+			Triangle triangle = triangles.get(t);
+			setVertex(3 * t, triangle.getA());
+			setVertex(3 * t + 1, triangle.getB());
+			setVertex(3 * t + 2, triangle.getC());
+			indices[3 * t] = 3 * t;
+			indices[3 * t + 1] = 3 * t + 1;
+			indices[3 * t + 2] = 3 * t + 2;
+		}
+		update();
+		// Triangles may have a flipped normal. We swap B and C to encode it in the winding order.
+		for (int t = 0; t < triangles.size(); t++) {
+			double [] normal = triangles.get(t).getNormal().copyAsDoubleArray();
+			if (normal[0] * normals[3 * t] + normal[1] * normals[3 * t + 1] + normal[2] * normals[3 * t + 2] < 0) {
+				indices[3 * t + 1] = 3 * t + 2;
+				indices[3 * t + 2] = 3 * t + 1;
+				normals[3 * t] *= -1;
+				normals[3 * t + 1] *= -1;
+				normals[3 * t + 2] *= -1;
+			}
+		}
+	}
+
+	/**
+	 * Packs a mesh with triangular connectivity as read by {@link edu.stanford.rsl.conrad.io.VTKMeshIO}.
+	 * @param mesh the mesh
+	 */
+	public PackedTriangleMesh(Mesh mesh) {
+		SimpleMatrix points = mesh.getPoints();
+		SimpleMatrix connectivity = mesh.getConnectivity();
+		if (points.getCols() != 3) throw new IllegalArgumentException("Only meshes in 3D are supported!");
+		vertices = new float[points.getRows() * 3];
+		for (int i = 0; i < points.getRows(); i++) {
+			for (int j = 0; j < 3; j++) {
+				vertices[3 * i + j] = (float) points.getElement(i, j);
+			}
+		}
+		if (connectivity == null) {
+			indices = new int[0];
+		} else {
+			if (connectivity.getCols() != 3) throw new IllegalArgumentException("Only triangular meshes are supported!");
+			indices = new int[connectivity.getRows() * 3];
+			for (int i = 0; i < connectivity.getRows(); i++) {
+				for (int j = 0; j < 3; j++) {
+					indices[3 * i + j] = (int) Math.round(connectivity.getElement(i, j));
+				}
+			}
+		}
+		update();
+	}
+
+	/**
+	 * Copy constructor (deep copy)
+	 * @param mesh the mesh
+	 */
+	public PackedTriangleMesh(PackedTriangleMesh mesh) {
+		super(mesh);
+		vertices = mesh.vertices.clone();
+		indices = mesh.indices.clone();
+		normals = mesh.normals.clone();
+		blockBounds = mesh.blockBounds.clone();
+	}
+
+	private static void collectTriangles(AbstractShape shape, ArrayList<Triangle> triangles) {
+		if (shape instanceof CompoundShape) {
+			for (AbstractShape s : (CompoundShape) shape) {
+				collectTriangles(s, triangles);
+			}
+		} else if (shape instanceof Triangle) {
+			triangles.add((Triangle) shape);
+		} else {
+			throw new IllegalArgumentException("Only triangles can be packed. Found " + shape.getClass().getSimpleName() + ".");
+		}
+	}
+
+	private void setVertex(int vertex, PointND point) {
+		vertices[3 * vertex] = (float) point.get(0);
+		vertices[3 * vertex + 1] = (float) point.get(1);
+		vertices[3 * vertex + 2] = (float) point.get(2);
+	}
+
+	/**
+	 * Computes the normals and the bounding boxes. Has to be called after the vertices were changed.
+	 */
+	private void update() {
+		int numTriangles = getNumberOfTriangles();
+		normals = new float[numTriangles * 3];
+		int numBlocks = (numTriangles + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		blockBounds = new float[numBlocks * 6];
+		double [] meshMin = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+		double [] meshMax = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+		for (int b = 0; b < numBlocks; b++) {
+			float [] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+			float [] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+			for (int t = b * BLOCK_SIZE; t < Math.min(numTriangles, (b + 1) * BLOCK_SIZE); t++) {
+				int a = 3 * indices[3 * t], bb = 3 * indices[3 * t + 1], c = 3 * indices[3 * t + 2];
+				double e1x = vertices[bb] - vertices[a], e1y = vertices[bb + 1] - vertices[a + 1], e1z = vertices[bb + 2] - vertices[a + 2];
+				double e2x = vertices[c] - vertices[a], e2y = vertices[c + 1] - vertices[a + 1], e2z = vertices[c + 2] - vertices[a + 2];
+				double nx = e1y * e2z - e1z * e2y;
+				double ny = e1z * e2x - e1x * e2z;
+				double nz = e1x * e2y - e1y * e2x;
+				double norm = Math.sqrt(nx * nx + ny * ny + nz * nz);
+				if (norm > 0) {
+					normals[3 * t] = (float) (nx / norm);
+					normals[3 * t + 1] = (float) (ny / norm);
+					normals[3 * t + 2] = (float) (nz / norm);
+				}
+				for (int j = 0; j < 3; j++) {
+					min[j] = Math.min(min[j], Math.min(vertices[a + j], Math.min(vertices[bb + j], vertices[c + j])));
+					max[j] = Math.max(max[j], Math.max(vertices[a + j], Math.max(vertices[bb + j], vertices[c + j])));
+				}
+			}
+			for (int j = 0; j < 3; j++) {
+				blockBounds[6 * b + j] = min[j];
+				blockBounds[6 * b + 3 + j] = max[j];
+				meshMin[j] = Math.min(meshMin[j], min[j]);
+				meshMax[j] = Math.max(meshMax[j], max[j]);
+			}
+		}
+		if (numBlocks > 0) {
+			generateBoundingPlanes(new PointND(meshMin), new PointND(meshMax));
+		} else {
+			generateBoundingPlanes(new PointND(0, 0, 0), new PointND(0, 0, 0));
+		}
+	}
+
+	/**
+	 * @return the number of triangles
+	 */
+	public int getNumberOfTriangles() {
+		return indices.length / 3;
+	}
+
+	/**
+	 * @return the number of vertices
+	 */
+	public int getNumberOfVertices() {
+		return vertices.length / 3;
+	}
+
+	/**
+	 * Returns the vertex coordinates. The array is not copied. If it is modified, the normals and bounds are not updated.
+	 * @return the vertices as x0, y0, z0, x1, y1, z1, ...
+	 */
+	public float [] getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * Returns the vertex indices. The array is not copied.
+	 * @return three vertex indices per triangle
+	 */
+	public int [] getIndices() {
+		return indices;
+	}
+
+	/**
+	 * Returns the unit normals of the triangles. The array is not copied.
+	 * @return the normals as nx0, ny0, nz0, nx1, ...
+	 */
+	public float [] getNormals() {
+		return normals;
+	}
+
+	/**
+	 * Creates the triangle at the given index.
+	 * @param triangle the index of the triangle
+	 * @return the triangle
+	 */
+	public Triangle getTriangle(int triangle) {
+		PointND [] points = new PointND[3];
+		for (int i = 0; i < 3; i++) {
+			int v = 3 * indices[3 * triangle + i];
+			points[i] = new PointND(vertices[v], vertices[v + 1], vertices[v + 2]);
+		}
+		return new Triangle(points[0], points[1], points[2]);
+	}
+
+	/**
+	 * Intersects the ray origin + t * direction, t &ge; 0, with all triangles. The previous content of the hits is replaced.
+	 * @param originX x coordinate of the origin
+	 * @param originY y coordinate of the origin
+	 * @param originZ z coordinate of the origin
+	 * @param directionX x component of the direction
+	 * @param directionY y component of the direction
+	 * @param directionZ z component of the direction
+	 * @param hits the buffer for the hits
+	 * @return the number of hits
+	 */
+	public int intersect(double originX, double originY, double originZ, double directionX, double directionY, double directionZ, Hits hits) {
+		hits.setRay(originX, originY, originZ, directionX, directionY, directionZ);
+		int numTriangles = getNumberOfTriangles();
+		for (int b = 0; b < blockBounds.length / 6; b++) {
+			if (!hits.hitsBox(blockBounds, 6 * b)) continue;
+			int last = Math.min(numTriangles, (b + 1) * BLOCK_SIZE);
+			for (int t = b * BLOCK_SIZE; t < last; t++) {
+				intersectTriangle(t, hits);
+			}
+		}
+		return hits.size;
+	}
+
+	/**
+	 * Intersects a packet of rays with all triangles. The previous content of the hits is replaced.
+	 * @param origins the origins of the rays as x0, y0, z0, x1, y1, z1, ...
+	 * @param directions the directions of the rays as x0, y0, z0, x1, y1, z1, ...
+	 * @param hits one buffer per ray
+	 */
+	public void intersect(double [] origins, double [] directions, Hits [] hits) {
+		if (origins.length != 3 * hits.length || directions.length != 3 * hits.length) {
+			throw new IllegalArgumentException("Expected " + 3 * hits.length + " coordinates for " + hits.length + " rays!");
+		}
+		for (int r = 0; r < hits.length; r++) {
+			hits[r].setRay(origins[3 * r], origins[3 * r + 1], origins[3 * r + 2], directions[3 * r], directions[3 * r + 1], directions[3 * r + 2]);
+		}
+		int numTriangles = getNumberOfTriangles();
+		for (int b = 0; b < blockBounds.length / 6; b++) {
+			boolean any = false;
+			for (int r = 0; r < hits.length; r++) {
+				hits[r].active = hits[r].hitsBox(blockBounds, 6 * b);
+				any |= hits[r].active;
+			}
+			if (!any) continue;
+			int last = Math.min(numTriangles, (b + 1) * BLOCK_SIZE);
+			for (int t = b * BLOCK_SIZE; t < last; t++) {
+				for (int r = 0; r < hits.length; r++) {
+					if (hits[r].active) intersectTriangle(t, hits[r]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Watertight ray triangle intersection, see http://jcgt.org/published/0002/01/05/paper.pdf
+	 */
+	private void intersectTriangle(int t, Hits ray) {
+		int a = 3 * indices[3 * t], b = 3 * indices[3 * t + 1], c = 3 * indices[3 * t + 2];
+		// vertices relative to the ray origin in the permuted coordinate system
+		double ax = vertices[a + ray.kx] - ray.origin[ray.kx], ay = vertices[a + ray.ky] - ray.origin[ray.ky], az = vertices[a + ray.kz] - ray.origin[ray.kz];
+		double bx = vertices[b + ray.kx] - ray.origin[ray.kx], by = vertices[b + ray.ky] - ray.origin[ray.ky], bz = vertices[b + ray.kz] - ray.origin[ray.kz];
+		double cx = vertices[c + ray.kx] - ray.origin[ray.kx], cy = vertices[c + ray.ky] - ray.origin[ray.ky], cz = vertices[c + ray.kz] - ray.origin[ray.kz];
+		// shear
+		double sax = ax - ray.sx * az, say = ay - ray.sy * az;
+		double sbx = bx - ray.sx * bz, sby = by - ray.sy * bz;
+		double scx = cx - ray.sx * cz, scy = cy - ray.sy * cz;
+		// scaled barycentric coordinates
+		double u = scx * sby - scy * sbx;
+		double v = sax * scy - say * scx;
+		double w = sbx * say - sby * sax;
+		if ((u < 0.d || v < 0.d || w < 0.d) && (u > 0.d || v > 0.d || w > 0.d)) return;
+		double det = u + v + w;
+		if (CONRAD.SMALL_VALUE > Math.abs(det)) return;
+		double distance = ray.sz * (u * az + v * bz + w * cz);
+		if ((det >= 0 && distance < 0.d) || (det < 0 && distance >= 0.d)) return;
+		double orientation = normals[3 * t] * ray.direction[0] + normals[3 * t + 1] * ray.direction[1] + normals[3 * t + 2] * ray.direction[2];
+		ray.add(distance / det, t, orientation);
+	}
+
+	@Override
+	public ArrayList<PointND> intersect(AbstractCurve other) {
+		return intersect(other, false);
+	}
+
+	/**
+	 * The orientation of the hit (scalar product of ray direction and triangle normal) is stored as an additional coordinate.
+	 */
+	@Override
+	public ArrayList<PointND> intersectWithHitOrientation(AbstractCurve other) {
+		return intersect(other, true);
+	}
+
+	private ArrayList<PointND> intersect(AbstractCurve other, boolean withOrientation) {
+		if (!(other instanceof StraightLine)) throw new RuntimeException("This curve is not supported yet");
+		StraightLine line = (StraightLine) other;
+		double [] origin = line.getPoint().getCoordinates();
+		double [] direction = line.getDirection().copyAsDoubleArray();
+		Hits hits = new Hits();
+		intersect(origin[0], origin[1], origin[2], direction[0], direction[1], direction[2], hits);
+		ArrayList<PointND> list = new ArrayList<PointND>(hits.size());
+		for (int i = 0; i < hits.size(); i++) {
+			double t = hits.getDistance(i);
+			if (withOrientation) {
+				list.add(new PointND(origin[0] + t * direction[0], origin[1] + t * direction[1], origin[2] + t * direction[2], hits.getOrientation(i)));
+			} else {
+				list.add(new PointND(origin[0] + t * direction[0], origin[1] + t * direction[1], origin[2] + t * direction[2]));
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public void applyTransform(Transform t) {
+		for (int i = 0; i < getNumberOfVertices(); i++) {
+			PointND p = t.transform(new PointND(vertices[3 * i], vertices[3 * i + 1], vertices[3 * i + 2]));
+			setVertex(i, p);
+		}
+		update();
+	}
+
+	@Override
+	public PointND[] getRasterPoints(int number) {
+		int numVertices = getNumberOfVertices();
+		int step = Math.max(1, (int) Math.ceil((double) numVertices / Math.max(number, 1)));
+		PointND [] points = new PointND[(numVertices + step - 1) / step];
+		for (int i = 0; i < points.length; i++) {
+			int v = 3 * i * step;
+			points[i] = new PointND(vertices[v], vertices[v + 1], vertices[v + 2]);
+		}
+		return points;
+	}
+
+	@Override
+	public PointND evaluate(PointND u) {
+		return null;
+	}
+
+	@Override
+	public int getDimension() {
+		return 3;
+	}
+
+	@Override
+	public int getInternalDimension() {
+		return 2;
+	}
+
+	@Override
+	public boolean isBounded() {
+		return true;
+	}
+
+	@Override
+	public AbstractShape clone() {
+		return new PackedTriangleMesh(this);
+	}
+
+	/**
+	 * Reusable buffer for the hits of one ray. It also holds the precomputed ray constants of the watertight algorithm.
+	 * The buffer grows if required. Hence, the intersection does not allocate memory once the buffer is large enough.
+	 * A buffer must not be used by several threads at the same time.
+	 */
+	public static class Hits {
+		private double [] distances = new double[16];
+		private double [] orientations = new double[16];
+		private int [] triangles = new int[16];
+		private int size;
+
+		private final double [] origin = new double[3];
+		private final double [] direction = new double[3];
+		private int kx, ky, kz;
+		private double sx, sy, sz;
+		private boolean active;
+
+		private void setRay(double originX, double originY, double originZ, double directionX, double directionY, double directionZ) {
+			size = 0;
+			origin[0] = originX;
+			origin[1] = originY;
+			origin[2] = originZ;
+			direction[0] = directionX;
+			direction[1] = directionY;
+			direction[2] = directionZ;
+			// the dimension of the largest absolute direction becomes z
+			double absX = Math.abs(directionX), absY = Math.abs(directionY), absZ = Math.abs(directionZ);
+			if (absX > absY) {
+				if (absX > absZ) {
+					kz = 0; kx = 1; ky = 2;
+				} else {
+					kz = 2; kx = 0; ky = 1;
+				}
+			} else {
+				if (absY > absZ) {
+					kz = 1; kx = 2; ky = 0;
+				} else {
+					kz = 2; kx = 0; ky = 1;
+				}
+			}
+			// preserve the winding direction
+			if (direction[kz] < 0.d) {
+				int temp = kx;
+				kx = ky;
+				ky = temp;
+			}
+			sz = 1.0d / direction[kz];
+			sx = direction[kx] * sz;
+			sy = direction[ky] * sz;
+		}
+
+		private boolean hitsBox(float [] bounds, int offset) {
+			double near = 0, far = Double.MAX_VALUE;
+			for (int j = 0; j < 3; j++) {
+				double tolerance = CONRAD.SMALL_VALUE + 1e-6 * (bounds[offset + 3 + j] - bounds[offset + j]);
+				double min = bounds[offset + j] - tolerance;
+				double max = bounds[offset + 3 + j] + tolerance;
+				if (direction[j] == 0) {
+					if (origin[j] < min || origin[j] > max) return false;
+				} else {
+					double t1 = (min - origin[j]) / direction[j];
+					double t2 = (max - origin[j]) / direction[j];
+					near = Math.max(near, Math.min(t1, t2));
+					far = Math.min(far, Math.max(t1, t2));
+					if (near > far) return false;
+				}
+			}
+			return true;
+		}
+
+		private void add(double distance, int triangle, double orientation) {
+			if (size == distances.length) {
+				distances = Arrays.copyOf(distances, 2 * size);
+				orientations = Arrays.copyOf(orientations, 2 * size);
+				triangles = Arrays.copyOf(triangles, 2 * size);
+			}
+			distances[size] = distance;
+			orientations[size] = orientation;
+			triangles[size] = triangle;
+			size++;
+		}
+
+		/**
+		 * @return the number of hits
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * @param i the index of the hit
+		 * @return the ray parameter t of the hit, i.e. the hit is at origin + t * direction
+		 */
+		public double getDistance(int i) {
+			return distances[i];
+		}
+
+		/**
+		 * @param i the index of the hit
+		 * @return the index of the triangle that was hit
+		 */
+		public int getTriangle(int i) {
+			return triangles[i];
+		}
+
+		/**
+		 * @param i the index of the hit
+		 * @return the scalar product of the ray direction and the triangle normal. Negative values indicate that the ray enters the mesh.
+		 */
+		public double getOrientation(int i) {
+			return orientations[i];
+		}
+
+		/**
+		 * Computes the position of a hit.
+		 * @param i the index of the hit
+		 * @param point the array for the coordinates
+		 */
+		public void getPosition(int i, double [] point) {
+			for (int j = 0; j < 3; j++) {
+				point[j] = origin[j] + distances[i] * direction[j];
+			}
+		}
+	}
+
+}
@@ -0,0 +1,447 @@
+package edu.stanford.rsl.conrad.geometry.splines;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.stanford.rsl.conrad.geometry.shapes.simple.PointND;
+import edu.stanford.rsl.conrad.geometry.shapes.simple.StraightLine;
+import edu.stanford.rsl.conrad.numerics.SimpleVector;
+
+/**
+ * Intersects straight lines with a tensor product B-spline surface without locks. The surface is decomposed into patches, one for each
+ * non-empty pair of knot spans. Due to the convex hull property, each patch lies within the bounding box of the (p+1) x (q+1) control points
+ * that influence it. A line is only tested against the patches whose boxes it hits. Rows of patches with equal u span share another box to skip
+ * whole rows at once.<br>
+ * In each hit patch, the intersection is found by Newton's method on the distances to two planes that contain the line
+ * (cf. Nishita, Sederberg, Kakimoto. Ray Tracing Trimmed Rational Surface Patches. Computer Graphics 24(4):337-45. 1990.),
+ * starting from the centers of the four quarters of the patch. Roots outside of the patch are discarded, as they are found in their own patch.<br>
+ * The basis functions and their derivatives are evaluated with the algorithms of Piegl and Tiller (The NURBS Book. Springer. 1997.).
+ * The intersector is immutable. The scratch memory of the Newton iteration is kept per thread, such that many threads can intersect the same
+ * surface concurrently.
+ *
+ * @author akmaier
+ * @see SurfaceBSpline#intersect(edu.stanford.rsl.conrad.geometry.AbstractCurve)
+ */
+public class BSplinePatchIntersector {
+
+	private static final int MAX_ITERATIONS = 20;
+
+	private final int degreeU, degreeV;
+	private final int numberOfUPoints, numberOfVPoints;
+	private final double [] uKnots, vKnots;
+	/** control point (i, j) is stored at 3 * (i * numberOfVPoints + j) */
+	private final double [] controlPoints;
+	/** u span and v span of each patch */
+	private final int [] patchSpans;
+	/** min and max of each patch */
+	private final double [] patchBounds;
+	/** first patch and bounds of each row of patches with equal u span */
+	private final int [] rowStart;
+	private final double [] rowBounds;
+	private final double [] bounds = new double[6];
+	private final double tolerance;
+
+	private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch(degreeU, degreeV);
+		}
+	};
+
+	/**
+	 * Creates the patch decomposition.
+	 * @param uKnots the knot vector in u direction
+	 * @param vKnots the knot vector in v direction
+	 * @param numberOfUPoints the number of control points in u direction
+	 * @param numberOfVPoints the number of control points in v direction
+	 * @param points the control points. Point (i, j) is at position i * numberOfVPoints + j.
+	 */
+	public BSplinePatchIntersector(double [] uKnots, double [] vKnots, int numberOfUPoints, int numberOfVPoints, List<PointND> points) {
+		this.uKnots = uKnots.clone();
+		this.vKnots = vKnots.clone();
+		this.numberOfUPoints = numberOfUPoints;
+		this.numberOfVPoints = numberOfVPoints;
+		degreeU = uKnots.length - numberOfUPoints - 1;
+		degreeV = vKnots.length - numberOfVPoints - 1;
+		if (degreeU < 0 || degreeV < 0 || points.size() != numberOfUPoints * numberOfVPoints) {
+			throw new IllegalArgumentException("Knot vectors and control points do not match.");
+		}
+		controlPoints = new double[3 * points.size()];
+		for (int i = 0; i < points.size(); i++) {
+			PointND p = points.get(i);
+			for (int c = 0; c < 3; c++) {
+				controlPoints[3 * i + c] = p.get(c);
+			}
+		}
+		for (int c = 0; c < 3; c++) {
+			bounds[c] = Double.MAX_VALUE;
+			bounds[c + 3] = -Double.MAX_VALUE;
+		}
+		for (int i = 0; i < controlPoints.length; i++) {
+			bounds[i % 3] = Math.min(bounds[i % 3], controlPoints[i]);
+			bounds[i % 3 + 3] = Math.max(bounds[i % 3 + 3], controlPoints[i]);
+		}
+		double diagonal = 0;
+		for (int c = 0; c < 3; c++) {
+			diagonal += (bounds[c + 3] - bounds[c]) * (bounds[c + 3] - bounds[c]);
+		}
+		tolerance = 1e-9 * Math.max(Math.sqrt(diagonal), 1);
+		ArrayList<Integer> spans = new ArrayList<Integer>();
+		ArrayList<Integer> rows = new ArrayList<Integer>();
+		for (int su = degreeU; su < numberOfUPoints; su++) {
+			if (!(uKnots[su] < uKnots[su + 1])) continue;
+			rows.add(spans.size() / 2);
+			for (int sv = degreeV; sv < numberOfVPoints; sv++) {
+				if (!(vKnots[sv] < vKnots[sv + 1])) continue;
+				spans.add(su);
+				spans.add(sv);
+			}
+		}
+		rows.add(spans.size() / 2);
+		patchSpans = new int[spans.size()];
+		for (int i = 0; i < patchSpans.length; i++) {
+			patchSpans[i] = spans.get(i);
+		}
+		rowStart = new int[rows.size()];
+		for (int i = 0; i < rowStart.length; i++) {
+			rowStart[i] = rows.get(i);
+		}
+		patchBounds = new double[3 * patchSpans.length];
+		for (int patch = 0; patch < patchSpans.length / 2; patch++) {
+			int su = patchSpans[2 * patch];
+			int sv = patchSpans[2 * patch + 1];
+			int o = 6 * patch;
+			for (int c = 0; c < 3; c++) {
+				patchBounds[o + c] = Double.MAX_VALUE;
+				patchBounds[o + c + 3] = -Double.MAX_VALUE;
+			}
+			for (int i = su - degreeU; i <= su; i++) {
+				for (int j = sv - degreeV; j <= sv; j++) {
+					for (int c = 0; c < 3; c++) {
+						double value = controlPoints[3 * (i * numberOfVPoints + j) + c];
+						patchBounds[o + c] = Math.min(patchBounds[o + c], value - tolerance);
+						patchBounds[o + c + 3] = Math.max(patchBounds[o + c + 3], value + tolerance);
+					}
+				}
+			}
+		}
+		rowBounds = new double[6 * (rowStart.length - 1)];
+		for (int row = 0; row < rowStart.length - 1; row++) {
+			for (int c = 0; c < 3; c++) {
+				rowBounds[6 * row + c] = Double.MAX_VALUE;
+				rowBounds[6 * row + c + 3] = -Double.MAX_VALUE;
+			}
+			for (int patch = rowStart[row]; patch < rowStart[row + 1]; patch++) {
+				for (int c = 0; c < 3; c++) {
+					rowBounds[6 * row + c] = Math.min(rowBounds[6 * row + c], patchBounds[6 * patch + c]);
+					rowBounds[6 * row + c + 3] = Math.max(rowBounds[6 * row + c + 3], patchBounds[6 * patch + c + 3]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of non-empty patches
+	 */
+	public int getNumberOfPatches() {
+		return patchSpans.length / 2;
+	}
+
+	/**
+	 * Computes the intersections of the line with the surface.
+	 * @param line the line
+	 * @return the intersection points sorted along the line direction, or null if the line misses the bounding box of the surface
+	 */
+	public ArrayList<PointND> intersect(StraightLine line) {
+		SimpleVector point = line.getPoint().getAbstractVector();
+		SimpleVector direction = line.getDirection();
+		double [] hits = intersect(point.getElement(0), point.getElement(1), point.getElement(2),
+				direction.getElement(0), direction.getElement(1), direction.getElement(2));
+		if (hits == null) return null;
+		ArrayList<PointND> list = new ArrayList<PointND>(hits.length / 3);
+		for (int i = 0; i < hits.length; i += 3) {
+			list.add(new PointND(hits[i], hits[i + 1], hits[i + 2]));
+		}
+		return list;
+	}
+
+	/**
+	 * Computes the intersections of the line o + t d with the surface.
+	 * @return the coordinates of the intersection points sorted by t, or null if the line misses the bounding box of the surface
+	 */
+	public double [] intersect(double ox, double oy, double oz, double dx, double dy, double dz) {
+		if (!hitsBox(bounds, 0, ox, oy, oz, dx, dy, dz)) return null;
+		Scratch s = scratch.get();
+		s.setLine(ox, oy, oz, dx, dy, dz);
+		s.numberOfHits = 0;
+		for (int row = 0; row < rowStart.length - 1; row++) {
+			if (!hitsBox(rowBounds, 6 * row, ox, oy, oz, dx, dy, dz)) continue;
+			for (int patch = rowStart[row]; patch < rowStart[row + 1]; patch++) {
+				if (hitsBox(patchBounds, 6 * patch, ox, oy, oz, dx, dy, dz)) {
+					intersectPatch(patchSpans[2 * patch], patchSpans[2 * patch + 1], s);
+				}
+			}
+		}
+		// insertion sort by line parameter
+		for (int i = 1; i < s.numberOfHits; i++) {
+			for (int j = i; j > 0 && s.hits[4 * j] < s.hits[4 * (j - 1)]; j--) {
+				for (int c = 0; c < 4; c++) {
+					double tmp = s.hits[4 * j + c];
+					s.hits[4 * j + c] = s.hits[4 * (j - 1) + c];
+					s.hits[4 * (j - 1) + c] = tmp;
+				}
+			}
+		}
+		double [] result = new double[3 * s.numberOfHits];
+		for (int i = 0; i < s.numberOfHits; i++) {
+			System.arraycopy(s.hits, 4 * i + 1, result, 3 * i, 3);
+		}
+		return result;
+	}
+
+	private static boolean hitsBox(double [] box, int o, double ox, double oy, double oz, double dx, double dy, double dz) {
+		double near = Double.NEGATIVE_INFINITY;
+		double far = Double.POSITIVE_INFINITY;
+		if (dx != 0) {
+			double t1 = (box[o] - ox) / dx, t2 = (box[o + 3] - ox) / dx;
+			near = Math.min(t1, t2);
+			far = Math.max(t1, t2);
+		} else if (ox < box[o] || ox > box[o + 3]) return false;
+		if (dy != 0) {
+			double t1 = (box[o + 1] - oy) / dy, t2 = (box[o + 4] - oy) / dy;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+		} else if (oy < box[o + 1] || oy > box[o + 4]) return false;
+		if (dz != 0) {
+			double t1 = (box[o + 2] - oz) / dz, t2 = (box[o + 5] - oz) / dz;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+		} else if (oz < box[o + 2] || oz > box[o + 5]) return false;
+		return near <= far;
+	}
+
+	private void intersectPatch(int su, int sv, Scratch s) {
+		double u0 = uKnots[su], u1 = uKnots[su + 1];
+		double v0 = vKnots[sv], v1 = vKnots[sv + 1];
+		double uMin = uKnots[degreeU], uMax = uKnots[numberOfUPoints];
+		double vMin = vKnots[degreeV], vMax = vKnots[numberOfVPoints];
+		for (int seed = 0; seed < 4; seed++) {
+			double u = u0 + (0.25 + 0.5 * (seed & 1)) * (u1 - u0);
+			double v = v0 + (0.25 + 0.5 * (seed >> 1)) * (v1 - v0);
+			boolean converged = false;
+			for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+				evaluate(u, v, s);
+				double r1 = s.distance(s.plane1, s.point);
+				double r2 = s.distance(s.plane2, s.point);
+				if (Math.abs(r1) + Math.abs(r2) < tolerance) {
+					converged = true;
+					break;
+				}
+				double a = s.dot(s.plane1, s.du), b = s.dot(s.plane1, s.dv);
+				double c = s.dot(s.plane2, s.du), d = s.dot(s.plane2, s.dv);
+				double det = a * d - b * c;
+				if (det == 0 || Double.isNaN(det)) break;
+				u = Math.min(uMax, Math.max(uMin, u - (d * r1 - b * r2) / det));
+				v = Math.min(vMax, Math.max(vMin, v - (a * r2 - c * r1) / det));
+			}
+			double eps = 1e-9 * (u1 - u0 + v1 - v0);
+			if (!converged || u < u0 - eps || u > u1 + eps || v < v0 - eps || v > v1 + eps) continue;
+			double t = (s.point[0] - s.origin[0]) * s.direction[0] + (s.point[1] - s.origin[1]) * s.direction[1] + (s.point[2] - s.origin[2]) * s.direction[2];
+			s.addHit(t, tolerance * 1e3);
+		}
+	}
+
+	/**
+	 * Evaluates the surface point and its partial derivatives into the scratch memory.
+	 */
+	private void evaluate(double u, double v, Scratch s) {
+		int su = findSpan(u, degreeU, numberOfUPoints, uKnots);
+		int sv = findSpan(v, degreeV, numberOfVPoints, vKnots);
+		basisFunctions(su, u, degreeU, uKnots, s.basisU, s.derivativeU, s.lower, s.left, s.right);
+		basisFunctions(sv, v, degreeV, vKnots, s.basisV, s.derivativeV, s.lower, s.left, s.right);
+		for (int c = 0; c < 3; c++) {
+			s.point[c] = 0;
+			s.du[c] = 0;
+			s.dv[c] = 0;
+		}
+		for (int a = 0; a <= degreeU; a++) {
+			int i = su - degreeU + a;
+			for (int b = 0; b <= degreeV; b++) {
+				int o = 3 * (i * numberOfVPoints + sv - degreeV + b);
+				double w = s.basisU[a] * s.basisV[b];
+				double wu = s.derivativeU[a] * s.basisV[b];
+				double wv = s.basisU[a] * s.derivativeV[b];
+				for (int c = 0; c < 3; c++) {
+					double p = controlPoints[o + c];
+					s.point[c] += w * p;
+					s.du[c] += wu * p;
+					s.dv[c] += wv * p;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the surface at (u, v).
+	 * @param u the u coordinate
+	 * @param v the v coordinate
+	 * @return the point on the surface
+	 */
+	public PointND evaluate(double u, double v) {
+		Scratch s = scratch.get();
+		evaluate(u, v, s);
+		return new PointND(s.point[0], s.point[1], s.point[2]);
+	}
+
+	private static int findSpan(double u, int degree, int numberOfPoints, double [] knots) {
+		if (u >= knots[numberOfPoints]) {
+			int span = numberOfPoints - 1;
+			while (span > degree && knots[span] == knots[span + 1]) span--;
+			return span;
+		}
+		if (u <= knots[degree]) {
+			int span = degree;
+			while (span < numberOfPoints - 1 && knots[span] == knots[span + 1]) span++;
+			return span;
+		}
+		int low = degree;
+		int high = numberOfPoints;
+		int mid = (low + high) / 2;
+		while (u < knots[mid] || u >= knots[mid + 1]) {
+			if (u < knots[mid]) high = mid;
+			else low = mid;
+			mid = (low + high) / 2;
+		}
+		return mid;
+	}
+
+	/**
+	 * Computes the p + 1 non-zero basis functions and their first derivatives at u.
+	 */
+	private static void basisFunctions(int span, double u, int degree, double [] knots, double [] basis, double [] derivative,
+			double [] lower, double [] left, double [] right) {
+		if (degree == 0) {
+			basis[0] = 1;
+			derivative[0] = 0;
+			return;
+		}
+		lowerDegreeBasis(span, u, degree - 1, knots, lower, left, right);
+		for (int r = 0; r <= degree; r++) {
+			int i = span - degree + r;
+			double first = (r > 0) ? lower[r - 1] : 0;
+			double second = (r < degree) ? lower[r] : 0;
+			double d1 = knots[i + degree] - knots[i];
+			double d2 = knots[i + degree + 1] - knots[i + 1];
+			double a = (d1 != 0) ? first / d1 : 0;
+			double b = (d2 != 0) ? second / d2 : 0;
+			basis[r] = (u - knots[i]) * a + (knots[i + degree + 1] - u) * b;
+			derivative[r] = degree * (a - b);
+		}
+	}
+
+	private static void lowerDegreeBasis(int span, double u, int degree, double [] knots, double [] basis, double [] left, double [] right) {
+		basis[0] = 1;
+		for (int j = 1; j <= degree; j++) {
+			left[j] = u - knots[span + 1 - j];
+			right[j] = knots[span + j] - u;
+			double saved = 0;
+			for (int r = 0; r < j; r++) {
+				double temp = basis[r] / (right[r + 1] + left[j - r]);
+				basis[r] = saved + right[r + 1] * temp;
+				saved = left[j - r] * temp;
+			}
+			basis[j] = saved;
+		}
+	}
+
+	/**
+	 * Per-thread memory of the intersection.
+	 */
+	private static class Scratch {
+		final double [] basisU, derivativeU, basisV, derivativeV, lower, left, right;
+		final double [] point = new double[3], du = new double[3], dv = new double[3];
+		final double [] origin = new double[3], direction = new double[3];
+		final double [] plane1 = new double[4], plane2 = new double[4];
+		/** line parameter and coordinates of each hit */
+		double [] hits = new double[16];
+		int numberOfHits;
+
+		Scratch(int degreeU, int degreeV) {
+			int degree = Math.max(degreeU, degreeV);
+			basisU = new double[degreeU + 1];
+			derivativeU = new double[degreeU + 1];
+			basisV = new double[degreeV + 1];
+			derivativeV = new double[degreeV + 1];
+			lower = new double[degree + 1];
+			left = new double[degree + 1];
+			right = new double[degree + 1];
+		}
+
+		/**
+		 * Stores the normalized line and two orthonormal planes that contain it.
+		 */
+		void setLine(double ox, double oy, double oz, double dx, double dy, double dz) {
+			double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+			origin[0] = ox;
+			origin[1] = oy;
+			origin[2] = oz;
+			direction[0] = dx / length;
+			direction[1] = dy / length;
+			direction[2] = dz / length;
+			// the first normal is orthogonal to the direction and to the axis with the smallest direction component
+			int axis = (Math.abs(direction[0]) <= Math.abs(direction[1])) ? 0 : 1;
+			if (Math.abs(direction[2]) < Math.abs(direction[axis])) axis = 2;
+			double [] e = new double[3];
+			e[axis] = 1;
+			cross(direction, e, plane1);
+			normalize(plane1);
+			cross(direction, plane1, plane2);
+			normalize(plane2);
+			plane1[3] = -dot(plane1, origin);
+			plane2[3] = -dot(plane2, origin);
+		}
+
+		double dot(double [] a, double [] b) {
+			return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+		}
+
+		double distance(double [] plane, double [] p) {
+			return dot(plane, p) + plane[3];
+		}
+
+		private static void cross(double [] a, double [] b, double [] result) {
+			result[0] = a[1] * b[2] - a[2] * b[1];
+			result[1] = a[2] * b[0] - a[0] * b[2];
+			result[2] = a[0] * b[1] - a[1] * b[0];
+		}
+
+		private static void normalize(double [] a) {
+			double length = Math.sqrt(a[0] * a[0] + a[1] * a[1] + a[2] * a[2]);
+			a[0] /= length;
+			a[1] /= length;
+			a[2] /= length;
+		}
+
+		/**
+		 * Adds the current point as hit unless a hit with almost the same line parameter exists, e.g. on the border of two patches.
+		 */
+		void addHit(double t, double minimalDistance) {
+			for (int i = 0; i < numberOfHits; i++) {
+				if (Math.abs(hits[4 * i] - t) < minimalDistance) return;
+			}
+			if (4 * numberOfHits + 4 > hits.length) {
+				double [] larger = new double[2 * hits.length];
+				System.arraycopy(hits, 0, larger, 0, hits.length);
+				hits = larger;
+			}
+			hits[4 * numberOfHits] = t;
+			System.arraycopy(point, 0, hits, 4 * numberOfHits + 1, 3);
+			numberOfHits++;
+		}
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
@@ -51,6 +51,7 @@ public class SurfaceBSpline extends AbstractSurface  {
 	public static final int TESSELATE_LINEAR_OCTREE = 0x4;
 	public static final int TESSELATE_NESTED_OCTREE = 0x5;
 	private String title;
+	private transient volatile BSplinePatchIntersector patchIntersector;
 
 	public ArrayList<PointND> getControlPoints(){
 		return points;
@@ -98,6 +99,7 @@ public class SurfaceBSpline extends AbstractSurface  {
 	}
 
 	protected synchronized void init(){
+		patchIntersector = null;
 		dimension = points.get(0).getDimension();
 		int degreeU = 0;
 		while(uKnots.getElement(degreeU) == 0) degreeU++;
@@ -440,44 +442,76 @@ public class SurfaceBSpline extends AbstractSurface  {
 		return new double[] {Math.log(uSpline.getKnotVectorEntry(closeI+offsetU)), Math.log(vSplines[closeI].getKnotVectorEntry(closeJ + offsetV))};
 	}
 
+	/**
+	 * Returns the patch decomposition that is used for the intersection. It is created on the first call and after each change of the control points.
+	 * @return the intersector
+	 */
+	public BSplinePatchIntersector getPatchIntersector(){
+		BSplinePatchIntersector intersector = patchIntersector;
+		if (intersector == null){
+			synchronized (this) {
+				intersector = patchIntersector;
+				if (intersector == null){
+					intersector = new BSplinePatchIntersector(uKnots.copyAsDoubleArray(), vKnots.copyAsDoubleArray(), numberOfUPoints, numberOfVPoints, points);
+					patchIntersector = intersector;
+				}
+			}
+		}
+		return intersector;
+	}
+
+	/**
+	 * Computes the intersections with a StraightLine using the {@link BSplinePatchIntersector}. The method does not lock the surface.
+	 * Hence, many threads can intersect the same surface concurrently.
+	 * @return the intersection points sorted along the line or null if the line misses the bounding box
+	 */
 	@Override
-	public synchronized ArrayList<PointND> intersect(AbstractCurve other) {
+	public ArrayList<PointND> intersect(AbstractCurve other) {
 		if (other instanceof StraightLine){
-			StraightLine line = (StraightLine) other;
-			// These two calls are not thread safe. Hence, synchronization is required.
-			ArrayList<PointND> list = getHitsOnBoundingBox(line);
+			return getPatchIntersector().intersect((StraightLine) other);
+		} else 
+			throw new RuntimeException("Intersection between BSplineSurfaces and other AbstractCurves are not yet implemented.");
+	}
+
+	/**
+	 * Computes intersections by optimization of the distance between the line and the surface, starting from four points on the line.
+	 * This method only requires {@link #evaluate(double, double)} and hence also works for subclasses with other basis functions.
+	 * @param line the line
+	 * @return the intersection points or null if the line misses the bounding box
+	 */
+	protected synchronized ArrayList<PointND> intersectWithOptimizer(StraightLine line) {
+		// These two calls are not thread safe. Hence, synchronization is required.
+		ArrayList<PointND> list = getHitsOnBoundingBox(line);
 
-			//System.out.println(list.size());
-			if (list.size() > 1) {
-				boolean simple = false;
-				ArrayList<PointND> intersectionPoints = new ArrayList<PointND>();
-				if (!simple) {
+		//System.out.println(list.size());
+		if (list.size() > 1) {
+			boolean simple = false;
+			ArrayList<PointND> intersectionPoints = new ArrayList<PointND>();
+			if (!simple) {
 
-					Edge connection = new Edge(list.get(0), list.get(list.size()-1));
-					//System.out.println(connection);
-					// points on one third to the end and one third from the start.
-					list.add(connection.evaluate(connection.getLastInternalIndex() / 3.0));
-					list.add(connection.evaluate((2.0 * connection.getLastInternalIndex()) / 3.0));
-					for (PointND p : list) {
-						BSplineIntersector intersection = new BSplineIntersector(line, this);
-						FunctionOptimizer optimizer = new FunctionOptimizer(2);
-						optimizer.setInitialX(computeInitialUV(p));
-						optimizer.optimizeFunction(intersection);
-						double [] uvvector = optimizer.getOptimum();
-						PointND hit = evaluate(Math.exp(uvvector[0]), Math.exp(uvvector[1]));
-						if (!intersectionPoints.contains(hit)){
-							intersectionPoints.add(hit);
-						}
+				Edge connection = new Edge(list.get(0), list.get(list.size()-1));
+				//System.out.println(connection);
+				// points on one third to the end and one third from the start.
+				list.add(connection.evaluate(connection.getLastInternalIndex() / 3.0));
+				list.add(connection.evaluate((2.0 * connection.getLastInternalIndex()) / 3.0));
+				for (PointND p : list) {
+					BSplineIntersector intersection = new BSplineIntersector(line, this);
+					FunctionOptimizer optimizer = new FunctionOptimizer(2);
+					optimizer.setInitialX(computeInitialUV(p));
+					optimizer.optimizeFunction(intersection);
+					double [] uvvector = optimizer.getOptimum();
+					PointND hit = evaluate(Math.exp(uvvector[0]), Math.exp(uvvector[1]));
+					if (!intersectionPoints.contains(hit)){
+						intersectionPoints.add(hit);
 					}
-				} else {
-					intersectionPoints = list;
 				}
-				return intersectionPoints;
 			} else {
-				return null;
+				intersectionPoints = list;
 			}
-		} else 
-			throw new RuntimeException("Intersection between BSplineSurfaces and other AbstractCurves are not yet implemented.");
+			return intersectionPoints;
+		} else {
+			return null;
+		}
 	}
 
 	public PointND [] intersectDeCasteljau(StraightLine line){
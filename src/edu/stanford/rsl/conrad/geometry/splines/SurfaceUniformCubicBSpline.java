@@ -2,8 +2,10 @@ package edu.stanford.rsl.conrad.geometry.splines;
 
 import java.util.ArrayList;
 
+import edu.stanford.rsl.conrad.geometry.AbstractCurve;
 import edu.stanford.rsl.conrad.geometry.AbstractShape;
 import edu.stanford.rsl.conrad.geometry.shapes.simple.PointND;
+import edu.stanford.rsl.conrad.geometry.shapes.simple.StraightLine;
 import edu.stanford.rsl.conrad.numerics.SimpleVector;
 
 public class SurfaceUniformCubicBSpline extends SurfaceBSpline {
@@ -91,6 +93,17 @@ public class SurfaceUniformCubicBSpline extends SurfaceBSpline {
 		return new PointND(p);
 	}
 	
+	/**
+	 * The patch intersector assumes the general B-spline basis. Hence, the uniform cubic surface is intersected by optimization.
+	 */
+	@Override
+	public ArrayList<PointND> intersect(AbstractCurve other) {
+		if (other instanceof StraightLine){
+			return intersectWithOptimizer((StraightLine) other);
+		} else 
+			throw new RuntimeException("Intersection between BSplineSurfaces and other AbstractCurves are not yet implemented.");
+	}
+
 	@Override
 	public AbstractShape clone() {
 		return new SurfaceUniformCubicBSpline(this);
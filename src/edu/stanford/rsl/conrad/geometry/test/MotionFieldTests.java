@@ -0,0 +1,118 @@
+package edu.stanford.rsl.conrad.geometry.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.stanford.rsl.conrad.geometry.motion.MixedSurfaceBSplineMotionField;
+import edu.stanford.rsl.conrad.geometry.motion.ParzenWindowIndex;
+import edu.stanford.rsl.conrad.geometry.shapes.simple.PointND;
+import edu.stanford.rsl.conrad.geometry.splines.SurfaceBSpline;
+import edu.stanford.rsl.conrad.geometry.splines.SurfaceUniformCubicBSpline;
+import edu.stanford.rsl.conrad.geometry.splines.TimeVariantSurfaceBSpline;
+import edu.stanford.rsl.conrad.geometry.trajectories.Trajectory;
+import edu.stanford.rsl.conrad.utils.Configuration;
+import edu.stanford.rsl.conrad.utils.RegKeys;
+import edu.stanford.rsl.conrad.utils.TessellationUtil;
+
+public class MotionFieldTests {
+
+	private static double [] clampedKnots(int points, int degree){
+		double [] knots = new double[points + degree + 1];
+		for (int i = 0; i < knots.length; i++){
+			knots[i] = (i <= degree) ? 0 : (i >= points) ? 1 : (i - degree) / (double) (points - degree);
+		}
+		return knots;
+	}
+
+	private static TimeVariantSurfaceBSpline createMovingSurface(){
+		ArrayList<SurfaceBSpline> timePoints = new ArrayList<SurfaceBSpline>();
+		for (int t = 0; t < 4; t++){
+			ArrayList<PointND> points = new ArrayList<PointND>();
+			for (int i = 0; i < 8; i++){
+				for (int j = 0; j < 7; j++){
+					points.add(new PointND((10 * i) + (t * Math.sin(j)), (10 * j) + (t * Math.cos(i)), (5 * Math.sin(i) * Math.cos(j)) + (2 * t)));
+				}
+			}
+			timePoints.add(new SurfaceUniformCubicBSpline(points, clampedKnots(8, 3), clampedKnots(7, 3)));
+		}
+		return new TimeVariantSurfaceBSpline(timePoints);
+	}
+
+	private static void assertSamePosition(MixedSurfaceBSplineMotionField field, PointND point){
+		field.setUseSpatialIndex(false);
+		PointND reference = field.getPosition(point, 0, 0.7);
+		field.setUseSpatialIndex(true);
+		PointND indexed = field.getPosition(point, 0, 0.7);
+		for (int d = 0; d < 3; d++){
+			Assert.assertEquals(reference.get(d), indexed.get(d), 1e-4);
+		}
+	}
+
+	@Test
+	public void parzenWindowSpatialIndexTest(){
+		Configuration config = new Configuration();
+		Trajectory geometry = new Trajectory();
+		geometry.setReconDimensions(64, 64, 64);
+		geometry.setVoxelSpacingX(1);
+		geometry.setVoxelSpacingY(1);
+		geometry.setVoxelSpacingZ(1);
+		config.setGeometry(geometry);
+		HashMap<String, String> registry = new HashMap<String, String>();
+		registry.put(RegKeys.SPLINE_SUBSAMPLING_FACTOR, "4");
+		config.setRegistry(registry);
+		Configuration.setGlobalConfiguration(config);
+		TimeVariantSurfaceBSpline surface = createMovingSurface();
+		ArrayList<TimeVariantSurfaceBSpline> variants = new ArrayList<TimeVariantSurfaceBSpline>();
+		variants.add(surface);
+		double sigma = 2;
+		MixedSurfaceBSplineMotionField field = new MixedSurfaceBSplineMotionField(variants, new ArrayList<SurfaceBSpline>(), sigma);
+		// the same raster points and index as used by the motion field
+		PointND [] raster = surface.getRasterPoints(TessellationUtil.getSamplingU(surface), TessellationUtil.getSamplingV(surface), 0);
+		ParzenWindowIndex index = new ParzenWindowIndex(raster, sigma, field.getCutoff() * sigma);
+		double [] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+		double [] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+		for (PointND p : raster){
+			for (int d = 0; d < 3; d++){
+				min[d] = Math.min(min[d], p.get(d));
+				max[d] = Math.max(max[d], p.get(d));
+			}
+		}
+		Random random = new Random(3);
+		// random points within and around the surface
+		for (int k = 0; k < 300; k++){
+			PointND point = new PointND(0, 0, 0);
+			for (int d = 0; d < 3; d++){
+				point.set(d, min[d] - (4 * sigma) + ((max[d] - min[d] + (8 * sigma)) * random.nextDouble()));
+			}
+			assertSamePosition(field, point);
+		}
+		// points on both sides of the cell borders
+		double cellSize = index.getCellSize();
+		for (int k = 0; k < 100; k++){
+			PointND point = new PointND(0, 0, 0);
+			for (int d = 0; d < 3; d++){
+				int cell = random.nextInt((int) ((max[d] - min[d]) / cellSize) + 1);
+				double offset = (random.nextBoolean() ? 1 : -1) * 1e-9 * random.nextDouble();
+				point.set(d, min[d] + (cell * cellSize) + offset);
+			}
+			assertSamePosition(field, point);
+		}
+		// points outside of the support of the window and far away from all raster points
+		for (double distance : new double [] {5, 10, 17, 19, 30, 100}){
+			assertSamePosition(field, new PointND(max[0] + (distance * sigma), max[1], max[2]));
+			assertSamePosition(field, new PointND(min[0], min[1] - (distance * sigma), max[2] + (distance * sigma)));
+		}
+		PointND far = new PointND(max[0] + (100 * sigma), max[1], max[2]);
+		Assert.assertEquals(0, far.euclideanDistance(field.getPosition(far, 0, 0.7)), 1e-12);
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
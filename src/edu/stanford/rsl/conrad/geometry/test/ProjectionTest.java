@@ -6,6 +6,8 @@ import static org.junit.Assert.*;
 //import org.junit.AfterClass;
 //import org.junit.Before;
 //import org.junit.BeforeClass;
+import java.io.File;
+
 import org.junit.Test;
 
 import edu.stanford.rsl.conrad.geometry.General;
@@ -13,9 +15,12 @@ import edu.stanford.rsl.conrad.geometry.Projection;
 import edu.stanford.rsl.conrad.geometry.Rotations;
 import edu.stanford.rsl.conrad.geometry.Projection.CameraAxisDirection;
 import edu.stanford.rsl.conrad.geometry.Rotations.BasicAxis;
+import edu.stanford.rsl.conrad.geometry.trajectories.ProjectionMatrixTable;
+import edu.stanford.rsl.conrad.geometry.trajectories.Trajectory;
 import edu.stanford.rsl.conrad.numerics.SimpleMatrix;
 import edu.stanford.rsl.conrad.numerics.SimpleOperators;
 import edu.stanford.rsl.conrad.numerics.SimpleVector;
+import edu.stanford.rsl.conrad.utils.BinaryUtils;
 import static edu.stanford.rsl.conrad.utils.TestingTools.*;
 
 public class ProjectionTest {
@@ -826,6 +831,62 @@ public class ProjectionTest {
 		assertEqualElementWise(offset, foffset1, DELTA);
 	}
 
+	@Test
+	public void testProjectionMatrixTable() {
+		Trajectory trajectory = new Trajectory();
+		Projection proj1 = new Projection(fP1);
+		Projection proj2 = new Projection(fP2);
+		trajectory.setProjectionMatrices(new Projection[] {proj1, null});
+		ProjectionMatrixTable table = trajectory.getProjectionMatrixTable();
+		assertSame(table, trajectory.getProjectionMatrixTable());
+		assertTrue(table.hasProjection(0));
+		assertFalse(table.hasProjection(1));
+		double [] matrix = new double[ProjectionMatrixTable.MATRIX_SIZE];
+		table.getMatrix(0, matrix);
+		for (int r = 0; r < 3; r++)
+			for (int c = 0; c < 4; c++)
+				assertEquals(proj1.computeP().getElement(r, c), matrix[4*r + c], DELTA);
+		double [] position = new double[3];
+		table.getSourcePosition(0, position);
+		assertEqualElementWise(new SimpleVector(position), proj1.computeCameraCenter(), DELTA);
+		double [] inverse = new double[9];
+		table.getInverse(0, inverse);
+		SimpleMatrix M = fP1.getSubMatrix(0, 0, 3, 3);
+		SimpleMatrix product = SimpleOperators.multiplyMatrixProd(new SimpleMatrix(new double[][] {
+				{inverse[0], inverse[1], inverse[2]}, {inverse[3], inverse[4], inverse[5]}, {inverse[6], inverse[7], inverse[8]}}), M);
+		assertEqualElementWise(product, SimpleMatrix.I_3, DELTA);
+		trajectory.setProjectionMatrix(1, proj2);
+		table = trajectory.getProjectionMatrixTable();
+		assertTrue(table.hasProjection(1));
+		assertEquals(fP2.getElement(2, 3), table.getElement(1, 2, 3), DELTA);
+	}
+
+	@Test
+	public void testBinarySerialization() throws Exception {
+		Trajectory trajectory = new Trajectory();
+		trajectory.setDetectorWidth(620);
+		trajectory.setProjectionMatrices(new Projection[] {new Projection(fP1), new Projection(fP2)});
+		File file = File.createTempFile("trajectory", ".bin");
+		try {
+			BinaryUtils.exportToBinary(trajectory, file.getPath());
+			assertTrue(BinaryUtils.isBinaryFile(file.getPath()));
+			Trajectory loaded = (Trajectory) BinaryUtils.importFromBinary(file.getPath());
+			assertEquals(620, loaded.getDetectorWidth());
+			for (int i = 0; i < 2; i++) {
+				Projection expected = trajectory.getProjectionMatrices()[i];
+				Projection actual = loaded.getProjectionMatrices()[i];
+				assertEquals(expected.getS(), actual.getS(), 0);
+				assertEqualElementWise(actual.getK(), expected.getK(), 0);
+				assertEqualElementWise(actual.getR(), expected.getR(), 0);
+				assertEqualElementWise(actual.getT(), expected.getT(), 0);
+				assertEqualElementWise(actual.computeRayDirection(new SimpleVector(10, 20)), expected.computeRayDirection(new SimpleVector(10, 20)), 0);
+			}
+			assertEquals(fP2.getElement(2, 3), loaded.getProjectionMatrixTable().getElement(1, 2, 3), DELTA);
+		} finally {
+			file.delete();
+		}
+	}
+
 }
 /*
  * Copyright (C) 2010-2014 Andreas Maier
@@ -1,22 +1,42 @@
 package edu.stanford.rsl.conrad.geometry.test;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
 import junit.framework.Assert;
 
+import org.junit.Before;
 import org.junit.Test;
 
 import edu.stanford.rsl.conrad.geometry.Axis;
 import edu.stanford.rsl.conrad.geometry.Rotations;
+import edu.stanford.rsl.conrad.geometry.shapes.compound.CompoundShape;
+import edu.stanford.rsl.conrad.geometry.shapes.mesh.PackedTriangleMesh;
 import edu.stanford.rsl.conrad.geometry.shapes.simple.Edge;
 import edu.stanford.rsl.conrad.geometry.shapes.simple.Plane3D;
 import edu.stanford.rsl.conrad.geometry.shapes.simple.PointND;
 import edu.stanford.rsl.conrad.geometry.shapes.simple.StraightLine;
 import edu.stanford.rsl.conrad.geometry.shapes.simple.Triangle;
+import edu.stanford.rsl.conrad.geometry.splines.SurfaceBSpline;
 import edu.stanford.rsl.conrad.geometry.transforms.ScaleRotate;
 import edu.stanford.rsl.conrad.geometry.transforms.Transform;
 import edu.stanford.rsl.conrad.geometry.transforms.Translation;
+import edu.stanford.rsl.conrad.numerics.SimpleVector;
+import edu.stanford.rsl.conrad.utils.Configuration;
 
 public class SurfaceTests {
 
+	@Before
+	public void setUpConfiguration(){
+		// Triangle reads the ray tracing epsilon from the registry of the global configuration.
+		if (Configuration.getGlobalConfiguration() == null || Configuration.getGlobalConfiguration().getRegistry() == null){
+			Configuration config = new Configuration();
+			config.setRegistry(new HashMap<String, String>());
+			Configuration.setGlobalConfiguration(config);
+		}
+	}
+
 	@Test
 	public void intersectPlaneTest(){
 		PointND one = new PointND(0, 0, 0);
@@ -80,7 +100,108 @@ public class SurfaceTests {
 		Assert.assertEquals(threeprime, triangle.getC());
 	}
 	
+	/**
+	 * Unit cube with outward oriented triangles.
+	 */
+	private static PackedTriangleMesh createCube(){
+		float [] vertices = {0,0,0, 1,0,0, 1,1,0, 0,1,0, 0,0,1, 1,0,1, 1,1,1, 0,1,1};
+		int [] indices = {0,2,1, 0,3,2, 4,5,6, 4,6,7, 0,1,5, 0,5,4, 3,6,2, 3,7,6, 0,4,7, 0,7,3, 1,2,6, 1,6,5};
+		return new PackedTriangleMesh(vertices, indices);
+	}
+	
+	@Test
+	public void packedTriangleMeshTest(){
+		PackedTriangleMesh cube = createCube();
+		Assert.assertEquals(12, cube.getNumberOfTriangles());
+		PackedTriangleMesh.Hits hits = new PackedTriangleMesh.Hits();
+		// ray through the interior: enters at z = 0 and leaves at z = 1
+		cube.intersect(0.3, 0.6, -1, 0, 0, 1, hits);
+		Assert.assertEquals(2, hits.size());
+		for (int i = 0; i < hits.size(); i++){
+			if (hits.getOrientation(i) < 0) Assert.assertEquals(1.0, hits.getDistance(i), 1e-12);
+			else Assert.assertEquals(2.0, hits.getDistance(i), 1e-12);
+		}
+		// ray through the shared edge of two triangles must not leak
+		cube.intersect(0.5, 0.5, -1, 0, 0, 1, hits);
+		Assert.assertTrue(hits.size() >= 2);
+		// the origin is behind the cube
+		cube.intersect(0.3, 0.6, 2, 0, 0, 1, hits);
+		Assert.assertEquals(0, hits.size());
+		// packets yield the same hits as single rays
+		double [] origins = {0.3, 0.6, -1, -1, 0.25, 0.75, 5, 5, 5};
+		double [] directions = {0, 0, 1, 1, 0.1, -0.2, 1, 1, 1};
+		PackedTriangleMesh.Hits [] packet = {new PackedTriangleMesh.Hits(), new PackedTriangleMesh.Hits(), new PackedTriangleMesh.Hits()};
+		cube.intersect(origins, directions, packet);
+		for (int r = 0; r < packet.length; r++){
+			cube.intersect(origins[3*r], origins[3*r+1], origins[3*r+2], directions[3*r], directions[3*r+1], directions[3*r+2], hits);
+			Assert.assertEquals(hits.size(), packet[r].size());
+			for (int i = 0; i < hits.size(); i++){
+				Assert.assertEquals(hits.getDistance(i), packet[r].getDistance(i));
+			}
+		}
+	}
+	
+	@Test
+	public void packedTriangleMeshFromCompoundTest(){
+		PackedTriangleMesh cube = createCube();
+		CompoundShape compound = new CompoundShape();
+		for (int t = 0; t < cube.getNumberOfTriangles(); t++){
+			compound.add(cube.getTriangle(t));
+		}
+		PackedTriangleMesh packed = new PackedTriangleMesh(compound);
+		Assert.assertEquals(12, packed.getNumberOfTriangles());
+		for (int i = 0; i < cube.getNormals().length; i++){
+			Assert.assertEquals(cube.getNormals()[i], packed.getNormals()[i], 1e-6);
+		}
+		StraightLine line = new StraightLine(new PointND(-1, 0.2, 0.4), new SimpleVector(1, 0.3, 0.1));
+		ArrayList<PointND> expected = compound.intersect(line);
+		ArrayList<PointND> actual = packed.intersect(line);
+		Assert.assertEquals(expected.size(), actual.size());
+		for (PointND p : actual){
+			double distance = Double.MAX_VALUE;
+			for (PointND q : expected) distance = Math.min(distance, p.euclideanDistance(q));
+			Assert.assertEquals(0, distance, 1e-6);
+		}
+		packed.applyTransform(new Translation(1, 0, 0));
+		Assert.assertEquals(1, packed.getMin().get(0), 1e-6);
+		Assert.assertEquals(2, packed.getMax().get(0), 1e-6);
+	}
 	
+	private static double [] clampedKnots(int points, int degree){
+		double [] knots = new double[points + degree + 1];
+		for (int i = 0; i < knots.length; i++){
+			knots[i] = (i <= degree) ? 0 : (i >= points) ? 1 : (i - degree) / (double) (points - degree);
+		}
+		return knots;
+	}
+	
+	@Test
+	public void surfaceBSplineIntersectionTest(){
+		Random random = new Random(1);
+		ArrayList<PointND> points = new ArrayList<PointND>();
+		for (int i = 0; i < 8; i++){
+			for (int j = 0; j < 7; j++){
+				points.add(new PointND(10 * i, 10 * j, 5 * Math.sin(i) * Math.cos(j) + random.nextDouble()));
+			}
+		}
+		SurfaceBSpline spline = new SurfaceBSpline(points, clampedKnots(8, 3), clampedKnots(7, 3));
+		Assert.assertEquals(20, spline.getPatchIntersector().getNumberOfPatches());
+		for (int k = 0; k < 200; k++){
+			double u = 0.01 + 0.98 * random.nextDouble();
+			double v = 0.01 + 0.98 * random.nextDouble();
+			PointND onSurface = spline.evaluate(u, v);
+			Assert.assertEquals(0, onSurface.euclideanDistance(spline.getPatchIntersector().evaluate(u, v)), 1e-9);
+			SimpleVector direction = new SimpleVector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, 1);
+			direction.normalizeL2();
+			PointND start = new PointND(onSurface.getAbstractVector().clone());
+			start.getAbstractVector().subtract(direction.multipliedBy(50));
+			ArrayList<PointND> hits = spline.intersect(new StraightLine(start, direction));
+			double distance = Double.MAX_VALUE;
+			for (PointND hit : hits) distance = Math.min(distance, hit.euclideanDistance(onSurface));
+			Assert.assertEquals(0, distance, 1e-6);
+		}
+		Assert.assertNull(spline.intersect(new StraightLine(new PointND(0, 0, 100), new SimpleVector(1, 0, 0))));
+	}
 	
 }
 /*
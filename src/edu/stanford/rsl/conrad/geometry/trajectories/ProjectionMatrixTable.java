@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
+package edu.stanford.rsl.conrad.geometry.trajectories;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import edu.stanford.rsl.conrad.geometry.Projection;
+import edu.stanford.rsl.conrad.numerics.SimpleMatrix;
+import edu.stanford.rsl.conrad.numerics.SimpleVector;
+
+/**
+ * Immutable table of the projection matrices of a {@link Trajectory}. For each projection, the 3x4 matrix P is stored row by row
+ * at the offset 12 * projection in one contiguous array, in double and in float precision. In addition, the inverse of the left 3x3 part
+ * M of P and the source position C = -M<sup>-1</sup> p<sub>4</sub> are precomputed.<br>
+ * Hence, hot loops can read the geometry without calling {@link Projection#computeP()}, which allocates new matrices on each call.
+ * Projections that are null in the trajectory are stored as NaN.<br>
+ * The table is obtained by {@link Trajectory#getProjectionMatrixTable()}. It is a snapshot and does not reflect later changes of the
+ * {@link Projection} objects.
+ *
+ * @author akmaier
+ *
+ */
+public final class ProjectionMatrixTable {
+
+	/**
+	 * Number of entries of one projection matrix.
+	 */
+	public static final int MATRIX_SIZE = 12;
+
+	private final double [] matrices;
+	private final float [] floatMatrices;
+	private final double [] inverses;
+	private final double [] sourcePositions;
+	private final boolean [] valid;
+
+	/**
+	 * Computes the table for the given projections.
+	 * @param projections the projections. Entries may be null.
+	 */
+	public ProjectionMatrixTable(Projection [] projections) {
+		int n = (projections == null) ? 0 : projections.length;
+		matrices = new double[n * MATRIX_SIZE];
+		floatMatrices = new float[n * MATRIX_SIZE];
+		inverses = new double[n * 9];
+		sourcePositions = new double[n * 3];
+		valid = new boolean[n];
+		for (int p = 0; p < n; p++) {
+			if (projections[p] == null) {
+				Arrays.fill(matrices, p * MATRIX_SIZE, (p + 1) * MATRIX_SIZE, Double.NaN);
+				Arrays.fill(floatMatrices, p * MATRIX_SIZE, (p + 1) * MATRIX_SIZE, Float.NaN);
+				Arrays.fill(inverses, p * 9, (p + 1) * 9, Double.NaN);
+				Arrays.fill(sourcePositions, p * 3, (p + 1) * 3, Double.NaN);
+				continue;
+			}
+			valid[p] = true;
+			SimpleMatrix P = projections[p].computeP();
+			for (int r = 0; r < 3; r++) {
+				for (int c = 0; c < 4; c++) {
+					matrices[p * MATRIX_SIZE + 4 * r + c] = P.getElement(r, c);
+					floatMatrices[p * MATRIX_SIZE + 4 * r + c] = (float) P.getElement(r, c);
+				}
+			}
+			invert(p);
+		}
+	}
+
+	/**
+	 * Inverts the left 3x3 part of P with the adjugate and computes the source position.
+	 */
+	private void invert(int p) {
+		int o = p * MATRIX_SIZE;
+		double m00 = matrices[o], m01 = matrices[o + 1], m02 = matrices[o + 2];
+		double m10 = matrices[o + 4], m11 = matrices[o + 5], m12 = matrices[o + 6];
+		double m20 = matrices[o + 8], m21 = matrices[o + 9], m22 = matrices[o + 10];
+		double c00 = m11 * m22 - m12 * m21;
+		double c01 = m02 * m21 - m01 * m22;
+		double c02 = m01 * m12 - m02 * m11;
+		double c10 = m12 * m20 - m10 * m22;
+		double c11 = m00 * m22 - m02 * m20;
+		double c12 = m02 * m10 - m00 * m12;
+		double c20 = m10 * m21 - m11 * m20;
+		double c21 = m01 * m20 - m00 * m21;
+		double c22 = m00 * m11 - m01 * m10;
+		double det = m00 * c00 + m01 * c10 + m02 * c20;
+		int i = p * 9;
+		inverses[i] = c00 / det;
+		inverses[i + 1] = c01 / det;
+		inverses[i + 2] = c02 / det;
+		inverses[i + 3] = c10 / det;
+		inverses[i + 4] = c11 / det;
+		inverses[i + 5] = c12 / det;
+		inverses[i + 6] = c20 / det;
+		inverses[i + 7] = c21 / det;
+		inverses[i + 8] = c22 / det;
+		for (int r = 0; r < 3; r++) {
+			sourcePositions[p * 3 + r] = -(inverses[i + 3 * r] * matrices[o + 3] + inverses[i + 3 * r + 1] * matrices[o + 7] + inverses[i + 3 * r + 2] * matrices[o + 11]);
+		}
+	}
+
+	/**
+	 * @return the number of projections
+	 */
+	public int getNumberOfProjections() {
+		return valid.length;
+	}
+
+	/**
+	 * @param projection the projection number
+	 * @return false if the trajectory has no projection matrix for this projection
+	 */
+	public boolean hasProjection(int projection) {
+		return projection >= 0 && projection < valid.length && valid[projection];
+	}
+
+	/**
+	 * Returns one entry of a projection matrix.
+	 * @param projection the projection number
+	 * @param row the row (0 - 2)
+	 * @param col the column (0 - 3)
+	 * @return the entry
+	 */
+	public double getElement(int projection, int row, int col) {
+		return matrices[projection * MATRIX_SIZE + 4 * row + col];
+	}
+
+	/**
+	 * Copies the projection matrix row by row.
+	 * @param projection the projection number
+	 * @param matrix array of at least 12 entries
+	 */
+	public void getMatrix(int projection, double [] matrix) {
+		System.arraycopy(matrices, projection * MATRIX_SIZE, matrix, 0, MATRIX_SIZE);
+	}
+
+	/**
+	 * Copies the projection matrix row by row in float precision, e.g. for upload to OpenCL.
+	 * @param projection the projection number
+	 * @param matrix array of at least 12 entries
+	 */
+	public void getMatrix(int projection, float [] matrix) {
+		System.arraycopy(floatMatrices, projection * MATRIX_SIZE, matrix, 0, MATRIX_SIZE);
+	}
+
+	/**
+	 * Copies the inverse of the left 3x3 part of the projection matrix row by row.
+	 * @param projection the projection number
+	 * @param inverse array of at least 9 entries
+	 */
+	public void getInverse(int projection, double [] inverse) {
+		System.arraycopy(inverses, projection * 9, inverse, 0, 9);
+	}
+
+	/**
+	 * Returns one entry of the inverse of the left 3x3 part of the projection matrix.
+	 * @param projection the projection number
+	 * @param row the row (0 - 2)
+	 * @param col the column (0 - 2)
+	 * @return the entry
+	 */
+	public double getInverseElement(int projection, int row, int col) {
+		return inverses[projection * 9 + 3 * row + col];
+	}
+
+	/**
+	 * Copies the source position in world coordinates.
+	 * @param projection the projection number
+	 * @param position array of at least 3 entries
+	 */
+	public void getSourcePosition(int projection, double [] position) {
+		System.arraycopy(sourcePositions, projection * 3, position, 0, 3);
+	}
+
+	/**
+	 * @param projection the projection number
+	 * @return the source position in world coordinates
+	 */
+	public SimpleVector getSourcePosition(int projection) {
+		return new SimpleVector(sourcePositions[projection * 3], sourcePositions[projection * 3 + 1], sourcePositions[projection * 3 + 2]);
+	}
+
+	/**
+	 * @return read only view on all projection matrices. Matrix p starts at position 12 * p.
+	 */
+	public DoubleBuffer getMatrices() {
+		return DoubleBuffer.wrap(matrices).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return read only view on all projection matrices in float precision. Matrix p starts at position 12 * p.
+	 */
+	public FloatBuffer getFloatMatrices() {
+		return FloatBuffer.wrap(floatMatrices).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return read only view on all inverses. The inverse of projection p starts at position 9 * p.
+	 */
+	public DoubleBuffer getInverses() {
+		return DoubleBuffer.wrap(inverses).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return read only view on all source positions. The position of projection p starts at position 3 * p.
+	 */
+	public DoubleBuffer getSourcePositions() {
+		return DoubleBuffer.wrap(sourcePositions).asReadOnlyBuffer();
+	}
+
+}
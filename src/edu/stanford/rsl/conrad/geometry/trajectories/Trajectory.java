@@ -53,6 +53,8 @@ public class Trajectory implements SafeSerializable{
 	protected double detectorOffsetU;
 	protected double detectorOffsetV;
 	protected SimpleVector rotationAxis;
+	private transient ProjectionMatrixTable projectionMatrixTable;
+	private transient Projection [] projectionMatrixTableSource;
 
 	/**
 	 * Copy Constructor that reads the values of another Trajectory object.
@@ -115,6 +117,41 @@ public class Trajectory implements SafeSerializable{
 
 	public void setProjectionMatrices(Projection[] projectionMatrices) {
 		this.projectionMatrices = projectionMatrices;
+		invalidateProjectionMatrixTable();
+	}
+
+	/**
+	 * Returns the projection matrices, their inverses, and the source positions as primitive arrays. The table is computed on the first call
+	 * and reused until a projection is replaced, e.g. by {@link #setProjectionMatrix(int, Projection)}. If a {@link Projection} object is
+	 * modified in place, {@link #invalidateProjectionMatrixTable()} has to be called.
+	 * @return the table of the current projection matrices
+	 */
+	public synchronized ProjectionMatrixTable getProjectionMatrixTable() {
+		if (projectionMatrixTable == null || !isProjectionMatrixTableSource(projectionMatrices)) {
+			projectionMatrixTableSource = (projectionMatrices == null) ? null : projectionMatrices.clone();
+			projectionMatrixTable = new ProjectionMatrixTable(projectionMatrices);
+		}
+		return projectionMatrixTable;
+	}
+
+	/**
+	 * Discards the table of projection matrices. It is recomputed on the next call of {@link #getProjectionMatrixTable()}.
+	 */
+	public synchronized void invalidateProjectionMatrixTable() {
+		projectionMatrixTable = null;
+		projectionMatrixTableSource = null;
+	}
+
+	/**
+	 * Subclasses may replace projections directly in the array. Hence, we compare the references.
+	 */
+	private boolean isProjectionMatrixTableSource(Projection [] projections) {
+		if (projections == null || projectionMatrixTableSource == null) return projections == projectionMatrixTableSource;
+		if (projections.length != projectionMatrixTableSource.length) return false;
+		for (int i = 0; i < projections.length; i++) {
+			if (projections[i] != projectionMatrixTableSource[i]) return false;
+		}
+		return true;
 	}
 
 	public int getDetectorWidth() {
@@ -210,6 +247,7 @@ public class Trajectory implements SafeSerializable{
 		if (i < projectionMatrices.length && i>=0) 
 		{
 			projectionMatrices[i] = projMat;
+			invalidateProjectionMatrixTable();
 		}
 	}
 	
@@ -46,7 +46,7 @@ public abstract class FileProjectionSource implements ProjectionSource {
 
 
 	public static ProjectionSource [] getProjectionSources(){
-		ProjectionSource [] sources = {new TiffProjectionSource(), new ZipProjectionSource(), new SEQProjectionSource(), new DicomProjectionSource(), new NRRDProjectionSource(), new DennerleinProjectionSource()};
+		ProjectionSource [] sources = {new TiffProjectionSource(), new ZipProjectionSource(), new SEQProjectionSource(), new DicomProjectionSource(), new MappedFileProjectionSource(), new NRRDProjectionSource(), new DennerleinProjectionSource()};
 		return sources;
 	}
 
@@ -42,12 +42,15 @@ public class ImagePlusDataSink extends BufferedProjectionSink {
 	@Override
 	public Grid3D getResult() {
 		//System.out.println("get result called: " + closed);
-		while (!closed){
-			try {
-				Thread.sleep(CONRAD.INVERSE_SPEEDUP);
-			} catch (InterruptedException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+		synchronized (this) {
+			while (!closed){
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					// keep the interrupt for the caller. The stack is not complete yet.
+					Thread.currentThread().interrupt();
+					return null;
+				}
 			}
 		}
 		//System.out.println("Image returned." + closed);
@@ -135,7 +138,10 @@ public class ImagePlusDataSink extends BufferedProjectionSink {
 				}
 				updateStack(ip, i);
 			}
-			closed = true;
+			synchronized (this) {
+				closed = true;
+				notifyAll();
+			}
 		}
 	}
 
@@ -53,12 +53,15 @@ BufferedProjectionSink {
 
 	@Override
 	public Grid3D getResult() {
-		while (!closed) {
-			try {
-				Thread.sleep(CONRAD.INVERSE_SPEEDUP);
-			} catch (InterruptedException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+		synchronized (this) {
+			while (!closed) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					// keep the interrupt for the caller.
+					Thread.currentThread().interrupt();
+					return null;
+				}
 			}
 		}
 		width = 0;
@@ -258,8 +261,9 @@ BufferedProjectionSink {
 	}
 	
 	@Override
-	public void close (){
+	public synchronized void close (){
 		closed = true;
+		notifyAll();
 	}
 
 	/**
@@ -0,0 +1,255 @@
+package edu.stanford.rsl.conrad.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import edu.stanford.rsl.conrad.data.numeric.Grid2D;
+import edu.stanford.rsl.conrad.data.numeric.OffHeapGrid2D;
+import edu.stanford.rsl.conrad.pipeline.IndividualImagePipelineFilteringTool;
+import edu.stanford.rsl.conrad.pipeline.ProjectionSource;
+import edu.stanford.rsl.conrad.utils.CONRAD;
+import ij.IJ;
+import ij.io.FileInfo;
+
+/**
+ * Projection source that maps uncompressed projection stacks into memory instead of reading them through ImageJ's ImageReader.
+ * Supported are raw NRRD files (attached or detached header), Dennerlein files and any raw file that can be described by a FileInfo,
+ * e.g. files written with {@link GridRawIOUtil}.<br>
+ * The file is never read as a whole. Each call to {@link #getNextProjection()} converts one frame from the mapped memory into a new Grid2D.
+ * Hence, streaming starts immediately and only the requested frames are paged in by the operating system.<br>
+ * If {@link #setUseViews(boolean)} is set, float data is handed out as read-only {@link OffHeapGrid2D} view on the mapped file without any copy.
+ * Hence, views should only be used if the consumers of the projections do not modify them.
+ *
+ * @author akmaier
+ *
+ */
+public class MappedFileProjectionSource implements ProjectionSource {
+
+	protected FileInfo fi = null;
+	protected int currentIndex = -1;
+	protected boolean showProgress = false;
+	protected boolean useViews = false;
+	protected RandomAccessFile file;
+	protected ByteBuffer [] chunks;
+	protected int framesPerChunk;
+	protected int frameBytes;
+	protected long frameStride;
+
+	/**
+	 * Opens a raw NRRD file or a Dennerlein file. Compressed NRRD files are not supported and cause an IOException.
+	 */
+	@Override
+	public void initStream(String filename) throws IOException {
+		initStream(getHeaderInfo(filename));
+	}
+
+	/**
+	 * Opens the raw file described by the FileInfo, i.e. fi.directory, fi.fileName, fi.getOffset(), fi.width, fi.height, fi.nImages, fi.gapBetweenImages, fi.fileType and fi.intelByteOrder.
+	 * @param fi the file info
+	 * @throws IOException if the file cannot be mapped or the file type is not supported.
+	 */
+	public void initStream(FileInfo fi) throws IOException {
+		if (fi.compression != FileInfo.COMPRESSION_NONE && fi.compression != FileInfo.COMPRESSION_UNKNOWN) {
+			throw new IOException("Compressed files cannot be mapped.");
+		}
+		switch (fi.fileType) {
+		case FileInfo.GRAY8:
+		case FileInfo.GRAY16_SIGNED:
+		case FileInfo.GRAY16_UNSIGNED:
+		case FileInfo.GRAY32_INT:
+		case FileInfo.GRAY32_UNSIGNED:
+		case FileInfo.GRAY32_FLOAT:
+		case FileInfo.GRAY64_FLOAT:
+			break;
+		default:
+			throw new IOException("File type " + fi.fileType + " is not supported.");
+		}
+		long frameSize = (long) fi.width * fi.height * fi.getBytesPerPixel();
+		if (fi.width <= 0 || fi.height <= 0 || frameSize > Integer.MAX_VALUE) {
+			throw new IOException("Invalid frame size " + fi.width + "x" + fi.height + ".");
+		}
+		if (fi.gapBetweenImages < 0) {
+			throw new IOException("Invalid gap between images " + fi.gapBetweenImages + ".");
+		}
+		File f = new File(fi.directory, fi.fileName);
+		long offset = fi.getOffset();
+		// consecutive frames are frameSize + gapBetweenImages bytes apart. There is no gap after the last frame.
+		long stride = frameSize + fi.gapBetweenImages;
+		if (offset + (stride * (fi.nImages - 1)) + frameSize > f.length()) {
+			throw new IOException("Offset + image size > file length.");
+		}
+		this.fi = fi;
+		frameBytes = (int) frameSize;
+		frameStride = stride;
+		framesPerChunk = (int) Math.max(1, Math.min(fi.nImages, ((Integer.MAX_VALUE - frameSize) / stride) + 1));
+		int numChunks = (fi.nImages + framesPerChunk - 1) / framesPerChunk;
+		file = new RandomAccessFile(f, "r");
+		FileChannel channel = file.getChannel();
+		chunks = new ByteBuffer[numChunks];
+		for (int c = 0; c < numChunks; c++) {
+			int frames = Math.min(framesPerChunk, fi.nImages - (c * framesPerChunk));
+			MappedByteBuffer chunk = channel.map(MapMode.READ_ONLY, offset + ((long) c * framesPerChunk * frameStride), ((frames - 1) * frameStride) + frameBytes);
+			chunk.order(fi.intelByteOrder ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+			chunks[c] = chunk;
+		}
+		currentIndex = -1;
+		CONRAD.log("Mapped " + fi.nImages + " frames with " + fi.width + "x" + fi.height + " resolution from " + f.getPath());
+	}
+
+	/**
+	 * Reads the header of a raw NRRD or a Dennerlein file.
+	 * @param filename the file
+	 * @return the file info describing the raw data
+	 * @throws IOException if the file is neither an uncompressed NRRD nor a Dennerlein file
+	 */
+	protected FileInfo getHeaderInfo(String filename) throws IOException {
+		RandomAccessFile input = new RandomAccessFile(filename, "r");
+		byte [] magic = new byte[4];
+		int read = input.read(magic);
+		long length = input.length();
+		input.close();
+		if (read == 4 && new String(magic, "US-ASCII").equals("NRRD")) {
+			NRRDProjectionSource nrrd = new NRRDProjectionSource();
+			FileInfo info = nrrd.getHeaderInfo(filename);
+			if (!nrrd.getEncoding().equals("raw")) {
+				throw new IOException("NRRD encoding " + nrrd.getEncoding() + " cannot be mapped.");
+			}
+			info.compression = FileInfo.COMPRESSION_NONE;
+			return info;
+		}
+		FileInfo info = new DennerleinProjectionSource().getHeaderInfo(filename);
+		if (info.getOffset() + ((long) info.width * info.height * info.nImages * info.getBytesPerPixel()) != length) {
+			throw new IOException("Format does not match: width = " + info.width + " height = " + info.height + " frames = " + info.nImages);
+		}
+		return info;
+	}
+
+	/**
+	 * Returns the projection with the given index. Random access does not change the current projection number.
+	 * @param index the index of the projection
+	 * @return the projection or null if the index is out of range
+	 */
+	public Grid2D getProjection(int index) {
+		if (index < 0 || index >= fi.nImages) return null;
+		ByteBuffer frame = chunks[index / framesPerChunk].duplicate();
+		int start = (int) ((index % framesPerChunk) * frameStride);
+		frame.limit(start + frameBytes);
+		frame.position(start);
+		frame = frame.slice().order(chunks[0].order());
+		int n = fi.width * fi.height;
+		if (fi.fileType == FileInfo.GRAY32_FLOAT) {
+			FloatBuffer floats = frame.asFloatBuffer();
+			if (useViews) {
+				return new OffHeapGrid2D(floats, fi.width, fi.height);
+			}
+			float [] pixels = new float[n];
+			floats.get(pixels);
+			return new Grid2D(pixels, fi.width, fi.height);
+		}
+		float [] pixels = new float[n];
+		switch (fi.fileType) {
+		case FileInfo.GRAY8:
+			for (int i = 0; i < n; i++) pixels[i] = frame.get(i) & 0xff;
+			break;
+		case FileInfo.GRAY16_SIGNED:
+			// same convention as ImageJ: signed values are shifted to the unsigned range.
+			for (int i = 0; i < n; i++) pixels[i] = frame.getShort(2*i) + 32768;
+			break;
+		case FileInfo.GRAY16_UNSIGNED:
+			for (int i = 0; i < n; i++) pixels[i] = frame.getShort(2*i) & 0xffff;
+			break;
+		case FileInfo.GRAY32_INT:
+			for (int i = 0; i < n; i++) pixels[i] = frame.getInt(4*i);
+			break;
+		case FileInfo.GRAY32_UNSIGNED:
+			for (int i = 0; i < n; i++) pixels[i] = frame.getInt(4*i) & 0xffffffffL;
+			break;
+		case FileInfo.GRAY64_FLOAT:
+			for (int i = 0; i < n; i++) pixels[i] = (float) frame.getDouble(8*i);
+			break;
+		}
+		return new Grid2D(pixels, fi.width, fi.height);
+	}
+
+	@Override
+	public synchronized Grid2D getNextProjection() {
+		Grid2D grid = getProjection(currentIndex + 1);
+		if (grid != null) {
+			currentIndex++;
+			if (showProgress){
+				IJ.showProgress((0.0 + currentIndex) / fi.nImages);
+			}
+		}
+		return grid;
+	}
+
+	@Override
+	public synchronized void getNextProjection(IndividualImagePipelineFilteringTool tool) {
+		Grid2D grid = getNextProjection();
+		if (grid != null){
+			tool.setImageProcessor(grid);
+			tool.setImageIndex(getCurrentProjectionNumber());
+		} else {
+			tool.setImageProcessor(null);
+			tool.setImageIndex(-1);
+		}
+	}
+
+	@Override
+	public int getCurrentProjectionNumber() {
+		return currentIndex;
+	}
+
+	/**
+	 * @return the file info describing the mapped data
+	 */
+	public FileInfo getFileInfo() {
+		return fi;
+	}
+
+	/**
+	 * Determines whether float data is handed out as read-only view on the mapped file instead of a copy.
+	 * @param useViews the useViews to set
+	 */
+	public void setUseViews(boolean useViews) {
+		this.useViews = useViews;
+	}
+
+	public boolean isUseViews() {
+		return useViews;
+	}
+
+	public void setShowProgress(boolean showProgress) {
+		this.showProgress = showProgress;
+	}
+
+	public boolean isShowProgress() {
+		return showProgress;
+	}
+
+	/**
+	 * Closes the file. The mapping itself is released as soon as all projections handed out as views are garbage collected.
+	 * @throws IOException may happen
+	 */
+	public void close() throws IOException {
+		chunks = null;
+		if (file != null) file.close();
+	}
+
+	@Override
+	public String toString() {
+		return "Memory-mapped Projection Source";
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
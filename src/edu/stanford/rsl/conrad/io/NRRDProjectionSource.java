@@ -22,6 +22,7 @@ public class NRRDProjectionSource extends FileProjectionSource {
 	public final String int32Types="int, signed int, int32, int32_t";
 	public final String uint32Types="uint, unsigned int, uint32, uint32_t";
 	private String notes = "";
+	private String encoding = "raw";
 	
 	private boolean detachedHeader=false;
 	protected String headerPath=null;
@@ -151,7 +152,7 @@ public class NRRDProjectionSource extends FileProjectionSource {
 
 			if (noteType.equals("encoding")) {
 				if(noteValuelc.equals("gz")) noteValuelc="gzip";
-				//fi.encoding=noteValuelc;
+				encoding=noteValuelc;
 			}	
 		}
 
@@ -160,6 +161,14 @@ public class NRRDProjectionSource extends FileProjectionSource {
 		return (fi);
 	}
 	
+	/**
+	 * Returns the encoding of the data as given in the header of the last file read by getHeaderInfo(), e.g. "raw" or "gzip".
+	 * @return the encoding
+	 */
+	public String getEncoding() {
+		return encoding;
+	}
+
 	String getFieldPart(String str, int fieldIndex) {
 		str=str.trim(); // trim the string
 		String[] fieldParts=str.split(":\\s+");
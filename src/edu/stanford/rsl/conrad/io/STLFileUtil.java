@@ -10,10 +10,13 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Arrays;
 
 import edu.stanford.rsl.conrad.geometry.AbstractShape;
+import edu.stanford.rsl.conrad.geometry.General;
 import edu.stanford.rsl.conrad.geometry.shapes.compound.CompoundShape;
 import edu.stanford.rsl.conrad.geometry.shapes.compound.TriangleMesh;
+import edu.stanford.rsl.conrad.geometry.shapes.mesh.PackedTriangleMesh;
 import edu.stanford.rsl.conrad.geometry.shapes.simple.PointND;
 import edu.stanford.rsl.conrad.geometry.shapes.simple.Triangle;
 import edu.stanford.rsl.conrad.numerics.SimpleOperators;
@@ -153,6 +156,65 @@ public class STLFileUtil {
 		return mesh;
 	}
 
+	/**
+	 * Method to read an ascii STL Mesh from a file into packed arrays. Compared to {@link #readSTLMesh(String)}, no {@link Triangle} objects are created.
+	 * The orientation of each triangle is set according to the facet normal.
+	 * @param filename the filename
+	 * @return the mesh
+	 * @throws IOException may occur
+	 */
+	public static PackedTriangleMesh readPackedSTLMesh(String filename) throws IOException{
+		BufferedReader br = new BufferedReader(new FileReader(filename));
+		float [] vertices = new float[9 * 1024];
+		int numTriangles = 0;
+		try {
+			String lineString = br.readLine();
+			if (lineString != null && lineString.startsWith("solid")){
+				SimpleVector normal = null;
+				lineString = br.readLine();
+				while (lineString !=null) {
+					if (lineString.contains("facet normal")){
+						normal = readVector(lineString);
+						lineString = br.readLine();
+					}
+					if (lineString.contains("outer loop")){
+						if (9 * (numTriangles + 1) > vertices.length) vertices = Arrays.copyOf(vertices, 2 * vertices.length);
+						SimpleVector one = readVector(br.readLine());
+						SimpleVector two = readVector(br.readLine());
+						SimpleVector three = readVector(br.readLine());
+						// the facet normal defines the winding order
+						SimpleVector cross = General.crossProduct(SimpleOperators.subtract(two, one), SimpleOperators.subtract(three, one));
+						if (normal != null && SimpleOperators.multiplyInnerProd(normal, cross) < 0){
+							SimpleVector temp = two;
+							two = three;
+							three = temp;
+						}
+						int offset = 9 * numTriangles;
+						for (int j = 0; j < 3; j++){
+							vertices[offset + j] = (float) one.getElement(j);
+							vertices[offset + 3 + j] = (float) two.getElement(j);
+							vertices[offset + 6 + j] = (float) three.getElement(j);
+						}
+						numTriangles++;
+						lineString = br.readLine();
+						if (!lineString.contains("endloop")) throw new RuntimeException("Mesh did not contain triangular data!");
+						lineString = br.readLine();
+					}
+					if (!lineString.contains("endfacet")) throw new RuntimeException("Malformed facet detected!");
+					lineString = br.readLine();
+					if (lineString.contains("endsolid")) break;
+				}
+			}
+		} finally {
+			br.close();
+		}
+		int [] indices = new int[3 * numTriangles];
+		for (int i = 0; i < indices.length; i++){
+			indices[i] = i;
+		}
+		return new PackedTriangleMesh(Arrays.copyOf(vertices, 9 * numTriangles), indices);
+	}
+
 	public static SimpleVector readVector(String lineString){
 		String [] substr = lineString.split("\\s+");
 		double one = Double.parseDouble(substr[substr.length-3]);
@@ -0,0 +1,40 @@
+package edu.stanford.rsl.conrad.metric;
+
+import edu.stanford.rsl.conrad.utils.CONRAD;
+
+/**
+ * Pearson correlation coefficient between test and reference image.
+ * @see ImageQualityMetrics#getCorrelation()
+ */
+public class CorrelationMetric extends ImageMetric {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 3019978035698069426L;
+
+	@Override
+	public double evaluate() {
+		return computeImageQualityMetrics().getCorrelation();
+	}
+
+	@Override
+	public String getBibtexCitation() {
+		return CONRAD.CONRADBibtex;
+	}
+
+	@Override
+	public String getMedlineCitation() {
+		return CONRAD.CONRADMedline;
+	}
+
+	@Override
+	public String toString() {
+		return "Correlation Coefficient";
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
@@ -7,6 +7,7 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 import edu.stanford.rsl.apps.gui.Citeable;
+import edu.stanford.rsl.conrad.utils.ImageUtil;
 
 public abstract class ImageMetric implements Serializable, Citeable {
 	/**
@@ -36,6 +37,16 @@ public abstract class ImageMetric implements Serializable, Citeable {
 
 	public abstract double evaluate();
 	
+	/**
+	 * Evaluates the test image against the reference image on the float buffers of the stacks.
+	 * @return the metrics
+	 * @see ImageQualityMetrics
+	 */
+	protected ImageQualityMetrics computeImageQualityMetrics(){
+		ImageQualityMetrics metrics = new ImageQualityMetrics(ImageUtil.wrapImagePlus(referenceImage));
+		return metrics.evaluate(ImageUtil.wrapImagePlus(testImage));
+	}
+	
 	public void writeObject(ObjectOutputStream ois){
 		
 	}
@@ -47,7 +58,8 @@ public abstract class ImageMetric implements Serializable, Citeable {
 	}
 	
 	public static ImageMetric [] getMetrics(){
-		ImageMetric [] metrics = {new MeanSquareErrorMetric(), new RootMeanSquareErrorMetric(), new NormalizedImprovement()};
+		ImageMetric [] metrics = {new MeanSquareErrorMetric(), new RootMeanSquareErrorMetric(), new NormalizedImprovement(),
+				new PeakSignalToNoiseRatioMetric(), new StructuralSimilarityMetric(), new CorrelationMetric()};
 		return metrics;
 	}
 	
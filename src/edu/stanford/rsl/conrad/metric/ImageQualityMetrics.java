@@ -0,0 +1,489 @@
+package edu.stanford.rsl.conrad.metric;
+
+import edu.stanford.rsl.conrad.data.numeric.Grid2D;
+import edu.stanford.rsl.conrad.data.numeric.Grid3D;
+import edu.stanford.rsl.conrad.parallel.ParallelThreadExecutor;
+import edu.stanford.rsl.conrad.parallel.ParallelizableRunnable;
+import edu.stanford.rsl.conrad.parallel.SimpleParallelThread;
+import edu.stanford.rsl.conrad.pipeline.ProjectionSink;
+import edu.stanford.rsl.conrad.utils.CONRAD;
+
+/**
+ * Computes image quality metrics between a test volume and a reference volume directly on the float buffers of the grids.
+ * The statistics are accumulated per slice. Hence, the test volume can be streamed slice by slice, e.g. as {@link ProjectionSink}
+ * at the end of a reconstruction pipeline, or evaluated at once with {@link #evaluate(Grid3D)}, which processes the slices in parallel.
+ * Slices may arrive in any order and from several threads. The results only depend on the slices, not on their order.<br>
+ * As in {@link MeanSquareErrorMetric}, test values that are NaN or infinite are skipped.<br>
+ * The following metrics are supported:
+ * <ul>
+ * <li>mean square error (MSE) and root mean square error (RMSE)</li>
+ * <li>peak signal to noise ratio PSNR = 10 log<sub>10</sub>(L<sup>2</sup> / MSE) in dB, where L is the dynamic range of the reference</li>
+ * <li>structural similarity (SSIM) as mean over all square windows that lie completely inside a slice and do not contain invalid test values</li>
+ * <li>Pearson correlation coefficient</li>
+ * <li>normalized improvement (RMSE(normalization) - RMSE(test)) / RMSE(normalization), see {@link NormalizedImprovement}</li>
+ * </ul>
+ * The reference and the normalization volume are analyzed once. Hence, one instance can score many test volumes with {@link #reset()} in between.
+ *
+ * @author akmaier
+ *
+ */
+public class ImageQualityMetrics implements ProjectionSink {
+
+	private static final int COUNT = 0;
+	private static final int SQUARED_ERROR = 1;
+	private static final int MEAN_TEST = 2;
+	private static final int MEAN_REFERENCE = 3;
+	private static final int M2_TEST = 4;
+	private static final int M2_REFERENCE = 5;
+	private static final int COMOMENT = 6;
+	private static final int SSIM_SUM = 7;
+	private static final int SSIM_COUNT = 8;
+	private static final int NUMBER_OF_STATISTICS = 9;
+
+	/** Default width of the square SSIM window. */
+	public static final int DEFAULT_WINDOW_SIZE = 7;
+
+	private final Grid3D reference;
+	private final int width, height, depth;
+	private double dynamicRange;
+	private int windowSize = DEFAULT_WINDOW_SIZE;
+	private double normalizationError = Double.NaN;
+	private final double [][] sliceStatistics;
+	private boolean showStatus = false;
+
+	/**
+	 * Creates the metrics for the given reference volume. The dynamic range is set to the range of the finite reference values.
+	 * @param reference the reference volume
+	 */
+	public ImageQualityMetrics(Grid3D reference) {
+		this.reference = reference;
+		width = reference.getSize()[0];
+		height = reference.getSize()[1];
+		depth = reference.getSize()[2];
+		sliceStatistics = new double[depth][];
+		final double [][] range = new double[depth][];
+		runSliceParallel(new SliceOperation() {
+			@Override
+			public void process(int k) {
+				range[k] = computeRange(ImageQualityMetrics.this.reference.getSubGrid(k).getBuffer());
+			}
+		});
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int k = 0; k < depth; k++) {
+			min = Math.min(min, range[k][0]);
+			max = Math.max(max, range[k][1]);
+		}
+		dynamicRange = (max >= min) ? max - min : 0;
+	}
+
+	/**
+	 * Creates the metrics for a single reference image.
+	 * @param reference the reference image
+	 */
+	public ImageQualityMetrics(Grid2D reference) {
+		this(asVolume(reference));
+	}
+
+	private static Grid3D asVolume(Grid2D slice) {
+		Grid3D volume = new Grid3D(slice.getWidth(), slice.getHeight(), 1, false);
+		volume.setSubGrid(0, slice);
+		return volume;
+	}
+
+	/**
+	 * Sets the volume that is used to normalize the improvement, e.g. the reconstruction without correction.
+	 * @param normalization the normalization volume
+	 */
+	public void setNormalizationImage(Grid3D normalization) {
+		checkSize(normalization);
+		final Grid3D volume = normalization;
+		final double [][] statistics = new double[depth][];
+		runSliceParallel(new SliceOperation() {
+			@Override
+			public void process(int k) {
+				statistics[k] = computeStatistics(volume.getSubGrid(k).getBuffer(), reference.getSubGrid(k).getBuffer(), false);
+			}
+		});
+		double count = 0, error = 0;
+		for (int k = 0; k < depth; k++) {
+			count += statistics[k][COUNT];
+			error += statistics[k][SQUARED_ERROR];
+		}
+		normalizationError = Math.sqrt(error / count);
+	}
+
+	/**
+	 * Evaluates the test volume. The slices are processed in parallel. Previous results are discarded.
+	 * @param test the test volume
+	 * @return this object to query the metrics
+	 */
+	public ImageQualityMetrics evaluate(Grid3D test) {
+		checkSize(test);
+		reset();
+		final Grid3D volume = test;
+		runSliceParallel(new SliceOperation() {
+			@Override
+			public void process(int k) {
+				addSlice(volume.getSubGrid(k), k);
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Evaluates a test image for a reference image.
+	 * @param test the test image
+	 * @return this object to query the metrics
+	 */
+	public ImageQualityMetrics evaluate(Grid2D test) {
+		return evaluate(asVolume(test));
+	}
+
+	/**
+	 * Adds the statistics of one test slice. If the slice was added before, its statistics are replaced.
+	 * This method may be called concurrently for different slices.
+	 * @param slice the test slice
+	 * @param sliceNumber the number of the slice in the reference volume
+	 */
+	public void addSlice(Grid2D slice, int sliceNumber) {
+		if (sliceNumber < 0 || sliceNumber >= depth) {
+			throw new IllegalArgumentException("Slice " + sliceNumber + " is not in the reference volume.");
+		}
+		if (slice.getWidth() != width || slice.getHeight() != height) {
+			throw new IllegalArgumentException("Slice size " + slice.getWidth() + "x" + slice.getHeight() + " does not match reference size " + width + "x" + height + ".");
+		}
+		double [] statistics = computeStatistics(slice.getBuffer(), reference.getSubGrid(sliceNumber).getBuffer(), true);
+		synchronized (sliceStatistics) {
+			sliceStatistics[sliceNumber] = statistics;
+		}
+	}
+
+	@Override
+	public void process(Grid2D projection, int projectionNumber) throws Exception {
+		addSlice(projection, projectionNumber);
+		if (showStatus) {
+			CONRAD.log(getName() + ": slice " + projectionNumber + " (" + getNumberOfProcessedSlices() + "/" + depth + ")");
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "Image Quality Metrics";
+	}
+
+	@Override
+	public void setShowStatus(boolean showStatus) {
+		this.showStatus = showStatus;
+	}
+
+	@Override
+	public void close() throws Exception {
+		if (showStatus) {
+			CONRAD.log(toString());
+		}
+	}
+
+	/**
+	 * Discards all test slices.
+	 */
+	public void reset() {
+		synchronized (sliceStatistics) {
+			for (int k = 0; k < depth; k++) {
+				sliceStatistics[k] = null;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of slices that were added
+	 */
+	public int getNumberOfProcessedSlices() {
+		int count = 0;
+		synchronized (sliceStatistics) {
+			for (int k = 0; k < depth; k++) {
+				if (sliceStatistics[k] != null) count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return true if all slices of the reference volume were added
+	 */
+	public boolean isComplete() {
+		return getNumberOfProcessedSlices() == depth;
+	}
+
+	/**
+	 * @return the mean square error of all added slices
+	 */
+	public double getMeanSquareError() {
+		double [] total = combine();
+		return total[SQUARED_ERROR] / total[COUNT];
+	}
+
+	/**
+	 * @return the root mean square error of all added slices
+	 */
+	public double getRootMeanSquareError() {
+		return Math.sqrt(getMeanSquareError());
+	}
+
+	/**
+	 * @return the peak signal to noise ratio in dB
+	 */
+	public double getPeakSignalToNoiseRatio() {
+		return 10 * Math.log10(dynamicRange * dynamicRange / getMeanSquareError());
+	}
+
+	/**
+	 * @return the mean structural similarity index or NaN if no window was evaluated
+	 */
+	public double getStructuralSimilarity() {
+		double [] total = combine();
+		return (total[SSIM_COUNT] > 0) ? total[SSIM_SUM] / total[SSIM_COUNT] : Double.NaN;
+	}
+
+	/**
+	 * @return the Pearson correlation coefficient between test and reference
+	 */
+	public double getCorrelation() {
+		double [] total = combine();
+		return total[COMOMENT] / Math.sqrt(total[M2_TEST] * total[M2_REFERENCE]);
+	}
+
+	/**
+	 * @return the normalized improvement with respect to the normalization volume
+	 * @see #setNormalizationImage(Grid3D)
+	 */
+	public double getNormalizedImprovement() {
+		if (Double.isNaN(normalizationError)) {
+			throw new IllegalStateException("No normalization image was set.");
+		}
+		return (normalizationError - getRootMeanSquareError()) / normalizationError;
+	}
+
+	/**
+	 * @return the dynamic range L used for PSNR and SSIM
+	 */
+	public double getDynamicRange() {
+		return dynamicRange;
+	}
+
+	/**
+	 * Sets the dynamic range L used for PSNR and SSIM. Added slices are discarded as their SSIM depends on L.
+	 * @param dynamicRange the dynamic range
+	 */
+	public void setDynamicRange(double dynamicRange) {
+		this.dynamicRange = dynamicRange;
+		reset();
+	}
+
+	/**
+	 * @return the width of the square SSIM window
+	 */
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	/**
+	 * Sets the width of the square SSIM window. Added slices are discarded.
+	 * @param windowSize the window width in pixels
+	 */
+	public void setWindowSize(int windowSize) {
+		if (windowSize < 1) throw new IllegalArgumentException("Window size must be positive.");
+		this.windowSize = windowSize;
+		reset();
+	}
+
+	@Override
+	public String toString() {
+		return "MSE: " + getMeanSquareError() + " RMSE: " + getRootMeanSquareError() + " PSNR: " + getPeakSignalToNoiseRatio() + " dB SSIM: "
+				+ getStructuralSimilarity() + " Correlation: " + getCorrelation();
+	}
+
+	/**
+	 * Combines the slice statistics in slice order with the pairwise update of the moments.
+	 */
+	private double [] combine() {
+		double [] total = new double[NUMBER_OF_STATISTICS];
+		synchronized (sliceStatistics) {
+			for (int k = 0; k < depth; k++) {
+				double [] s = sliceStatistics[k];
+				if (s == null || s[COUNT] == 0) continue;
+				double n = total[COUNT] + s[COUNT];
+				double deltaTest = s[MEAN_TEST] - total[MEAN_TEST];
+				double deltaReference = s[MEAN_REFERENCE] - total[MEAN_REFERENCE];
+				double factor = total[COUNT] * s[COUNT] / n;
+				total[M2_TEST] += s[M2_TEST] + deltaTest * deltaTest * factor;
+				total[M2_REFERENCE] += s[M2_REFERENCE] + deltaReference * deltaReference * factor;
+				total[COMOMENT] += s[COMOMENT] + deltaTest * deltaReference * factor;
+				total[MEAN_TEST] += deltaTest * s[COUNT] / n;
+				total[MEAN_REFERENCE] += deltaReference * s[COUNT] / n;
+				total[COUNT] = n;
+				total[SQUARED_ERROR] += s[SQUARED_ERROR];
+				total[SSIM_SUM] += s[SSIM_SUM];
+				total[SSIM_COUNT] += s[SSIM_COUNT];
+			}
+		}
+		return total;
+	}
+
+	private static boolean isValid(float value) {
+		return !Float.isInfinite(value) && !Float.isNaN(value);
+	}
+
+	private static double [] computeRange(float [] buffer) {
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < buffer.length; i++) {
+			if (!isValid(buffer[i])) continue;
+			if (buffer[i] < min) min = buffer[i];
+			if (buffer[i] > max) max = buffer[i];
+		}
+		return new double[] {min, max};
+	}
+
+	/**
+	 * Computes the statistics of one slice. The moments are computed in two passes to avoid cancellation.
+	 */
+	private double [] computeStatistics(float [] test, float [] ref, boolean withSSIM) {
+		double [] s = new double[NUMBER_OF_STATISTICS];
+		double sumTest = 0, sumReference = 0, error = 0;
+		int count = 0;
+		for (int i = 0; i < width * height; i++) {
+			if (!isValid(test[i])) continue;
+			double difference = test[i] - ref[i];
+			error += difference * difference;
+			sumTest += test[i];
+			sumReference += ref[i];
+			count++;
+		}
+		s[COUNT] = count;
+		s[SQUARED_ERROR] = error;
+		if (count > 0) {
+			double meanTest = sumTest / count;
+			double meanReference = sumReference / count;
+			double m2Test = 0, m2Reference = 0, comoment = 0;
+			for (int i = 0; i < width * height; i++) {
+				if (!isValid(test[i])) continue;
+				double deltaTest = test[i] - meanTest;
+				double deltaReference = ref[i] - meanReference;
+				m2Test += deltaTest * deltaTest;
+				m2Reference += deltaReference * deltaReference;
+				comoment += deltaTest * deltaReference;
+			}
+			s[MEAN_TEST] = meanTest;
+			s[MEAN_REFERENCE] = meanReference;
+			s[M2_TEST] = m2Test;
+			s[M2_REFERENCE] = m2Reference;
+			s[COMOMENT] = comoment;
+		}
+		if (withSSIM) {
+			computeStructuralSimilarity(test, ref, s);
+		}
+		return s;
+	}
+
+	/**
+	 * Computes the SSIM of all windows of a slice. The window sums are updated incrementally from column sums.
+	 */
+	private void computeStructuralSimilarity(float [] test, float [] ref, double [] s) {
+		int w = windowSize;
+		if (w > width || w > height) return;
+		double c1 = (0.01 * dynamicRange) * (0.01 * dynamicRange);
+		double c2 = (0.03 * dynamicRange) * (0.03 * dynamicRange);
+		double n = w * w;
+		// column sums over w rows of t, r, t^2, r^2, t*r, and the number of invalid values
+		double [][] columns = new double[6][width];
+		for (int j = 0; j < w; j++) {
+			addRow(test, ref, j, columns, 1);
+		}
+		double ssimSum = 0;
+		int ssimCount = 0;
+		for (int j = 0; ; j++) {
+			double [] window = new double[6];
+			for (int i = 0; i < w; i++) {
+				for (int c = 0; c < 6; c++) window[c] += columns[c][i];
+			}
+			for (int i = 0; ; i++) {
+				if (window[5] == 0) {
+					double meanTest = window[0] / n;
+					double meanReference = window[1] / n;
+					double varianceTest = window[2] / n - meanTest * meanTest;
+					double varianceReference = window[3] / n - meanReference * meanReference;
+					double covariance = window[4] / n - meanTest * meanReference;
+					ssimSum += ((2 * meanTest * meanReference + c1) * (2 * covariance + c2))
+							/ ((meanTest * meanTest + meanReference * meanReference + c1) * (varianceTest + varianceReference + c2));
+					ssimCount++;
+				}
+				if (i + w >= width) break;
+				for (int c = 0; c < 6; c++) window[c] += columns[c][i + w] - columns[c][i];
+			}
+			if (j + w >= height) break;
+			addRow(test, ref, j, columns, -1);
+			addRow(test, ref, j + w, columns, 1);
+		}
+		s[SSIM_SUM] = ssimSum;
+		s[SSIM_COUNT] = ssimCount;
+	}
+
+	private void addRow(float [] test, float [] ref, int j, double [][] columns, int sign) {
+		int offset = j * width;
+		for (int i = 0; i < width; i++) {
+			if (isValid(test[offset + i])) {
+				double t = test[offset + i];
+				double r = ref[offset + i];
+				columns[0][i] += sign * t;
+				columns[1][i] += sign * r;
+				columns[2][i] += sign * t * t;
+				columns[3][i] += sign * r * r;
+				columns[4][i] += sign * t * r;
+			} else {
+				columns[5][i] += sign;
+			}
+		}
+	}
+
+	private void checkSize(Grid3D volume) {
+		int [] size = volume.getSize();
+		if (size[0] != width || size[1] != height || size[2] != depth) {
+			throw new IllegalArgumentException("Volume size " + size[0] + "x" + size[1] + "x" + size[2] + " does not match reference size " + width + "x" + height + "x" + depth + ".");
+		}
+	}
+
+	private interface SliceOperation {
+		void process(int k);
+	}
+
+	private void runSliceParallel(final SliceOperation operation) {
+		int numThreads = Math.max(1, Math.min(CONRAD.getNumberOfThreads(), depth));
+		ParallelizableRunnable [] runnables = new ParallelizableRunnable[numThreads];
+		final int stride = numThreads;
+		for (int t = 0; t < numThreads; t++) {
+			runnables[t] = new SimpleParallelThread(t) {
+				@Override
+				public void execute() {
+					for (int k = threadNum; k < depth; k += stride) {
+						operation.process(k);
+					}
+				}
+			};
+		}
+		ParallelThreadExecutor exec = new ParallelThreadExecutor(runnables);
+		exec.setShowStatus(false);
+		try {
+			exec.execute();
+		} catch (InterruptedException e) {
+			// the metric would be computed on a part of the slices only.
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Computation of the image quality metric was interrupted.", e);
+		}
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
@@ -1,6 +1,5 @@
 package edu.stanford.rsl.conrad.metric;
 
-import ij.process.ImageProcessor;
 import edu.stanford.rsl.conrad.utils.CONRAD;
 
 public class MeanSquareErrorMetric extends ImageMetric {
@@ -26,22 +25,7 @@ public class MeanSquareErrorMetric extends ImageMetric {
 	}
 
 	protected double computeMeanSquareError(){
-		double revan = 0;
-		double sum = 0;
-		for (int k=0;k<testImage.getStackSize(); k++){
-			ImageProcessor rec = testImage.getStack().getProcessor(k+1);
-			ImageProcessor ideal = referenceImage.getStack().getProcessor(k+1);
-			for (int i=0;i<rec.getWidth();i++){
-				for (int j=0;j<rec.getHeight();j++){
-					float value = rec.getPixelValue(i, j);
-					if (!Float.isInfinite(value) && !Float.isNaN(value)){
-						sum++;
-						revan += Math.pow(rec.getPixelValue(i, j) - ideal.getPixelValue(i, j),2);
-					}
-				}
-			}
-		}
-		return revan/sum;
+		return computeImageQualityMetrics().getMeanSquareError();
 	}
 
 	@Override
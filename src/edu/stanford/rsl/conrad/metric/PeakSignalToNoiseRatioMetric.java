@@ -0,0 +1,40 @@
+package edu.stanford.rsl.conrad.metric;
+
+import edu.stanford.rsl.conrad.utils.CONRAD;
+
+/**
+ * Peak signal to noise ratio with respect to the dynamic range of the reference image.
+ * @see ImageQualityMetrics#getPeakSignalToNoiseRatio()
+ */
+public class PeakSignalToNoiseRatioMetric extends ImageMetric {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 6666652372499431528L;
+
+	@Override
+	public double evaluate() {
+		return computeImageQualityMetrics().getPeakSignalToNoiseRatio();
+	}
+
+	@Override
+	public String getBibtexCitation() {
+		return CONRAD.CONRADBibtex;
+	}
+
+	@Override
+	public String getMedlineCitation() {
+		return CONRAD.CONRADMedline;
+	}
+
+	@Override
+	public String toString() {
+		return "Peak Signal to Noise Ratio [dB]";
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
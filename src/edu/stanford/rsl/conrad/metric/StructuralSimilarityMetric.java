@@ -0,0 +1,46 @@
+package edu.stanford.rsl.conrad.metric;
+
+/**
+ * Mean structural similarity index over 7x7 windows.
+ * @see ImageQualityMetrics#getStructuralSimilarity()
+ */
+public class StructuralSimilarityMetric extends ImageMetric {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 6216643052413652267L;
+
+	@Override
+	public double evaluate() {
+		return computeImageQualityMetrics().getStructuralSimilarity();
+	}
+
+	@Override
+	public String getBibtexCitation() {
+		return "@ARTICLE{Wang04-IQA,\n" +
+		"  author = {{Wang}, Z. and {Bovik}, A. C. and {Sheikh}, H. R. and {Simoncelli}, E. P.},\n" +
+		"  title = \"{{Image quality assessment: from error visibility to structural similarity}}\",\n" +
+		"  journal = {IEEE Transactions on Image Processing},\n" +
+		"  year = 2004,\n" +
+		"  volume = 13,\n"+
+		"  number = 4,\n" +
+		"  pages = {600-612}\n" +
+		"}";
+	}
+
+	@Override
+	public String getMedlineCitation() {
+		return "Wang Z, Bovik AC, Sheikh HR, Simoncelli EP. Image quality assessment: from error visibility to structural similarity. IEEE Trans Image Process 13(4):600-612. 2004.";
+	}
+
+	@Override
+	public String toString() {
+		return "Structural Similarity (SSIM)";
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
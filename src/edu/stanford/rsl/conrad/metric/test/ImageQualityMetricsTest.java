@@ -0,0 +1,117 @@
+package edu.stanford.rsl.conrad.metric.test;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.stanford.rsl.conrad.data.numeric.Grid3D;
+import edu.stanford.rsl.conrad.metric.ImageQualityMetrics;
+
+public class ImageQualityMetricsTest {
+
+	private static Grid3D createVolume(long seed, double noise){
+		Random random = new Random(seed);
+		Grid3D volume = new Grid3D(40, 30, 6);
+		for (int k = 0; k < 6; k++)
+			for (int j = 0; j < 30; j++)
+				for (int i = 0; i < 40; i++)
+					volume.setAtIndex(i, j, k, (float) (1000 + 100 * Math.sin(i * 0.2) * Math.cos(j * 0.3 + k) + noise * random.nextGaussian()));
+		return volume;
+	}
+
+	@Test
+	public void testMeanSquareErrorSkipsInvalidValues(){
+		Grid3D reference = createVolume(1, 0);
+		Grid3D test = createVolume(2, 10);
+		test.setAtIndex(3, 4, 5, Float.NaN);
+		test.setAtIndex(7, 8, 1, Float.POSITIVE_INFINITY);
+		double error = 0;
+		int count = 0;
+		double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+		for (int k = 0; k < 6; k++)
+			for (int j = 0; j < 30; j++)
+				for (int i = 0; i < 40; i++){
+					double r = reference.getAtIndex(i, j, k);
+					min = Math.min(min, r);
+					max = Math.max(max, r);
+					float t = test.getAtIndex(i, j, k);
+					if (Float.isNaN(t) || Float.isInfinite(t)) continue;
+					double difference = t - r;
+					error += difference * difference;
+					count++;
+				}
+		ImageQualityMetrics metrics = new ImageQualityMetrics(reference).evaluate(test);
+		Assert.assertEquals(error / count, metrics.getMeanSquareError(), 1e-9 * error / count);
+		Assert.assertEquals(Math.sqrt(error / count), metrics.getRootMeanSquareError(), 1e-9);
+		Assert.assertEquals(max - min, metrics.getDynamicRange(), 1e-9);
+		Assert.assertEquals(10 * Math.log10((max - min) * (max - min) * count / error), metrics.getPeakSignalToNoiseRatio(), 1e-9);
+	}
+
+	@Test
+	public void testStreamingMatchesParallelEvaluation() throws Exception{
+		Grid3D reference = createVolume(1, 0);
+		Grid3D test = createVolume(3, 20);
+		ImageQualityMetrics parallel = new ImageQualityMetrics(reference).evaluate(test);
+		ImageQualityMetrics streaming = new ImageQualityMetrics(reference);
+		for (int k = 5; k >= 0; k--){
+			Assert.assertFalse(streaming.isComplete());
+			streaming.process(test.getSubGrid(k), k);
+		}
+		streaming.close();
+		Assert.assertTrue(streaming.isComplete());
+		Assert.assertEquals(parallel.getMeanSquareError(), streaming.getMeanSquareError(), 0);
+		Assert.assertEquals(parallel.getStructuralSimilarity(), streaming.getStructuralSimilarity(), 0);
+		Assert.assertEquals(parallel.getCorrelation(), streaming.getCorrelation(), 0);
+	}
+
+	@Test
+	public void testIdenticalVolumes(){
+		Grid3D reference = createVolume(1, 5);
+		ImageQualityMetrics metrics = new ImageQualityMetrics(reference);
+		metrics.setNormalizationImage(createVolume(4, 50));
+		metrics.evaluate(reference);
+		Assert.assertEquals(0, metrics.getMeanSquareError(), 0);
+		Assert.assertEquals(1, metrics.getStructuralSimilarity(), 1e-9);
+		Assert.assertEquals(1, metrics.getCorrelation(), 1e-9);
+		Assert.assertEquals(1, metrics.getNormalizedImprovement(), 0);
+	}
+
+	@Test
+	public void testStructuralSimilarityOfWindows(){
+		Grid3D reference = createVolume(1, 0);
+		Grid3D test = createVolume(5, 30);
+		ImageQualityMetrics metrics = new ImageQualityMetrics(reference);
+		metrics.setWindowSize(5);
+		metrics.evaluate(test);
+		double c1 = Math.pow(0.01 * metrics.getDynamicRange(), 2);
+		double c2 = Math.pow(0.03 * metrics.getDynamicRange(), 2);
+		double sum = 0;
+		int windows = 0;
+		for (int k = 0; k < 6; k++)
+			for (int y = 0; y + 5 <= 30; y++)
+				for (int x = 0; x + 5 <= 40; x++){
+					double mt = 0, mr = 0;
+					for (int j = y; j < y + 5; j++)
+						for (int i = x; i < x + 5; i++){
+							mt += test.getAtIndex(i, j, k) / 25.0;
+							mr += reference.getAtIndex(i, j, k) / 25.0;
+						}
+					double vt = 0, vr = 0, cov = 0;
+					for (int j = y; j < y + 5; j++)
+						for (int i = x; i < x + 5; i++){
+							vt += Math.pow(test.getAtIndex(i, j, k) - mt, 2) / 25.0;
+							vr += Math.pow(reference.getAtIndex(i, j, k) - mr, 2) / 25.0;
+							cov += (test.getAtIndex(i, j, k) - mt) * (reference.getAtIndex(i, j, k) - mr) / 25.0;
+						}
+					sum += ((2 * mt * mr + c1) * (2 * cov + c2)) / ((mt * mt + mr * mr + c1) * (vt + vr + c2));
+					windows++;
+				}
+		Assert.assertEquals(sum / windows, metrics.getStructuralSimilarity(), 1e-6);
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
@@ -0,0 +1,10 @@
+/**
+ * Contains tests for the image quality metrics.
+ *
+ * @author Andreas Maier
+ */
+package edu.stanford.rsl.conrad.metric.test;
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
@@ -0,0 +1,355 @@
+package edu.stanford.rsl.conrad.numerics.mathexpressions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+import edu.stanford.rsl.conrad.geometry.General;
+
+/**
+ * A parsed mathematical expression whose variables are bound to the slots of a double array. The expression is parsed once.
+ * Evaluation needs neither a map lookup nor boxing of the variables. Sub-expressions without variables are evaluated at
+ * compile time. Instances are immutable and can be shared between threads.<br>
+ * Expressions with at most one variable can be used as {@link DoubleUnaryOperator}.
+ * @see Evaluator#compile(String)
+ * @author akmaier
+ */
+public class CompiledExpression implements DoubleUnaryOperator {
+
+	private static final int SIN = 0;
+	private static final int COS = 1;
+	private static final int TAN = 2;
+	private static final int SIND = 3;
+	private static final int COSD = 4;
+	private static final int TAND = 5;
+	private static final int SQRT = 6;
+
+	private final String source;
+	private final String [] variables;
+	private final Node root;
+
+	/**
+	 * Parses the expression. Variables are bound to slots in the order of their first occurrence.
+	 * @param expression the expression
+	 */
+	public CompiledExpression(String expression) {
+		this(expression, new String[0]);
+	}
+
+	/**
+	 * Parses the expression. The given variables are bound to the slots 0 ... variables.length - 1. Further variables of the
+	 * expression are bound to the following slots in the order of their first occurrence.
+	 * @param expression the expression
+	 * @param variables the names of the first variables
+	 */
+	public CompiledExpression(String expression, String ... variables) {
+		source = expression;
+		ArrayList<String> names = new ArrayList<String>(Arrays.asList(variables));
+		root = compile(new MathExpression(expression), names);
+		this.variables = names.toArray(new String[names.size()]);
+	}
+
+	/**
+	 * @return the expression as it was passed to the constructor
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * @return the names of the variables in the order of their slots
+	 */
+	public String [] getVariableNames() {
+		return variables.clone();
+	}
+
+	/**
+	 * @return the number of slots
+	 */
+	public int getNumberOfVariables() {
+		return variables.length;
+	}
+
+	/**
+	 * @param name the name of the variable
+	 * @return the slot of the variable or -1 if the expression does not have this variable
+	 */
+	public int getVariableIndex(String name) {
+		for (int i = 0; i < variables.length; i++) {
+			if (variables[i].equals(name)) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return true if the expression has no variables
+	 */
+	public boolean isConstant() {
+		return variables.length == 0;
+	}
+
+	/**
+	 * Evaluates the expression.
+	 * @param values the values of the variables in the order of {@link #getVariableNames()}
+	 * @return the value of the expression
+	 */
+	public double evaluate(double ... values) {
+		if (values.length < variables.length) {
+			throw new IllegalArgumentException("Expression " + source + " has " + variables.length + " variables, but " + values.length + " values were given.");
+		}
+		return root.evaluate(values);
+	}
+
+	/**
+	 * Evaluates the expression with the variables of the map.
+	 * @param variablesMap the values of the variables
+	 * @return the value of the expression
+	 */
+	public double evaluate(Map<String, Double> variablesMap) {
+		double [] values = new double[variables.length];
+		for (int i = 0; i < variables.length; i++) {
+			Double value = variablesMap.get(variables[i]);
+			if (value == null) {
+				throw new RuntimeException("Identifier is undefined");
+			}
+			values[i] = value;
+		}
+		return root.evaluate(values);
+	}
+
+	/**
+	 * Evaluates an expression with at most one variable.
+	 * @param value the value of the variable
+	 * @return the value of the expression
+	 */
+	@Override
+	public double applyAsDouble(double value) {
+		if (variables.length > 1) {
+			throw new IllegalStateException("Expression " + source + " has " + variables.length + " variables.");
+		}
+		return root.evaluate(new double[] {value});
+	}
+
+	@Override
+	public String toString() {
+		return source;
+	}
+
+	private static Node compile(AbstractMathExpression expression, List<String> variables) {
+		if (expression instanceof MathExpression) {
+			return compile(((MathExpression) expression).exp, variables);
+		}
+		if (expression instanceof RealExpression || expression instanceof FloatExpression) {
+			return new Constant(expression.evaluate(new HashMap<String, Double>()));
+		}
+		if (expression instanceof IdentifierExpression) {
+			return new Variable(getSlot(expression.toString(), variables));
+		}
+		if (expression instanceof CompoundExpression) {
+			CompoundExpression compound = (CompoundExpression) expression;
+			if (compound.getOperator() == '=') {
+				int slot = getSlot(compound.getLeftExpression().toString(), variables);
+				return new Assignment(slot, compile(compound.getRightExpression(), variables));
+			}
+			Node left = compile(compound.getLeftExpression(), variables);
+			Node right = compile(compound.getRightExpression(), variables);
+			Node node;
+			switch (compound.getOperator()) {
+			case '+': node = new Sum(left, right); break;
+			case '-': node = new Difference(left, right); break;
+			case '*': node = new Product(left, right); break;
+			case '/': node = new Quotient(left, right); break;
+			default: throw new UnsupportedOperationException("Invalid Operator");
+			}
+			return fold(node, left, right);
+		}
+		if (expression instanceof FunctionExpression) {
+			FunctionExpression function = (FunctionExpression) expression;
+			Node argument = compile(function.getArgument(), variables);
+			return fold(new Function(getFunction(function.getFunctionName()), argument), argument, argument);
+		}
+		// unknown subclass: evaluate with a map
+		return new Interpreted(expression, new ArrayList<String>(variables));
+	}
+
+	private static Node fold(Node node, Node left, Node right) {
+		if (left instanceof Constant && right instanceof Constant) {
+			return new Constant(node.evaluate(null));
+		}
+		return node;
+	}
+
+	private static int getSlot(String name, List<String> variables) {
+		int slot = variables.indexOf(name);
+		if (slot < 0) {
+			variables.add(name);
+			slot = variables.size() - 1;
+		}
+		return slot;
+	}
+
+	private static int getFunction(String name) {
+		if (name.equals("sin")) return SIN;
+		if (name.equals("cos")) return COS;
+		if (name.equals("tan")) return TAN;
+		if (name.equals("sind")) return SIND;
+		if (name.equals("cosd")) return COSD;
+		if (name.equals("tand")) return TAND;
+		if (name.equals("sqrt")) return SQRT;
+		throw new UnsupportedOperationException("Function is not currently supported");
+	}
+
+	private static abstract class Node {
+		abstract double evaluate(double [] values);
+	}
+
+	private static class Constant extends Node {
+		private final double value;
+
+		Constant(double value) {
+			this.value = value;
+		}
+
+		@Override
+		double evaluate(double [] values) {
+			return value;
+		}
+	}
+
+	private static class Variable extends Node {
+		private final int slot;
+
+		Variable(int slot) {
+			this.slot = slot;
+		}
+
+		@Override
+		double evaluate(double [] values) {
+			return values[slot];
+		}
+	}
+
+	private static class Assignment extends Node {
+		private final int slot;
+		private final Node value;
+
+		Assignment(int slot, Node value) {
+			this.slot = slot;
+			this.value = value;
+		}
+
+		@Override
+		double evaluate(double [] values) {
+			double result = value.evaluate(values);
+			values[slot] = result;
+			return result;
+		}
+	}
+
+	private static class Sum extends Node {
+		private final Node left, right;
+
+		Sum(Node left, Node right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		double evaluate(double [] values) {
+			return left.evaluate(values) + right.evaluate(values);
+		}
+	}
+
+	private static class Difference extends Node {
+		private final Node left, right;
+
+		Difference(Node left, Node right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		double evaluate(double [] values) {
+			return left.evaluate(values) - right.evaluate(values);
+		}
+	}
+
+	private static class Product extends Node {
+		private final Node left, right;
+
+		Product(Node left, Node right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		double evaluate(double [] values) {
+			return left.evaluate(values) * right.evaluate(values);
+		}
+	}
+
+	private static class Quotient extends Node {
+		private final Node left, right;
+
+		Quotient(Node left, Node right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		double evaluate(double [] values) {
+			return left.evaluate(values) / right.evaluate(values);
+		}
+	}
+
+	private static class Function extends Node {
+		private final int function;
+		private final Node argument;
+
+		Function(int function, Node argument) {
+			this.function = function;
+			this.argument = argument;
+		}
+
+		@Override
+		double evaluate(double [] values) {
+			double input = argument.evaluate(values);
+			switch (function) {
+			case SIN: return Math.sin(input);
+			case COS: return Math.cos(input);
+			case TAN: return Math.tan(input);
+			case SIND: return Math.sin(General.toRadians(input));
+			case COSD: return Math.cos(General.toRadians(input));
+			case TAND: return Math.tan(General.toRadians(input));
+			default: return Math.sqrt(input);
+			}
+		}
+	}
+
+	private static class Interpreted extends Node {
+		private final AbstractMathExpression expression;
+		private final List<String> variables;
+
+		Interpreted(AbstractMathExpression expression, List<String> variables) {
+			this.expression = expression;
+			this.variables = variables;
+		}
+
+		@Override
+		double evaluate(double [] values) {
+			HashMap<String, Double> map = new HashMap<String, Double>();
+			for (int i = 0; values != null && i < Math.min(values.length, variables.size()); i++) {
+				map.put(variables.get(i), values[i]);
+			}
+			return expression.evaluate(map);
+		}
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
@@ -17,6 +17,18 @@ public class CompoundExpression extends AbstractMathExpression{
 		this.operator = operator;
 	}
 
+	char getOperator(){
+		return operator;
+	}
+
+	AbstractMathExpression getLeftExpression(){
+		return leftExp;
+	}
+
+	AbstractMathExpression getRightExpression(){
+		return rightExp;
+	}
+
 	@Override
 	public String toString(){
 		return leftExp.toString() + " " + operator + " "+ rightExp.toString();
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
 
 import edu.stanford.rsl.conrad.geometry.shapes.simple.Plane3D;
 import edu.stanford.rsl.conrad.geometry.shapes.simple.PointND;
@@ -18,14 +19,57 @@ import edu.stanford.rsl.conrad.numerics.SimpleVector;
 
 public class Evaluator {
 	
+	/** The cache is cleared if it holds more expressions. */
+	private static final int MAX_CACHED_EXPRESSIONS = 4096;
+	private static final ConcurrentHashMap<String, CompiledExpression> cache = new ConcurrentHashMap<String, CompiledExpression>();
+	
+	/**
+	 * Returns the compiled expression. Expressions are parsed once and cached by their string.
+	 * The variables are bound to slots in the order of their first occurrence.
+	 * @param expression string to be compiled
+	 * @return the compiled expression
+	 */
+	public static CompiledExpression compile(String expression) {
+		CompiledExpression compiled = cache.get(expression);
+		if (compiled == null) {
+			compiled = new CompiledExpression(expression);
+			if (cache.size() >= MAX_CACHED_EXPRESSIONS) {
+				cache.clear();
+			}
+			cache.put(expression, compiled);
+		}
+		return compiled;
+	}
+	
+	/**
+	 * Compiles the expression with the given variables bound to the slots 0 ... variables.length - 1.
+	 * The result is not cached. Keep it as long as the expression is needed.
+	 * @param expression string to be compiled
+	 * @param variables the names of the variables
+	 * @return the compiled expression
+	 */
+	public static CompiledExpression compile(String expression, String ... variables) {
+		return new CompiledExpression(expression, variables);
+	}
+	
+	/**
+	 * Removes all cached expressions.
+	 */
+	public static void clearCache() {
+		cache.clear();
+	}
+	
 	/**
 	 * Evaluates the string literal
 	 * @param expression string to be evaluated
 	 * @return value of string;
 	 */
 	public static double getValue(String expression) {
-		AbstractMathExpression exp = new MathExpression(expression);
-		return exp.evaluate(new HashMap<String, Double>());
+		double number = parseNumber(expression);
+		if (!Double.isNaN(number)) {
+			return number;
+		}
+		return compile(expression).evaluate(new double[0]);
 	}
 	
 	/**
@@ -34,8 +78,36 @@ public class Evaluator {
 	 * @return value of string;
 	 */
 	public static double getValue(String expression, Map<String, Double> variablesMap) {
-		AbstractMathExpression exp = new MathExpression(expression);
-		return exp.evaluate(variablesMap);
+		double number = parseNumber(expression);
+		if (!Double.isNaN(number)) {
+			return number;
+		}
+		return compile(expression).evaluate(variablesMap);
+	}
+	
+	/**
+	 * Parses plain numbers such as -1.5E-3 without the expression parser.
+	 * @return the number or NaN if the string is not a plain number
+	 */
+	private static double parseNumber(String expression) {
+		String trimmed = expression.trim();
+		boolean digit = false;
+		for (int i = 0; i < trimmed.length(); i++) {
+			char c = trimmed.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digit = true;
+			} else if (c == '-' || c == '+') {
+				if (i > 0 && trimmed.charAt(i - 1) != 'E' && trimmed.charAt(i - 1) != 'e') return Double.NaN;
+			} else if (c != '.' && c != 'E' && c != 'e') {
+				return Double.NaN;
+			}
+		}
+		if (!digit) return Double.NaN;
+		try {
+			return Double.parseDouble(trimmed);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
 	}
 	
 	/**
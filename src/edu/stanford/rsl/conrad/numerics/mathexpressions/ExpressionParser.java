@@ -271,13 +271,15 @@ public class ExpressionParser {
 		private String getIdentifierOrFormula() {
 			String token = "";
 			int openbracIndex = expression.indexOf('(');
-			if(openbracIndex != -1){
-				if(!isIdentifier(expression.substring(0,openbracIndex))){
-					token = getFormula();						
-				}
-			}else{
+			if(openbracIndex != -1 && !isIdentifier(expression.substring(0,openbracIndex))){
+				token = getFormula();
+			}else if(expression.indexOf(" ") != -1){
 				token = expression.substring(0,expression.indexOf(" "));
 				expression = expression.substring(expression.indexOf(" ")).trim();
+			}else{
+				// the identifier is the last token
+				token = expression;
+				expression = null;
 			}
 			return token;
 		}
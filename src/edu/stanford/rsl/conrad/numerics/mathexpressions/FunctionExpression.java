@@ -40,6 +40,14 @@ public class FunctionExpression extends AbstractMathExpression{
 			throw new UnsupportedOperationException("Function is not currently supported");
 		}
 	}
+	String getFunctionName(){
+		return function;
+	}
+
+	AbstractMathExpression getArgument(){
+		return valueExp;
+	}
+
 	@Override
 	public String toString(){
 		return function + "(" + valueExp.toString() + ")";
@@ -0,0 +1,43 @@
+package edu.stanford.rsl.conrad.numerics.test;
+
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.stanford.rsl.conrad.numerics.mathexpressions.CompiledExpression;
+import edu.stanford.rsl.conrad.numerics.mathexpressions.Evaluator;
+import edu.stanford.rsl.conrad.numerics.mathexpressions.MathExpression;
+
+public class CompiledExpressionTest {
+
+	@Test
+	public void testMatchesInterpreter(){
+		HashMap<String, Double> variables = new HashMap<String, Double>();
+		variables.put("x", 1.7);
+		variables.put("y", -0.3);
+		String [] expressions = {"(1+sqrt(2))*3", "sin(0.3)*(2 + cos(0.7))", "2/((3+4)/5)", "cosd(30)*12.5 - 4", "x*x + y/2 - sind(x)", "x * (y + 2)"};
+		for (String expression : expressions){
+			double expected = new MathExpression(expression).evaluate(variables);
+			Assert.assertEquals(expected, Evaluator.getValue(expression, variables), 0);
+			Assert.assertEquals(expected, Evaluator.compile(expression).evaluate(variables), 0);
+		}
+		Assert.assertEquals(-0.0015, Evaluator.getValue(" -1.5E-3 "), 0);
+	}
+
+	@Test
+	public void testVariableSlots(){
+		CompiledExpression expression = Evaluator.compile("x*x + y/2", "y", "x");
+		Assert.assertArrayEquals(new String[] {"y", "x"}, expression.getVariableNames());
+		Assert.assertEquals(1, expression.getVariableIndex("x"));
+		Assert.assertEquals(4 + 0.5, expression.evaluate(1, 2), 0);
+		Assert.assertEquals(7, Evaluator.compile("2*t + 1").applyAsDouble(3), 0);
+		Assert.assertTrue(Evaluator.compile("cos(0)*2").isConstant());
+		Assert.assertSame(Evaluator.compile("2*t + 1"), Evaluator.compile("2*t + 1"));
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
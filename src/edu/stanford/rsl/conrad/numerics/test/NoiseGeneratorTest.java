@@ -0,0 +1,110 @@
+package edu.stanford.rsl.conrad.numerics.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.stanford.rsl.conrad.data.numeric.Grid2D;
+import edu.stanford.rsl.conrad.filtering.PoissonNoiseFilteringTool;
+import edu.stanford.rsl.conrad.utils.NoiseGenerator;
+
+public class NoiseGeneratorTest {
+
+	@Test
+	public void testPoissonMoments(){
+		NoiseGenerator generator = new NoiseGenerator(42);
+		double [] lambdas = {0.5, 3, 9.9, 10, 57, 200, 75000};
+		int samples = 200000;
+		for (double lambda : lambdas){
+			double sum = 0, sumOfSquares = 0;
+			for (int i = 0; i < samples; i++){
+				long n = generator.nextPoisson(lambda);
+				Assert.assertTrue(n >= 0);
+				sum += n;
+				sumOfSquares += (double) n * n;
+			}
+			double mean = sum / samples;
+			double variance = sumOfSquares / samples - mean * mean;
+			// five standard errors of the mean and of the variance
+			Assert.assertEquals(lambda, mean, 5 * Math.sqrt(lambda / samples));
+			Assert.assertEquals(lambda, variance, 5 * Math.sqrt((2 * lambda * lambda + lambda) / samples));
+		}
+		Assert.assertEquals(0, generator.nextPoisson(0));
+		Assert.assertEquals(0, generator.nextPoisson(-1));
+		Assert.assertEquals(0, generator.nextPoisson(Double.NaN));
+	}
+
+	@Test
+	public void testPoissonProbabilities(){
+		NoiseGenerator generator = new NoiseGenerator(7);
+		double lambda = 20;
+		int samples = 400000;
+		int [] histogram = new int[60];
+		for (int i = 0; i < samples; i++){
+			histogram[(int) Math.min(generator.nextPoisson(lambda), 59)]++;
+		}
+		for (int k = 10; k <= 30; k++){
+			double p = Math.exp(-lambda + k * Math.log(lambda) - NoiseGenerator.logFactorial(k));
+			Assert.assertEquals(p, histogram[k] / (double) samples, 5 * Math.sqrt(p / samples));
+		}
+	}
+
+	@Test
+	public void testGaussianMoments(){
+		NoiseGenerator generator = new NoiseGenerator(3);
+		int samples = 200000;
+		double sum = 0, sumOfSquares = 0;
+		for (int i = 0; i < samples; i++){
+			double x = generator.nextGaussian(2, 3);
+			sum += x;
+			sumOfSquares += x * x;
+		}
+		double mean = sum / samples;
+		Assert.assertEquals(2, mean, 5 * 3 / Math.sqrt(samples));
+		Assert.assertEquals(9, sumOfSquares / samples - mean * mean, 5 * 9 * Math.sqrt(2.0 / samples));
+	}
+
+	@Test
+	public void testLogFactorial(){
+		double logFactorial = 0;
+		for (int k = 1; k < 200; k++){
+			logFactorial += Math.log(k);
+			Assert.assertEquals(logFactorial, NoiseGenerator.logFactorial(k), 1e-10 * logFactorial);
+		}
+	}
+
+	@Test
+	public void testStreamsAreReproducible(){
+		NoiseGenerator a = new NoiseGenerator(1, 5, 17);
+		NoiseGenerator b = new NoiseGenerator(1, 5, 17);
+		NoiseGenerator c = new NoiseGenerator(1, 17, 5);
+		boolean different = false;
+		for (int i = 0; i < 100; i++){
+			long value = a.nextPoisson(1000);
+			Assert.assertEquals(value, b.nextPoisson(1000));
+			different |= value != c.nextPoisson(1000);
+		}
+		Assert.assertTrue(different);
+	}
+
+	@Test
+	public void testPoissonNoiseToolIsReproducible() throws Exception{
+		Grid2D [] results = new Grid2D[2];
+		for (int r = 0; r < 2; r++){
+			PoissonNoiseFilteringTool tool = new PoissonNoiseFilteringTool();
+			tool.setSeed(123);
+			PoissonNoiseFilteringTool filter = (PoissonNoiseFilteringTool) tool.clone();
+			filter.setImageIndex(4);
+			Grid2D image = new Grid2D(32, 16);
+			for (int j = 0; j < 16; j++)
+				for (int i = 0; i < 32; i++)
+					image.setAtIndex(i, j, 50 * i + j);
+			results[r] = filter.applyToolToImage(image);
+		}
+		Assert.assertArrayEquals(results[0].getBuffer(), results[1].getBuffer(), 0);
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
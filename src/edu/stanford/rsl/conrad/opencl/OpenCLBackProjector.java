@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import com.jogamp.opencl.CLBuffer;
 import com.jogamp.opencl.CLCommandQueue;
@@ -24,8 +25,8 @@ import com.jogamp.opencl.CLMemory.Mem;
 import edu.stanford.rsl.apps.gui.Citeable;
 import edu.stanford.rsl.conrad.data.numeric.Grid2D;
 import edu.stanford.rsl.conrad.data.numeric.Grid3D;
+import edu.stanford.rsl.conrad.geometry.trajectories.ProjectionMatrixTable;
 import edu.stanford.rsl.conrad.io.ImagePlusDataSink;
-import edu.stanford.rsl.conrad.numerics.SimpleMatrix;
 import edu.stanford.rsl.conrad.reconstruction.VOIBasedReconstructionFilter;
 import edu.stanford.rsl.conrad.utils.CONRAD;
 import edu.stanford.rsl.conrad.utils.Configuration;
@@ -87,7 +88,7 @@ public class OpenCLBackProjector extends VOIBasedReconstructionFilter implements
 	private CLBuffer<FloatBuffer> projectionArray = null;
 
 	protected ImageGridBuffer projections;
-	protected ArrayList<Integer> projectionsAvailable;
+	protected LinkedBlockingQueue<Integer> projectionsAvailable;
 	protected ArrayList<Integer> projectionsDone;
 	protected boolean largeVolumeMode = false;
 	private int nSteps = 1;
@@ -140,7 +141,7 @@ public class OpenCLBackProjector extends VOIBasedReconstructionFilter implements
 			long reconDimensionY = getGeometry().getReconDimensionY();
 			long reconDimensionZ = getGeometry().getReconDimensionZ();
 			projections = new ImageGridBuffer();
-			projectionsAvailable = new ArrayList<Integer>();
+			projectionsAvailable = new LinkedBlockingQueue<Integer>();
 			projectionsDone = new ArrayList<Integer>();
 
 			// Initialize JOCL.
@@ -295,18 +296,13 @@ public class OpenCLBackProjector extends VOIBasedReconstructionFilter implements
 
 	protected synchronized void initProjectionMatrix(int projectionNumber){
 		// load projection Matrix for current Projection.
-		if (getGeometry().getProjectionMatrix(projectionNumber)== null) {
+		ProjectionMatrixTable table = getGeometry().getProjectionMatrixTable();
+		if (!table.hasProjection(projectionNumber)) {
 			CONRAD.log("No geometry found for projection " +projectionNumber + ". Skipping.");
 			return;
 		}
-		SimpleMatrix pMat = getGeometry().getProjectionMatrix(projectionNumber).computeP();
-		float [] pMatFloat = new float[pMat.getCols() * pMat.getRows()];
-		for (int j = 0; j< pMat.getRows(); j++) {
-			for (int i = 0; i< pMat.getCols(); i++) {
-
-				pMatFloat[(j * pMat.getCols()) + i] = (float) pMat.getElement(j, i);
-			}
-		}
+		float [] pMatFloat = new float[ProjectionMatrixTable.MATRIX_SIZE];
+		table.getMatrix(projectionNumber, pMatFloat);
 
 		// Obtain the global pointer to the view matrix from
 		// the module
@@ -455,96 +451,95 @@ public class OpenCLBackProjector extends VOIBasedReconstructionFilter implements
 	}
 
 	public void OpenCLRun() {
-		try {
-			while (projectionsAvailable.size() > 0) {
-				Thread.sleep(CONRAD.INVERSE_SPEEDUP);
-				if (showStatus) {
-					float status = (float) (1.0 / projections.size());
-					if (largeVolumeMode) {
-						IJ.showStatus("Streaming Projections to OpenCL Buffer");
-					} else {
-						IJ.showStatus("Backprojecting with OpenCL");
-					}
-					IJ.showProgress(status);
-				}
-				if (!largeVolumeMode) {			
-					workOnProjectionData();
+		// all projections were appended before. The queue hands them over without waiting.
+		Integer current;
+		while ((current = projectionsAvailable.poll()) != null) {
+			if (showStatus) {
+				float status = (float) (1.0 / projections.size());
+				if (largeVolumeMode) {
+					IJ.showStatus("Streaming Projections to OpenCL Buffer");
 				} else {
-					checkProjectionData();
+					IJ.showStatus("Backprojecting with OpenCL");
 				}
+				IJ.showProgress(status);
 			}
-			CONRAD.log("large Volume " + largeVolumeMode);
-			if (largeVolumeMode){
-				// we have collected all projections.
-				// now we can reconstruct subvolumes and stich them together.
-				int reconDimensionZ = getGeometry().getReconDimensionZ();
-				double voxelSpacingX = getGeometry().getVoxelSpacingX();
-				double voxelSpacingY = getGeometry().getVoxelSpacingY();
-				double voxelSpacingZ = getGeometry().getVoxelSpacingZ();
-				useVOImap = false;
-				initialize(projections.get(0));
-				double originalOffsetZ = offsetZ;
-				double originalReconDimZ = reconDimensionZ;
-				reconDimensionZ = (int)subVolumeZ;
-				int maxProjectionNumber = projections.size();
-				float all = nSteps * maxProjectionNumber*2;
-				for (int n =0; n < nSteps; n++){ // For each subvolume
-					// set all to 0;
-					Arrays.fill(h_volume, 0);
-
-					volumePointer.getBuffer().rewind();
-					volumePointer.getBuffer().put(h_volume);
-					volumePointer.getBuffer().rewind();
-					commandQueue.putWriteBuffer(volumePointer, true).finish();
-
-					offsetZ = originalOffsetZ - (reconDimensionZ*voxelSpacingZ*n);
-					for (int p = 0; p < maxProjectionNumber; p ++){ // For all projections
-						float currentStep = (n*maxProjectionNumber*2) + p;
+			if (!largeVolumeMode) {			
+				workOnProjectionData(current);
+			} else {
+				checkProjectionData(current);
+			}
+		}
+		CONRAD.log("large Volume " + largeVolumeMode);
+		if (largeVolumeMode){
+			// we have collected all projections.
+			// now we can reconstruct subvolumes and stich them together.
+			int reconDimensionZ = getGeometry().getReconDimensionZ();
+			double voxelSpacingX = getGeometry().getVoxelSpacingX();
+			double voxelSpacingY = getGeometry().getVoxelSpacingY();
+			double voxelSpacingZ = getGeometry().getVoxelSpacingZ();
+			useVOImap = false;
+			initialize(projections.get(0));
+			double originalOffsetZ = offsetZ;
+			double originalReconDimZ = reconDimensionZ;
+			reconDimensionZ = (int)subVolumeZ;
+			int maxProjectionNumber = projections.size();
+			float all = nSteps * maxProjectionNumber*2;
+			for (int n =0; n < nSteps; n++){ // For each subvolume
+				// set all to 0;
+				Arrays.fill(h_volume, 0);
+
+				volumePointer.getBuffer().rewind();
+				volumePointer.getBuffer().put(h_volume);
+				volumePointer.getBuffer().rewind();
+				commandQueue.putWriteBuffer(volumePointer, true).finish();
+
+				offsetZ = originalOffsetZ - (reconDimensionZ*voxelSpacingZ*n);
+				for (int p = 0; p < maxProjectionNumber; p ++){ // For all projections
+					float currentStep = (n*maxProjectionNumber*2) + p;
+					if (showStatus) {
+						IJ.showStatus("Backprojecting with OpenCL");
+						IJ.showProgress(currentStep/all);
+					}
+					//System.out.println("Current: " + p);
+					try {
+						projectSingleProjection(p, reconDimensionZ);
+					} catch (Exception e){
+						CONRAD.log("Backprojection of projection " + p + " was not successful.");
+						e.printStackTrace();
+					}
+				}
+				// Gather volume
+				commandQueue.putReadBuffer(volumePointer, true).finish();
+				volumePointer.getBuffer().rewind();
+				volumePointer.getBuffer().get(h_volume);
+				volumePointer.getBuffer().rewind();
+
+				// move data to ImagePlus;
+				if (projectionVolume != null) {
+					for (int k = 0; k < reconDimensionZ; k++){
+						int index = (n*(int)subVolumeZ) + k;
 						if (showStatus) {
-							IJ.showStatus("Backprojecting with OpenCL");
+							float currentStep = (n*maxProjectionNumber*2) + maxProjectionNumber + k;
+							IJ.showStatus("Fetching Volume from OpenCL");
 							IJ.showProgress(currentStep/all);
 						}
-						//System.out.println("Current: " + p);
-						try {
-							projectSingleProjection(p, reconDimensionZ);
-						} catch (Exception e){
-							CONRAD.log("Backprojection of projection " + p + " was not successful.");
-							e.printStackTrace();
-						}
-					}
-					// Gather volume
-					commandQueue.putReadBuffer(volumePointer, true).finish();
-					volumePointer.getBuffer().rewind();
-					volumePointer.getBuffer().get(h_volume);
-					volumePointer.getBuffer().rewind();
-
-					// move data to ImagePlus;
-					if (projectionVolume != null) {
-						for (int k = 0; k < reconDimensionZ; k++){
-							int index = (n*(int)subVolumeZ) + k;
-							if (showStatus) {
-								float currentStep = (n*maxProjectionNumber*2) + maxProjectionNumber + k;
-								IJ.showStatus("Fetching Volume from OpenCL");
-								IJ.showProgress(currentStep/all);
-							}
-							if (index < originalReconDimZ) {
-								for (int j = 0; j < projectionVolume.getSize()[1]; j++){
-									for (int i = 0; i < projectionVolume.getSize()[0]; i++){
-										float value = h_volume[(((projectionVolume.getSize()[1] * k) + j) * projectionVolume.getSize()[0]) + i];
-										double[][] voxel = new double [4][1];
-										voxel[0][0] = (voxelSpacingX * i) - offsetX;
-										voxel[1][0] = (voxelSpacingY * j) - offsetY;
-										voxel[2][0] = (voxelSpacingZ * index) - originalOffsetZ;
-
-										// exception for the case "interestedInVolume == null" and largeVolume is enabled 
-										if (interestedInVolume == null) {
+						if (index < originalReconDimZ) {
+							for (int j = 0; j < projectionVolume.getSize()[1]; j++){
+								for (int i = 0; i < projectionVolume.getSize()[0]; i++){
+									float value = h_volume[(((projectionVolume.getSize()[1] * k) + j) * projectionVolume.getSize()[0]) + i];
+									double[][] voxel = new double [4][1];
+									voxel[0][0] = (voxelSpacingX * i) - offsetX;
+									voxel[1][0] = (voxelSpacingY * j) - offsetY;
+									voxel[2][0] = (voxelSpacingZ * index) - originalOffsetZ;
+
+									// exception for the case "interestedInVolume == null" and largeVolume is enabled 
+									if (interestedInVolume == null) {
+										projectionVolume.setAtIndex(i, j, index, value);
+									} else {
+										if (interestedInVolume.contains(voxel[0][0], voxel[1][0], voxel[2][0])) {
 											projectionVolume.setAtIndex(i, j, index, value);
 										} else {
-											if (interestedInVolume.contains(voxel[0][0], voxel[1][0], voxel[2][0])) {
-												projectionVolume.setAtIndex(i, j, index, value);
-											} else {
-												projectionVolume.setAtIndex(i, j, index, 0);
-											}
+											projectionVolume.setAtIndex(i, j, index, 0);
 										}
 									}
 								}
@@ -553,33 +548,21 @@ public class OpenCLBackProjector extends VOIBasedReconstructionFilter implements
 					}
 				}
 			}
-
-
-		} catch (InterruptedException e) {
-
-			e.printStackTrace();
 		}
+
 		if (showStatus) IJ.showProgress(1.0);
 		unload();
 		if (debug) CONRAD.log("Unloaded");
 	}
 
-	private synchronized void workOnProjectionData(){
-		if (projectionsAvailable.size() > 0){
-			Integer current = projectionsAvailable.get(0);
-			projectionsAvailable.remove(0);
-			projectSingleProjection(current.intValue(),  
-					getGeometry().getReconDimensionZ());
-			projectionsDone.add(current);
-		}	
+	private synchronized void workOnProjectionData(Integer current){
+		projectSingleProjection(current.intValue(),  
+				getGeometry().getReconDimensionZ());
+		projectionsDone.add(current);
 	}
 
-	private synchronized void checkProjectionData(){
-		if (projectionsAvailable.size() > 0){
-			Integer current = projectionsAvailable.get(0);
-			projectionsAvailable.remove(current);
-			projectionsDone.add(current);
-		}	
+	private synchronized void checkProjectionData(Integer current){
+		projectionsDone.add(current);
 	}
 
 	public Grid3D reconstructCompleteQueue(){
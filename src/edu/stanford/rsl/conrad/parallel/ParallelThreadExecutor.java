@@ -27,6 +27,8 @@ public class ParallelThreadExecutor {
 	boolean debug = false;
 	private CountDownLatch latch;
 	public static boolean parallel = true;
+	/** Interval in ms in which the progress is updated while waiting for the threads. */
+	private static final long STATUS_UPDATE_INTERVAL = 100;
 
 	public void setShowStatus(boolean showStatus) {
 		this.showStatus = showStatus;
@@ -76,17 +78,20 @@ public class ParallelThreadExecutor {
 				runnables[i].setLatch(latch);
 				futures[i] = e.submit(runnables[i]);
 			}
-			// wait for all jobs to be done
-			while (latch.getCount() > 0){
-				if (showStatus){
+			// wait for all jobs to be done. Block on the latch; wake up periodically only to update the status.
+			if (showStatus){
+				while (!latch.await(STATUS_UPDATE_INTERVAL, TimeUnit.MILLISECONDS)){
 					int i = (int) (latchSize - latch.getCount());
 					if (i < runnables.length){
 						if (runnables[i] instanceof NamedParallelizableRunnable)IJ.showStatus("Running " + ((NamedParallelizableRunnable)runnables[i]).getProcessName());
 					} 
 					IJ.showProgress((i + 0.0) / latchSize);
 				}
-				Thread.sleep(CONRAD.INVERSE_SPEEDUP);
+			} else {
+				latch.await();
 			}
+			// all jobs are done. Release the threads of the pool instead of waiting for the timeout.
+			e.shutdown();
 			e.awaitTermination(1000, TimeUnit.MILLISECONDS);//e.shutdownNow();
 			e = null;
 			if (showStatus) IJ.showProgress(1.0);
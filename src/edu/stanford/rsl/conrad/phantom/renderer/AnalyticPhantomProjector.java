@@ -30,22 +30,16 @@ public class AnalyticPhantomProjector extends PhantomRenderer {
 	public Grid2D getNextProjection() {
 		init();
 		Grid2D proc  = null;
-		while (true) {
-			if (buffer.get(projectionNumber) != null) {
-				proc = buffer.get(projectionNumber);
-				projectionNumber ++;
+		if (projectionNumber < stackSize){
+			try {
+				// parks until the projection was added to the buffer.
+				proc = buffer.waitFor(projectionNumber);
 				buffer.remove(projectionNumber);
-				break;
-			} else {
-				if (projectionNumber >= stackSize){
-					break;
-				}
-				try {
-					Thread.sleep(CONRAD.INVERSE_SPEEDUP);
-				} catch (InterruptedException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
+				projectionNumber ++;
+			} catch (InterruptedException e) {
+				// null would signal the end of the stream to the consumer.
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Waiting for projection " + projectionNumber + " was interrupted.", e);
 			}
 		}
 		return proc;
@@ -187,6 +187,16 @@ public class CombinedBreathingHeartScene extends WholeBodyScene {
 		return breathing.getPositions(initialPosition, initialTime, times);
 	}
 
+	@Override
+	protected double [] getPhase(double time){
+		double [] breathingPhase = breathing.getPhase(time);
+		double [] heartPhase = heart.getPhase(time);
+		double [] phase = new double[breathingPhase.length + heartPhase.length];
+		System.arraycopy(breathingPhase, 0, phase, 0, breathingPhase.length);
+		System.arraycopy(heartPhase, 0, phase, breathingPhase.length, heartPhase.length);
+		return phase;
+	}
+
 	@Override
 	public PrioritizableScene tessellateScene(double time){
 		PrioritizableScene scene = new PrioritizableScene();
@@ -257,6 +267,8 @@ public class CombinedBreathingHeartScene extends WholeBodyScene {
 	 */
 	public void setHeartTranslation(Translation heartTranslation) {
 		this.heartTranslation = heartTranslation;
+		// the cached scenes show the heart at the old position.
+		getSceneCache().clear();
 	}
 
 	/**
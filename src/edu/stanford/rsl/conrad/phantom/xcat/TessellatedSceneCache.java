@@ -0,0 +1,255 @@
+package edu.stanford.rsl.conrad.phantom.xcat;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.stanford.rsl.conrad.physics.PhysicalObject;
+import edu.stanford.rsl.conrad.rendering.PrioritizableScene;
+
+/**
+ * Cache for the tessellated scenes of an {@link XCatScene}. Scenes are identified by the warped time, i.e. the cardiac and
+ * respiratory phase, and the tessellation resolution. Hence, projections that show the same phase share one tessellation.<br>
+ * The number of scenes is limited by the capacity. The least recently used scene is removed first. In addition, scenes are only
+ * softly referenced such that the garbage collector can reclaim them if memory runs low.<br>
+ * With a time quantization q, the times are rounded to multiples of q, i.e. all times within a bin share the scene that is
+ * tessellated at the centre of the bin. The default of 0 only shares scenes of identical warped times.<br>
+ * By default, {@link XCatScene#getScene(double)} returns a deep copy of the cached scene because callers may transform the shapes.
+ * Callers that only read the scene can request the cached instance with {@link #setShareScenes(boolean)}.
+ *
+ * @author akmaier
+ *
+ */
+public class TessellatedSceneCache {
+
+	/** Default number of cached scenes. */
+	public static final int DEFAULT_CAPACITY = 4;
+
+	private int capacity = DEFAULT_CAPACITY;
+	private double timeQuantization = 0;
+	private boolean shareScenes = false;
+	private long hits, misses, reclaimed, evictions;
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+	/**
+	 * Returns the scene for the given time and resolution. The time is rounded to the centre of its bin and the scene is
+	 * identified by the warped times at the centre. It is tessellated by the phantom if it is not in the cache.
+	 * @param phantom the phantom
+	 * @param time the time as passed to {@link XCatScene#getScene(double)}
+	 * @param resolution the parameters of the tessellation resolution
+	 * @return the scene or a copy of it, see {@link #isShareScenes()}
+	 */
+	public PrioritizableScene getScene(XCatScene phantom, double time, double [] resolution) {
+		if (capacity <= 0) {
+			return phantom.tessellateScene(time);
+		}
+		double binTime = quantize(time);
+		Entry entry = getEntry(new Key(phantom.getPhase(binTime), resolution));
+		PrioritizableScene scene;
+		// only one thread tessellates a scene. Other threads that request the same scene wait for it.
+		synchronized (entry) {
+			scene = entry.scene.get();
+			if (scene == null) {
+				scene = phantom.tessellateScene(binTime);
+				entry.scene = new SoftReference<PrioritizableScene>(scene);
+			}
+		}
+		return shareScenes ? scene : copy(scene);
+	}
+
+	private synchronized Entry getEntry(Key key) {
+		Entry entry = entries.get(key);
+		if (entry != null && entry.scene.get() != null) {
+			hits++;
+			return entry;
+		}
+		misses++;
+		if (entry != null) {
+			reclaimed++;
+			return entry;
+		}
+		entry = new Entry();
+		entries.put(key, entry);
+		Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+		while (entries.size() > capacity && it.hasNext()) {
+			it.next();
+			it.remove();
+			evictions++;
+		}
+		return entry;
+	}
+
+	private synchronized double quantize(double time) {
+		if (timeQuantization <= 0) return time;
+		return Math.round(time / timeQuantization) * timeQuantization;
+	}
+
+	/**
+	 * Creates a deep copy of the scene. The copy has the same priorities and materials.
+	 * @param scene the scene
+	 * @return the copy
+	 */
+	public static PrioritizableScene copy(PrioritizableScene scene) {
+		PrioritizableScene copy = new PrioritizableScene();
+		copy.setName(scene.getName());
+		copy.setBackground(scene.getBackgroundMaterial());
+		for (PhysicalObject o : scene) {
+			PhysicalObject object = new PhysicalObject(o);
+			if (o.getShape() != null) object.setShape(o.getShape().clone());
+			copy.add(object, scene.getPriority(o));
+		}
+		return copy;
+	}
+
+	/**
+	 * Removes all scenes. The statistics are kept.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Resets the hit and miss counters.
+	 */
+	public synchronized void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		reclaimed = 0;
+		evictions = 0;
+	}
+
+	/**
+	 * @return the number of requests that were served from the cache
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of requests that required a tessellation
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of misses because the garbage collector reclaimed the scene
+	 */
+	public synchronized long getReclaimedCount() {
+		return reclaimed;
+	}
+
+	/**
+	 * @return the number of scenes that were removed because the capacity was reached
+	 */
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	/**
+	 * @return hits / (hits + misses) or 0 if nothing was requested yet
+	 */
+	public synchronized double getHitRatio() {
+		return (hits + misses == 0) ? 0 : ((double) hits) / (hits + misses);
+	}
+
+	/**
+	 * @return the number of scenes in the cache, including scenes that were reclaimed by the garbage collector
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the maximal number of cached scenes
+	 */
+	public synchronized int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Sets the maximal number of cached scenes. A capacity of 0 disables the cache.
+	 * @param capacity the capacity
+	 */
+	public synchronized void setCapacity(int capacity) {
+		this.capacity = capacity;
+		Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+		while (entries.size() > Math.max(capacity, 0) && it.hasNext()) {
+			it.next();
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * @return the bin width of the time
+	 */
+	public synchronized double getTimeQuantization() {
+		return timeQuantization;
+	}
+
+	/**
+	 * Sets the bin width of the time. Times in the same bin share the scene at the bin centre. 0 disables the quantization.
+	 * @param timeQuantization the bin width
+	 */
+	public synchronized void setTimeQuantization(double timeQuantization) {
+		if (timeQuantization != this.timeQuantization) {
+			entries.clear();
+		}
+		this.timeQuantization = timeQuantization;
+	}
+
+	/**
+	 * @return true if the cached scene itself is returned instead of a copy
+	 */
+	public boolean isShareScenes() {
+		return shareScenes;
+	}
+
+	/**
+	 * If set, the cached scene is returned instead of a copy. Callers must not modify the scene or its shapes then.
+	 * @param shareScenes whether to share the scenes
+	 */
+	public void setShareScenes(boolean shareScenes) {
+		this.shareScenes = shareScenes;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "TessellatedSceneCache: " + entries.size() + " / " + capacity + " scenes, " + hits + " hits, " + misses + " misses ("
+				+ reclaimed + " reclaimed), " + evictions + " evictions";
+	}
+
+	private static class Entry {
+		SoftReference<PrioritizableScene> scene = new SoftReference<PrioritizableScene>(null);
+	}
+
+	private static class Key {
+		private final double [] phase;
+		private final double [] resolution;
+
+		Key(double [] phase, double [] resolution) {
+			this.phase = phase.clone();
+			this.resolution = resolution.clone();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key) obj;
+			return Arrays.equals(phase, other.phase) && Arrays.equals(resolution, other.resolution);
+		}
+
+		@Override
+		public int hashCode() {
+			return (31 * Arrays.hashCode(phase)) + Arrays.hashCode(resolution);
+		}
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
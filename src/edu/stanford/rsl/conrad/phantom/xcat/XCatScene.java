@@ -8,6 +8,7 @@ import edu.stanford.rsl.conrad.geometry.AbstractShape;
 import edu.stanford.rsl.conrad.geometry.motion.timewarp.TimeWarper;
 import edu.stanford.rsl.conrad.geometry.splines.SurfaceBSpline;
 import edu.stanford.rsl.conrad.geometry.splines.TimeVariantSurfaceBSpline;
+import edu.stanford.rsl.conrad.geometry.trajectories.Trajectory;
 import edu.stanford.rsl.conrad.phantom.AnalyticPhantom4D;
 import edu.stanford.rsl.conrad.physics.PhysicalObject;
 import edu.stanford.rsl.conrad.physics.materials.Material;
@@ -63,6 +64,8 @@ public abstract class XCatScene extends AnalyticPhantom4D {
 
 	protected ArrayList<TimeVariantSurfaceBSpline> variants = new ArrayList<TimeVariantSurfaceBSpline>();
 
+	private transient TessellatedSceneCache sceneCache;
+
 	
 	/**
 	 * returns the geometric definition of XCat. Only returns the splines that are rendered in the respective scene.
@@ -79,6 +82,7 @@ public abstract class XCatScene extends AnalyticPhantom4D {
 	
 	public void createPhysicalObjects(){
 		clear();
+		if (sceneCache != null) sceneCache.clear();
 		for (TimeVariantSurfaceBSpline spline: variants){
 			add(this, spline, spline.getTitle());
 		}
@@ -102,8 +106,47 @@ public abstract class XCatScene extends AnalyticPhantom4D {
 	 */
 	public abstract PrioritizableScene tessellateScene(double time); 
 
+	/**
+	 * Returns the tessellated scene at the given time. Scenes are cached per phase and tessellation resolution.
+	 * Hence, time points that are warped onto the same phase or fall into the same bin of the cache are only tessellated once.
+	 * @see #getSceneCache()
+	 */
 	public PrioritizableScene getScene(double time){
-		return tessellateScene(time);
+		return getSceneCache().getScene(this, time, getTessellationResolution());
+	}
+
+	/**
+	 * Returns the cache of tessellated scenes. Its capacity, time quantization and statistics can be configured here.
+	 * @return the cache
+	 */
+	public synchronized TessellatedSceneCache getSceneCache(){
+		if (sceneCache == null) sceneCache = new TessellatedSceneCache();
+		return sceneCache;
+	}
+
+	/**
+	 * Returns the warped times that determine the tessellation at the given time. Scenes with multiple time warpers have to
+	 * return the warped time of each warper.
+	 * @param time the time between 0 and 1
+	 * @return the warped times
+	 */
+	protected double [] getPhase(double time){
+		return new double [] {(warper == null) ? time : warper.warpTime(time)};
+	}
+
+	/**
+	 * Returns the parameters of the global configuration that determine the tessellation resolution, i.e. the reconstruction
+	 * dimensions, the voxel spacing, and the spline subsampling factor.
+	 * @return the parameters
+	 */
+	protected double [] getTessellationResolution(){
+		Configuration config = Configuration.getGlobalConfiguration();
+		if (config == null || config.getGeometry() == null) return new double[0];
+		Trajectory traj = config.getGeometry();
+		String subSampling = config.getRegistryEntry(RegKeys.SPLINE_SUBSAMPLING_FACTOR);
+		return new double [] {traj.getReconDimensionX(), traj.getReconDimensionY(), traj.getReconDimensionZ(),
+				traj.getVoxelSpacingX(), traj.getVoxelSpacingY(), traj.getVoxelSpacingZ(),
+				(subSampling == null) ? Double.NaN : Double.parseDouble(subSampling)};
 	}
 
 
@@ -0,0 +1,106 @@
+package edu.stanford.rsl.conrad.phantom.xcat.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.stanford.rsl.conrad.geometry.shapes.simple.PointND;
+import edu.stanford.rsl.conrad.phantom.xcat.TessellatedSceneCache;
+import edu.stanford.rsl.conrad.phantom.xcat.XCatScene;
+import edu.stanford.rsl.conrad.rendering.PrioritizableScene;
+import edu.stanford.rsl.conrad.utils.Configuration;
+
+public class TessellatedSceneCacheTest {
+
+	/**
+	 * Records the times at which the scene was tessellated.
+	 */
+	private static class RecordingScene extends XCatScene {
+		private static final long serialVersionUID = 1L;
+		ArrayList<Double> times = new ArrayList<Double>();
+
+		@Override
+		public synchronized PrioritizableScene tessellateScene(double time) {
+			times.add(time);
+			PrioritizableScene scene = new PrioritizableScene();
+			scene.setName("t = " + time);
+			return scene;
+		}
+
+		@Override
+		public float[] getBinaryRepresentation() {
+			return new float[0];
+		}
+
+		@Override
+		public String getName() {
+			return "Recording Scene";
+		}
+
+		@Override
+		public PointND getPosition(PointND initialPosition, double initialTime, double time) {
+			return initialPosition;
+		}
+
+		@Override
+		public ArrayList<PointND> getPositions(PointND initialPosition, double initialTime, double... times) {
+			ArrayList<PointND> positions = new ArrayList<PointND>();
+			for (int i = 0; i < times.length; i++) {
+				positions.add(initialPosition);
+			}
+			return positions;
+		}
+
+		@Override
+		public String getBibtexCitation() {
+			return "";
+		}
+
+		@Override
+		public String getMedlineCitation() {
+			return "";
+		}
+	}
+
+	@Before
+	public void setUpConfiguration(){
+		// XCatScene reads its directory from the registry.
+		Configuration config = new Configuration();
+		config.setRegistry(new HashMap<String, String>());
+		Configuration.setGlobalConfiguration(config);
+	}
+
+	@Test
+	public void testTimesInOneBinShareTheScene(){
+		RecordingScene phantom = new RecordingScene();
+		TessellatedSceneCache cache = phantom.getSceneCache();
+		cache.setTimeQuantization(0.1);
+		cache.setShareScenes(true);
+		PrioritizableScene first = phantom.getScene(0.37);
+		PrioritizableScene second = phantom.getScene(0.43);
+		Assert.assertSame(first, second);
+		// tessellated once at the centre of the bin
+		Assert.assertEquals(1, phantom.times.size());
+		Assert.assertEquals(0.4, phantom.times.get(0), 1e-12);
+		Assert.assertEquals(1, cache.getHitCount());
+		Assert.assertEquals(1, cache.getMissCount());
+		// the next bin
+		PrioritizableScene third = phantom.getScene(0.46);
+		Assert.assertNotSame(first, third);
+		Assert.assertEquals(0.5, phantom.times.get(1), 1e-12);
+		// copies are returned by default
+		cache.setShareScenes(false);
+		PrioritizableScene copy = phantom.getScene(0.41);
+		Assert.assertNotSame(first, copy);
+		Assert.assertEquals(first.getName(), copy.getName());
+		Assert.assertEquals(2, phantom.times.size());
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
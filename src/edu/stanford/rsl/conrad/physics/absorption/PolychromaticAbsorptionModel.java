@@ -5,7 +5,10 @@
 package edu.stanford.rsl.conrad.physics.absorption;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import edu.stanford.rsl.conrad.geometry.shapes.simple.Edge;
 import edu.stanford.rsl.conrad.physics.PhysicalObject;
@@ -34,6 +37,14 @@ public class PolychromaticAbsorptionModel extends AbsorptionModel {
 	protected double [] energies;
 	protected double [] photonFlux;
 	protected HashMap<Material, double []> attenuationCoefficientsMap;
+
+	/**
+	 * Dense copy of attenuationCoefficientsMap: attenuationTable[material index][energy bin] in [cm^-1].
+	 * Materials are only appended. Hence, an index stays valid until the spectrum is changed.
+	 */
+	protected transient volatile float [][] attenuationTable;
+	protected transient volatile HashMap<Material, Integer> materialIndices;
+	private transient ThreadLocal<PathLengths> pathLengths;
 	
 
 
@@ -81,6 +92,60 @@ public class PolychromaticAbsorptionModel extends AbsorptionModel {
 		}
 		// precompute absorption spectra for all known materials in database:
 		attenuationCoefficientsMap = MaterialUtils.loadAttenuationCoefficients(energies, att);
+		compileAttenuationTable();
+	}
+
+	private synchronized void compileAttenuationTable(){
+		HashMap<Material, Integer> indices = new HashMap<Material, Integer>();
+		float [][] table = new float[attenuationCoefficientsMap.size()][];
+		int index = 0;
+		for (Map.Entry<Material, double[]> entry : attenuationCoefficientsMap.entrySet()){
+			table[index] = toFloat(entry.getValue());
+			indices.put(entry.getKey(), index);
+			index++;
+		}
+		attenuationTable = table;
+		materialIndices = indices;
+	}
+
+	private static float [] toFloat(double [] values){
+		float [] result = new float[values.length];
+		for (int e = 0; e < values.length; e++){
+			result[e] = (float) values[e];
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the row of the material in {@link #attenuationTable}. Materials that are not yet part of the table are appended.
+	 * @param mat the material
+	 * @return the index of the material
+	 */
+	protected int getMaterialIndex(Material mat){
+		if (materialIndices == null) {
+			compileAttenuationTable();
+		}
+		Integer index = materialIndices.get(mat);
+		if (index == null){
+			synchronized (this) {
+				index = materialIndices.get(mat);
+				if (index == null){
+					double [] coefficients = getAttenuationCoefficients(mat);
+					if (coefficients == null){
+						throw new RuntimeException("No attenuation data for material " + mat + ".");
+					}
+					float [][] table = Arrays.copyOf(attenuationTable, attenuationTable.length + 1);
+					table[table.length - 1] = toFloat(coefficients);
+					HashMap<Material, Integer> indices = new HashMap<Material, Integer>(materialIndices);
+					index = table.length - 1;
+					indices.put(mat, index);
+					// publish the table first, as readers access it via the indices.
+					attenuationTable = table;
+					materialIndices = indices;
+				}
+			}
+		}
+		return index;
 	}
 
 	/**
@@ -146,41 +211,166 @@ public class PolychromaticAbsorptionModel extends AbsorptionModel {
 		int end = convertToIndex(endEnergy);
 		if (start < 0) start =0;
 		if (end >= photonFlux.length) end = photonFlux.length-1;
-		double lens [] = new double[segments.size()];
-		for (int j = 0; j < segments.size(); j++){
-			lens[j] = ((Edge)segments.get(j).getShape()).getLength();
-		}
+		PathLengths lengths = getPathLengths();
+		int numMaterials = lengths.accumulate(this, segments);
+		int [] materials = lengths.materials;
+		double [] pathLength = lengths.pathLength;
+		float [][] table = attenuationTable;
 		for (int e = start; e <= end; e++){
 			double sum = 0;
+			for (int m = 0; m < numMaterials; m++){
+				int material = materials[m];
+				sum += table[material][e] * pathLength[material];
+			}
+			intensity += computeDetectedPhotons(e, sum, noise, energyIntegrating);
+		}
+		lengths.reset(numMaterials);
+		return intensity;
+	}
+
+	/**
+	 * Computes {@link #computeIntensity(ArrayList, double, double, boolean, boolean)} for many rays at once.
+	 * The energies are processed in the outer loop such that only one column of the attenuation table is accessed at a time.
+	 * @param rays the path segments of each ray
+	 * @param startEnergy the start energy [keV]
+	 * @param endEnergy the end energy [keV]
+	 * @param noise if true noise is generated
+	 * @param energyIntegrating if true the photon count is weighted with the energy
+	 * @param intensities the output array with at least rays.size() entries
+	 */
+	public void computeIntensities(List<ArrayList<PhysicalObject>> rays,
+			double startEnergy, double endEnergy, boolean noise, boolean energyIntegrating, double [] intensities) {
+		int numRays = rays.size();
+		int start = convertToIndex(startEnergy);
+		int end = convertToIndex(endEnergy);
+		if (start < 0) start =0;
+		if (end >= photonFlux.length) end = photonFlux.length-1;
+		// compress the path lengths of all rays: rayMaterials[offsets[r] ... offsets[r+1]-1] are the materials of ray r.
+		int total = 0;
+		for (int r = 0; r < numRays; r++){
+			if (rays.get(r) != null) total += rays.get(r).size();
+		}
+		int [] offsets = new int[numRays + 1];
+		int [] rayMaterials = new int[total];
+		double [] rayLengths = new double[total];
+		PathLengths lengths = getPathLengths();
+		for (int r = 0; r < numRays; r++){
+			int numMaterials = lengths.accumulate(this, rays.get(r));
+			for (int m = 0; m < numMaterials; m++){
+				rayMaterials[offsets[r] + m] = lengths.materials[m];
+				rayLengths[offsets[r] + m] = lengths.pathLength[lengths.materials[m]];
+			}
+			offsets[r + 1] = offsets[r] + numMaterials;
+			lengths.reset(numMaterials);
+		}
+		float [][] table = attenuationTable;
+		Arrays.fill(intensities, 0, numRays, 0);
+		for (int e = start; e <= end; e++){
+			for (int r = 0; r < numRays; r++){
+				double sum = 0;
+				for (int k = offsets[r]; k < offsets[r + 1]; k++){
+					sum += table[rayMaterials[k]][e] * rayLengths[k];
+				}
+				intensities[r] += computeDetectedPhotons(e, sum, noise, energyIntegrating);
+			}
+		}
+	}
+
+	/**
+	 * Computes {@link #evaluateLineIntegral(ArrayList)} for many rays at once.
+	 * @param rays the path segments of each ray
+	 * @param lineIntegrals the output array with at least rays.size() entries
+	 */
+	public void evaluateLineIntegrals(List<ArrayList<PhysicalObject>> rays, double [] lineIntegrals) {
+		computeIntensities(rays, energies[0], energies[energies.length-1], false, true, lineIntegrals);
+		for (int r = 0; r < rays.size(); r++){
+			double value = lineIntegrals[r]/inputSpectrum.getTotalIntensity();
+			if(value > 1){
+				value = 1;
+			}
+			lineIntegrals[r] = -Math.log(value);
+		}
+	}
+
+	private double computeDetectedPhotons(int e, double sum, boolean noise, boolean energyIntegrating){
+		// TODO: Normalization is never considered in the backprojectors, 
+		// 		 thus, iteratively applying forward and backward projections
+		//		 would yield to a scaling issue!
+		//
+		// length is in [mm]
+		// attenuation is in [g/cm^3]
+		// conversion from [g*mm/mc^3] = [g*0.1cm/cm^3] to [g/cm^2]
+		// --> sum/10.0;
+		double afterAttenuation = photonFlux[e] * Math.exp(-sum/10);
+		if (noise) {
+			double photonsWithNoise = StatisticsUtil.poissonRandomNumber(afterAttenuation);
+			if (energyIntegrating){
+				photonsWithNoise *= energies[e];
+			}
+			return photonsWithNoise;
+		} else {
+			if (energyIntegrating){
+				afterAttenuation *= energies[e];
+			}
+			return afterAttenuation;
+		}
+	}
+
+	private PathLengths getPathLengths(){
+		if (pathLengths == null){
+			synchronized (this) {
+				if (pathLengths == null){
+					pathLengths = new ThreadLocal<PathLengths>(){
+						@Override
+						protected PathLengths initialValue(){
+							return new PathLengths();
+						}
+					};
+				}
+			}
+		}
+		return pathLengths.get();
+	}
+
+	/**
+	 * Per-thread scratch memory that sums up the path length of a ray in each material.
+	 */
+	private static class PathLengths {
+		/** path length per material index in [mm]. All entries are 0 between two rays. */
+		double [] pathLength = new double[0];
+		/** the material indices of the current ray */
+		int [] materials = new int[0];
+
+		/**
+		 * Sums up the lengths of the segments per material.
+		 * @return the number of different materials. Their indices are stored in materials.
+		 */
+		int accumulate(PolychromaticAbsorptionModel model, ArrayList<PhysicalObject> segments){
+			if (segments == null) return 0;
+			int numMaterials = 0;
 			for (int j = 0; j < segments.size(); j++){
 				PhysicalObject o = segments.get(j);
-				double att = getAttenuationCoefficients(o.getMaterial())[e];
-				sum +=  att * lens[j];
-			}
-			// TODO: Normalization is never considered in the backprojectors, 
-						// 		 thus, iteratively applying forward and backward projections
-						//		 would yield to a scaling issue!
-						//
-						// length is in [mm]
-						// attenuation is in [g/cm^3]
-						// conversion from [g*mm/mc^3] = [g*0.1cm/cm^3] to [g/cm^2]
-						// --> sum/10.0;
-			double afterAttenuation = photonFlux[e] * Math.exp(-sum/10);
-
-			if (noise) {
-				double photonsWithNoise = StatisticsUtil.poissonRandomNumber(afterAttenuation);
-				if (energyIntegrating){
-					photonsWithNoise *= energies[e];
+				double length = ((Edge)o.getShape()).getLength();
+				if (length == 0) continue;
+				int material = model.getMaterialIndex(o.getMaterial());
+				if (material >= pathLength.length){
+					int capacity = Math.max(material + 1, model.attenuationTable.length);
+					pathLength = Arrays.copyOf(pathLength, capacity);
+					materials = Arrays.copyOf(materials, capacity);
 				}
-				intensity += photonsWithNoise;
-			} else {
-				if (energyIntegrating){
-					afterAttenuation *= energies[e];
+				if (pathLength[material] == 0){
+					materials[numMaterials++] = material;
 				}
-				intensity += afterAttenuation;
+				pathLength[material] += length;
+			}
+			return numMaterials;
+		}
+
+		void reset(int numMaterials){
+			for (int m = 0; m < numMaterials; m++){
+				pathLength[materials[m]] = 0;
 			}
 		}
-		return intensity;
 	}
 
 	/**
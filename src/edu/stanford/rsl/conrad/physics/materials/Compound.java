@@ -11,6 +11,13 @@ public class Compound extends Material {
 	private static final long serialVersionUID = -5197674861970729455L;
 	private String formula;
 
+	public Compound(){}
+
+	public Compound(Compound compound){
+		super(compound);
+		this.formula = compound.formula;
+	}
+
 	/**
 	 * @return the formula of a compound
 	 */
@@ -26,6 +33,11 @@ public class Compound extends Material {
 		this.formula = formula;	
 	}	
 
+	@Override
+	public Compound clone(){
+		return new Compound(this);
+	}
+
 }
 /*
  * Copyright (C) 2010-2014 Rotimi X Ojo
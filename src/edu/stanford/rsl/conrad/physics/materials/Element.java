@@ -13,7 +13,14 @@ public class Element extends Material {
 	private double atomicWeight = 0;
 	private double atomicNumber = 0;
 	
+	public Element(){}
 	
+	public Element(Element element){
+		super(element);
+		this.symbol = element.symbol;
+		this.atomicWeight = element.atomicWeight;
+		this.atomicNumber = element.atomicNumber;
+	}
 	
 	/**
 	 * Retrieve the atomic symbol of the element
@@ -61,7 +68,12 @@ public class Element extends Material {
 	 */
 	public double getAtomicWeight() {
 		return atomicWeight;
-	}	
+	}
+	
+	@Override
+	public Element clone(){
+		return new Element(this);
+	}
 }
 /*
  * Copyright (C) 2010-2014 Rotimi X Ojo
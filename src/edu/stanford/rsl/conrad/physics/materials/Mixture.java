@@ -9,6 +9,17 @@ public class Mixture extends Material{
 
 	private static final long serialVersionUID = 1224182801808270337L;
 
+	public Mixture(){}
+
+	public Mixture(Mixture mixture){
+		super(mixture);
+	}
+
+	@Override
+	public Mixture clone(){
+		return new Mixture(this);
+	}
+
 }
 /*
  * Copyright (C) 2010-2014 Rotimi X Ojo
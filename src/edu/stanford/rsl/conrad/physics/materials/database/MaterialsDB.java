@@ -7,8 +7,12 @@ package edu.stanford.rsl.conrad.physics.materials.database;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 import edu.stanford.rsl.conrad.physics.materials.Material;
+import edu.stanford.rsl.conrad.physics.materials.utils.AttenuationType;
 import edu.stanford.rsl.conrad.physics.materials.utils.MaterialUtils;
 import edu.stanford.rsl.conrad.utils.XmlUtils;
 
@@ -417,7 +421,18 @@ import edu.stanford.rsl.conrad.utils.XmlUtils;
  */
 public class MaterialsDB {
 
-	private static String knownMaterials[] = null;
+	private static volatile String knownMaterials[] = null;
+
+	/**
+	 * Materials that were read from the database, hashed by their lower case name. Entries are removed if the material is changed via
+	 * {@link #put(Material)} or removed via {@link #removeMaterial(String)}.
+	 */
+	private static final ConcurrentHashMap<String, Material> materialCache = new ConcurrentHashMap<String, Material>();
+
+	/**
+	 * Energy-dependent attenuation coefficients of database materials.
+	 */
+	private static final ConcurrentHashMap<AttenuationTableKey, double[]> attenuationTables = new ConcurrentHashMap<AttenuationTableKey, double[]>();
 	
 	private static String databaseLoc = System.getProperty("user.dir")
 			+ "/data/";
@@ -494,8 +509,77 @@ public class MaterialsDB {
 	 */
 	public static Material getMaterialWithName(String name) {
 		name = name.toLowerCase().trim();
-		File file = new File(materials + name + ".xml");
-		return (Material) XmlUtils.deserializeObject(file);
+		Material material = materialCache.get(name);
+		if (material == null) {
+			File file = new File(materials + name + ".xml");
+			if (!file.exists()) {
+				return null;
+			}
+			material = (Material) XmlUtils.deserializeObject(file);
+			if (material == null) {
+				return null;
+			}
+			Material previous = materialCache.putIfAbsent(name, material);
+			if (previous != null) {
+				material = previous;
+			}
+		}
+		// the cached instance is never handed out, as materials are mutable.
+		return material.clone();
+	}
+
+	/**
+	 * Returns the energy-dependent attenuation coefficients of a database material. The table is computed once per material,
+	 * energy sampling and attenuation type and is shared between all callers. Hence, the returned array must not be modified.
+	 * 
+	 * @param identifier
+	 *            Name or Formula of material
+	 * @param energies
+	 *            the energies in [keV]
+	 * @param att
+	 *            the type of attenuation
+	 * @return the attenuation coefficients in [cm^-1] for each energy or null if the material is not defined
+	 * @see Material#getAttenuation(double, AttenuationType)
+	 */
+	public static double[] getAttenuationCoefficients(String identifier, double[] energies, AttenuationType att) {
+		Material material = getMaterial(identifier);
+		if (material == null) {
+			return null;
+		}
+		AttenuationTableKey key = new AttenuationTableKey(material.getName().toLowerCase().trim(), energies, att);
+		double[] table = attenuationTables.get(key);
+		if (table == null) {
+			table = new double[energies.length];
+			for (int e = 0; e < energies.length; e++) {
+				table[e] = material.getAttenuation(energies[e], att);
+			}
+			double[] previous = attenuationTables.putIfAbsent(key, table);
+			if (previous != null) {
+				table = previous;
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Removes all materials and attenuation tables from the memory. They will be read from the database on the next request.
+	 */
+	public static void clearCache() {
+		knownMaterials = null;
+		materialCache.clear();
+		attenuationTables.clear();
+	}
+
+	private static void invalidate(String name) {
+		name = name.toLowerCase().trim();
+		knownMaterials = null;
+		materialCache.remove(name);
+		Iterator<AttenuationTableKey> keys = attenuationTables.keySet().iterator();
+		while (keys.hasNext()) {
+			if (keys.next().name.equals(name)) {
+				keys.remove();
+			}
+		}
 	}
 
 	/**
@@ -507,7 +591,9 @@ public class MaterialsDB {
 	 */
 	public static boolean put(Material material) {
 		File file = new File(materials + material.getName() + ".xml");
-		return XmlUtils.serializeObject(file, material);
+		boolean success = XmlUtils.serializeObject(file, material);
+		invalidate(material.getName());
+		return success;
 	}
 
 	/**
@@ -552,6 +638,7 @@ public class MaterialsDB {
 		name = name.trim().toLowerCase();
 		
 		File file = new File(materials + name + ".xml");
+		invalidate(name);
 		if (file.exists()) {
 			return file.delete();
 		}
@@ -576,6 +663,35 @@ public class MaterialsDB {
 		return materials;
 	}
 
+	private static final class AttenuationTableKey {
+
+		private final String name;
+		private final double[] energies;
+		private final AttenuationType att;
+		private final int hash;
+
+		private AttenuationTableKey(String name, double[] energies, AttenuationType att) {
+			this.name = name;
+			this.energies = energies.clone();
+			this.att = att;
+			this.hash = (31 * ((31 * name.hashCode()) + Arrays.hashCode(energies))) + att.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof AttenuationTableKey)) {
+				return false;
+			}
+			AttenuationTableKey key = (AttenuationTableKey) other;
+			return hash == key.hash && att == key.att && name.equals(key.name) && Arrays.equals(energies, key.energies);
+		}
+	}
+
 
 
 }
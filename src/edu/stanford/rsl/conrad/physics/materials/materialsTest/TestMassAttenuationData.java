@@ -17,6 +17,7 @@ import edu.stanford.rsl.conrad.physics.materials.database.MaterialsDB;
 import edu.stanford.rsl.conrad.physics.materials.database.OnlineMassAttenuationDB;
 import edu.stanford.rsl.conrad.physics.materials.utils.AttenuationType;
 import edu.stanford.rsl.conrad.physics.materials.utils.LocalMassAttenuationCalculator;
+import edu.stanford.rsl.conrad.physics.materials.utils.MassAttenuationTable;
 import edu.stanford.rsl.conrad.physics.materials.utils.WeightedAtomicComposition;
 
 /**
@@ -69,6 +70,51 @@ public class TestMassAttenuationData {
 		}
 		System.out.println("Testing Completed" );
 	}	
+	
+	@Test
+	public void testMassAttenuationTableInterpolation(){
+		// power laws are reproduced exactly between the energies
+		double [] energies = {0.01, 0.02, 0.05, 0.1};
+		double [] values = new double[energies.length];
+		for (int i = 0; i < energies.length; i++) values[i] = 3 * Math.pow(energies[i], -2.7);
+		MassAttenuationTable table = new MassAttenuationTable(energies, values);
+		for (double energy = 0.011; energy < 0.1; energy *= 1.1){
+			Assert.assertEquals(3 * Math.pow(energy, -2.7), table.getValue(energy), 1e-9 * table.getValue(energy));
+		}
+		// a mixture yields the weighted sum of its constituents
+		MassAttenuationTable other = new MassAttenuationTable(new double [] {0.01, 0.033, 0.1}, new double [] {0, 2, 1});
+		MassAttenuationTable mixture = MassAttenuationTable.mixture(new MassAttenuationTable[] {table, other}, new double [] {0.25, 0.75});
+		Assert.assertEquals(5, mixture.size());
+		for (double energy = 0.01; energy < 0.1; energy *= 1.05){
+			Assert.assertEquals(0.25 * table.getValue(energy) + 0.75 * other.getValue(energy), mixture.getValue(energy), 1e-12 * mixture.getValue(energy));
+		}
+	}
+	
+	@Test
+	public void testParallelMassAttenuationCalculator() throws InterruptedException{
+		final WeightedAtomicComposition comp = new WeightedAtomicComposition("H2O");
+		final double [] energies = new double[1000];
+		final double [] expected = new double[energies.length];
+		for (int i = 0; i < energies.length; i++){
+			energies[i] = 0.01 + i * 1e-4;
+			expected[i] = LocalMassAttenuationCalculator.getMassAttenuationData(comp, energies[i], AttenuationType.TOTAL_WITH_COHERENT_ATTENUATION);
+		}
+		final boolean [] failed = new boolean[1];
+		Thread [] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++){
+			threads[t] = new Thread(){
+				public void run(){
+					WeightedAtomicComposition copy = new WeightedAtomicComposition("H2O");
+					for (int i = 0; i < energies.length; i++){
+						if (LocalMassAttenuationCalculator.getMassAttenuationData(copy, energies[i], AttenuationType.TOTAL_WITH_COHERENT_ATTENUATION) != expected[i]) failed[0] = true;
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) thread.join();
+		Assert.assertFalse(failed[0]);
+	}
 	/**
 	 * Compare local and online mass attenuation values of know materials
 	 * @param mat is material of interest
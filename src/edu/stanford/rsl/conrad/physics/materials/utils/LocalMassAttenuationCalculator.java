@@ -4,8 +4,10 @@
 */
 package edu.stanford.rsl.conrad.physics.materials.utils;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import edu.stanford.rsl.conrad.numerics.SimpleVector;
 import edu.stanford.rsl.conrad.physics.materials.database.ElementalMassAttenuationData;
@@ -14,12 +16,16 @@ import edu.stanford.rsl.conrad.utils.interpolation.NumberInterpolatingTreeMap;
 
 /**
  * Calculates the mass attenuation coefficient of a material given its formula or weighted atomic composition.
+ * The data of the elements and the tables of the compositions are cached in concurrent maps as {@link MassAttenuationTable}s.
+ * Hence, the lookup does not require any synchronization after the first call for a composition.
  * @see WeightedAtomicComposition
+ * @see MassAttenuationTable
  * @author Rotimi X Ojo
  */
 public class LocalMassAttenuationCalculator {
 	
-	private static final TreeMap<String, TreeMap<AttenuationType, NumberInterpolatingTreeMap> > cache = new TreeMap<String, TreeMap<AttenuationType,NumberInterpolatingTreeMap>>();
+	private static final ConcurrentHashMap<String, MassAttenuationTable[]> elementTables = new ConcurrentHashMap<String, MassAttenuationTable[]>();
+	private static final ConcurrentHashMap<CompositionKey, MassAttenuationTable[]> compositionTables = new ConcurrentHashMap<CompositionKey, MassAttenuationTable[]>();
 	
 	/**
 	 * Calculates the mass attenuation coefficient of a material given its formula
@@ -67,32 +73,65 @@ public class LocalMassAttenuationCalculator {
 	
 	/**
 	 * Calculates the mass attenuation coefficient of a material given its weighted atomic composition.
-	 * This method uses an internal static cache to inhibit excessive file access. However, this
-	 * requires the method to be synchronized. This may lead to quite slow performance in parallel use.
+	 * The coefficients are interpolated in log-log space from the table of the composition.
+	 * This method uses internal static caches to inhibit excessive file access. As the caches are
+	 * concurrent and the tables are immutable, the method is not synchronized and can be used in parallel.
 	 * 
 	 * @param comp is the {@link WeightedAtomicComposition} of the material
 	 * @param energy is the energy of interest
 	 * @param attType is the {@link AttenuationType} of interest
 	 * @return the mass attenuation coefficient of a material given its weighted atomic composition.
+	 * @see #getMassAttenuationTable(WeightedAtomicComposition, AttenuationType)
 	 */
-	public static synchronized double getMassAttenuationData(WeightedAtomicComposition comp,
+	public static double getMassAttenuationData(WeightedAtomicComposition comp,
 			double energy, AttenuationType attType) {
-		SimpleVector vec = getNormalizedComposition(comp);
-		Iterator<String> it = comp.keysIterator();
-		double value = 0;
-		int counter = 0;
-		while(it.hasNext()){
-			TreeMap<AttenuationType, NumberInterpolatingTreeMap> massAtt = null;
-			String name = FormulaToNameMap.getName(it.next());
-			if((massAtt = cache.get(name))== null){
-				massAtt= ElementalMassAttenuationData.get(name);
-				cache.put(name, massAtt);
+		return getMassAttenuationTable(comp, attType).getValue(energy);
+	}
+	
+	/**
+	 * Returns the table of mass attenuation coefficients of a weighted atomic composition. The table is computed once per composition and is
+	 * shared between all callers. Loops over many energies should retrieve the table once and query it directly.
+	 * @param comp is the {@link WeightedAtomicComposition} of the material
+	 * @param attType is the {@link AttenuationType} of interest
+	 * @return the table with the energies in [MeV] and the mass attenuation coefficients in [cm^2/g]
+	 */
+	public static MassAttenuationTable getMassAttenuationTable(WeightedAtomicComposition comp, AttenuationType attType) {
+		CompositionKey key = new CompositionKey(comp);
+		MassAttenuationTable [] tables = compositionTables.get(key);
+		if (tables == null) {
+			tables = new MassAttenuationTable[AttenuationType.values().length];
+			SimpleVector vec = getNormalizedComposition(comp);
+			double [] weights = vec.copyAsDoubleArray();
+			MassAttenuationTable [] elements = new MassAttenuationTable[key.names.length];
+			for (AttenuationType type : AttenuationType.values()) {
+				for (int i = 0; i < elements.length; i++) {
+					elements[i] = getElementTables(key.names[i])[type.ordinal()];
+				}
+				tables[type.ordinal()] = MassAttenuationTable.mixture(elements, weights);
+			}
+			MassAttenuationTable [] previous = compositionTables.putIfAbsent(key, tables);
+			if (previous != null) {
+				tables = previous;
+			}
+		}
+		return tables[attType.ordinal()];
+	}
+	
+	private static MassAttenuationTable [] getElementTables(String symbol) {
+		String name = FormulaToNameMap.getName(symbol);
+		MassAttenuationTable [] tables = elementTables.get(name);
+		if (tables == null) {
+			TreeMap<AttenuationType, NumberInterpolatingTreeMap> massAtt = ElementalMassAttenuationData.get(name);
+			tables = new MassAttenuationTable[AttenuationType.values().length];
+			for (AttenuationType type : AttenuationType.values()) {
+				tables[type.ordinal()] = MassAttenuationTable.fromMap(massAtt.get(type));
+			}
+			MassAttenuationTable [] previous = elementTables.putIfAbsent(name, tables);
+			if (previous != null) {
+				tables = previous;
 			}
-			double buff = massAtt.get(attType).interpolateValue(energy).doubleValue();
-			value+=vec.getElement(counter)* buff;
-			counter++;
 		}
-		return value;
+		return tables;
 	}
 
 	private static SimpleVector getNormalizedComposition(WeightedAtomicComposition comp) {
@@ -108,6 +147,44 @@ public class LocalMassAttenuationCalculator {
 		vec.divideBy(sum);
 		return vec;
 	}
+	
+	/**
+	 * Identifies a composition by the symbols of its elements and their weights, as the {@link WeightedAtomicComposition} is mutable.
+	 */
+	private static final class CompositionKey {
+		
+		private final String [] names;
+		private final double [] weights;
+		private final int hash;
+		
+		private CompositionKey(WeightedAtomicComposition comp) {
+			names = new String[comp.size()];
+			weights = new double[comp.size()];
+			Iterator<String> keys = comp.keysIterator();
+			Iterator<Double> values = comp.valuesIterator();
+			int i = 0;
+			while(keys.hasNext()){
+				names[i] = keys.next();
+				weights[i] = values.next();
+				i++;
+			}
+			hash = 31 * Arrays.hashCode(names) + Arrays.hashCode(weights);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof CompositionKey)) {
+				return false;
+			}
+			CompositionKey key = (CompositionKey) other;
+			return hash == key.hash && Arrays.equals(names, key.names) && Arrays.equals(weights, key.weights);
+		}
+	}
 
 
 
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
+package edu.stanford.rsl.conrad.physics.materials.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import edu.stanford.rsl.conrad.utils.interpolation.NumberInterpolatingTreeMap;
+
+/**
+ * Immutable table of mass attenuation coefficients over energy. The energies are sorted and stored together with the values in primitive arrays.
+ * Values between two energies are interpolated linearly in log-log space as the coefficients follow power laws between the absorption edges
+ * (NIST XCOM uses the same scheme). Intervals with a zero value, e.g. pair production below its threshold, are interpolated linearly.<br>
+ * The table of a mixture keeps the values of its constituents on the union of their energies. Hence, each constituent is interpolated
+ * separately and the weighted sum is computed after the interpolation with a single search for the interval.<br>
+ * As the table is immutable, it can be shared between threads without synchronization.
+ *
+ * @see LocalMassAttenuationCalculator#getMassAttenuationTable(WeightedAtomicComposition, AttenuationType)
+ * @author akmaier
+ */
+public final class MassAttenuationTable {
+
+	private final double [] energies;
+	private final double [] logEnergies;
+	private final double [] weights;
+	/** values[constituent][energy] */
+	private final double [][] values;
+	private final double [][] logValues;
+	/** linear[constituent][interval] is true if the interval is interpolated linearly */
+	private final boolean [][] linear;
+
+	/**
+	 * Creates a table.
+	 * @param energies the energies in strictly increasing order
+	 * @param values the mass attenuation coefficients at the energies
+	 */
+	public MassAttenuationTable(double [] energies, double [] values) {
+		this(energies.clone(), new double [][] {values.clone()}, new double [] {1}, null);
+		if (energies.length != values.length || energies.length == 0) {
+			throw new IllegalArgumentException("Energies and values must have the same non-zero length.");
+		}
+		for (int i = 1; i < energies.length; i++) {
+			if (!(energies[i] > energies[i - 1])) {
+				throw new IllegalArgumentException("Energies must be strictly increasing.");
+			}
+		}
+	}
+
+	private MassAttenuationTable(double [] energies, double [][] values, double [] weights, boolean [][] linear) {
+		this.energies = energies;
+		this.values = values;
+		this.weights = weights;
+		if (linear == null) {
+			linear = new boolean[values.length][Math.max(energies.length - 1, 0)];
+			for (int c = 0; c < values.length; c++) {
+				for (int i = 0; i < linear[c].length; i++) {
+					linear[c][i] = !(values[c][i] > 0 && values[c][i + 1] > 0);
+				}
+			}
+		}
+		this.linear = linear;
+		logEnergies = new double[energies.length];
+		for (int i = 0; i < energies.length; i++) {
+			logEnergies[i] = Math.log(energies[i]);
+		}
+		logValues = new double[values.length][];
+		for (int c = 0; c < values.length; c++) {
+			logValues[c] = new double[values[c].length];
+			for (int i = 0; i < values[c].length; i++) {
+				logValues[c][i] = Math.log(values[c][i]);
+			}
+		}
+	}
+
+	/**
+	 * Converts a table that was read from the materials database.
+	 * @param map the table
+	 * @return the primitive table
+	 */
+	public static MassAttenuationTable fromMap(NumberInterpolatingTreeMap map) {
+		double [] energies = new double[map.size()];
+		double [] values = new double[map.size()];
+		int i = 0;
+		for (Map.Entry<Number, Number> entry : map.entrySet()) {
+			energies[i] = entry.getKey().doubleValue();
+			values[i] = entry.getValue().doubleValue();
+			i++;
+		}
+		return new MassAttenuationTable(energies, values);
+	}
+
+	/**
+	 * Computes the table of a mixture. The energies of the mixture are the union of the energies of all tables within their common range.
+	 * Hence, the absorption edges of all tables are kept and the mixture yields the same values as the weighted sum of the tables.
+	 * @param tables the tables of the constituents
+	 * @param weights the fractions by weight of the constituents
+	 * @return the table of the mixture
+	 */
+	public static MassAttenuationTable mixture(MassAttenuationTable [] tables, double [] weights) {
+		if (tables.length == 1 && weights[0] == 1) {
+			return tables[0];
+		}
+		double min = -Double.MAX_VALUE;
+		double max = Double.MAX_VALUE;
+		int length = 0;
+		int constituents = 0;
+		for (MassAttenuationTable table : tables) {
+			min = Math.max(min, table.getMinimumEnergy());
+			max = Math.min(max, table.getMaximumEnergy());
+			length += table.energies.length;
+			constituents += table.values.length;
+		}
+		double [] union = new double[length];
+		int n = 0;
+		for (MassAttenuationTable table : tables) {
+			for (double energy : table.energies) {
+				if (energy >= min && energy <= max) union[n++] = energy;
+			}
+		}
+		Arrays.sort(union, 0, n);
+		int unique = 0;
+		for (int i = 0; i < n; i++) {
+			if (unique == 0 || union[i] != union[unique - 1]) union[unique++] = union[i];
+		}
+		double [] energies = Arrays.copyOf(union, unique);
+		double [][] values = new double[constituents][unique];
+		boolean [][] linear = new boolean[constituents][unique - 1];
+		double [] mixtureWeights = new double[constituents];
+		int c = 0;
+		for (int t = 0; t < tables.length; t++) {
+			for (int k = 0; k < tables[t].values.length; k++) {
+				for (int i = 0; i < unique; i++) {
+					values[c][i] = tables[t].getConstituentValue(k, energies[i]);
+				}
+				// keep the interpolation of the interval that contains the new interval
+				for (int i = 0; i < unique - 1; i++) {
+					int upper = -Arrays.binarySearch(tables[t].energies, 0.5 * (energies[i] + energies[i + 1])) - 1;
+					linear[c][i] = tables[t].linear[k][upper - 1];
+				}
+				mixtureWeights[c] = weights[t] * tables[t].weights[k];
+				c++;
+			}
+		}
+		return new MassAttenuationTable(energies, values, mixtureWeights, linear);
+	}
+
+	private double getConstituentValue(int constituent, double energy) {
+		int index = Arrays.binarySearch(energies, energy);
+		if (index >= 0) {
+			return values[constituent][index];
+		}
+		int upper = -index - 1;
+		return interpolate(constituent, upper - 1, upper, Math.log(energy), energy);
+	}
+
+	private double interpolate(int constituent, int lower, int upper, double logEnergy, double energy) {
+		double [] v = values[constituent];
+		if (!linear[constituent][lower]) {
+			double [] logV = logValues[constituent];
+			double weight = (logEnergy - logEnergies[lower]) / (logEnergies[upper] - logEnergies[lower]);
+			return Math.exp(logV[lower] + weight * (logV[upper] - logV[lower]));
+		}
+		double weight = (energy - energies[lower]) / (energies[upper] - energies[lower]);
+		return v[lower] + weight * (v[upper] - v[lower]);
+	}
+
+	/**
+	 * Interpolates the mass attenuation coefficient.
+	 * @param energy the energy in the units of the table
+	 * @return the interpolated coefficient
+	 * @throws RuntimeException if the energy is outside of the table
+	 */
+	public double getValue(double energy) {
+		int index = Arrays.binarySearch(energies, energy);
+		double value = 0;
+		if (index >= 0) {
+			for (int c = 0; c < values.length; c++) {
+				value += weights[c] * values[c][index];
+			}
+			return value;
+		}
+		int upper = -index - 1;
+		if (upper == 0 || upper == energies.length) {
+			throw new RuntimeException("Cannot interpolate outside range: "
+					+ energy + " Range: [ " + energies[0] + ", " + energies[energies.length - 1] + " ]");
+		}
+		double logEnergy = Math.log(energy);
+		for (int c = 0; c < values.length; c++) {
+			value += weights[c] * interpolate(c, upper - 1, upper, logEnergy, energy);
+		}
+		return value;
+	}
+
+	/**
+	 * Interpolates the coefficients of many energies, e.g. of all bins of a spectrum.
+	 * @param energies the energies
+	 * @param values the output array with at least energies.length entries
+	 */
+	public void getValues(double [] energies, double [] values) {
+		for (int i = 0; i < energies.length; i++) {
+			values[i] = getValue(energies[i]);
+		}
+	}
+
+	/**
+	 * @return the smallest energy of the table
+	 */
+	public double getMinimumEnergy() {
+		return energies[0];
+	}
+
+	/**
+	 * @return the largest energy of the table
+	 */
+	public double getMaximumEnergy() {
+		return energies[energies.length - 1];
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size() {
+		return energies.length;
+	}
+
+	/**
+	 * @return a copy of the energies
+	 */
+	public double [] getEnergies() {
+		return energies.clone();
+	}
+
+	/**
+	 * @return the coefficients at the energies of the table
+	 */
+	public double [] getValues() {
+		double [] result = new double[energies.length];
+		for (int c = 0; c < values.length; c++) {
+			for (int i = 0; i < energies.length; i++) {
+				result[i] += weights[c] * values[c][i];
+			}
+		}
+		return result;
+	}
+
+}
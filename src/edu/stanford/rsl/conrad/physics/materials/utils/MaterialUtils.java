@@ -69,8 +69,17 @@ public class MaterialUtils {
 	public static HashMap <Material, double[]> loadAttenuationCoefficients (double energies [], AttenuationType att){
 		HashMap <Material, double[]> attenuationCoefficientsMap = new HashMap<Material, double[]>();
 		for (String materialString:MaterialsDB.getMaterials()){
-			Material mat = MaterialsDB.getMaterial(materialString);
-			updateAttenuationCoefficientsMap(attenuationCoefficientsMap, energies, mat, att);
+			try{
+				// tables are shared with all other users of the database.
+				double [] attenuation = MaterialsDB.getAttenuationCoefficients(materialString, energies, att);
+				if (attenuation != null) {
+					attenuationCoefficientsMap.put(MaterialsDB.getMaterial(materialString), attenuation);
+				}
+			} catch (NoSuchElementException e) {
+				System.out.println("Skipping " + materialString + " as attenuation data is incomplete for the configured energies.");
+			} catch (NullPointerException e2){
+				System.out.println("Skipping " + materialString + " as attenuation data is incomplete.");
+			}
 		}
 		return attenuationCoefficientsMap;
 	}
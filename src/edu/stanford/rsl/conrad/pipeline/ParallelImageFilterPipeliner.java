@@ -1,5 +1,6 @@
 package edu.stanford.rsl.conrad.pipeline;
 
+import java.util.ArrayList;
 
 import edu.stanford.rsl.conrad.data.numeric.Grid2D;
 import edu.stanford.rsl.conrad.filtering.ImageFilteringTool;
@@ -25,6 +26,7 @@ public class ParallelImageFilterPipeliner {
 	private ImageFilteringTool [] tools;
 	private BufferedProjectionSink sink;
 	private boolean debug = false;
+	private ArrayList<PipelineStageStatistics> stageStatistics = new ArrayList<PipelineStageStatistics>();
 
 	/**
 	 * Constructor requires an ImagePlus. If it has multiple slices the processing is performed in parallel.
@@ -68,11 +70,14 @@ public class ParallelImageFilterPipeliner {
 		ProjectionSink currentSink = this.sink;
 		currentSink.setShowStatus(showStatus);
 		int availableCPUs = CONRAD.getNumberOfThreads();
+		int capacity = Configuration.getGlobalConfiguration().queryIntFromRegistry(RegKeys.PIPELINE_QUEUE_CAPACITY);
+		ArrayList<PipelineStageStatistics> statistics = new ArrayList<PipelineStageStatistics>();
 		while (currentTool >= 0) {
 			if (isMultiProjectionFilter(tools[currentTool])){
 				// Add a the MultiProjectionFilter to the pipeline.
 				MultiProjectionFilter filter = (MultiProjectionFilter) tools[currentTool];
 				filter.setSink(currentSink);
+				statistics.add(0, filter.getStatistics());
 				currentSink = filter;
 				filter.start();
 				// next
@@ -86,6 +91,8 @@ public class ParallelImageFilterPipeliner {
 					parallel.setSink(currentSink);
 					parallel.setPipeline(ParallelImageFilterPipeliner.getSubPipeline(tools, blockStart, currentTool+1));
 					parallel.setDebug(debug);
+					parallel.setCapacity(capacity);
+					statistics.add(0, parallel.getStatistics());
 					parallel.start(availableCPUs);
 					currentTool = blockStart-1;
 					currentSink = parallel;
@@ -102,22 +109,27 @@ public class ParallelImageFilterPipeliner {
 			if (debug) {
 				System.out.println("Streaming into pipeline projection: " + projectionNumber + " "  + currentSink.getName());
 			}
+			// Blocks if the first stage's queue is full. Hence, memory is bounded by the queue capacities.
 			currentSink.process(img, projectionNumber);
 			img = source.getNextProjection();
 			projectionNumber = source.getCurrentProjectionNumber();
-			// Here we should consider how much memory we have left
-			Thread.sleep(CONRAD.INVERSE_SPEEDUP);
-			double free = CONRAD.getFreeMemoryAsDouble();
-			if (free < 0.25){
-				int slowdown = Configuration.getGlobalConfiguration().queryIntFromRegistry(RegKeys.SLOW_DOWN_MS);
-				Thread.sleep(slowdown);
-				System.err.println("ParallelImageFilterPipeliner: Memory almost full, slowing down processing speed by " + slowdown + ". Buy more memory to increase processing speed! Projection " + source.getCurrentProjectionNumber() + " free: " + free );			
-			}
 		}
 		if (debug) System.out.println("ParallelImageFilterPipeliner: Projections Streamed.");
 		currentSink.close();
 		this.sink.getResult();
 		if (debug) System.out.println("ParallelImageFilterPipeliner: All Processors done.");
+		stageStatistics = statistics;
+		if (showStatus) {
+			for (PipelineStageStatistics stage : statistics) CONRAD.log(stage.toString());
+		}
+	}
+
+	/**
+	 * Returns the throughput statistics of all stages of the last run in pipeline order.
+	 * @return the statistics
+	 */
+	public ArrayList<PipelineStageStatistics> getStageStatistics() {
+		return stageStatistics;
 	}
 
 	public static IndividualImageFilteringTool [] getSubPipeline(ImageFilteringTool [] tools, int start, int end){
@@ -7,10 +7,17 @@ import edu.stanford.rsl.conrad.data.numeric.Grid2D;
 import edu.stanford.rsl.conrad.filtering.IndividualImageFilteringTool;
 import edu.stanford.rsl.conrad.parallel.ParallelThreadExecutor;
 import edu.stanford.rsl.conrad.parallel.ParallelizableRunnable;
-import edu.stanford.rsl.conrad.utils.CONRAD;
 import edu.stanford.rsl.conrad.utils.ImageGridBuffer;
 
 
+/**
+ * Pipeline stage that applies a block of IndividualImageFilteringTools in parallel. Projections are queued until a worker thread
+ * requests them. The queue is bounded: If the producer is more than capacity projections ahead of the workers, process() blocks
+ * until the workers caught up. Workers waiting for input are parked on the queue's monitor instead of polling.
+ * 
+ * @author akmaier
+ *
+ */
 public class ParallelImageFilterSink implements Runnable, ProjectionSink, ProjectionSource {
 
 	private ProjectionSink sink;
@@ -23,6 +30,8 @@ public class ParallelImageFilterSink implements Runnable, ProjectionSink, Projec
 	private boolean showStatus = false;
 	private boolean init = false;
 	private int cpus = 1;
+	private int capacity = 32;
+	private PipelineStageStatistics statistics = new PipelineStageStatistics(getName());
 
 	public void setShowStatus(boolean status){
 		this.showStatus = status;
@@ -40,13 +49,34 @@ public class ParallelImageFilterSink implements Runnable, ProjectionSink, Projec
 		this.sink = sink;
 	}
 
+	/**
+	 * Sets the number of projections the producer may be ahead of the worker threads.
+	 * @param capacity the capacity
+	 */
+	public void setCapacity(int capacity){
+		this.capacity = Math.max(1, capacity);
+	}
+
+	public int getCapacity(){
+		return capacity;
+	}
+
+	/**
+	 * @return the throughput statistics of this stage
+	 */
+	public PipelineStageStatistics getStatistics(){
+		return statistics;
+	}
+
 	@Override
-	public void close() throws Exception {
+	public synchronized void close() throws Exception {
 		//System.out.println("Closing Parallel sink " + closed + " " +lastIndex +  " " + buffer.size());
 		//if (debug) throw new RuntimeException("Closing parallel tool");
 		if (!closed) {
+			init();
 			lastIndex = buffer.size();
 			closed = true;
+			notifyAll();
 		}
 	}
 
@@ -84,11 +114,21 @@ public class ParallelImageFilterSink implements Runnable, ProjectionSink, Projec
 	}
 
 	@Override
-	public void process(Grid2D projection, int projectionNumber)
+	public synchronized void process(Grid2D projection, int projectionNumber)
 	throws Exception {
 		if (debug) System.out.println("ParallelImageFilterSink: project " + projectionNumber);
 		init();
+		// Back pressure: Projections far ahead of the workers have to wait. 
+		// The projection that is requested next is always accepted. Hence, out-of-order producers cannot dead lock.
+		if (projectionNumber >= currentIndex + capacity) {
+			long start = System.nanoTime();
+			while (projectionNumber >= currentIndex + capacity) {
+				wait();
+			}
+			statistics.addBlockedTime(System.nanoTime() - start);
+		}
 		buffer.add(projection, projectionNumber);
+		notifyAll();
 	}
 
 	@Override
@@ -114,35 +154,34 @@ public class ParallelImageFilterSink implements Runnable, ProjectionSink, Projec
 		if (debug) {
 			System.out.println("ParallelImageFilterSink: Projection requested: " + currentIndex);
 		}
+		long start = System.nanoTime();
 		while (revan == null) {
 			if (debug) System.out.println("ParallelImageFilterSink: buffer = " + buffer);
 			if (buffer != null) {
 				revan = buffer.get(currentIndex);
+				if (revan != null) break;
 				if (closed){
 					if (debug) {
 						System.out.println("ParallelImageFilterSink: All data arrived. currentIndex: " + currentIndex + " of " + lastIndex+ " buffer: " + buffer.size());
 					}
 					// we are trying to read after the last index.
 					if (currentIndex >= lastIndex) {
-						try {
-							if (debug) {
-								System.out.println("ParallelImageFilterSink: End of Stream reached.");
-							}
-							break;
-						} catch (Exception e) {
-							// TODO Auto-generated catch block
-							e.printStackTrace();
+						if (debug) {
+							System.out.println("ParallelImageFilterSink: End of Stream reached.");
 						}
+						break;
 					}
 				}
 			}
 			try {
-				Thread.sleep(CONRAD.INVERSE_SPEEDUP);
+				// released by process() and close()
+				wait();
 			} catch (InterruptedException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
 			}
 		}
+		statistics.addIdleTime(System.nanoTime() - start);
 		if (closed) {
 			if (currentIndex < lastIndex) {
 				buffer.remove(currentIndex);
@@ -150,7 +189,10 @@ public class ParallelImageFilterSink implements Runnable, ProjectionSink, Projec
 		} else {
 			buffer.remove(currentIndex);
 		}
+		if (revan != null) statistics.projectionProcessed();
 		currentIndex ++;
+		// the producer may be waiting for free capacity.
+		notifyAll();
 		return revan;
 	}
 
@@ -0,0 +1,79 @@
+package edu.stanford.rsl.conrad.pipeline;
+
+/**
+ * Collects throughput statistics of a single pipeline stage. A stage reports every projection it passes on
+ * and the time it spent waiting for input or for capacity downstream. All methods are thread safe.
+ *
+ * @author akmaier
+ *
+ */
+public class PipelineStageStatistics {
+
+	private String stageName;
+	private long firstNanos = -1;
+	private long lastNanos = -1;
+	private long idleNanos = 0;
+	private long blockedNanos = 0;
+	private int projections = 0;
+
+	public PipelineStageStatistics(String stageName){
+		this.stageName = stageName;
+	}
+
+	/**
+	 * Reports that a projection was handed to the stage.
+	 */
+	public synchronized void projectionProcessed(){
+		long now = System.nanoTime();
+		if (firstNanos < 0) firstNanos = now;
+		lastNanos = now;
+		projections++;
+	}
+
+	/**
+	 * Reports time the stage waited for input.
+	 * @param nanos the waiting time in ns
+	 */
+	public synchronized void addIdleTime(long nanos){
+		idleNanos += nanos;
+	}
+
+	/**
+	 * Reports time the producer of the stage was blocked because the stage's queue was full.
+	 * @param nanos the waiting time in ns
+	 */
+	public synchronized void addBlockedTime(long nanos){
+		blockedNanos += nanos;
+	}
+
+	public synchronized int getNumberOfProjections(){
+		return projections;
+	}
+
+	/**
+	 * @return the projections per second between the first and the last reported projection
+	 */
+	public synchronized double getThroughput(){
+		if (projections < 2) return 0;
+		return (projections - 1) / ((lastNanos - firstNanos) / 1.0e9);
+	}
+
+	public synchronized double getIdleSeconds(){
+		return idleNanos / 1.0e9;
+	}
+
+	public synchronized double getBlockedSeconds(){
+		return blockedNanos / 1.0e9;
+	}
+
+	@Override
+	public synchronized String toString(){
+		return stageName + ": " + projections + " projections, " + String.format("%.2f", getThroughput()) + " projections/s, idle "
+				+ String.format("%.2f", getIdleSeconds()) + " s, producer blocked " + String.format("%.2f", getBlockedSeconds()) + " s";
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
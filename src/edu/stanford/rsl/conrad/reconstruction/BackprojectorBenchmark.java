@@ -0,0 +1,131 @@
+package edu.stanford.rsl.conrad.reconstruction;
+
+import java.util.Random;
+
+import edu.stanford.rsl.conrad.data.numeric.Grid2D;
+import edu.stanford.rsl.conrad.data.numeric.Grid3D;
+import edu.stanford.rsl.conrad.geometry.Projection.CameraAxisDirection;
+import edu.stanford.rsl.conrad.geometry.trajectories.CircularTrajectory;
+import edu.stanford.rsl.conrad.numerics.SimpleVector;
+import edu.stanford.rsl.conrad.reconstruction.voi.VolumeOfInterest;
+import edu.stanford.rsl.conrad.utils.Configuration;
+
+/**
+ * BackprojectorBenchmark compares the single-threaded run time of the voxel-driven backprojection kernels on a
+ * synthetic circular scan with a cylindrical VOI:
+ * {@link VOIBasedReconstructionFilter#backproject(Grid2D, int)}, the slab kernel of {@link SlabPartitionedBackprojector} and the
+ * row span kernel of {@link RowSpanBackprojector}. The maximal deviation of each kernel from the reference is reported as well.<br>
+ * Usage: BackprojectorBenchmark [volume size] [number of projections]
+ *
+ * @author akmaier
+ */
+public class BackprojectorBenchmark {
+
+	public static void main(String[] args) {
+		int size = (args.length > 0) ? Integer.parseInt(args[0]) : 128;
+		int numProjections = (args.length > 1) ? Integer.parseInt(args[1]) : 90;
+		int iterations = 3;
+
+		CircularTrajectory trajectory = new CircularTrajectory();
+		trajectory.setDetectorWidth(2 * size);
+		trajectory.setDetectorHeight(2 * size);
+		trajectory.setPixelDimensionX(1.0);
+		trajectory.setPixelDimensionY(1.0);
+		trajectory.setSourceToAxisDistance(600.0);
+		trajectory.setSourceToDetectorDistance(1200.0);
+		trajectory.setReconDimensions(size, size, size);
+		trajectory.setVoxelSpacingX(1.0);
+		trajectory.setVoxelSpacingY(1.0);
+		trajectory.setVoxelSpacingZ(1.0);
+		trajectory.setOriginInPixelsX((size - 1) / 2.0);
+		trajectory.setOriginInPixelsY((size - 1) / 2.0);
+		trajectory.setOriginInPixelsZ((size - 1) / 2.0);
+		trajectory.setAverageAngularIncrement(360.0 / numProjections);
+		trajectory.setProjectionStackSize(numProjections);
+		trajectory.setTrajectory(numProjections, 600.0, 360.0 / numProjections, 0, 0,
+				CameraAxisDirection.DETECTORMOTION_PLUS, CameraAxisDirection.ROTATIONAXIS_PLUS, new SimpleVector(0, 0, 1));
+		Configuration config = new Configuration();
+		config.setGeometry(trajectory);
+		Configuration.setGlobalConfiguration(config);
+
+		Random random = new Random(42);
+		Grid2D [] projections = new Grid2D[numProjections];
+		for (int p = 0; p < numProjections; p++) {
+			projections[p] = new Grid2D(trajectory.getDetectorWidth(), trajectory.getDetectorHeight());
+			float [] buffer = projections[p].getBuffer();
+			for (int i = 0; i < buffer.length; i++) {
+				buffer[i] = random.nextFloat();
+			}
+		}
+
+		final double radius = size / 2.0;
+		VolumeOfInterest cylinder = new VolumeOfInterest() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public boolean contains(double x, double y, double z) {
+				return (x * x) + (y * y) < radius * radius;
+			}
+
+			@Override
+			public void readConfigFile(String filename) {
+			}
+
+			@Override
+			public boolean getSuccess() {
+				return true;
+			}
+		};
+
+		VOIBasedReconstructionFilter reference = new VOIBasedReconstructionFilter();
+		SlabPartitionedBackprojector slab = new SlabPartitionedBackprojector();
+		RowSpanBackprojector rowSpan = new RowSpanBackprojector();
+		VOIBasedReconstructionFilter [] backprojectors = {reference, slab, rowSpan};
+		for (VOIBasedReconstructionFilter backprojector : backprojectors) {
+			backprojector.setMaximumVolumeOfInterest(cylinder);
+		}
+
+		String leftAlignFormat = "| %-45s | %10d | %12.3e |%n";
+		System.out.format("+-----------------------------------------------+------------+--------------+%n");
+		System.out.printf("| kernel                                        | time in ms | max. error   |%n");
+		System.out.format("+-----------------------------------------------+------------+--------------+%n");
+
+		Grid3D result = null;
+		for (VOIBasedReconstructionFilter backprojector : backprojectors) {
+			long time = Long.MAX_VALUE;
+			for (int it = 0; it < iterations; it++) {
+				backprojector.initializeProjectionVolume();
+				long start = System.currentTimeMillis();
+				for (int p = 0; p < numProjections; p++) {
+					if (backprojector == reference) {
+						// backproject() scales the projection in place.
+						backprojector.backproject((Grid2D) projections[p].clone(), p);
+					} else {
+						backprojector.backprojectSlab(projections[p], p, 0, size);
+					}
+				}
+				time = Math.min(time, System.currentTimeMillis() - start);
+			}
+			if (result == null) result = backprojector.projectionVolume;
+			System.out.format(leftAlignFormat, backprojector.getToolName(), time, maxDifference(result, backprojector.projectionVolume));
+		}
+		System.out.format("+-----------------------------------------------+------------+--------------+%n");
+	}
+
+	private static double maxDifference(Grid3D reference, Grid3D volume) {
+		double max = 0;
+		for (int k = 0; k < reference.getSize()[2]; k++) {
+			float [] a = reference.getSubGrid(k).getBuffer();
+			float [] b = volume.getSubGrid(k).getBuffer();
+			for (int i = 0; i < a.length; i++) {
+				max = Math.max(max, Math.abs(a[i] - b[i]) / Math.max(1.0, Math.abs(a[i])));
+			}
+		}
+		return max;
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
@@ -55,6 +55,8 @@ public abstract class ReconstructionFilter extends MultiProjectionFilter {
 
 	/**
 	 * updates the projection volume. Note that direct access to pixels is much faster than accessing the image data with getProcessor(), if the data type is known.
+	 * The method is synchronized. Backprojectors that partition the volume among their threads should write into the slice buffers directly
+	 * (see {@link SlabPartitionedBackprojector}).
 	 * @param i x pixel entry number 
 	 * @param j y pixel entry number
 	 * @param k z pixel entry number
@@ -0,0 +1,190 @@
+package edu.stanford.rsl.conrad.reconstruction;
+
+import edu.stanford.rsl.conrad.data.numeric.Grid2D;
+import edu.stanford.rsl.conrad.data.numeric.OffHeapGrid2D;
+import edu.stanford.rsl.conrad.numerics.SimpleMatrix;
+
+/**
+ * Slab-partitioned voxel-driven backprojector with a kernel that works on primitive data only. In contrast to
+ * {@link VOIBasedReconstructionFilter#backprojectSlab(Grid2D, int, int, int)}
+ * <ul>
+ * <li>the 3x4 projection matrix is copied into local variables once per projection,</li>
+ * <li>voxels are visited along the x-axis, i.e. in memory order of the slice buffers, and the homogeneous detector
+ * coordinates of a voxel are obtained from the start of the row by adding a multiple of the first matrix column,</li>
+ * <li>the projection is sampled by bilinear interpolation directly on its float array
+ * (see {@link #interpolate(float[], int, int, double, double)}),</li>
+ * <li>the VOI is stored as intervals [start, end) of voxels per row instead of a flag per voxel.</li>
+ * </ul>
+ * The inner loop has no method calls and no per-voxel VOI test. Hence, it is a candidate for vectorization by the JIT.
+ *
+ * @author akmaier
+ *
+ */
+public class RowSpanBackprojector extends SlabPartitionedBackprojector {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 6387154206631128944L;
+
+	/**
+	 * VOI intervals of row j in slice k at index k * maxJ + j. Each array contains pairs of start (inclusive) and end (exclusive) x-index.
+	 */
+	protected int [][] voiSpans;
+
+	@Override
+	public void prepareForSerialization(){
+		super.prepareForSerialization();
+		voiSpans = null;
+	}
+
+	@Override
+	protected synchronized void initializeVOIMap(){
+		super.initializeVOIMap();
+		voiSpans = new int[maxK * maxJ][];
+		int [] pairs = new int[maxI + 1];
+		for (int k = 0; k < maxK; k++){
+			for (int j = 0; j < maxJ; j++){
+				int count = 0;
+				if (!useVOImap || voiMap == null){
+					pairs[count++] = 0;
+					pairs[count++] = maxI;
+				} else {
+					boolean inside = false;
+					for (int i = 0; i < maxI; i++){
+						if (voiMap[i][j][k] != inside){
+							pairs[count++] = i;
+							inside = !inside;
+						}
+					}
+					if (inside) pairs[count++] = maxI;
+				}
+				int [] spans = new int[count];
+				System.arraycopy(pairs, 0, spans, 0, count);
+				voiSpans[(k * maxJ) + j] = spans;
+			}
+		}
+	}
+
+	@Override
+	protected void backprojectSlab(Grid2D projection, int projectionNumber, int startK, int endK){
+		if (!init){
+			initialize(projection);
+		}
+		SimpleMatrix mat = getGeometry().getProjectionMatrix(projectionNumber).computeP();
+		if (mat == null) return;
+		final double p00 = mat.getElement(0, 0), p01 = mat.getElement(0, 1), p02 = mat.getElement(0, 2), p03 = mat.getElement(0, 3);
+		final double p10 = mat.getElement(1, 0), p11 = mat.getElement(1, 1), p12 = mat.getElement(1, 2), p13 = mat.getElement(1, 3);
+		final double p20 = mat.getElement(2, 0), p21 = mat.getElement(2, 1), p22 = mat.getElement(2, 2), p23 = mat.getElement(2, 3);
+		final float [] pixels = projection.getBuffer();
+		final int projWidth = projection.getWidth();
+		final int projHeight = projection.getHeight();
+		// Constant part of distance weighting (D^2) + additional weighting for arbitrary scan ranges
+		final double D = getGeometry().getSourceToDetectorDistance();
+		final double weight = D*D * 2* Math.PI / getGeometry().getNumProjectionMatrices();
+		final double spacingX = getGeometry().getVoxelSpacingX();
+		final double spacingY = getGeometry().getVoxelSpacingY();
+		final double spacingZ = getGeometry().getVoxelSpacingZ();
+		final double offset = lineOffset;
+		final int width = projectionVolume.getSize()[0];
+		// increment of the homogeneous coordinates per voxel in x-direction
+		final double dx0 = p00 * spacingX;
+		final double dx1 = p10 * spacingX;
+		final double dx2 = p20 * spacingX;
+		boolean nanHappened = false;
+		for (int k = startK; k < endK; k++){ // for all slices of the slab
+			Grid2D sliceGrid = projectionVolume.getSubGrid(k);
+			float [] slice = sliceGrid.getBuffer();
+			double z = (spacingZ * k) - offsetZ;
+			double hk0 = p03 + (p02 * z) - (p00 * offsetX);
+			double hk1 = p13 + (p12 * z) - (p10 * offsetX);
+			double hk2 = p23 + (p22 * z) - (p20 * offsetX);
+			for (int j = 0; j < maxJ; j++){ // for all rows
+				int [] spans = voiSpans[(k * maxJ) + j];
+				if (spans.length == 0) continue;
+				double y = (spacingY * j) - offsetY;
+				double h0 = hk0 + (p01 * y);
+				double h1 = hk1 + (p11 * y);
+				double h2 = hk2 + (p21 * y);
+				int row = j * width;
+				for (int s = 0; s < spans.length; s += 2){
+					int end = spans[s + 1];
+					for (int i = spans[s]; i < end; i++){ // for all voxels of the span
+						double w = 1.0 / (h2 + (dx2 * i));
+						double u = ((h0 + (dx0 * i)) * w) + offset;
+						double v = (h1 + (dx1 * i)) * w;
+						double increment = weight * interpolate(pixels, projWidth, projHeight, u, v) * w * w;
+						if (increment != increment){
+							nanHappened = true;
+							increment = 0;
+						}
+						slice[row + i] += increment;
+					}
+				}
+			}
+			// off-heap slices hand out a copy of their memory.
+			if (sliceGrid instanceof OffHeapGrid2D) ((OffHeapGrid2D) sliceGrid).setBuffer(slice);
+		}
+		if (nanHappened) {
+			throw new RuntimeException("Encountered NaN in projection " + projectionNumber + "!");
+		}
+	}
+
+	/**
+	 * Bilinear interpolation on a row-major float array. Results are identical to ImageJ's
+	 * ImageProcessor.getInterpolatedValue(x, y), i.e. 0 is returned more than one pixel outside the image and
+	 * the border pixels are repeated within the last pixel.
+	 * @param pixels the image
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @return the interpolated value
+	 */
+	public static double interpolate(float [] pixels, int width, int height, double x, double y){
+		if (x < -1 || x >= width || y < -1 || y >= height) return 0;
+		int xbase = (int) x;
+		int ybase = (int) y;
+		double xFraction = x - xbase;
+		double yFraction = y - ybase;
+		int x1, y1;
+		if (x < 0 || y < 0 || x >= width - 1 || y >= height - 1){
+			// edge case: floor and clamp all neighbors into the image like ImageProcessor.getEdgeValue().
+			xbase = (int) Math.floor(x);
+			ybase = (int) Math.floor(y);
+			xFraction = x - xbase;
+			yFraction = y - ybase;
+			x1 = Math.max(0, Math.min(xbase + 1, width - 1));
+			y1 = Math.max(0, Math.min(ybase + 1, height - 1));
+			xbase = Math.max(0, Math.min(xbase, width - 1));
+			ybase = Math.max(0, Math.min(ybase, height - 1));
+		} else {
+			x1 = xbase + 1;
+			y1 = ybase + 1;
+		}
+		int lowerRow = ybase * width;
+		int upperRow = y1 * width;
+		double lowerLeft = pixels[lowerRow + xbase];
+		double lowerRight = pixels[lowerRow + x1];
+		double upperLeft = pixels[upperRow + xbase];
+		double upperRight = pixels[upperRow + x1];
+		double upperAverage = upperLeft + (xFraction * (upperRight - upperLeft));
+		double lowerAverage = lowerLeft + (xFraction * (lowerRight - lowerLeft));
+		return lowerAverage + (yFraction * (upperAverage - lowerAverage));
+	}
+
+	@Override
+	public String getName(){
+		return "Parallel CPU-based Row Span Backprojector";
+	}
+
+	@Override
+	public String getToolName(){
+		return "Row Span CPU-based Backprojector";
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
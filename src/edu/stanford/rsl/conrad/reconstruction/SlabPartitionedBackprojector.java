@@ -0,0 +1,74 @@
+package edu.stanford.rsl.conrad.reconstruction;
+
+import edu.stanford.rsl.conrad.parallel.ParallelThreadExecutor;
+import edu.stanford.rsl.conrad.parallel.ParallelizableRunnable;
+import edu.stanford.rsl.conrad.parallel.SimpleParallelThread;
+import edu.stanford.rsl.conrad.utils.CONRAD;
+import edu.stanford.rsl.conrad.utils.Configuration;
+
+/**
+ * This FBP-based method splits the reconstruction volume into slabs along the z-axis. Each thread owns one slab and
+ * backprojects all projections into it. As the slabs do not overlap, the increments are written directly into the
+ * slice buffers of the shared projection volume without any locking and without merging sub-volumes afterwards.
+ *
+ * @author akmaier
+ *
+ */
+public class SlabPartitionedBackprojector extends VOIBasedReconstructionFilter {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -2164360339232519377L;
+	protected int numThreads = -1;
+
+	public SlabPartitionedBackprojector() {
+		numThreads = CONRAD.getNumberOfThreads();
+	}
+
+	@Override
+	protected void reconstruct() throws Exception {
+		if (!init){
+			initialize(inputQueue.get(0));
+		}
+		// start with an empty volume in every run.
+		initializeProjectionVolume();
+		final int numSlabs = Math.min(numThreads, maxK);
+		final int slabSize = (int) Math.ceil((maxK + 0.0) / numSlabs);
+		ParallelizableRunnable [] runnables = new ParallelizableRunnable[numSlabs];
+		for (int s = 0; s < numSlabs; s++) {
+			runnables[s] = new SimpleParallelThread(s) {
+				@Override
+				public void execute() {
+					int startK = threadNum * slabSize;
+					int endK = Math.min(startK + slabSize, maxK);
+					for (int i = 0; i < nImages; i++){
+						backprojectSlab(inputQueue.get(i), i, startK, endK);
+					}
+				}
+			};
+		}
+		ParallelThreadExecutor executor = new ParallelThreadExecutor(runnables);
+		executor.execute();
+		if (Configuration.getGlobalConfiguration().getUseHounsfieldScaling()) applyHounsfieldScaling();
+		for (int k = 0; k < projectionVolume.getSize()[2]; k++){
+			sink.process(projectionVolume.getSubGrid(k), k);
+		}
+		init = false;
+	}
+
+	@Override
+	public String getName(){
+		return "Parallel CPU-based Slab Backprojector";
+	}
+
+	@Override
+	public String getToolName(){
+		return "Slab-partitioned CPU-based Backprojector";
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
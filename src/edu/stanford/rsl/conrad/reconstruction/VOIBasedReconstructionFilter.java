@@ -6,8 +6,9 @@ import java.util.Locale;
 
 import edu.stanford.rsl.conrad.data.numeric.Grid2D;
 import edu.stanford.rsl.conrad.data.numeric.Grid3D;
+import edu.stanford.rsl.conrad.data.numeric.OffHeapGrid2D;
 import edu.stanford.rsl.conrad.filtering.ImageFilteringTool;
-import edu.stanford.rsl.conrad.numerics.SimpleMatrix;
+import edu.stanford.rsl.conrad.geometry.trajectories.ProjectionMatrixTable;
 import edu.stanford.rsl.conrad.numerics.SimpleOperators;
 import edu.stanford.rsl.conrad.reconstruction.voi.CylinderBasedVolumeOfInterest;
 import edu.stanford.rsl.conrad.reconstruction.voi.VolumeOfInterest;
@@ -216,28 +217,29 @@ public class VOIBasedReconstructionFilter extends FBPReconstructionFilter {
 		double[] homogeniousPointj = new double[3];
 		double[] homogeniousPointk = new double[3];
 		double[][] updateMatrix = new double [3][4];
-		SimpleMatrix mat = getGeometry().getProjectionMatrix(p).computeP();
-		//mat.print(NumberFormat.getInstance(), 6);
+		ProjectionMatrixTable table = getGeometry().getProjectionMatrixTable();
 		voxel[3] = 1;
-		if (mat != null){
-			updateMatrix[0][3] = mat.getElement(0,3);
-			updateMatrix[1][3] = mat.getElement(1,3);
-			updateMatrix[2][3] = mat.getElement(2,3);
+		if (table.hasProjection(p)){
+			double [] mat = new double[ProjectionMatrixTable.MATRIX_SIZE];
+			table.getMatrix(p, mat);
+			updateMatrix[0][3] = mat[3];
+			updateMatrix[1][3] = mat[7];
+			updateMatrix[2][3] = mat[11];
 			boolean nanHappened = false;
 			for (int k = 0; k < maxK ; k++){ // for all slices
 				if (debug) System.out.println("here: " + " " + k);
 				voxel[2] = (this.getGeometry().getVoxelSpacingZ() * (k)) - offsetZ;
-				updateMatrix[0][2] = mat.getElement(0,2) * voxel[2];
-				updateMatrix[1][2] = mat.getElement(1,2) * voxel[2];
-				updateMatrix[2][2] = mat.getElement(2,2) * voxel[2];
+				updateMatrix[0][2] = mat[2] * voxel[2];
+				updateMatrix[1][2] = mat[6] * voxel[2];
+				updateMatrix[2][2] = mat[10] * voxel[2];
 				homogeniousPointk[0] = updateMatrix[0][3] + updateMatrix[0][2];
 				homogeniousPointk[1] = updateMatrix[1][3] + updateMatrix[1][2];
 				homogeniousPointk[2] = updateMatrix[2][3] + updateMatrix[2][2];
 				for (int i=0; i < maxI; i++){ // for all lines
 					voxel[0] = (this.getGeometry().getVoxelSpacingX() * i) - offsetX;
-					updateMatrix[0][0] = mat.getElement(0,0) * voxel[0];
-					updateMatrix[1][0] = mat.getElement(1,0) * voxel[0];
-					updateMatrix[2][0] = mat.getElement(2,0) * voxel[0];
+					updateMatrix[0][0] = mat[0] * voxel[0];
+					updateMatrix[1][0] = mat[4] * voxel[0];
+					updateMatrix[2][0] = mat[8] * voxel[0];
 					homogeniousPointi[0] = homogeniousPointk[0] + updateMatrix[0][0];
 					homogeniousPointi[1] = homogeniousPointk[1] + updateMatrix[1][0];
 					homogeniousPointi[2] = homogeniousPointk[2] + updateMatrix[2][0];
@@ -251,9 +253,9 @@ public class VOIBasedReconstructionFilter extends FBPReconstructionFilter {
 						}
 						if (project){			
 							voxel[1] = (this.getGeometry().getVoxelSpacingY() * j) - offsetY;
-							updateMatrix[0][1] = mat.getElement(0,1) * voxel[1];
-							updateMatrix[1][1] = mat.getElement(1,1) * voxel[1];
-							updateMatrix[2][1] = mat.getElement(2,1) * voxel[1];
+							updateMatrix[0][1] = mat[1] * voxel[1];
+							updateMatrix[1][1] = mat[5] * voxel[1];
+							updateMatrix[2][1] = mat[9] * voxel[1];
 							homogeniousPointj[0] = homogeniousPointi[0] + updateMatrix[0][1];
 							homogeniousPointj[1] = homogeniousPointi[1] + updateMatrix[1][1];
 							homogeniousPointj[2] = homogeniousPointi[2] + updateMatrix[2][1];
@@ -283,6 +285,67 @@ public class VOIBasedReconstructionFilter extends FBPReconstructionFilter {
 		}
 	}
 
+	/**
+	 * Backprojects a single projection into the slices startK to endK - 1 of the projection volume.
+	 * In contrast to {@link #backproject(Grid2D, int)} the increments are added directly to the float buffers of the
+	 * slices without passing through the synchronized {@link #updateVolume(int, int, int, double)}, and the projection data is not
+	 * modified. Hence, several threads may call this method concurrently as long as their slabs do not overlap.
+	 * @param projection the projection to backproject
+	 * @param projectionNumber the number of the projection in the data set
+	 * @param startK the first slice of the slab (inclusive)
+	 * @param endK the last slice of the slab (exclusive)
+	 */
+	protected void backprojectSlab(Grid2D projection, int projectionNumber, int startK, int endK){
+		if (!init){
+			initialize(projection);
+		}
+		FloatProcessor currentProjection = new FloatProcessor(projection.getWidth(), projection.getHeight(), projection.getBuffer(), null);
+		// Constant part of distance weighting (D^2) + additional weighting for arbitrary scan ranges
+		double D =  getGeometry().getSourceToDetectorDistance();
+		double weight = D*D * 2* Math.PI / getGeometry().getNumProjectionMatrices();
+		ProjectionMatrixTable table = getGeometry().getProjectionMatrixTable();
+		if (!table.hasProjection(projectionNumber)) return;
+		double [] mat = new double[ProjectionMatrixTable.MATRIX_SIZE];
+		table.getMatrix(projectionNumber, mat);
+		double spacingX = getGeometry().getVoxelSpacingX();
+		double spacingY = getGeometry().getVoxelSpacingY();
+		double spacingZ = getGeometry().getVoxelSpacingZ();
+		int width = projectionVolume.getSize()[0];
+		boolean nanHappened = false;
+		for (int k = startK; k < endK; k++){ // for all slices of the slab
+			Grid2D sliceGrid = projectionVolume.getSubGrid(k);
+			float [] slice = sliceGrid.getBuffer();
+			double z = (spacingZ * k) - offsetZ;
+			double hk0 = mat[3] + mat[2] * z;
+			double hk1 = mat[7] + mat[6] * z;
+			double hk2 = mat[11] + mat[10] * z;
+			for (int i=0; i < maxI; i++){ // for all lines
+				double x = (spacingX * i) - offsetX;
+				double hi0 = hk0 + mat[0] * x;
+				double hi1 = hk1 + mat[4] * x;
+				double hi2 = hk2 + mat[8] * x;
+				for (int j = 0; j < maxJ; j++){ // for all voxels
+					if (useVOImap && voiMap != null && !voiMap[i][j][k]) continue;
+					double y = (spacingY * j) - offsetY;
+					double h0 = hi0 + mat[1] * y;
+					double h1 = hi1 + mat[5] * y;
+					double h2 = hi2 + mat[9] * y;
+					double increment = weight * currentProjection.getInterpolatedValue((h0 / h2) + lineOffset, h1 / h2) / (h2*h2);
+					if (Double.isNaN(increment)){
+						nanHappened = true;
+						increment = 0;
+					}
+					slice[(j * width) + i] += increment;
+				}
+			}
+			// off-heap slices hand out a copy of their memory.
+			if (sliceGrid instanceof OffHeapGrid2D) ((OffHeapGrid2D) sliceGrid).setBuffer(slice);
+		}
+		if (nanHappened) {
+			throw new RuntimeException("Encountered NaN in projection " + projectionNumber + "!");
+		}
+	}
+
 	@Override
 	public String getName() {
 		return "Parallel CPU-based Backprojector";
@@ -10,8 +10,11 @@ import edu.stanford.rsl.conrad.data.numeric.NumericPointwiseOperators;
 import edu.stanford.rsl.conrad.geometry.Projection;
 import edu.stanford.rsl.conrad.geometry.trajectories.Trajectory;
 import edu.stanford.rsl.conrad.numerics.SimpleMatrix;
-import edu.stanford.rsl.conrad.numerics.SimpleOperators;
 import edu.stanford.rsl.conrad.numerics.SimpleVector;
+import edu.stanford.rsl.conrad.parallel.ParallelThreadExecutor;
+import edu.stanford.rsl.conrad.parallel.ParallelizableRunnable;
+import edu.stanford.rsl.conrad.parallel.SimpleParallelThread;
+import edu.stanford.rsl.conrad.utils.CONRAD;
 
 
 public class DistanceDrivenBasedReconstruction  extends ModelBasedIterativeReconstruction {
@@ -27,6 +30,7 @@ public class DistanceDrivenBasedReconstruction  extends ModelBasedIterativeRecon
 	public boolean Debug2 = false;
 	protected static final int MAX_WEIGHT_LENGTH_U = 8;
 	protected static final int MAX_WEIGHT_LENGTH_V = 8;
+	protected int numThreads = CONRAD.getNumberOfThreads();
 
 	public DistanceDrivenBasedReconstruction( Trajectory dataTrajectory ) {
 		super(dataTrajectory);
@@ -34,104 +38,122 @@ public class DistanceDrivenBasedReconstruction  extends ModelBasedIterativeRecon
 	}
 	
 	
+	/**
+	 * Forward projects the volume. The projections are distributed over the threads in blocks of consecutive views.
+	 * As every view is written by exactly one thread, no synchronization is required.
+	 */
 	@Override
-	public void forwardproject(Grid3D projImage, Grid3D volImage) throws Exception {
+	public void forwardproject(final Grid3D projImage, final Grid3D volImage) throws Exception {
 
 		//zero out whole projection image		
 		NumericPointwiseOperators.fill(projImage, 0.0f);
-		Projection proj;
-
-		for ( int p = 0; p < nImages ; p++ ){
-			proj = getGeometry().getProjectionMatrix(p);
-			distanceDrivenProjView( projImage, volImage, proj, p );
+		final int numBlocks = Math.max(1, Math.min(numThreads, nImages));
+		ParallelizableRunnable [] runnables = new ParallelizableRunnable[numBlocks];
+		for (int t = 0; t < numBlocks; t++){
+			runnables[t] = new SimpleParallelThread(t) {
+				@Override
+				public void execute() {
+					int start = (threadNum * nImages) / numBlocks;
+					int end = ((threadNum + 1) * nImages) / numBlocks;
+					for ( int p = start; p < end ; p++ ){
+						distanceDrivenProjView( projImage, volImage, getGeometry().getProjectionMatrix(p), p );
+					}
+				}
+			};
 		}
-
-		//if (Debug) projImage.printOneSlice(8);
+		new ParallelThreadExecutor(runnables).execute();
 	}
 
 
+	/**
+	 * Back projects all views. The volume is split into slabs along the y-axis. Each thread owns one slab and
+	 * accumulates all views into it. Hence, the slabs are updated without synchronization.
+	 */
 	@Override
-	public void backproject(Grid3D projImage, Grid3D volImage) throws Exception {
+	public void backproject(final Grid3D projImage, final Grid3D volImage) throws Exception {
 
 		//zero out whole volume image
 		NumericPointwiseOperators.fill(volImage, 0.0f);
-		Projection proj;
-
-		for ( int p = 0; p < nImages; p++ ){
-			proj = getGeometry().getProjectionMatrix(p);
-			distanceDrivenBackView( projImage, volImage, proj, p );
+		final int numSlabs = Math.max(1, Math.min(numThreads, maxJ));
+		final int slabSize = (int) Math.ceil((maxJ + 0.0) / numSlabs);
+		ParallelizableRunnable [] runnables = new ParallelizableRunnable[numSlabs];
+		for (int t = 0; t < numSlabs; t++){
+			runnables[t] = new SimpleParallelThread(t) {
+				@Override
+				public void execute() {
+					int startJ = threadNum * slabSize;
+					int endJ = Math.min(startJ + slabSize, maxJ);
+					for ( int p = 0; p < nImages; p++ ){
+						distanceDrivenBackView( projImage, volImage, getGeometry().getProjectionMatrix(p), p, startJ, endJ );
+					}
+				}
+			};
 		}
-
+		new ParallelThreadExecutor(runnables).execute();
 	}
 
+	/**
+	 * Forward projects the volume into view ip. The projection matrix is kept in local variables and the grids are accessed via
+	 * their float buffers. Hence, no objects are created per voxel.
+	 */
 	protected void distanceDrivenProjView( Grid3D projImage, Grid3D volImage, Projection proj, final int ip ){
 
 		SimpleMatrix mat = proj.computeP();
 		SimpleVector cameraCenter = proj.computeCameraCenter();
-
-		// buffer have move of voxel
-		SimpleVector halfVoxelMoveX = mat.getCol(0);
-		halfVoxelMoveX.multiplyBy(dx/2);
-		SimpleVector halfVoxelMoveY = mat.getCol(1);
-		halfVoxelMoveY.multiplyBy(dy/2);
-		SimpleVector fullVoxelMoveZ = mat.getCol(2);
-		fullVoxelMoveZ.multiplyBy(dz);
-
-		SimpleVector point3d = new SimpleVector(4);
-		point3d.setElementValue(3, 1);
-
-		SimpleVector point2d, point2dMinus, point2dPlus;
-
-		double cx = cameraCenter.getElement(0);
-		double cy = cameraCenter.getElement(1);
-		double cz = cameraCenter.getElement(2);
-		double dsx0, dsy0, dsxy0_sqr;
+		final double p00 = mat.getElement(0, 0), p01 = mat.getElement(0, 1), p02 = mat.getElement(0, 2), p03 = mat.getElement(0, 3);
+		final double p10 = mat.getElement(1, 0), p11 = mat.getElement(1, 1), p12 = mat.getElement(1, 2), p13 = mat.getElement(1, 3);
+		final double p20 = mat.getElement(2, 0), p21 = mat.getElement(2, 1), p22 = mat.getElement(2, 2), p23 = mat.getElement(2, 3);
+
+		// half voxel moves in x and y and full voxel move in z in homogeneous detector coordinates
+		final double halfMoveX0 = p00 * (dx/2), halfMoveX2 = p20 * (dx/2);
+		final double halfMoveY0 = p01 * (dy/2), halfMoveY2 = p21 * (dy/2);
+		final double fullMoveZ1 = p12 * dz, fullMoveZ2 = p22 * dz;
+
+		final double cx = cameraCenter.getElement(0);
+		final double cy = cameraCenter.getElement(1);
+		final double cz = cameraCenter.getElement(2);
+		final double z0 = -dz/2 - offsetZ;
+
+		final float [][] projBuffers = getSliceBuffers(projImage);
+		final float [][] volBuffers = getSliceBuffers(volImage);
+		final int projWidth = projImage.getSize()[0];
+		final int volWidth = volImage.getSize()[0];
+		final float [] weightU = new float[MAX_WEIGHT_LENGTH_U];
+		final float [] weightV = new float[MAX_WEIGHT_LENGTH_V];
+
+		double dsx0, dsy0, dsxy0_sqr, ds0, moveU0, moveU2;
 		float coordLeft, coordRight, coordBottom, coordTop, coordStep;
-		double ds0;
 		float amplitude;
 		int iumin, iumax, ivmin, ivmax;
 
-		if (Debug1) {
-			System.out.println( "Camera Center: " + cx + ", " + cy);
-			System.out.println( "Voxel Spaceing: " + dx + ", " + dy);
-			System.out.println( "Projection matrix: ");
-			printSimpleMatrix(mat);
-			System.out.println( "Half voxel moves: ");
-			printSimpleVector(halfVoxelMoveX);
-			printSimpleVector(halfVoxelMoveY);
-		} 
-
 		for (int i = 0; i < maxI; i++){
 
-			point3d.setElementValue(0, i*dx - offsetX  );
+			double x = i*dx - offsetX;
 
 			for (int j = 0; j < maxJ; j++){
-				
-				point3d.setElementValue(1, j*dy - offsetY );
-				
-				point3d.setElementValue(2, -dz/2 - offsetZ);
-				point2d = SimpleOperators.multiply(mat, point3d);
-
-				dsx0 = Math.abs(point3d.getElement(0) - cx);
-				dsy0 = Math.abs(point3d.getElement(1) - cy);
-				dsxy0_sqr = dsx0*dsx0 + dsy0*dsy0;
 
-				if (Debug1){
-					System.out.println("dsx0="+ dsx0 + ", dsy0=" + dsy0 + ", dsxy0_sqr= " + dsxy0_sqr);
-				}
+				double y = j*dy - offsetY;
+
+				double h0 = p00 * x + p01 * y + p02 * z0 + p03;
+				double h1 = p10 * x + p11 * y + p12 * z0 + p13;
+				double h2 = p20 * x + p21 * y + p22 * z0 + p23;
+
+				dsx0 = Math.abs(x - cx);
+				dsy0 = Math.abs(y - cy);
+				dsxy0_sqr = dsx0*dsx0 + dsy0*dsy0;
 
 				if ( dsy0 > dsx0){
 					ds0 = dsy0;
-					point2dMinus = SimpleOperators.subtract(point2d, halfVoxelMoveX);
-					point2dPlus = SimpleOperators.add(point2d, halfVoxelMoveX);					
+					moveU0 = halfMoveX0;
+					moveU2 = halfMoveX2;
 				}else{
 					ds0 = dsx0;
-					point2dMinus = SimpleOperators.subtract(point2d, halfVoxelMoveY);
-					point2dPlus = SimpleOperators.add(point2d, halfVoxelMoveY);
+					moveU0 = halfMoveY0;
+					moveU2 = halfMoveY2;
 				}
 
-				coordLeft =  (float) ( point2dMinus.getElement(0) / point2dMinus.getElement(2) + 0.5 );
-				coordRight = (float) ( point2dPlus.getElement(0) / point2dPlus.getElement(2) + 0.5 );
+				coordLeft =  (float) ( (h0 - moveU0) / (h2 - moveU2) + 0.5 );
+				coordRight = (float) ( (h0 + moveU0) / (h2 + moveU2) + 0.5 );
 
 				if ( coordLeft > coordRight ){
 					float temp = coordRight;
@@ -152,26 +174,16 @@ public class DistanceDrivenBasedReconstruction  extends ModelBasedIterativeRecon
 
 				iumax = Math.min(iumax, iumin + MAX_WEIGHT_LENGTH_U - 1);
 
-				float[] weightU = new float[]{1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f};
-
-				if ( iumax == iumin){
-					weightU[0] = coordRight - coordLeft;
-				}else{
-					weightU[0] = iumin + 1 - coordLeft;
-					weightU[iumax - iumin] = coordRight - iumax;
-				};
-
+				fillFootprintWeights(weightU, iumin, iumax, coordLeft, coordRight);
 
-				coordBottom = (float) ( point2d.getElement(1) / point2d.getElement(2) + 0.5 );
-				point2d.add(fullVoxelMoveZ);
-				coordTop = (float) ( point2d.getElement(1) / point2d.getElement(2) + 0.5 );
+				coordBottom = (float) ( h1 / h2 + 0.5 );
+				coordTop = (float) ( (h1 + fullMoveZ1) / (h2 + fullMoveZ2) + 0.5 );
 				coordStep = coordTop - coordBottom;
 
+				int volIndex = j * volWidth + i;
 
 				for ( int k = 0; k < maxK; k++ ){
 
-					double dsz0 = Math.abs(k*dz-offsetZ-cz); 
-
 					if ( coordBottom <= 0 ){
 						coordBottom = coordTop;
 						coordTop = coordTop + coordStep;
@@ -182,47 +194,23 @@ public class DistanceDrivenBasedReconstruction  extends ModelBasedIterativeRecon
 						break;
 					}
 
+					double dsz0 = Math.abs(k*dz-offsetZ-cz); 
+
 					ivmin = (int)coordBottom;
 					ivmax = (int)coordTop;
-
-					if (Debug2) {
-						System.out.println( "iu: iumin= " + iumin + ", \t iumax=" + iumax );
-						System.out.println( "iv: ivmin= " + ivmin + ", \t ivmax=" + ivmax );
-					}
-
-					float[] weightV = new float[]{1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f };
-
 					ivmax = Math.min(ivmax, ivmin + MAX_WEIGHT_LENGTH_V - 1);			
-					
-					if ( ivmin == ivmax ){
-						weightV[0] = coordTop - coordBottom;
-					}else{
-						weightV[0] = ivmin + 1 - coordBottom;
-						weightV[ivmax - ivmin] = coordTop - ivmax;
-					};
 
-					amplitude = (float) ( Math.sqrt(dsz0*dsz0 + dsxy0_sqr) / ds0);
+					fillFootprintWeights(weightV, ivmin, ivmax, coordBottom, coordTop);
 
-					if (Debug2){
-						int[] detSize = projImage.getSize();
-						int[] volSize = volImage.getSize();
-						System.out.println("Detector Size: " + detSize[0] + " X " + detSize[1] + " X " + detSize[2] );
-						System.out.println("Volume Size: "+ volSize[0] + " X " + volSize[1] + " X " + volSize[2] );
-						for (int u = 0 ; u <detSize[1]; u++ ){
-							System.out.println("u=" + u );
-							for (int v = 0; v < detSize[2]; v++){
-								System.out.print(projImage.getAtIndex(0, u, v) + "\t");
-							}
-							System.out.println();
-						}
-					}
+					amplitude = (float) ( Math.sqrt(dsz0*dsz0 + dsxy0_sqr) / ds0);
 
-					float tempVal = volImage.getAtIndex(i, j, k) * amplitude ;
+					float tempVal = volBuffers[k][volIndex] * amplitude ;
 
 					for ( int iu = iumin, iiu = 0; iu <= iumax; iu++, iiu++ ){
 						float temp = tempVal * weightU[iiu];
+						int projIndex = iu * projWidth + ip;
 						for (int iv = ivmin, iiv = 0; iv <= ivmax; iv++, iiv++){
-							projImage.addAtIndex(ip, iu, iv, temp * weightV[iiv] );
+							projBuffers[iv][projIndex] += temp * weightV[iiv];
 						} //iv
 					} //iu
 
@@ -234,73 +222,74 @@ public class DistanceDrivenBasedReconstruction  extends ModelBasedIterativeRecon
 		}//i
 	}
 
+	/**
+	 * Back projects view ip into the complete volume.
+	 */
 	protected void distanceDrivenBackView( Grid3D projImage, Grid3D volImage, Projection proj, final int ip ){
+		distanceDrivenBackView(projImage, volImage, proj, ip, 0, maxJ);
+	}
+
+	/**
+	 * Back projects view ip into the rows startJ to endJ - 1 of all slices. Threads that process disjoint ranges of rows
+	 * may call this method concurrently.
+	 */
+	protected void distanceDrivenBackView( Grid3D projImage, Grid3D volImage, Projection proj, final int ip, int startJ, int endJ ){
 		SimpleMatrix mat = proj.computeP();
 		SimpleVector cameraCenter = proj.computeCameraCenter();
-
-		// buffer have move of voxel
-		SimpleVector halfVoxelMoveX = mat.getCol(0);
-		halfVoxelMoveX.multiplyBy(dx/2);
-		SimpleVector halfVoxelMoveY = mat.getCol(1);
-		halfVoxelMoveY.multiplyBy(dy/2);
-		SimpleVector fullVoxelMoveZ = mat.getCol(2);
-		fullVoxelMoveZ.multiplyBy(dz);
-
-		SimpleVector point3d = new SimpleVector(4);
-		point3d.setElementValue(3, 1);
-
-		SimpleVector point2d, point2dMinus, point2dPlus;
-
-		double cx = cameraCenter.getElement(0);
-		double cy = cameraCenter.getElement(1);
-		double cz = cameraCenter.getElement(2);
-		double dsx0, dsy0, dsxy0_sqr;
+		final double p00 = mat.getElement(0, 0), p01 = mat.getElement(0, 1), p02 = mat.getElement(0, 2), p03 = mat.getElement(0, 3);
+		final double p10 = mat.getElement(1, 0), p11 = mat.getElement(1, 1), p12 = mat.getElement(1, 2), p13 = mat.getElement(1, 3);
+		final double p20 = mat.getElement(2, 0), p21 = mat.getElement(2, 1), p22 = mat.getElement(2, 2), p23 = mat.getElement(2, 3);
+
+		// half voxel moves in x and y and full voxel move in z in homogeneous detector coordinates
+		final double halfMoveX0 = p00 * (dx/2), halfMoveX2 = p20 * (dx/2);
+		final double halfMoveY0 = p01 * (dy/2), halfMoveY2 = p21 * (dy/2);
+		final double fullMoveZ1 = p12 * dz, fullMoveZ2 = p22 * dz;
+
+		final double cx = cameraCenter.getElement(0);
+		final double cy = cameraCenter.getElement(1);
+		final double cz = cameraCenter.getElement(2);
+		final double z0 = -dz/2 - offsetZ;
+
+		final float [][] projBuffers = getSliceBuffers(projImage);
+		final float [][] volBuffers = getSliceBuffers(volImage);
+		final int projWidth = projImage.getSize()[0];
+		final int volWidth = volImage.getSize()[0];
+		final float [] weightU = new float[MAX_WEIGHT_LENGTH_U];
+		final float [] weightV = new float[MAX_WEIGHT_LENGTH_V];
+
+		double dsx0, dsy0, dsxy0_sqr, ds0, moveU0, moveU2;
 		float coordLeft, coordRight, coordBottom, coordTop, coordStep;
-		double ds0;
 		float amplitude;
 		int iumin, iumax, ivmin, ivmax;
 
-		if (Debug1) {
-			System.out.println( "Camera Center: " + cx + ", " + cy);
-			System.out.println( "Voxel Spaceing: " + dx + ", " + dy);
-			System.out.println( "Projection matrix: ");
-			printSimpleMatrix(mat);
-			System.out.println( "Half voxel moves: ");
-			printSimpleVector(halfVoxelMoveX);
-			printSimpleVector(halfVoxelMoveY);
-		} 
-
 		for (int i = 0; i < maxI; i++){
 
-			point3d.setElementValue(0, i*dx - offsetX  );
+			double x = i*dx - offsetX;
 
-			for (int j = 0; j < maxJ; j++){
-				
-				point3d.setElementValue(1, j*dy - offsetY );
-				
-				point3d.setElementValue(2, -dz/2 - offsetZ);
-				point2d = SimpleOperators.multiply(mat, point3d);
-
-				dsx0 = Math.abs(point3d.getElement(0) - cx);
-				dsy0 = Math.abs(point3d.getElement(1) - cy);
-				dsxy0_sqr = dsx0*dsx0 + dsy0*dsy0;
+			for (int j = startJ; j < endJ; j++){
 
-				if (Debug1){
-					System.out.println("dsx0="+ dsx0 + ", dsy0=" + dsy0 + ", dsxy0_sqr= " + dsxy0_sqr);
-				}
+				double y = j*dy - offsetY;
+
+				double h0 = p00 * x + p01 * y + p02 * z0 + p03;
+				double h1 = p10 * x + p11 * y + p12 * z0 + p13;
+				double h2 = p20 * x + p21 * y + p22 * z0 + p23;
+
+				dsx0 = Math.abs(x - cx);
+				dsy0 = Math.abs(y - cy);
+				dsxy0_sqr = dsx0*dsx0 + dsy0*dsy0;
 
 				if ( dsy0 > dsx0){
 					ds0 = dsy0;
-					point2dMinus = SimpleOperators.subtract(point2d, halfVoxelMoveX);
-					point2dPlus = SimpleOperators.add(point2d, halfVoxelMoveX);					
+					moveU0 = halfMoveX0;
+					moveU2 = halfMoveX2;
 				}else{
 					ds0 = dsx0;
-					point2dMinus = SimpleOperators.subtract(point2d, halfVoxelMoveY);
-					point2dPlus = SimpleOperators.add(point2d, halfVoxelMoveY);
+					moveU0 = halfMoveY0;
+					moveU2 = halfMoveY2;
 				}
 
-				coordLeft =  (float) ( point2dMinus.getElement(0) / point2dMinus.getElement(2) + 0.5 );
-				coordRight = (float) ( point2dPlus.getElement(0) / point2dPlus.getElement(2) + 0.5 );
+				coordLeft =  (float) ( (h0 - moveU0) / (h2 - moveU2) + 0.5 );
+				coordRight = (float) ( (h0 + moveU0) / (h2 + moveU2) + 0.5 );
 
 				if ( coordLeft > coordRight ){
 					float temp = coordRight;
@@ -321,26 +310,16 @@ public class DistanceDrivenBasedReconstruction  extends ModelBasedIterativeRecon
 
 				iumax = Math.min(iumax, iumin + MAX_WEIGHT_LENGTH_U - 1);
 
-				float[] weightU = new float[]{1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f};
-
-				if ( iumax == iumin){
-					weightU[0] = coordRight - coordLeft;
-				}else{
-					weightU[0] = iumin + 1 - coordLeft;
-					weightU[iumax - iumin] = coordRight - iumax;
-				};
-
+				fillFootprintWeights(weightU, iumin, iumax, coordLeft, coordRight);
 
-				coordBottom = (float) ( point2d.getElement(1) / point2d.getElement(2) + 0.5 );
-				point2d.add(fullVoxelMoveZ);
-				coordTop = (float) ( point2d.getElement(1) / point2d.getElement(2) + 0.5 );
+				coordBottom = (float) ( h1 / h2 + 0.5 );
+				coordTop = (float) ( (h1 + fullMoveZ1) / (h2 + fullMoveZ2) + 0.5 );
 				coordStep = coordTop - coordBottom;
 
+				int volIndex = j * volWidth + i;
 
 				for ( int k = 0; k < maxK; k++ ){
 
-					double dsz0 = Math.abs(k*dz-offsetZ-cz); 
-
 					if ( coordBottom <= 0 ){
 						coordBottom = coordTop;
 						coordTop = coordTop + coordStep;
@@ -351,56 +330,29 @@ public class DistanceDrivenBasedReconstruction  extends ModelBasedIterativeRecon
 						break;
 					}
 
+					double dsz0 = Math.abs(k*dz-offsetZ-cz); 
+
 					ivmin = (int)coordBottom;
 					ivmax = (int)coordTop;
-
-					if (Debug2) {
-						System.out.println( "iu: iumin= " + iumin + ", \t iumax=" + iumax );
-						System.out.println( "iv: ivmin= " + ivmin + ", \t ivmax=" + ivmax );
-					}
-
-					float[] weightV = new float[]{1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f };
-
 					ivmax = Math.min(ivmax, ivmin + MAX_WEIGHT_LENGTH_V - 1);			
-					
-					if ( ivmin == ivmax ){
-						weightV[0] = coordTop - coordBottom;
-					}else{
-						weightV[0] = ivmin + 1 - coordBottom;
-						weightV[ivmax - ivmin] = coordTop - ivmax;
-					};
 
-					amplitude = (float) ( Math.sqrt(dsz0*dsz0 + dsxy0_sqr) / ds0);
+					fillFootprintWeights(weightV, ivmin, ivmax, coordBottom, coordTop);
 
-					if (Debug2){
-						int[] detSize = projImage.getSize();
-						int[] volSize = volImage.getSize();
-						System.out.println("Detector Size: " + detSize[0] + " X " + detSize[1] + " X " + detSize[2] );
-						System.out.println("Volume Size: "+ volSize[0] + " X " + volSize[1] + " X " + volSize[2] );
-						for (int u = 0 ; u <detSize[1]; u++ ){
-							System.out.println("u=" + u );
-							for (int v = 0; v < detSize[2]; v++){
-								System.out.print(projImage.getAtIndex(0, u, v) + "\t");
-							}
-							System.out.println();
-						}
-					}
+					amplitude = (float) ( Math.sqrt(dsz0*dsz0 + dsxy0_sqr) / ds0);
 
 					float tempVal = 0.0f;
 
 					for ( int iu = iumin, iiu = 0; iu <= iumax; iu++, iiu++ ){
 						float sum = 0.0f;
+						int projIndex = iu * projWidth + ip;
 						for (int iv = ivmin, iiv = 0; iv <= ivmax; iv++, iiv++){
-							sum += weightV[iiv] * projImage.getAtIndex(ip, iu, iv);
+							sum += weightV[iiv] * projBuffers[iv][projIndex];
 						} //iv
 						tempVal += sum * weightU[iiu];
 					} //iu
 
-					tempVal = tempVal * amplitude;
-					volImage.addAtIndex(i, j, k, tempVal);
+					volBuffers[k][volIndex] += tempVal * amplitude;
 
-					//volImage.addAtIndex(i, j, k, 1);
-					
 					//update for next voxel
 					coordBottom = coordTop;
 					coordTop = coordTop + coordStep;
@@ -411,6 +363,30 @@ public class DistanceDrivenBasedReconstruction  extends ModelBasedIterativeRecon
 
 	}
 
+	/**
+	 * Computes the overlap of the footprint [coordMin, coordMax] with the detector cells min to max.
+	 * Inner cells are fully covered and get weight 1.
+	 */
+	private static void fillFootprintWeights(float [] weights, int min, int max, float coordMin, float coordMax){
+		for (int n = 1; n < max - min; n++){
+			weights[n] = 1.0f;
+		}
+		if ( max == min){
+			weights[0] = coordMax - coordMin;
+		}else{
+			weights[0] = min + 1 - coordMin;
+			weights[max - min] = coordMax - max;
+		}
+	}
+
+	private static float [][] getSliceBuffers(Grid3D grid){
+		float [][] buffers = new float[grid.getSize()[2]][];
+		for (int k = 0; k < buffers.length; k++){
+			buffers[k] = grid.getSubGrid(k).getBuffer();
+		}
+		return buffers;
+	}
+
 	@Override
 	public String getBibtexCitation() {
 		// TODO Auto-generated method stub
@@ -1,7 +1,6 @@
 package edu.stanford.rsl.conrad.reconstruction.iterative;
 
 import edu.stanford.rsl.conrad.data.numeric.Grid3D;
-import edu.stanford.rsl.conrad.data.numeric.NumericGrid;
 import edu.stanford.rsl.conrad.data.numeric.NumericPointwiseOperators;
 import edu.stanford.rsl.conrad.geometry.trajectories.Trajectory;
 
@@ -73,21 +72,15 @@ public class LeastSquaresCG extends DistanceDrivenBasedReconstruction {
 				NumericPointwiseOperators.copy( g_new, d );
 			}else{
 				gamma = NumericPointwiseOperators.dotProduct( g_new ) / NumericPointwiseOperators.dotProduct( g_old );
-				NumericPointwiseOperators.multiplyBy(d, (float) gamma);
-				NumericPointwiseOperators.addBy(d, g_new);
+				d.times((float) gamma).plus(g_new).assignTo(d);
 			}
 
 			forwardproject( q, d );
 			
 			alpha = NumericPointwiseOperators.dotProduct( g_new, d ) / NumericPointwiseOperators.dotProduct( q );
 
-			NumericGrid tmp = d.clone();
-			NumericPointwiseOperators.multiplyBy(tmp, (float) alpha);
-			NumericPointwiseOperators.addBy(f, tmp);
-			
-			tmp = q.clone();
-			NumericPointwiseOperators.multiplyBy(tmp, (float) -alpha);
-			NumericPointwiseOperators.addBy(r, tmp);
+			f.plus(d.times((float) alpha)).assignTo(f);
+			r.plus(q.times((float) -alpha)).assignTo(r);
 
 			NumericPointwiseOperators.copy( g_new, g_old);
 
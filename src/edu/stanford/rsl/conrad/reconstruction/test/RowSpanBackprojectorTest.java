@@ -0,0 +1,147 @@
+package edu.stanford.rsl.conrad.reconstruction.test;
+
+import ij.process.FloatProcessor;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.stanford.rsl.conrad.data.numeric.Grid2D;
+import edu.stanford.rsl.conrad.data.numeric.Grid3D;
+import edu.stanford.rsl.conrad.data.numeric.OffHeapGrid3D;
+import edu.stanford.rsl.conrad.geometry.Projection.CameraAxisDirection;
+import edu.stanford.rsl.conrad.geometry.trajectories.CircularTrajectory;
+import edu.stanford.rsl.conrad.numerics.SimpleVector;
+import edu.stanford.rsl.conrad.reconstruction.RowSpanBackprojector;
+import edu.stanford.rsl.conrad.reconstruction.SlabPartitionedBackprojector;
+import edu.stanford.rsl.conrad.utils.Configuration;
+
+public class RowSpanBackprojectorTest {
+
+	/**
+	 * Exposes the row span kernel.
+	 */
+	private static class RowSpanKernel extends RowSpanBackprojector {
+		private static final long serialVersionUID = 1L;
+
+		void backproject(Grid3D volume, Grid2D projection, int projectionNumber){
+			setProjectionVolume(volume);
+			computeOffsets();
+			backprojectSlab(projection, projectionNumber, 0, volume.getSize()[2]);
+		}
+	}
+
+	/**
+	 * Exposes the slab kernel of VOIBasedReconstructionFilter.
+	 */
+	private static class SlabKernel extends SlabPartitionedBackprojector {
+		private static final long serialVersionUID = 1L;
+
+		void backproject(Grid3D volume, Grid2D projection, int projectionNumber){
+			setProjectionVolume(volume);
+			computeOffsets();
+			backprojectSlab(projection, projectionNumber, 0, volume.getSize()[2]);
+		}
+	}
+
+	private static void setUpGeometry(int size, int numProjections){
+		CircularTrajectory trajectory = new CircularTrajectory();
+		trajectory.setDetectorWidth(2 * size);
+		trajectory.setDetectorHeight(2 * size);
+		trajectory.setPixelDimensionX(1.0);
+		trajectory.setPixelDimensionY(1.0);
+		trajectory.setSourceToAxisDistance(600.0);
+		trajectory.setSourceToDetectorDistance(1200.0);
+		trajectory.setReconDimensions(size, size, size);
+		trajectory.setVoxelSpacingX(1.0);
+		trajectory.setVoxelSpacingY(1.0);
+		trajectory.setVoxelSpacingZ(1.0);
+		trajectory.setOriginInPixelsX((size - 1) / 2.0);
+		trajectory.setOriginInPixelsY((size - 1) / 2.0);
+		trajectory.setOriginInPixelsZ((size - 1) / 2.0);
+		trajectory.setAverageAngularIncrement(360.0 / numProjections);
+		trajectory.setProjectionStackSize(numProjections);
+		trajectory.setTrajectory(numProjections, 600.0, 360.0 / numProjections, 0, 0,
+				CameraAxisDirection.DETECTORMOTION_PLUS, CameraAxisDirection.ROTATIONAXIS_PLUS, new SimpleVector(0, 0, 1));
+		Configuration config = new Configuration();
+		config.setGeometry(trajectory);
+		Configuration.setGlobalConfiguration(config);
+	}
+
+	private static void assertSameVolume(Grid3D expected, Grid3D actual){
+		double sum = 0;
+		for (int k = 0; k < expected.getSize()[2]; k++){
+			for (int j = 0; j < expected.getSize()[1]; j++){
+				for (int i = 0; i < expected.getSize()[0]; i++){
+					Assert.assertEquals(expected.getAtIndex(i, j, k), actual.getAtIndex(i, j, k), 0);
+					sum += Math.abs(expected.getAtIndex(i, j, k));
+				}
+			}
+		}
+		Assert.assertTrue(sum > 0);
+	}
+
+	@Test
+	public void testBackprojectionIntoOffHeapVolume(){
+		int size = 16;
+		int numProjections = 6;
+		setUpGeometry(size, numProjections);
+		Random random = new Random(7);
+		Grid2D [] projections = new Grid2D[numProjections];
+		for (int p = 0; p < numProjections; p++){
+			projections[p] = new Grid2D(2 * size, 2 * size);
+			float [] buffer = projections[p].getBuffer();
+			for (int i = 0; i < buffer.length; i++){
+				buffer[i] = random.nextFloat();
+			}
+		}
+		RowSpanKernel rowSpan = new RowSpanKernel();
+		SlabKernel slab = new SlabKernel();
+		Grid3D rowSpanHeap = new Grid3D(size, size, size);
+		Grid3D rowSpanOffHeap = new OffHeapGrid3D(size, size, size);
+		Grid3D slabHeap = new Grid3D(size, size, size);
+		Grid3D slabOffHeap = new OffHeapGrid3D(size, size, size);
+		for (int p = 0; p < numProjections; p++){
+			rowSpan.backproject(rowSpanHeap, projections[p], p);
+			rowSpan.backproject(rowSpanOffHeap, projections[p], p);
+			slab.backproject(slabHeap, projections[p], p);
+			slab.backproject(slabOffHeap, projections[p], p);
+		}
+		assertSameVolume(rowSpanHeap, rowSpanOffHeap);
+		assertSameVolume(slabHeap, slabOffHeap);
+	}
+
+	private static void assertInterpolation(FloatProcessor reference, float [] pixels, double x, double y){
+		double expected = reference.getInterpolatedValue(x, y);
+		double actual = RowSpanBackprojector.interpolate(pixels, reference.getWidth(), reference.getHeight(), x, y);
+		Assert.assertEquals("x = " + x + ", y = " + y, expected, actual, 1e-5);
+	}
+
+	@Test
+	public void testInterpolationAtTheBorders(){
+		int width = 7;
+		int height = 5;
+		Random random = new Random(4);
+		float [] pixels = new float[width * height];
+		for (int i = 0; i < pixels.length; i++){
+			pixels[i] = 1 + random.nextFloat();
+		}
+		FloatProcessor reference = new FloatProcessor(width, height, pixels, null);
+		double [] xs = {-1.5, -1, -0.5, 0, 0.5, width / 2.0, width - 1.5, width - 1, width - 0.5, width};
+		double [] ys = {-1.5, -1, -0.5, 0, 0.5, height / 2.0, height - 1.5, height - 1, height - 0.5, height};
+		for (double x : xs){
+			for (double y : ys){
+				assertInterpolation(reference, pixels, x, y);
+			}
+		}
+		for (int k = 0; k < 1000; k++){
+			assertInterpolation(reference, pixels, (width + 2) * random.nextDouble() - 1.5, (height + 2) * random.nextDouble() - 1.5);
+		}
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
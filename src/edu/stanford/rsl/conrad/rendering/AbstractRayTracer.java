@@ -43,6 +43,12 @@ public abstract class AbstractRayTracer {
 	// Cache the information whether an object is a triangle or not
 	private HashMap<PhysicalObject, Boolean> objIsTriangleCache = new HashMap<>();
 
+	/**
+	 * If set, the objects of the scene are culled with a {@link BoundingVolumeHierarchy} before they are intersected with a ray.
+	 */
+	protected boolean useBoundingVolumeHierarchy = true;
+	protected volatile BoundingVolumeHierarchy boundingVolumeHierarchy = null;
+
 	/**
 	 * @return the scene
 	 */
@@ -55,6 +61,46 @@ public abstract class AbstractRayTracer {
 	 */
 	public void setScene(AbstractScene scene) {
 		this.scene = scene;
+		boundingVolumeHierarchy = null;
+	}
+
+	/**
+	 * @return whether the scene is culled with a bounding volume hierarchy
+	 */
+	public boolean isUseBoundingVolumeHierarchy() {
+		return useBoundingVolumeHierarchy;
+	}
+
+	/**
+	 * Determines whether the objects of the scene are culled with a {@link BoundingVolumeHierarchy}. The hierarchy is built with
+	 * the first ray after the scene was set. If objects are added to or removed from the scene later on, the scene has to be set again.
+	 * @param useBoundingVolumeHierarchy
+	 */
+	public void setUseBoundingVolumeHierarchy(boolean useBoundingVolumeHierarchy) {
+		this.useBoundingVolumeHierarchy = useBoundingVolumeHierarchy;
+	}
+
+	/**
+	 * Returns the objects of the scene that may be hit by the ray in the order of the scene. If the bounding volume hierarchy is
+	 * disabled or the ray is not a straight line in 3D, the complete scene is returned.
+	 * @param ray the ray
+	 * @return the candidate objects
+	 */
+	protected Iterable<PhysicalObject> getCandidates(AbstractCurve ray) {
+		if (!useBoundingVolumeHierarchy || !(ray instanceof StraightLine) || ray.getDimension() != 3) {
+			return scene;
+		}
+		BoundingVolumeHierarchy bvh = boundingVolumeHierarchy;
+		if (bvh == null || bvh.getNumberOfObjects() != scene.size()) {
+			synchronized (this) {
+				bvh = boundingVolumeHierarchy;
+				if (bvh == null || bvh.getNumberOfObjects() != scene.size()) {
+					bvh = new BoundingVolumeHierarchy(scene);
+					boundingVolumeHierarchy = bvh;
+				}
+			}
+		}
+		return bvh.getCandidates((StraightLine) ray);
 	}
 
 	/**
@@ -208,7 +254,7 @@ public abstract class AbstractRayTracer {
 		ArrayList<PhysicalPoint> rayList = new ArrayList<PhysicalPoint>();
 		SimpleVector smallIncrementAlongRay = SimpleOperators.subtract(ray.evaluate(CONRAD.SMALL_VALUE).getAbstractVector(), ray.evaluate(0).getAbstractVector());
 		// compute ray intersections:
-		for (PhysicalObject shape: scene) {
+		for (PhysicalObject shape: getCandidates(ray)) {
 			if (shape.getShape().getHitsOnBoundingBox(ray).size() > 0) {
 				ArrayList<PointND> intersection = shape.intersectWithHitOrientation(ray);
 				
@@ -0,0 +1,340 @@
+package edu.stanford.rsl.conrad.rendering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+import edu.stanford.rsl.conrad.geometry.AbstractShape;
+import edu.stanford.rsl.conrad.geometry.shapes.simple.PointND;
+import edu.stanford.rsl.conrad.geometry.shapes.simple.StraightLine;
+import edu.stanford.rsl.conrad.numerics.SimpleVector;
+import edu.stanford.rsl.conrad.physics.PhysicalObject;
+import edu.stanford.rsl.conrad.utils.CONRAD;
+
+/**
+ * Bounding volume hierarchy over the axis-aligned bounding boxes of the objects of a scene. The hierarchy is built with the
+ * surface area heuristic (SAH) on binned object centroids and is stored in flat primitive arrays, i.e. node i has
+ * its bounding box at nodeBounds[6*i ... 6*i+5] in the order minX, minY, minZ, maxX, maxY, maxZ.<br>
+ * The hierarchy is only used to cull objects. {@link #getCandidates(StraightLine)} returns all objects whose bounding box
+ * may be hit by the ray in the order of the scene. Hence, the ray tracers still perform the exact tests on the returned objects.
+ * Objects without a bounding box are always returned.<br>
+ * Once built, the hierarchy is immutable and may be queried by several threads concurrently.
+ *
+ * @author akmaier
+ *
+ */
+public class BoundingVolumeHierarchy {
+
+	/** Number of bins per axis used to evaluate the SAH. */
+	protected static final int NUM_BINS = 16;
+	/** Nodes with at most this many objects are always leaves. */
+	protected static final int MIN_LEAF_SIZE = 2;
+	/** Nodes with more objects are always split if possible. */
+	protected static final int MAX_LEAF_SIZE = 8;
+	/** Cost of one traversal step relative to one bounding box test of an object. */
+	protected static final double TRAVERSAL_COST = 1.0;
+
+	protected PhysicalObject [] objects;
+	/** scene indices of objects which are not bounded and are therefore not part of the tree */
+	protected int [] unbounded;
+	/** bounds of the nodes, 6 entries per node */
+	protected double [] nodeBounds;
+	/** leaf: index of the first object in objectIndices; inner node: index of the left child. The right child is stored at left child + 1. */
+	protected int [] nodeFirst;
+	/** number of objects of a leaf, 0 for inner nodes */
+	protected int [] nodeCount;
+	/** scene indices of the objects referenced by the leaves */
+	protected int [] objectIndices;
+	protected int numNodes = 0;
+	protected int depth = 0;
+
+	// build only
+	private double [] objectBounds;
+	private double [] centroids;
+
+	/**
+	 * Builds the hierarchy over the given objects. The objects are indexed in the iteration order of the collection.
+	 * Changes of the collection or of the shapes after the build are not reflected.
+	 * @param scene the objects
+	 */
+	public BoundingVolumeHierarchy(Collection<PhysicalObject> scene){
+		objects = scene.toArray(new PhysicalObject[scene.size()]);
+		objectBounds = new double[6 * objects.length];
+		centroids = new double[3 * objects.length];
+		int [] bounded = new int[objects.length];
+		int [] others = new int[objects.length];
+		int numBounded = 0;
+		int numOthers = 0;
+		for (int n = 0; n < objects.length; n++){
+			AbstractShape shape = objects[n].getShape();
+			PointND min = (shape != null) ? shape.getMin() : null;
+			PointND max = (shape != null) ? shape.getMax() : null;
+			if (min == null || max == null || !shape.isBounded() || min.getDimension() != 3){
+				others[numOthers++] = n;
+				continue;
+			}
+			for (int d = 0; d < 3; d++){
+				objectBounds[6*n + d] = Math.min(min.get(d), max.get(d)) - CONRAD.SMALL_VALUE;
+				objectBounds[6*n + 3 + d] = Math.max(min.get(d), max.get(d)) + CONRAD.SMALL_VALUE;
+				centroids[3*n + d] = 0.5 * (objectBounds[6*n + d] + objectBounds[6*n + 3 + d]);
+			}
+			bounded[numBounded++] = n;
+		}
+		unbounded = Arrays.copyOf(others, numOthers);
+		objectIndices = Arrays.copyOf(bounded, numBounded);
+		int maxNodes = Math.max(1, (2 * numBounded) - 1);
+		nodeBounds = new double[6 * maxNodes];
+		nodeFirst = new int[maxNodes];
+		nodeCount = new int[maxNodes];
+		if (numBounded > 0){
+			numNodes = 1;
+			build(0, 0, numBounded, 1);
+		}
+		objectBounds = null;
+		centroids = null;
+	}
+
+	private void build(int node, int first, int count, int level){
+		depth = Math.max(depth, level);
+		double [] bounds = new double[6];
+		double [] centroidBounds = new double[6];
+		emptyBounds(bounds);
+		emptyBounds(centroidBounds);
+		for (int n = first; n < first + count; n++){
+			int o = objectIndices[n];
+			for (int d = 0; d < 3; d++){
+				bounds[d] = Math.min(bounds[d], objectBounds[6*o + d]);
+				bounds[3 + d] = Math.max(bounds[3 + d], objectBounds[6*o + 3 + d]);
+				centroidBounds[d] = Math.min(centroidBounds[d], centroids[3*o + d]);
+				centroidBounds[3 + d] = Math.max(centroidBounds[3 + d], centroids[3*o + d]);
+			}
+		}
+		System.arraycopy(bounds, 0, nodeBounds, 6 * node, 6);
+		nodeFirst[node] = first;
+		nodeCount[node] = count;
+		if (count <= MIN_LEAF_SIZE) return;
+
+		// evaluate the SAH for all bin borders of all axes
+		int bestAxis = -1;
+		int bestBin = -1;
+		double bestCost = Double.POSITIVE_INFINITY;
+		int [] binCount = new int[NUM_BINS];
+		double [] binBounds = new double[6 * NUM_BINS];
+		double [] rightArea = new double[NUM_BINS];
+		int [] rightCount = new int[NUM_BINS];
+		double [] box = new double[6];
+		for (int axis = 0; axis < 3; axis++){
+			double cmin = centroidBounds[axis];
+			double extent = centroidBounds[3 + axis] - cmin;
+			if (extent <= 0) continue;
+			Arrays.fill(binCount, 0);
+			for (int b = 0; b < NUM_BINS; b++){
+				emptyBounds(binBounds, 6*b);
+			}
+			for (int n = first; n < first + count; n++){
+				int o = objectIndices[n];
+				int b = getBin(centroids[3*o + axis], cmin, extent);
+				binCount[b]++;
+				for (int d = 0; d < 3; d++){
+					binBounds[6*b + d] = Math.min(binBounds[6*b + d], objectBounds[6*o + d]);
+					binBounds[6*b + 3 + d] = Math.max(binBounds[6*b + 3 + d], objectBounds[6*o + 3 + d]);
+				}
+			}
+			// sweep from the right
+			emptyBounds(box);
+			int sum = 0;
+			for (int b = NUM_BINS - 1; b > 0; b--){
+				growBounds(box, binBounds, 6*b);
+				sum += binCount[b];
+				rightCount[b] = sum;
+				rightArea[b] = surfaceArea(box);
+			}
+			// sweep from the left; split between bin b-1 and b
+			emptyBounds(box);
+			sum = 0;
+			for (int b = 1; b < NUM_BINS; b++){
+				growBounds(box, binBounds, 6*(b-1));
+				sum += binCount[b-1];
+				if (sum == 0 || rightCount[b] == 0) continue;
+				double cost = (sum * surfaceArea(box)) + (rightCount[b] * rightArea[b]);
+				if (cost < bestCost){
+					bestCost = cost;
+					bestAxis = axis;
+					bestBin = b;
+				}
+			}
+		}
+		if (bestAxis < 0) return; // all centroids coincide
+		double area = surfaceArea(bounds);
+		double splitCost = TRAVERSAL_COST + ((area > 0) ? bestCost / area : count);
+		if (splitCost >= count && count <= MAX_LEAF_SIZE) return;
+
+		// partition the objects in place
+		double cmin = centroidBounds[bestAxis];
+		double extent = centroidBounds[3 + bestAxis] - cmin;
+		int left = first;
+		int right = first + count - 1;
+		while (left <= right){
+			int o = objectIndices[left];
+			if (getBin(centroids[3*o + bestAxis], cmin, extent) < bestBin){
+				left++;
+			} else {
+				objectIndices[left] = objectIndices[right];
+				objectIndices[right] = o;
+				right--;
+			}
+		}
+		int leftChild = numNodes;
+		numNodes += 2;
+		nodeFirst[node] = leftChild;
+		nodeCount[node] = 0;
+		build(leftChild, first, left - first, level + 1);
+		build(leftChild + 1, left, first + count - left, level + 1);
+	}
+
+	private static int getBin(double centroid, double min, double extent){
+		int b = (int) (NUM_BINS * ((centroid - min) / extent));
+		return Math.min(Math.max(b, 0), NUM_BINS - 1);
+	}
+
+	private static void emptyBounds(double [] bounds){
+		emptyBounds(bounds, 0);
+	}
+
+	private static void emptyBounds(double [] bounds, int offset){
+		for (int d = 0; d < 3; d++){
+			bounds[offset + d] = Double.POSITIVE_INFINITY;
+			bounds[offset + 3 + d] = Double.NEGATIVE_INFINITY;
+		}
+	}
+
+	private static void growBounds(double [] bounds, double [] other, int offset){
+		for (int d = 0; d < 3; d++){
+			bounds[d] = Math.min(bounds[d], other[offset + d]);
+			bounds[3 + d] = Math.max(bounds[3 + d], other[offset + 3 + d]);
+		}
+	}
+
+	private static double surfaceArea(double [] bounds){
+		double ex = bounds[3] - bounds[0];
+		double ey = bounds[4] - bounds[1];
+		double ez = bounds[5] - bounds[2];
+		if (ex < 0 || ey < 0 || ez < 0) return 0;
+		return 2 * ((ex * ey) + (ey * ez) + (ez * ex));
+	}
+
+	/**
+	 * Determines the scene indices of all objects whose bounding box may be hit by the ray. The test uses the same
+	 * conventions as {@link AbstractShape#getHitsOnBoundingBox(edu.stanford.rsl.conrad.geometry.AbstractCurve)}, i.e. boxes
+	 * that lie completely behind the origin of the ray are not reported.
+	 * @param origin the origin of the ray
+	 * @param direction the normalized direction of the ray
+	 * @param candidates output array of at least {@link #getNumberOfObjects()} entries. The indices are sorted in ascending order.
+	 * @return the number of candidates
+	 */
+	public int getCandidates(double [] origin, double [] direction, int [] candidates){
+		int found = 0;
+		for (int n = 0; n < unbounded.length; n++){
+			candidates[found++] = unbounded[n];
+		}
+		if (numNodes > 0){
+			final double ox = origin[0], oy = origin[1], oz = origin[2];
+			final double dx = direction[0], dy = direction[1], dz = direction[2];
+			final boolean parallelX = Math.abs(dx) < CONRAD.DOUBLE_EPSILON;
+			final boolean parallelY = Math.abs(dy) < CONRAD.DOUBLE_EPSILON;
+			final boolean parallelZ = Math.abs(dz) < CONRAD.DOUBLE_EPSILON;
+			final double ix = 1.0 / dx, iy = 1.0 / dy, iz = 1.0 / dz;
+			int [] stack = new int[depth + 1];
+			int top = 0;
+			stack[top++] = 0;
+			while (top > 0){
+				int node = stack[--top];
+				int b = 6 * node;
+				double near = Double.NEGATIVE_INFINITY;
+				double far = Double.POSITIVE_INFINITY;
+				if (parallelX){
+					if (ox < nodeBounds[b] || ox > nodeBounds[b + 3]) continue;
+				} else {
+					double t1 = (nodeBounds[b] - ox) * ix;
+					double t2 = (nodeBounds[b + 3] - ox) * ix;
+					near = Math.max(near, Math.min(t1, t2));
+					far = Math.min(far, Math.max(t1, t2));
+				}
+				if (parallelY){
+					if (oy < nodeBounds[b + 1] || oy > nodeBounds[b + 4]) continue;
+				} else {
+					double t1 = (nodeBounds[b + 1] - oy) * iy;
+					double t2 = (nodeBounds[b + 4] - oy) * iy;
+					near = Math.max(near, Math.min(t1, t2));
+					far = Math.min(far, Math.max(t1, t2));
+				}
+				if (parallelZ){
+					if (oz < nodeBounds[b + 2] || oz > nodeBounds[b + 5]) continue;
+				} else {
+					double t1 = (nodeBounds[b + 2] - oz) * iz;
+					double t2 = (nodeBounds[b + 5] - oz) * iz;
+					near = Math.max(near, Math.min(t1, t2));
+					far = Math.min(far, Math.max(t1, t2));
+				}
+				if (near > far + CONRAD.FLOAT_EPSILON || far < 0) continue;
+				int count = nodeCount[node];
+				if (count > 0){
+					int first = nodeFirst[node];
+					for (int n = first; n < first + count; n++){
+						candidates[found++] = objectIndices[n];
+					}
+				} else {
+					stack[top++] = nodeFirst[node] + 1;
+					stack[top++] = nodeFirst[node];
+				}
+			}
+		}
+		Arrays.sort(candidates, 0, found);
+		return found;
+	}
+
+	/**
+	 * Returns all objects whose bounding box may be hit by the line in the order of the scene.
+	 * @param line the ray. The direction must be normalized.
+	 * @return the candidate objects
+	 */
+	public ArrayList<PhysicalObject> getCandidates(StraightLine line){
+		SimpleVector dir = line.getDirection();
+		double [] direction = new double [] {dir.getElement(0), dir.getElement(1), dir.getElement(2)};
+		PointND point = line.getPoint();
+		double [] origin = new double [] {point.get(0), point.get(1), point.get(2)};
+		int [] candidates = new int[objects.length];
+		int found = getCandidates(origin, direction, candidates);
+		ArrayList<PhysicalObject> revan = new ArrayList<PhysicalObject>(found);
+		for (int n = 0; n < found; n++){
+			revan.add(objects[candidates[n]]);
+		}
+		return revan;
+	}
+
+	/**
+	 * @return the number of objects the hierarchy was built for
+	 */
+	public int getNumberOfObjects(){
+		return objects.length;
+	}
+
+	/**
+	 * @return the number of nodes of the tree
+	 */
+	public int getNumberOfNodes(){
+		return numNodes;
+	}
+
+	/**
+	 * @return the maximal number of nodes on a path from the root to a leaf
+	 */
+	public int getDepth(){
+		return depth;
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
@@ -0,0 +1,102 @@
+package edu.stanford.rsl.conrad.rendering;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import edu.stanford.rsl.conrad.geometry.shapes.simple.PointND;
+import edu.stanford.rsl.conrad.geometry.shapes.simple.Sphere;
+import edu.stanford.rsl.conrad.geometry.shapes.simple.StraightLine;
+import edu.stanford.rsl.conrad.phantom.xcat.XCatScene;
+import edu.stanford.rsl.conrad.physics.PhysicalObject;
+import edu.stanford.rsl.conrad.physics.materials.database.MaterialsDB;
+import edu.stanford.rsl.conrad.utils.Configuration;
+
+/**
+ * RayTracerBenchmark measures the rays per second of the {@link PriorityRayTracer} with and without culling by the
+ * {@link BoundingVolumeHierarchy}. The rays form a cone beam from a source outside the scene onto a virtual detector behind the scene.<br>
+ * Usage: RayTracerBenchmark [XCatScene class, e.g. edu.stanford.rsl.conrad.phantom.xcat.HeartScene] [detector size]<br>
+ * XCat scenes are configured with the global configuration and require the XCat data. Without arguments, a scene of 1000 random spheres is used.
+ *
+ * @author akmaier
+ */
+public class RayTracerBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		PrioritizableScene scene;
+		if (args.length > 0) {
+			Configuration.loadConfiguration();
+			XCatScene xcat = (XCatScene) Class.forName(args[0]).getDeclaredConstructor().newInstance();
+			xcat.configure();
+			scene = xcat.getScene(0.5);
+		} else {
+			scene = createSphereScene(1000, 42);
+		}
+		int detectorSize = (args.length > 1) ? Integer.parseInt(args[1]) : 64;
+
+		PointND min = scene.getMin();
+		PointND max = scene.getMax();
+		double [] center = new double[3];
+		double extent = 0;
+		for (int d = 0; d < 3; d++) {
+			center[d] = 0.5 * (min.get(d) + max.get(d));
+			extent = Math.max(extent, max.get(d) - min.get(d));
+		}
+		PointND source = new PointND(center[0] - (2 * extent), center[1], center[2]);
+		ArrayList<StraightLine> rays = new ArrayList<StraightLine>();
+		for (int v = 0; v < detectorSize; v++) {
+			for (int u = 0; u < detectorSize; u++) {
+				PointND pixel = new PointND(center[0] + (2 * extent),
+						center[1] + (((u + 0.5) / detectorSize) - 0.5) * 1.5 * extent,
+						center[2] + (((v + 0.5) / detectorSize) - 0.5) * 1.5 * extent);
+				StraightLine ray = new StraightLine(source, pixel);
+				ray.normalize();
+				rays.add(ray);
+			}
+		}
+
+		System.out.println("Scene with " + scene.size() + " objects, " + rays.size() + " rays");
+		String leftAlignFormat = "| %-25s | %12.1f | %10d |%n";
+		System.out.format("+---------------------------+--------------+------------+%n");
+		System.out.printf("| culling                   | rays/s       | segments   |%n");
+		System.out.format("+---------------------------+--------------+------------+%n");
+		boolean [] modes = {false, true};
+		for (boolean useBVH : modes) {
+			PriorityRayTracer tracer = new PriorityRayTracer();
+			tracer.setScene(scene);
+			tracer.setUseBoundingVolumeHierarchy(useBVH);
+			// warm up
+			for (int r = 0; r < Math.min(rays.size(), 256); r++) {
+				tracer.castRay(rays.get(r));
+			}
+			long segments = 0;
+			long start = System.nanoTime();
+			for (StraightLine ray : rays) {
+				ArrayList<PhysicalObject> result = tracer.castRay(ray);
+				if (result != null) segments += result.size();
+			}
+			double seconds = (System.nanoTime() - start) / 1.0e9;
+			System.out.format(leftAlignFormat, useBVH ? "bounding volume hierarchy" : "none", rays.size() / seconds, segments);
+		}
+		System.out.format("+---------------------------+--------------+------------+%n");
+	}
+
+	private static PrioritizableScene createSphereScene(int numSpheres, long seed) {
+		Random random = new Random(seed);
+		PrioritizableScene scene = new PrioritizableScene();
+		for (int n = 0; n < numSpheres; n++) {
+			PhysicalObject obj = new PhysicalObject();
+			obj.setNameString("Sphere " + n);
+			obj.setMaterial(MaterialsDB.getMaterial((n % 2 == 0) ? "bone" : "water"));
+			obj.setShape(new Sphere(1 + (4 * random.nextDouble()), new PointND(200 * random.nextDouble(), 200 * random.nextDouble(), 200 * random.nextDouble())));
+			scene.add(obj, n);
+		}
+		scene.setMin(new PointND(-5, -5, -5));
+		scene.setMax(new PointND(205, 205, 205));
+		return scene;
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
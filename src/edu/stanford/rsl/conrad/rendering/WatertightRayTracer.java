@@ -15,6 +15,7 @@ import java.util.Stack;
 import edu.stanford.rsl.conrad.geometry.AbstractCurve;
 import edu.stanford.rsl.conrad.geometry.AbstractShape;
 import edu.stanford.rsl.conrad.geometry.shapes.compound.CompoundShape;
+import edu.stanford.rsl.conrad.geometry.shapes.mesh.PackedTriangleMesh;
 import edu.stanford.rsl.conrad.geometry.shapes.simple.Edge;
 import edu.stanford.rsl.conrad.geometry.shapes.simple.PointND;
 import edu.stanford.rsl.conrad.geometry.shapes.simple.ProjectPointToLineComparator;
@@ -192,9 +193,10 @@ public class WatertightRayTracer extends AbstractRayTracer {
 		ArrayList<PhysicalPoint> hits = new ArrayList<>();
 		
 		Queue<AbstractShape> queue;
+		PackedTriangleMesh.Hits meshHits = null;
 		// Iterate over objects of scene
-		for (PhysicalObject obj : scene) {
-			// This algorithm can only process triangles, which are usually embedded in a compound shape
+		for (PhysicalObject obj : getCandidates(ray)) {
+			// This algorithm can only process triangles, which are usually embedded in a compound shape or packed into a PackedTriangleMesh
 			queue = new LinkedList<>();
 			queue.add(obj.getShape());
 			while (!queue.isEmpty()) {
@@ -207,6 +209,22 @@ public class WatertightRayTracer extends AbstractRayTracer {
 						queue.addAll(cs);
 					}
 				}
+				else if (shape instanceof PackedTriangleMesh) {
+					// Packed meshes are intersected without allocating intermediate points
+					if (meshHits == null) {
+						meshHits = new PackedTriangleMesh.Hits();
+					}
+					PackedTriangleMesh mesh = (PackedTriangleMesh) shape;
+					mesh.intersect(origin.get(0), origin.get(1), origin.get(2), dir[0], dir[1], dir[2], meshHits);
+					for (int i = 0; i < meshHits.size(); i++) {
+						double[] hitCoords = new double[3];
+						meshHits.getPosition(i, hitCoords);
+						PhysicalPoint hit = new PhysicalPoint(hitCoords);
+						hit.setHitOrientation(meshHits.getOrientation(i));
+						hit.setObject(obj);
+						hits.add(hit);
+					}
+				}
 				else if (!(shape instanceof Triangle)) {
 					System.err.println("Only triangles can be intersected by the watertight algorithm. As the current shape is not a triangle, it will be skipped.");
 				}
@@ -0,0 +1,128 @@
+package edu.stanford.rsl.conrad.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Binary counterpart of {@link XmlUtils}. Objects are stored with Java serialization after a header that contains a magic number and
+ * the version of the file format. Reading a binary file is much faster than decoding XML, e.g. for configurations with many projections
+ * or for filter pipelines that are loaded by many reconstruction workers. The XML format remains the format for import and export.<br>
+ * Objects that implement {@link edu.stanford.rsl.conrad.io.SafeSerializable} should be prepared for serialization before the export.
+ *
+ * @author akmaier
+ * @see XmlUtils
+ */
+public class BinaryUtils {
+
+	/** Magic number at the start of each binary file ("CNRD"). */
+	public static final int MAGIC = 0x434E5244;
+
+	/** Version of the file format. Files of other versions are rejected and have to be exported again. */
+	public static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Writes the object to a binary file. The file is written to a temporary file first and then moved to the target.
+	 * Hence, concurrent readers never see a partial file.
+	 * @param toExport the object
+	 * @param filename the name of the file
+	 * @throws IOException if the object cannot be written, e.g. as it contains objects that are not serializable
+	 */
+	public static void exportToBinary(Serializable toExport, String filename) throws IOException {
+		File file = new File(filename).getAbsoluteFile();
+		File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+		try {
+			DataOutputStream header = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+			header.writeInt(MAGIC);
+			header.writeInt(FORMAT_VERSION);
+			ObjectOutputStream oos = new ObjectOutputStream(header);
+			oos.writeObject(toExport);
+			oos.close();
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * Reads an object from a binary file.
+	 * @param filename the name of the file
+	 * @return the object
+	 * @throws IOException if the file is not a binary file of the current format version or cannot be read
+	 * @throws ClassNotFoundException if a class of the stored objects is not available
+	 */
+	public static Object importFromBinary(String filename) throws IOException, ClassNotFoundException {
+		DataInputStream header = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+		try {
+			if (header.readInt() != MAGIC) {
+				throw new IOException(filename + " is not a CONRAD binary file.");
+			}
+			int version = header.readInt();
+			if (version != FORMAT_VERSION) {
+				throw new IOException(filename + " has format version " + version + ". Supported version is " + FORMAT_VERSION + ".");
+			}
+			ObjectInputStream ois = new ConradObjectInputStream(header);
+			return ois.readObject();
+		} finally {
+			header.close();
+		}
+	}
+
+	/**
+	 * Checks the magic number of a file.
+	 * @param filename the name of the file
+	 * @return true if the file exists and starts with {@link #MAGIC}
+	 */
+	public static boolean isBinaryFile(String filename) {
+		File file = new File(filename);
+		if (!file.isFile() || file.length() < 8) {
+			return false;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new FileInputStream(file));
+			try {
+				return in.readInt() == MAGIC;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Resolves the classes with the class loader of CONRAD, as {@link XmlUtils} does, such that plugins can read the files.
+	 */
+	private static class ConradObjectInputStream extends ObjectInputStream {
+
+		private ConradObjectInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			try {
+				return Class.forName(desc.getName(), false, Configuration.class.getClassLoader());
+			} catch (ClassNotFoundException e) {
+				return super.resolveClass(desc);
+			}
+		}
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
@@ -2,9 +2,11 @@ package edu.stanford.rsl.conrad.utils;
 
 import java.beans.XMLDecoder;
 import java.beans.XMLEncoder;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.HashMap;
 import java.util.Locale;
@@ -39,6 +41,10 @@ import ij.ImageJ;
  * Configuration is used to import Conrad configurations more easily and to store them globally.
  * Configuration objects can be used to configure filters and tools faster and more easily as
  * many of them require similar parameters regarding geometry, etc.
+ * <p>
+ * Configurations are stored as XML. In addition, {@link #saveConfiguration()} writes a binary copy
+ * next to the XML file (see {@link BinaryUtils}), which {@link #loadConfiguration()} reads instead of the XML
+ * as long as it is not older than the XML file. Hence, processes that load the global configuration start quickly.
  * 
  * @author Andreas Maier
  *
@@ -261,10 +267,52 @@ public class Configuration implements SafeSerializable {
 	public static void saveConfiguration(){
 		String filename = System.getProperty("user.home") + "/Conrad.xml";
 		saveConfiguration(getGlobalConfiguration(), filename);
+		saveConfigurationBinary(getGlobalConfiguration(), getBinaryFileName(filename));
 		setGlobalConfiguration(null);
 		loadConfiguration();
 	}
 
+	/**
+	 * Writes the configuration in the binary format of {@link BinaryUtils}.
+	 * @param config the configuration
+	 * @param filename the name of the file
+	 * @return true if the configuration was written
+	 */
+	public static boolean saveConfigurationBinary(Configuration config, String filename){
+		try {
+			config.prepareForSerialization();
+			BinaryUtils.exportToBinary(config, filename);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Reads a configuration that was written by {@link #saveConfigurationBinary(Configuration, String)}.
+	 * @param filename the name of the file
+	 * @return the configuration or null if the file cannot be read, e.g. because of a different format version
+	 */
+	public static Configuration loadConfigurationBinary(String filename){
+		try {
+			return (Configuration) BinaryUtils.importFromBinary(filename);
+		} catch (Exception e) {
+			System.out.println("Could not read binary configuration " + filename + ": " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param filename the name of the XML file
+	 * @return the name of the binary copy of the XML file
+	 */
+	private static String getBinaryFileName(String filename){
+		if (filename.toLowerCase().endsWith(".xml"))
+			filename = filename.substring(0, filename.length() - 4);
+		return filename + ".bin";
+	}
+
 	public static void saveConfiguration(Configuration config, String filename){
 		try {
 			Thread.currentThread().setContextClassLoader(Configuration.class.getClassLoader());
@@ -280,14 +328,33 @@ public class Configuration implements SafeSerializable {
 	public static void loadConfiguration(){
 		if (getGlobalConfiguration() == null){
 			String filename = System.getProperty("user.home") + "/Conrad.xml";
-			Configuration config = loadConfiguration(filename);
+			File xml = new File(filename);
+			File binary = new File(getBinaryFileName(filename));
+			Configuration config = null;
+			if (xml.exists() && binary.exists() && binary.lastModified() >= xml.lastModified()) {
+				config = loadConfigurationBinary(binary.getPath());
+			}
+			if (config == null) {
+				config = loadConfiguration(filename);
+				// refresh the binary copy for the next start
+				if (config != null && xml.exists()) saveConfigurationBinary(config, binary.getPath());
+			}
 			if (config !=null) {
 				setGlobalConfiguration(config);
 			}
 		}
 	}
 
+	/**
+	 * Reads a configuration from an XML file or from a binary file that was written by {@link #saveConfigurationBinary(Configuration, String)}.
+	 * The format is detected from the content of the file.
+	 * @param filename the name of the file
+	 * @return the configuration
+	 */
 	public static Configuration loadConfiguration(String filename){
+		if (BinaryUtils.isBinaryFile(filename)) {
+			return loadConfigurationBinary(filename);
+		}
 		try {
 			Thread.currentThread().setContextClassLoader(Configuration.class.getClassLoader());
 			ExceptionListener el = new ExceptionListener() {
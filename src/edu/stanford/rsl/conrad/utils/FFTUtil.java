@@ -5,6 +5,7 @@ import edu.emory.mathcs.jtransforms.fft.DoubleFFT_2D;
 import edu.stanford.rsl.conrad.data.numeric.Grid2D;
 import edu.stanford.rsl.conrad.data.numeric.NumericPointwiseOperators;
 import edu.stanford.rsl.conrad.filtering.rampfilters.RampFilter;
+import edu.stanford.rsl.conrad.filtering.rampfilters.RampFilterEngine;
 
 
 /**
@@ -353,75 +354,14 @@ public abstract class FFTUtil {
 
 
 	/**
-	 * Applies a ramp filter to the an ImageProcessor
+	 * Applies a ramp filter to the an ImageProcessor. The rows are filtered by the {@link RampFilterEngine}, i.e. zero-padded
+	 * to the next power of two of the image width and transformed with cached real-to-complex FFTs.
 	 * @param imp the ImageProcessor to be filtered
 	 * @param ramp the ramp
 	 * @return the filtered ImageProcessor
 	 */
-	public static Grid2D applyRampFilter_ECC(Grid2D imp, RampFilter ramp){
-		int originalWidth;
-		int originalHeight;
-		int maxN;
-		boolean error = false;
-		originalWidth = imp.getWidth();
-		originalHeight = imp.getHeight();
-		maxN = Math.max(originalWidth, originalHeight);
-		int newDimension = FFTUtil.getNextPowerOfTwo(maxN);
-		// Write the data to JTransforms format
-		double [] fftData = new double[newDimension*2];
-		double [] filter = ramp.getRampFilter1D(newDimension);
-		if (DoubleArrayUtil.isNaN(filter)){
-			System.out.println("NaN found in Filter!");
-		}
-		DoubleFFT_1D fft = new DoubleFFT_1D(newDimension);
-		Grid2D revan = new Grid2D(originalWidth, originalHeight);
-		revan.setOrigin(imp.getOrigin());
-		revan.setSpacing(imp.getSpacing());
-		for (int j = 0;  j < imp.getHeight(); j++){
-			for (int i = 0 ; i < newDimension *2; i++){
-				fftData[i] = 0;
-			}
-			if (DoubleArrayUtil.isNaN(fftData)){
-				System.out.println("Never happens!");
-			}
-			for (int i = 0 ; i < imp.getWidth(); i++){
-				fftData[i*2] = imp.getPixelValue(i, j);
-			}
-			if (DoubleArrayUtil.isNaN(fftData)){
-				System.out.println("NaN found in input Data! line " + j);
-				for (int i = 0 ; i < imp.getWidth(); i++){
-					if (Double.isNaN(fftData[i*2])){
-						System.out.println("index " + i);
-					}
-				}
-				error = true;
-			}
-			// Perform forward transform
-			fft.complexForward(fftData);
-			if (DoubleArrayUtil.isNaN(fftData)){
-				System.out.println("NaN found after FFT!");
-			}
-			// Filter
-			fftData = FFTUtil.multiplyAbsolute(fftData, filter);
-			if (DoubleArrayUtil.isNaN(fftData)){
-				System.out.println("NaN found after filter application!");
-			}
-			// Perform backward transform
-			fft.complexInverse(fftData, true);
-			if (DoubleArrayUtil.isNaN(fftData)){
-				System.out.println("NaN found after iFFT!");
-			}
-			for (int i = 0 ; i< revan.getWidth(); i++){
-				double value = fftData[i*2];
-				revan.putPixelValue(i, j, value);
-			}
-		}
-		if (error) {
-			//ImagePlus gi = ImageUtil.wrapGrid3D(imp, "");
-			//gi.setTitle("Errors");
-			//gi.show();
-		}
-		return revan;
+	public static Grid2D applyRampFilter(Grid2D imp, RampFilter ramp){
+		return RampFilterEngine.applyRampFilter(imp, ramp);
 	}
 
 	/**
@@ -429,41 +369,11 @@ public abstract class FFTUtil {
 	 * @param imp the ImageProcessor to be filtered
 	 * @param ramp the ramp
 	 * @return the filtered ImageProcessor
+	 * @deprecated use {@link #applyRampFilter(Grid2D, RampFilter)}. Both methods use the {@link RampFilterEngine}.
 	 */
-	public static Grid2D applyRampFilter(Grid2D imp, RampFilter ramp){
-		int originalWidth;
-		int originalHeight;
-		int maxN;
-		originalWidth = imp.getWidth();
-		originalHeight = imp.getHeight();
-		maxN = Math.max(originalWidth, originalHeight);
-		int newDimension = FFTUtil.getNextPowerOfTwo(maxN); // Satisfy Nyquist?
-		// Write the data to JTransforms format
-		double [] fftData = new double[newDimension*2];	// Zero padding?
-		double [] filter = ramp.getRampFilter1D(newDimension);		
-		DoubleFFT_1D fft = new DoubleFFT_1D(newDimension);
-		Grid2D revan = new Grid2D(originalWidth, originalHeight);
-		revan.setOrigin(imp.getOrigin());
-		revan.setSpacing(imp.getSpacing());
-		for (int j = 0;  j < imp.getHeight(); j++){
-			for (int i = 0 ; i < newDimension *2; i++){
-				fftData[i] = 0;
-			}
-			for (int i = 0 ; i < imp.getWidth(); i++){
-				fftData[i*2] = imp.getPixelValue(i, j);
-			}
-			// Perform forward transform
-			fft.complexForward(fftData);
-			// Filter
-			fftData = FFTUtil.multiplyAbsolute(fftData, filter);
-			// Perform backward transform
-			fft.complexInverse(fftData, true);
-			for (int i = 0 ; i< revan.getWidth(); i++){
-				double value = fftData[i*2];
-				revan.putPixelValue(i, j, value);
-			}
-		}
-		return revan;
+	@Deprecated
+	public static Grid2D applyRampFilter_ECC(Grid2D imp, RampFilter ramp){
+		return applyRampFilter(imp, ramp);
 	}
 
 	/**
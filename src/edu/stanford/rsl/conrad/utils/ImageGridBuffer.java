@@ -39,6 +39,7 @@ public class ImageGridBuffer {
 	 * @param index
 	 */
 	public synchronized void add(Grid2D image, int index){
+		notifyAll();
 		Integer key = new Integer(index);
 		if (!indices.contains(key)){ // Insert
 			if (debug) System.out.println("ImageProcessorBuffer: Duplicate Index replacing " + key);
@@ -93,6 +94,22 @@ public class ImageGridBuffer {
 		return revan;
 	}
 
+	/**
+	 * Returns the Grid2D at index index. If the index is not yet in the buffer, the calling thread
+	 * is parked until it is added. Note that removed indices will not be added again.
+	 * @param index the index
+	 * @return the Grid2D
+	 * @throws InterruptedException if the waiting thread is interrupted
+	 */
+	public synchronized Grid2D waitFor(int index) throws InterruptedException{
+		Grid2D revan = get(index);
+		while (revan == null){
+			wait();
+			revan = get(index);
+		}
+		return revan;
+	}
+
 	/**
 	 * Removes the image at the given index.
 	 * @param index the index.
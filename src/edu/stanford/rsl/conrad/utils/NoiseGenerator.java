@@ -0,0 +1,224 @@
+package edu.stanford.rsl.conrad.utils;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Random number generator for noise simulation. Each instance is an independent stream of a {@link SplittableRandom}, i.e. it must
+ * only be used by one thread at a time, but threads never compete for a shared generator.<br>
+ * Streams can be derived from a seed and keys such as the projection number and the detector row with {@link #NoiseGenerator(long, long...)}.
+ * As the stream of a pixel does not depend on the thread that processes it, noisy simulations are reproducible for any number of threads.<br>
+ * {@link #current()} returns an unseeded generator of the calling thread for callers that do not need reproducible results.<br>
+ * Poisson numbers are drawn by inversion for small lambda and by the transformed rejection with squeeze (PTRS) after Hoermann otherwise
+ * (cf. <a href="https://doi.org/10.1016/0167-6687(93)90997-4">W. Hoermann. The transformed rejection method for generating Poisson random variables.
+ * Insurance: Mathematics and Economics 12(1):39-45. 1993.</a>). Hence, the cost per sample is bounded for all lambda.
+ *
+ * @author akmaier
+ * @see StatisticsUtil
+ */
+public class NoiseGenerator {
+
+	/** Below this lambda, Poisson numbers are drawn by inversion. */
+	private static final double INVERSION_LIMIT = 10;
+
+	/** ln(k!) for k = 0 ... 63. */
+	private static final double [] LOG_FACTORIAL = new double[64];
+
+	static {
+		for (int k = 1; k < LOG_FACTORIAL.length; k++) {
+			LOG_FACTORIAL[k] = LOG_FACTORIAL[k - 1] + Math.log(k);
+		}
+	}
+
+	private static final AtomicLong seeds = new AtomicLong(System.nanoTime());
+
+	private static final ThreadLocal<NoiseGenerator> current = new ThreadLocal<NoiseGenerator>() {
+		@Override
+		protected NoiseGenerator initialValue() {
+			return new NoiseGenerator(newSeed());
+		}
+	};
+
+	private final SplittableRandom random;
+	private double nextGaussian;
+	private boolean haveNextGaussian = false;
+
+	/**
+	 * Creates a generator with the given seed.
+	 * @param seed the seed
+	 */
+	public NoiseGenerator(long seed) {
+		random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Creates the generator of the stream that is identified by the seed and the keys, e.g. the projection number and the detector row.
+	 * Different keys yield statistically independent streams.
+	 * @param seed the seed of the simulation
+	 * @param keys the keys of the stream
+	 */
+	public NoiseGenerator(long seed, long ... keys) {
+		this(streamSeed(seed, keys));
+	}
+
+	private NoiseGenerator(SplittableRandom random) {
+		this.random = random;
+	}
+
+	/**
+	 * @return a new seed that differs for each call
+	 */
+	public static long newSeed() {
+		return mix(seeds.getAndAdd(0x9E3779B97F4A7C15L));
+	}
+
+	/**
+	 * @return the generator of the calling thread
+	 */
+	public static NoiseGenerator current() {
+		return current.get();
+	}
+
+	/**
+	 * Computes the seed of a stream. The keys are hashed one after another with the finalizer of SplitMix64.
+	 * @param seed the seed of the simulation
+	 * @param keys the keys of the stream
+	 * @return the seed of the stream
+	 */
+	public static long streamSeed(long seed, long ... keys) {
+		long hash = mix(seed);
+		for (long key : keys) {
+			hash = mix(hash + 0x9E3779B97F4A7C15L + mix(key));
+		}
+		return hash;
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Splits off a new generator. The two streams are statistically independent.
+	 * @return the new generator
+	 */
+	public NoiseGenerator split() {
+		return new NoiseGenerator(random.split());
+	}
+
+	/**
+	 * @return a uniformly distributed number in [0, 1)
+	 */
+	public double nextDouble() {
+		return random.nextDouble();
+	}
+
+	/**
+	 * @return a uniformly distributed long
+	 */
+	public long nextLong() {
+		return random.nextLong();
+	}
+
+	/**
+	 * Generates a normally distributed number with Marsaglia's polar method.
+	 * @return a number with mean 0 and standard deviation 1
+	 */
+	public double nextGaussian() {
+		if (haveNextGaussian) {
+			haveNextGaussian = false;
+			return nextGaussian;
+		}
+		double v1, v2, s;
+		do {
+			v1 = 2 * random.nextDouble() - 1;
+			v2 = 2 * random.nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		} while (s >= 1 || s == 0);
+		double multiplier = Math.sqrt(-2 * Math.log(s) / s);
+		nextGaussian = v2 * multiplier;
+		haveNextGaussian = true;
+		return v1 * multiplier;
+	}
+
+	/**
+	 * Generates a normally distributed number.
+	 * @param mean the mean
+	 * @param standardDeviation the standard deviation
+	 * @return the number
+	 */
+	public double nextGaussian(double mean, double standardDeviation) {
+		return mean + standardDeviation * nextGaussian();
+	}
+
+	/**
+	 * Generates a Poisson distributed number with mean lambda and standard deviation Math.sqrt(lambda).
+	 * @param lambda the mean. Values that are not positive yield 0.
+	 * @return the number
+	 */
+	public long nextPoisson(double lambda) {
+		if (!(lambda > 0)) {
+			return 0;
+		}
+		if (lambda < INVERSION_LIMIT) {
+			return nextPoissonInversion(lambda);
+		}
+		return nextPoissonPTRS(lambda);
+	}
+
+	private long nextPoissonInversion(double lambda) {
+		double p = Math.exp(-lambda);
+		double cumulative = p;
+		double u = random.nextDouble();
+		long k = 0;
+		while (u > cumulative && k < LOG_FACTORIAL.length) {
+			k++;
+			p *= lambda / k;
+			cumulative += p;
+		}
+		return k;
+	}
+
+	private long nextPoissonPTRS(double lambda) {
+		double logLambda = Math.log(lambda);
+		double b = 0.931 + 2.53 * Math.sqrt(lambda);
+		double a = -0.059 + 0.02483 * b;
+		double logInverseAlpha = Math.log(1.1239 + 1.1328 / (b - 3.4));
+		double vr = 0.9277 - 3.6224 / (b - 2);
+		while (true) {
+			double u = random.nextDouble() - 0.5;
+			double v = random.nextDouble();
+			double us = 0.5 - Math.abs(u);
+			long k = (long) Math.floor((2 * a / us + b) * u + lambda + 0.43);
+			if (us >= 0.07 && v <= vr) {
+				return k;
+			}
+			if (k < 0 || (us < 0.013 && v > us)) {
+				continue;
+			}
+			if (Math.log(v) + logInverseAlpha - Math.log(a / (us * us) + b) <= -lambda + k * logLambda - logFactorial(k)) {
+				return k;
+			}
+		}
+	}
+
+	/**
+	 * Computes ln(k!) from a table for small k and with the Stirling series otherwise.
+	 * @param k the k
+	 * @return ln(k!)
+	 */
+	public static double logFactorial(long k) {
+		if (k < LOG_FACTORIAL.length) {
+			return LOG_FACTORIAL[(int) k];
+		}
+		double x = k + 1;
+		double x2 = x * x;
+		return (x - 0.5) * Math.log(x) - x + 0.5 * Math.log(2 * Math.PI) + (1.0 / 12 - (1.0 / 360 - 1.0 / (1260 * x2)) / x2) / x;
+	}
+
+}
+/*
+ * Copyright (C) 2010-2014 Andreas Maier
+ * CONRAD is developed as an Open Source project under the GNU General Public License (GPL).
+*/
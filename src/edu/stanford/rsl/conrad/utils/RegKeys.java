@@ -237,8 +237,17 @@ public abstract class RegKeys {
 	/**
 	 * Entry to describe the slow down value, if the memory gets too full during the processing.
 	 * The higher the value, the more the system will wait, until the next projection is read.
+	 * @deprecated the pipeline is throttled by the queue capacity of its stages. See {@link #PIPELINE_QUEUE_CAPACITY}.
 	 */
+	@Deprecated
 	public static final String SLOW_DOWN_MS = "SLOW_DOWN_MS";
+
+	/**
+	 * Entry to describe the number of projections that may be queued in front of a parallel stage of the filter pipeline.
+	 * If the queue is full, the previous stage is blocked until a projection was taken from the queue.
+	 * The <b>value</b> is an <b>int</b>. Default is 32.
+	 */
+	public static final String PIPELINE_QUEUE_CAPACITY = "PIPELINE_QUEUE_CAPACITY";
 	
 	/**
 	 * Entry to the file which contains the initial beads position in projection [u, v].<br>
@@ -342,6 +351,7 @@ public abstract class RegKeys {
 	static {
 		defaultValues = new HashMap<String, String>();
 		defaultValues.put(SLOW_DOWN_MS, "10");
+		defaultValues.put(PIPELINE_QUEUE_CAPACITY, "32");
 		defaultValues.put(SPLINE_SUBSAMPLING_FACTOR, "4");
 		defaultValues.put(PHANTOM_PROJECTOR_ENFORCE_PRIORITY_RAYTRACER, "false");	
 		defaultValues.put(ED_PHANTOM_BONE_RING, "false");
@@ -1,29 +1,31 @@
 package edu.stanford.rsl.conrad.utils;
 
-import java.util.Random;
-
 
 public abstract class StatisticsUtil {
 
-	private static Random rand = new Random(System.currentTimeMillis());
-
 	/**
 	 * Generates a Poisson distributed random number. The Poisson distribution is definded by the number lambda. 
 	 * The distribution has mean lambda and standard deviation of Math.sqrt(lambda).<BR>
-	 * If lambda is smaller than 200 the value is determined by cumulative statistics, otherwise an approximation is used. Time measurements showed that the approximation used here outperforms the implementation in Matlab 2008.
+	 * The number is drawn from the {@link NoiseGenerator} of the calling thread. Hence, threads do not compete for one generator.
+	 * Use {@link NoiseGenerator#NoiseGenerator(long, long...)} for reproducible noise.
 	 * <br><BR>
 	 * <img alt="poisson distribution" src="http://upload.wikimedia.org/wikipedia/commons/thumb/1/16/Poisson_pmf.svg/360px-Poisson_pmf.svg.png">
 	 * @param lambda
 	 * @return a random number drawn from the Poisson distribution
-	 * @see #poissonRandomNumberSmall(double)
-	 * @see #poissonRandomNumberBig(double)
+	 * @see NoiseGenerator#nextPoisson(double)
 	 */
 	public static int poissonRandomNumber(double lambda){
-		if (lambda < 200){
-			return poissonRandomNumberSmall(lambda);
-		} else {
-			return poissonRandomNumberBig(lambda);
-		}
+		return (int) NoiseGenerator.current().nextPoisson(lambda);
+	}
+
+	/**
+	 * Generates a normally distributed random number with the {@link NoiseGenerator} of the calling thread.
+	 * @param mean the mean
+	 * @param standardDeviation the standard deviation
+	 * @return a random number drawn from the normal distribution
+	 */
+	public static double gaussianRandomNumber(double mean, double standardDeviation){
+		return NoiseGenerator.current().nextGaussian(mean, standardDeviation);
 	}
 	
 	/**
@@ -36,6 +38,7 @@ public abstract class StatisticsUtil {
 	 */
 	public static int poissonRandomNumberSmall(double lambda)
 	{
+		NoiseGenerator rand = NoiseGenerator.current();
 		int x = 0;
 		double t = 0.0;
 		while (true)
@@ -76,6 +79,7 @@ public abstract class StatisticsUtil {
 	 * @return a random number from the Poisson distribution
 	 */
 	public static int poissonRandomNumberBig(double lambda){
+		NoiseGenerator rand = NoiseGenerator.current();
 		double beta = Math.PI * (1.0 / Math.sqrt(3.0 * lambda));
 		double alpha = beta * lambda;
 		double k = Math.log(0.8065) - lambda - Math.log(beta);
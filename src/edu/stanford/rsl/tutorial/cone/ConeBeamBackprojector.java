@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.nio.FloatBuffer;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.TimeUnit;
 
 import com.jogamp.opencl.CLBuffer;
@@ -21,9 +23,11 @@ import com.jogamp.opencl.CLMemory.Mem;
 import edu.stanford.rsl.conrad.data.numeric.Grid2D;
 import edu.stanford.rsl.conrad.data.numeric.Grid3D;
 import edu.stanford.rsl.conrad.data.numeric.InterpolationOperators;
+import edu.stanford.rsl.conrad.data.numeric.OffHeapGrid2D;
 import edu.stanford.rsl.conrad.data.numeric.opencl.OpenCLGrid2D;
 import edu.stanford.rsl.conrad.data.numeric.opencl.OpenCLGrid3D;
 import edu.stanford.rsl.conrad.geometry.Projection;
+import edu.stanford.rsl.conrad.geometry.trajectories.ProjectionMatrixTable;
 import edu.stanford.rsl.conrad.geometry.trajectories.Trajectory;
 import edu.stanford.rsl.conrad.numerics.SimpleMatrix;
 import edu.stanford.rsl.conrad.numerics.SimpleOperators;
@@ -67,6 +71,9 @@ public class ConeBeamBackprojector {
 	private CLImageFormat format;
 	private CLProgram program;
 	
+	//cpu variables
+	private ForkJoinPool pool;
+	
 	//normalization parameter
 	float normalizer;
 
@@ -132,6 +139,22 @@ public class ConeBeamBackprojector {
 			program.release();
 		if(projMatrices != null && !projMatrices.isReleased())
 			projMatrices.release();
+		synchronized (this) {
+			if (pool != null) {
+				pool.shutdown();
+				pool = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the pool of the pixel-driven backprojection. It is created once per backprojector and reused by all calls.
+	 */
+	private synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(Math.max(1, CONRAD.getNumberOfThreads()));
+		}
+		return pool;
 	}
 
 	public Grid3D backprojectPixelDriven(Grid2D sino, int projIdx) {
@@ -146,28 +169,130 @@ public class ConeBeamBackprojector {
 		Grid3D grid = new Grid3D(imgSizeX,imgSizeY,imgSizeZ);
 		grid.setOrigin(-originX, -originY, -originZ);
 		grid.setSpacing(spacingX, spacingY, spacingZ);
-		for(int x = 0; x < imgSizeX; x++) {
-			double xTrans = x*spacingX-originX;
-			for(int y = 0; y < imgSizeY ; y++) {
-				double yTrans = y*spacingY-originY;
-				for(int z = 0; z < imgSizeZ; z++) {
-					SimpleVector point3d = new SimpleVector(xTrans, yTrans, z*spacingZ-originZ, 1);
-					//for(int p = 0; p < maxProjs; p++) {
-					int p = projIdx;
-					SimpleVector point2d = SimpleOperators.multiply(projMats[p].computeP(), point3d);
-					double coordU = point2d.getElement(0) / point2d.getElement(2);
-					double coordV = point2d.getElement(1) / point2d.getElement(2);
-
-					float val = (float) (InterpolationOperators.interpolateLinear(sino, coordU, coordV)/(point2d.getElement(2)*point2d.getElement(2))); //
-					//if(Float.isInfinite(val) || Float.isNaN(val))
-					//	val = 0;
-					grid.setAtIndex(x, y, z, val); // "set" instead of "add", because #proj==1
-					//}
-				}
+		// "add" into an empty volume equals "set", because #proj==1
+		backprojectPixelDriven(new Grid2D[]{sino}, new int[]{projIdx}, grid, 1.0f);
+		return grid;
+	}
+
+	/**
+	 * Backprojects a projection and adds the weighted result to the given volume.
+	 * @param sino the projection
+	 * @param projIdx the index of the projection
+	 * @param grid the volume with the configured reconstruction dimensions. It is updated in place.
+	 * @param weight the factor of the backprojected values
+	 * @see #backprojectPixelDriven(Grid2D[], int[], Grid3D, float)
+	 */
+	public void backprojectPixelDriven(Grid2D sino, int projIdx, Grid3D grid, float weight) {
+		backprojectPixelDriven(new Grid2D[]{sino}, new int[]{projIdx}, grid, weight);
+	}
+
+	/**
+	 * Backprojects a set of projections and adds the weighted sum to the given volume, e.g. the update of an
+	 * ordered subset. No volume is allocated, i.e. the same buffer can accumulate several calls.
+	 * The volume is split into slabs along z that are processed in parallel. Each slice is fetched once and updated
+	 * with all projections of the set. Hence, slices of an {@link edu.stanford.rsl.conrad.data.numeric.OffHeapGrid3D} are
+	 * written back once per call. The projection matrices are read from the {@link ProjectionMatrixTable} of the trajectory.
+	 * @param sinos the projections
+	 * @param projIdx the indices of the projections
+	 * @param grid the volume with the configured reconstruction dimensions. It is updated in place.
+	 * @param weight the factor of the backprojected values
+	 * @throws IllegalArgumentException if an index is invalid or the size of the volume does not match the configuration
+	 */
+	public void backprojectPixelDriven(final Grid2D[] sinos, final int[] projIdx, final Grid3D grid, final float weight) {
+		configure();
+		
+		if (sinos.length != projIdx.length) {
+			throw new IllegalArgumentException("ConeBeamBackprojector: " + sinos.length + " projections but " + projIdx.length + " indices");
+		}
+		for (int p : projIdx){
+			if(p >= maxProjs || 0 > p){
+				throw new IllegalArgumentException("ConeBeamBackprojector: Invalid projection index " + p);
 			}
 		}
+		int [] size = grid.getSize();
+		if (size[0] != imgSizeX || size[1] != imgSizeY || size[2] != imgSizeZ) {
+			throw new IllegalArgumentException("ConeBeamBackprojector: Volume size " + size[0] + "x" + size[1] + "x" + size[2]
+					+ " does not match the reconstruction size " + imgSizeX + "x" + imgSizeY + "x" + imgSizeZ);
+		}
+		final ProjectionMatrixTable table = geometry.getProjectionMatrixTable();
+		final double [][] mats = new double[projIdx.length][ProjectionMatrixTable.MATRIX_SIZE];
+		// getBuffer() copies off-heap projections. Hence, the buffers are fetched once for all slabs.
+		final float [][] sinoBuffers = new float[projIdx.length][];
+		for (int n = 0; n < projIdx.length; n++) {
+			table.getMatrix(projIdx[n], mats[n]);
+			sinoBuffers[n] = sinos[n].getBuffer();
+		}
+		ForkJoinPool pool = getPool();
+		final int nThreads = Math.max(1, Math.min(pool.getParallelism(), imgSizeZ));
+		final int slab = (imgSizeZ + nThreads - 1) / nThreads;
+		ForkJoinTask<?> [] tasks = new ForkJoinTask<?>[nThreads];
+		for(int t = 0; t < nThreads; t++) {
+			final int zStart = t * slab;
+			final int zEnd = Math.min(imgSizeZ, zStart + slab);
+			tasks[t] = pool.submit(new Runnable(){
+				@Override
+				public void run(){
+					for(int z = zStart; z < zEnd; z++) {
+						Grid2D sliceGrid = grid.getSubGrid(z);
+						float [] slice = sliceGrid.getBuffer();
+						double zTrans = z*spacingZ-originZ;
+						for (int n = 0; n < projIdx.length; n++) {
+							double [] mat = mats[n];
+							float [] sino = sinoBuffers[n];
+							int width = sinos[n].getWidth();
+							int height = sinos[n].getHeight();
+							// step of the homogeneous detector coordinates per voxel in x
+							double stepU = mat[0] * spacingX;
+							double stepV = mat[4] * spacingX;
+							double stepW = mat[8] * spacingX;
+							for(int y = 0; y < imgSizeY ; y++) {
+								double yTrans = y*spacingY-originY;
+								double xTrans = -originX;
+								double u = mat[0]*xTrans + mat[1]*yTrans + mat[2]*zTrans + mat[3];
+								double v = mat[4]*xTrans + mat[5]*yTrans + mat[6]*zTrans + mat[7];
+								double w = mat[8]*xTrans + mat[9]*yTrans + mat[10]*zTrans + mat[11];
+								int offset = y * imgSizeX;
+								for(int x = 0; x < imgSizeX; x++, u += stepU, v += stepV, w += stepW) {
+									double coordU = u / w;
+									double coordV = v / w;
+									double val = interpolateLinear(sino, width, height, coordU, coordV);
+									if (val != 0) {
+										slice[offset + x] += (float) (weight * val / (w * w));
+									}
+								}
+							}
+						}
+						// off-heap slices hand out a copy of their memory.
+						if (sliceGrid instanceof OffHeapGrid2D) ((OffHeapGrid2D) sliceGrid).setBuffer(slice);
+					}
+				}});
+		}
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+	}
 
-		return grid;
+	/**
+	 * Bilinear interpolation with zero padding on the buffer of a Grid2D, see {@link InterpolationOperators#interpolateLinear(Grid2D, double, double)}.
+	 */
+	private static double interpolateLinear(float [] buffer, int width, int height, double x, double y) {
+		if (!(x > -1 && x < width && y > -1 && y < height)) {
+			return 0;
+		}
+		int i = (int) Math.floor(x);
+		int j = (int) Math.floor(y);
+		double dx = x - i;
+		double dy = y - j;
+		double lower = 0, upper = 0;
+		if (j >= 0) {
+			int row = j * width;
+			lower = ((i >= 0) ? (1.0-dx)*buffer[row + i] : 0) + ((i + 1 < width) ? dx*buffer[row + i + 1] : 0);
+		}
+		if (j + 1 < height) {
+			int row = (j + 1) * width;
+			upper = ((i >= 0) ? (1.0-dx)*buffer[row + i] : 0) + ((i + 1 < width) ? dx*buffer[row + i + 1] : 0);
+		}
+		return (1.0-dy)*lower + dy*upper;
 	}
 
 	public Grid3D backprojectPixelDriven(final Grid3D sino) {
@@ -11,6 +11,13 @@ import edu.stanford.rsl.tutorial.cone.ConeBeamProjector;
 
 /**
  * SART reconstruction
+ * <p>
+ * The projections can be processed in ordered subsets (OS-SART). The updates of all projections of a subset are computed from the same
+ * volume and backprojected together into the volume with the relaxation parameter divided by the subset size. By default, each subset
+ * contains one projection, which is the classical SART. The subsets are interleaved, i.e. subset s contains the projections
+ * s, s + numSubsets, s + 2 * numSubsets, ...
+ * <p>
+ * The updates are backprojected in place into the volume, see {@link ConeBeamBackprojector#backprojectPixelDriven(Grid2D[], int[], Grid3D, float)}.
  * 
  * @author Mario Amrehn
  * 
@@ -22,6 +29,10 @@ public class SartCPU implements Sart {
 	protected Grid3D oProj = null;
 	protected final float beta;
 	protected float normFactor;
+	/** normSino scaled by normFactor for each projection. Computed once for speedup. */
+	protected Grid2D[] normSinoP;
+	/** number of ordered subsets. Equals the number of projections for SART. */
+	protected int numSubsets;
 
 	protected NumericGridOperator gop = NumericGridOperator.getInstance();
 
@@ -29,7 +40,7 @@ public class SartCPU implements Sart {
 	protected boolean verbose = false;
 	protected boolean debug = false;
 	protected final static boolean USE_CL_FP = true;	// GPU acceleration
-	protected final static boolean USE_CL_BP = true;	// GPU acceleration
+	protected final static boolean USE_CL_BP = false;	// GPU acceleration
 	// -----------------------------------------
 
 	public SartCPU(int[] volDims, double[] spacing, double[] origin, Grid3D oProj,
@@ -53,6 +64,8 @@ public class SartCPU implements Sart {
 		/* calculated once for speedup */
 		this.normFactor = (float) (gop.normL1(oProj) / gop.normL1(normSino));
 		this.beta = beta;
+		this.normSinoP = createNormProjs();
+		this.numSubsets = normSinoP.length;
 	}
 
 	public SartCPU(Grid3D initialVol, Grid3D sino, float beta) throws Exception {
@@ -69,6 +82,8 @@ public class SartCPU implements Sart {
 		/* calculated once for speedup*/
 		normFactor = (float) (gop.normL1(oProj) / gop.normL1(normSino));
 		this.beta = beta;
+		this.normSinoP = createNormProjs();
+		this.numSubsets = normSinoP.length;
 	}
 
 	/**
@@ -93,6 +108,59 @@ public class SartCPU implements Sart {
 		return sino;
 	}
 
+	/**
+	 * @return the normalization of each projection, i.e. normSino scaled by normFactor
+	 */
+	protected Grid2D[] createNormProjs() {
+		Grid2D[] normProjs = new Grid2D[normSino.getSize()[2]];
+		for (int p = 0; p < normProjs.length; ++p) {
+			normProjs[p] = new Grid2D(normSino.getSubGrid(p));
+			gop.multiplyBy(normProjs[p], normFactor);
+		}
+		return normProjs;
+	}
+
+	/**
+	 * Sets the number of ordered subsets. 1 yields a simultaneous update with all projections, the number of projections yields SART.
+	 * @param numSubsets the number of subsets
+	 */
+	public void setNumberOfSubsets(int numSubsets) {
+		if (1 > numSubsets || normSinoP.length < numSubsets) {
+			throw new IllegalArgumentException("SART: The number of subsets has to be in [1, " + normSinoP.length + "]");
+		}
+		this.numSubsets = numSubsets;
+	}
+
+	/**
+	 * @return the number of ordered subsets
+	 */
+	public int getNumberOfSubsets() {
+		return numSubsets;
+	}
+
+	/**
+	 * Creates the interleaved subsets in the order of processing. Subsequent subsets are about a third of the scan apart
+	 * such that projections with a small angle to each other are not used subsequently.
+	 * @param numProjs the number of projections
+	 * @param numSubsets the number of subsets
+	 * @return the projection indices of each subset
+	 */
+	protected static int[][] createSubsets(int numProjs, int numSubsets) {
+		int[][] subsets = new int[numSubsets][];
+		boolean[] subsetIsUsed = new boolean[numSubsets]; // default: false
+		int s = 0; // current subset index
+		for (int n = 0; n < numSubsets; ++n) {
+			subsetIsUsed[s] = true;
+			subsets[n] = new int[(numProjs - s + numSubsets - 1) / numSubsets];
+			for (int k = 0; k < subsets[n].length; ++k)
+				subsets[n][k] = s + k * numSubsets;
+			s = (s + numSubsets / 3) % numSubsets;
+			for (int ii = 1; subsetIsUsed[s] && ii < numSubsets; ++ii)
+				s = (s + 1) % numSubsets;
+		}
+		return subsets;
+	}
+
 	public void iterate() throws Exception {
 		this.iterate(1);
 	}
@@ -101,98 +169,68 @@ public class SartCPU implements Sart {
 		ConeBeamProjector cbp = new ConeBeamProjector();
 		ConeBeamBackprojector cbbp = new ConeBeamBackprojector();
 		int numProjs = cbp.getMaxProjections();
-		for (int i = 0; i < iter; ++i) {
-
-			boolean[] projIsUsed = new boolean[numProjs]; // default: false
-			int p = 0; // current projection index
-
-			for (int n = 0; n < numProjs; ++n) {
-				/* edit/init data structures */
-				projIsUsed[p] = true;
-				Grid2D sino = USE_CL_FP ? cbp.projectRayDrivenCL(vol, p) : cbp
-						.projectPixelDriven(vol, p);
-				sino = gop.transpose(sino);
-				if(debug && 0 < gop.normL1(vol)){
-					Grid3D sinoTest = USE_CL_FP ? cbp.projectRayDrivenCL(vol) : cbp
-							.projectPixelDriven(vol);
-					Grid2D sinoTestP = sinoTest.getSubGrid(p);
-					sinoTest.show("sinoCL-Test");
-					sinoTestP.show("sinoCL-Test-Proj:" + p);
-					Grid2D s = new Grid2D(sinoTestP);
-					gop.subtractBySave(s, sino);
-					s.show("sinoCL-Test-Proj-Diff");
-					System.out.println("Diff L1: " + gop.normL1(s));
-				}
-				/*
-				if(verbose && 0 != gop.normL1(sino)){
-					System.out.println("Some actual data found in sino!");
-					if(0==p%5)
-						sino.show("sino of it:" + i + " proj:" + p);
-				}
-				*/
-				gop.fillInvalidValues(sino, 0);
-				
-				if (verbose) System.out.println(gop.min(sino) + ":" + gop.max(sino)); // TEST
-				
-				//oProj.show("oProj");
-				
-				Grid2D oProjP = new Grid2D(oProj.getSubGrid(p));
-				Grid2D normSinoP = new Grid2D(normSino.getSubGrid(p)); // used read-only, cloning not necessary but save
-				gop.multiplyBy(normSinoP, normFactor);
-
-				/* update step */
-				// NOTE: upd = (oProj - sino) ./ normSino
-				
-				if (verbose) reportInvalidValues(oProjP, "oProjP"); // Just in case.. 
-				if (verbose) reportInvalidValues(sino, "sino"); // Just in case.. should not happen after fillInvalidValues()
-				
-				gop.subtractBy(oProjP, sino);
-				
-				if (verbose) reportInvalidValues(oProjP, "oProjP"); // Just in case.. 
-				if (verbose) reportInvalidValues(normSinoP, "normSinoP"); // Just in case.. 
-				
-				gop.divideBySave(oProjP, normSinoP);
-				Grid2D upd = oProjP;
-
-				if (verbose) reportInvalidValues(upd, "for projection " + p);
-
-				// NOTE: vol = vol + updBP * beta
-				// upd.setOrigin(oProj.getOrigin()[0], oProj.getOrigin()[1]); //
-				// needed after update?
-				// upd.setSpacing(oProj.getSpacing()[0], oProj.getSpacing()[1]);
-				// // needed after update?
-				Grid3D updBP = USE_CL_BP ? cbbp.backprojectPixelDrivenCL(upd, p)
-						: cbbp.backprojectPixelDriven(upd, p);
-
-				if (verbose) reportInvalidValues(updBP, "updBP");
-				
-				if(debug){
-					Grid3D updBPTest = (!USE_CL_BP) ? cbbp.backprojectPixelDrivenCL(upd, p)
-							: cbbp.backprojectPixelDriven(upd, p);
-					if (verbose) reportInvalidValues(updBPTest, "updBPTest");
-					gop.multiplyBySave(updBPTest, 1);
-					updBPTest.show("updBPTest");
+		int[][] subsets = createSubsets(numProjs, numSubsets);
+		Grid2D[] upd = new Grid2D[subsets[0].length]; // reused for all subsets
+		try {
+			for (int i = 0; i < iter; ++i) {
+
+				for (int[] subset : subsets) {
+					for (int n = 0; n < subset.length; ++n) {
+						int p = subset[n]; // current projection index
+						Grid2D sino = USE_CL_FP ? cbp.projectRayDrivenCL(vol, p) : cbp
+								.projectPixelDriven(vol, p);
+						sino = gop.transpose(sino);
+						if(debug && 0 < gop.normL1(vol)){
+							Grid3D sinoTest = USE_CL_FP ? cbp.projectRayDrivenCL(vol) : cbp
+									.projectPixelDriven(vol);
+							Grid2D sinoTestP = sinoTest.getSubGrid(p);
+							sinoTest.show("sinoCL-Test");
+							sinoTestP.show("sinoCL-Test-Proj:" + p);
+							Grid2D s = new Grid2D(sinoTestP);
+							gop.subtractBySave(s, sino);
+							s.show("sinoCL-Test-Proj-Diff");
+							System.out.println("Diff L1: " + gop.normL1(s));
+						}
+						gop.fillInvalidValues(sino, 0);
 					
-					System.out.println("vol: " + Arrays.toString(vol.getOrigin()));
-					System.out.println("updBP: " + Arrays.toString(updBP.getOrigin()));
-					System.out.println("updBPTest: " + Arrays.toString(updBPTest.getOrigin()));
-				}				
-				
-				// GridOp.addInPlace(vol, GridOp.mulInPlace(updBP, beta));
-				gop.multiplyBySave(updBP, beta);
-				if (verbose) reportInvalidValues(updBP, "updBP after mult");
-				
-				gop.addBy(vol, updBP);
-				if (verbose) reportInvalidValues(vol, "vol after " + i + " SART iterations");
-
-				/*
-				 * Don't use projections with a small angle to each other
-				 * subsequently
-				 */
-				p = (p + numProjs / 3) % numProjs;
-				for (int ii = 1; projIsUsed[p] && ii < numProjs; ++ii)
-					p = (p + 1) % numProjs;
+						if (verbose) System.out.println(gop.min(sino) + ":" + gop.max(sino)); // TEST
+
+						/* update step */
+						// NOTE: upd = (oProj - sino) ./ normSino
+						Grid2D oProjP = oProj.getSubGrid(p);
+						if (null == upd[n])
+							upd[n] = new Grid2D(oProjP);
+						else
+							System.arraycopy(oProjP.getBuffer(), 0, upd[n].getBuffer(), 0, oProjP.getBuffer().length);
+					
+						if (verbose) reportInvalidValues(upd[n], "oProjP"); // Just in case.. 
+						if (verbose) reportInvalidValues(sino, "sino"); // Just in case.. should not happen after fillInvalidValues()
+					
+						gop.subtractBy(upd[n], sino);
+						gop.divideBySave(upd[n], normSinoP[p]);
+
+						if (verbose) reportInvalidValues(upd[n], "for projection " + p);
+					}
+
+					// NOTE: vol = vol + sum(updBP) * beta / |subset|
+					float weight = beta / subset.length;
+					if (USE_CL_BP) {
+						for (int n = 0; n < subset.length; ++n) {
+							Grid3D updBP = cbbp.backprojectPixelDrivenCL(upd[n], subset[n]);
+							if (verbose) reportInvalidValues(updBP, "updBP");
+							gop.multiplyBySave(updBP, weight);
+							gop.addBy(vol, updBP);
+						}
+					} else {
+						Grid2D[] subsetUpd = (upd.length == subset.length) ? upd : Arrays.copyOf(upd, subset.length);
+						cbbp.backprojectPixelDriven(subsetUpd, subset, vol, weight);
+					}
+					if (verbose) reportInvalidValues(vol, "vol after " + i + " SART iterations");
+				}
 			}
+		} finally {
+			// shuts down the pool of the pixel-driven backprojection
+			cbbp.unload();
 		}
 	}
 